@@ -0,0 +1,176 @@
+package com.courtplanner.court;
+
+import android.app.Instrumentation;
+import android.os.Handler;
+import android.os.HandlerThread;
+import android.util.Log;
+import android.view.FrameMetrics;
+import android.view.Window;
+import android.widget.Button;
+import android.widget.LinearLayout;
+import android.widget.ScrollView;
+
+import androidx.test.core.app.ActivityScenario;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.filters.SdkSuppress;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import com.courtplanner.court.engine.Player;
+import com.google.android.material.textfield.TextInputEditText;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.*;
+
+/**
+ * Frame-time benchmark for typing into the player filter with a few hundred players: the
+ * recycled list against the old approach of rebuilding every row on each keystroke.
+ * Results are written to logcat under the tag "FrameTime".
+ */
+@RunWith(AndroidJUnit4.class)
+@SdkSuppress(minSdkVersion = 24)
+public class PlayerListFrameTimeTest {
+
+    private static final int PLAYERS = 500;
+    private static final String TYPED = "PLAYER 12";
+
+    private final Instrumentation instrumentation = InstrumentationRegistry.getInstrumentation();
+
+    @Test
+    public void typingIntoFilter() {
+        try (ActivityScenario<MainActivity> scenario = ActivityScenario.launch(MainActivity.class)) {
+            final AtomicReference<MainActivity> ref = new AtomicReference<>();
+            scenario.onActivity(activity -> {
+                for (int i = 0; i < PLAYERS; ++i) {
+                    activity.players.add("PLAYER " + i);
+                }
+                ref.set(activity);
+            });
+            MainActivity activity = ref.get();
+
+            Result recycled = measure(activity.getWindow(), () -> {
+                TextInputEditText tv = activity.findViewById(R.id.textInputEditText);
+                for (int i = 1; i <= TYPED.length(); ++i) {
+                    final String text = TYPED.substring(0, i);
+                    typeOnMainThread(() -> tv.setText(text));
+                }
+            });
+
+            final LinearLayout rows = new LinearLayout(activity);
+            rows.setOrientation(LinearLayout.VERTICAL);
+            instrumentation.runOnMainSync(() -> {
+                ScrollView scrollView = new ScrollView(activity);
+                scrollView.addView(rows);
+                activity.setContentView(scrollView);
+            });
+            instrumentation.waitForIdleSync();
+            Result rebuilt = measure(activity.getWindow(), () -> {
+                for (int i = 1; i <= TYPED.length(); ++i) {
+                    final String text = TYPED.substring(0, i);
+                    typeOnMainThread(() -> rebuildRows(activity, rows, text));
+                }
+            });
+
+            Log.i("FrameTime", "recycled list: " + recycled);
+            Log.i("FrameTime", "rebuilt rows:  " + rebuilt);
+            assertTrue(recycled.frames.size() > 0);
+        }
+    }
+
+    private final List<Long> keystrokeNanos = new ArrayList<>();
+
+    private void typeOnMainThread(Runnable keystroke) {
+        final long[] elapsed = new long[1];
+        instrumentation.runOnMainSync(() -> {
+            long start = System.nanoTime();
+            keystroke.run();
+            elapsed[0] = System.nanoTime() - start;
+        });
+        keystrokeNanos.add(elapsed[0]);
+        instrumentation.waitForIdleSync();
+    }
+
+    private Result measure(Window window, Runnable typing) {
+        keystrokeNanos.clear();
+        final List<Long> frames = Collections.synchronizedList(new ArrayList<Long>());
+        HandlerThread thread = new HandlerThread("frame-metrics");
+        thread.start();
+        Window.OnFrameMetricsAvailableListener listener = (w, metrics, dropped) ->
+                frames.add(metrics.getMetric(FrameMetrics.TOTAL_DURATION));
+        window.addOnFrameMetricsAvailableListener(listener, new Handler(thread.getLooper()));
+        typing.run();
+        instrumentation.waitForIdleSync();
+        window.removeOnFrameMetricsAvailableListener(listener);
+        thread.quitSafely();
+        return new Result(new ArrayList<>(keystrokeNanos), new ArrayList<>(frames));
+    }
+
+    // What refreshScrollView did before the list was recycled: new views for every matching row.
+    private static void rebuildRows(MainActivity activity, LinearLayout l, String typedName) {
+        l.removeAllViews();
+        int width = l.getWidth();
+        for (Player p : activity.players.getRankedPlayers()) {
+            if (p.name.contains(typedName.toUpperCase(Locale.ROOT))) {
+                LinearLayout.LayoutParams layoutParams_lh = new LinearLayout.LayoutParams(width - 30, MainActivity.dpToPx(40));
+                layoutParams_lh.setMargins(10, 10, 10, 0);
+                LinearLayout lh = new LinearLayout(activity);
+                lh.setOrientation(LinearLayout.HORIZONTAL);
+                LinearLayout.LayoutParams layoutParams1 = new LinearLayout.LayoutParams((int) (width * 0.8), MainActivity.dpToPx(40));
+                Button b0 = new Button(activity);
+                b0.setText(p.name);
+                b0.setTextSize(18);
+                b0.setBackgroundColor(activity.getResources().getColor(p.selected ? R.color.colorSelected : R.color.buttonColor));
+                b0.setTextColor(activity.getResources().getColor(R.color.buttonFontColor));
+                LinearLayout.LayoutParams layoutParams2 = new LinearLayout.LayoutParams((int) (width * 0.2), MainActivity.dpToPx(40));
+                Button b1 = new Button(activity);
+                b1.setText("X");
+                b1.setTextSize(18);
+                b1.setBackgroundColor(activity.getResources().getColor(R.color.buttonColor));
+                b1.setTextColor(activity.getResources().getColor(R.color.buttonFontColor));
+                lh.addView(b1, layoutParams2);
+                lh.addView(b0, layoutParams1);
+                l.addView(lh, layoutParams_lh);
+            }
+        }
+    }
+
+    private static final class Result {
+        final List<Long> keystrokes;
+        final List<Long> frames;
+
+        Result(List<Long> keystrokes, List<Long> frames) {
+            this.keystrokes = keystrokes;
+            this.frames = frames;
+        }
+
+        private static double percentileMs(List<Long> values, double p) {
+            if (values.isEmpty()) {
+                return 0;
+            }
+            List<Long> sorted = new ArrayList<>(values);
+            Collections.sort(sorted);
+            int index = (int) Math.min(sorted.size() - 1, Math.round(p * (sorted.size() - 1)));
+            return sorted.get(index) / 1e6;
+        }
+
+        @Override
+        public String toString() {
+            int janky = 0;
+            for (long frame : frames) {
+                if (frame > 16_666_667L) {
+                    janky += 1;
+                }
+            }
+            return String.format("keystroke main-thread p50 %.2f ms, max %.2f ms; frames %d, p50 %.2f ms, p95 %.2f ms, janky %d",
+                    percentileMs(keystrokes, 0.5), percentileMs(keystrokes, 1.0),
+                    frames.size(), percentileMs(frames, 0.5), percentileMs(frames, 0.95), janky);
+        }
+    }
+}
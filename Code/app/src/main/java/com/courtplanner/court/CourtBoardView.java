@@ -0,0 +1,140 @@
+package com.courtplanner.court;
+
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Color;
+import android.graphics.Paint;
+import android.util.AttributeSet;
+import android.view.MotionEvent;
+import android.view.View;
+
+import androidx.core.content.ContextCompat;
+
+import com.courtplanner.court.engine.CourtBoard;
+
+import java.util.List;
+
+/**
+ * Every court of the current round in one view, for a wall screen. Courts are painted into a
+ * bitmap that outlives frames, so a frame only repaints the courts whose players changed and
+ * then copies the bitmap; layout and text sizing come from {@link CourtBoard}.
+ */
+public class CourtBoardView extends View {
+
+    public interface Listener {
+        void onCourtClicked(int court);
+    }
+
+    private final Paint textPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+    private final Paint measurePaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+    private final Paint courtPaint = new Paint();
+    private final Paint linePaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+    private final int backgroundColor;
+    private final int lineColor = Color.WHITE;
+    private final int selectedColor;
+    private final CourtBoard board;
+    private Bitmap buffer;
+    private Canvas bufferCanvas;
+    private Listener listener;
+
+    private final CourtBoard.Painter painter = new CourtBoard.Painter() {
+        @Override
+        public void clear() {
+            bufferCanvas.drawColor(backgroundColor);
+        }
+
+        @Override
+        public void court(int court, float left, float top, float right, float bottom, boolean selected) {
+            bufferCanvas.drawRect(left, top, right, bottom, courtPaint);
+            linePaint.setColor(selected ? selectedColor : lineColor);
+            linePaint.setStrokeWidth(selected ? 6f : 2f);
+            bufferCanvas.drawRect(left, top, right, bottom, linePaint);
+            float net = (top + bottom) / 2;
+            bufferCanvas.drawLine(left, net, right, net, linePaint);
+        }
+
+        @Override
+        public void text(String text, float x, float y, float size) {
+            textPaint.setTextSize(size);
+            bufferCanvas.drawText(text, x, y, textPaint);
+        }
+    };
+
+    public CourtBoardView(Context context, AttributeSet attrs) {
+        super(context, attrs);
+        backgroundColor = ContextCompat.getColor(context, R.color.activityBackground);
+        selectedColor = ContextCompat.getColor(context, R.color.colorSelected);
+        courtPaint.setColor(Color.rgb(0x1E, 0x5B, 0x3A));
+        linePaint.setStyle(Paint.Style.STROKE);
+        textPaint.setColor(Color.WHITE);
+        textPaint.setTextAlign(Paint.Align.CENTER);
+        measurePaint.setTextSize(CourtBoard.REFERENCE_SIZE);
+        board = new CourtBoard(new CourtBoard.TextMeasure() {
+            @Override
+            public float width(String text) {
+                return measurePaint.measureText(text);
+            }
+        });
+    }
+
+    public void setListener(Listener listener) {
+        this.listener = listener;
+    }
+
+    /** Shows the drawn players, four per court; only courts that changed are repainted. */
+    public void setCourts(List<String> drawn, int courts) {
+        if (board.setCourts(drawn, courts)) {
+            invalidate();
+        }
+    }
+
+    public void setSelected(int court) {
+        board.setSelected(court);
+        if (board.needsPaint()) {
+            invalidate();
+        }
+    }
+
+    @Override
+    protected void onSizeChanged(int w, int h, int oldw, int oldh) {
+        super.onSizeChanged(w, h, oldw, oldh);
+        if (buffer != null) {
+            buffer.recycle();
+            buffer = null;
+            bufferCanvas = null;
+        }
+        if (w > 0 && h > 0) {
+            buffer = Bitmap.createBitmap(w, h, Bitmap.Config.ARGB_8888);
+            bufferCanvas = new Canvas(buffer);
+            board.setSize(w, h);
+            board.invalidateAll();
+        }
+    }
+
+    @Override
+    protected void onDraw(Canvas canvas) {
+        if (buffer == null) {
+            return;
+        }
+        board.paint(painter);
+        canvas.drawBitmap(buffer, 0, 0, null);
+    }
+
+    @Override
+    public boolean onTouchEvent(MotionEvent event) {
+        if (event.getAction() == MotionEvent.ACTION_UP) {
+            int court = board.courtAt(event.getX(), event.getY());
+            if (court >= 0 && listener != null) {
+                listener.onCourtClicked(court);
+            }
+            performClick();
+        }
+        return true;
+    }
+
+    @Override
+    public boolean performClick() {
+        return super.performClick();
+    }
+}
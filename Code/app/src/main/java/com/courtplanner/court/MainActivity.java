@@ -1,10 +1,16 @@
 package com.courtplanner.court;
 
+import androidx.appcompat.app.AlertDialog;
 import androidx.appcompat.app.AppCompatActivity;
+import androidx.recyclerview.widget.LinearLayoutManager;
+import androidx.recyclerview.widget.RecyclerView;
 
 import android.content.Context;
+import android.content.DialogInterface;
+import android.content.Intent;
 import android.content.SharedPreferences;
 import android.content.res.Resources;
+import android.net.Uri;
 import android.os.Bundle;
 import android.os.Handler;
 import android.text.Editable;
@@ -15,208 +21,619 @@ import android.view.Gravity;
 import android.view.LayoutInflater;
 import android.view.View;
 import android.view.ViewGroup;
-import android.view.ViewTreeObserver;
-import android.widget.Button;
-import android.widget.LinearLayout;
+import android.widget.CheckBox;
+import android.widget.EditText;
 import android.widget.PopupWindow;
-import android.widget.ScrollView;
 import android.widget.TextView;
-
+import android.widget.Toast;
+
+import com.courtplanner.court.engine.AttendancePresets;
+import com.courtplanner.court.engine.ClubNight;
+import com.courtplanner.court.engine.ConstraintSolver;
+import com.courtplanner.court.engine.CourtAllocator;
+import com.courtplanner.court.engine.CourtScheduler;
+import com.courtplanner.court.engine.DrawAudit;
+import com.courtplanner.court.engine.DrawEngine;
+import com.courtplanner.court.engine.DrawHistory;
+import com.courtplanner.court.engine.HttpSyncTransport;
+import com.courtplanner.court.engine.LatencyHistogram;
+import com.courtplanner.court.engine.LegacyDatabase;
+import com.courtplanner.court.engine.Metrics;
+import com.courtplanner.court.engine.PersistenceWorker;
+import com.courtplanner.court.engine.Player;
+import com.courtplanner.court.engine.PlayerRegistry;
+import com.courtplanner.court.engine.PlayerStore;
+import com.courtplanner.court.engine.Roster;
+import com.courtplanner.court.engine.RosterBatch;
+import com.courtplanner.court.engine.RosterSnapshot;
+import com.courtplanner.court.engine.RosterSync;
+import com.courtplanner.court.engine.RosterTransfer;
+import com.courtplanner.court.engine.RotationQueue;
+import com.courtplanner.court.engine.SessionPlanner;
+import com.courtplanner.court.engine.SyncTransport;
 import com.google.android.material.textfield.TextInputEditText;
 
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.security.SecureRandom;
 import java.util.ArrayList;
-import java.util.Iterator;
-import java.util.Random;
-
-public class MainActivity extends AppCompatActivity {
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+public class MainActivity extends AppCompatActivity implements PlayerListAdapter.Listener {
 
     enum DisplayPage{
         MAIN,
-        RESULT
+        RESULT,
+        BOARD
     }
 
     private PopupWindow popupWindow;
 
-    class Player{
-        boolean selected = false;
-        int numberSelected = 0;
-        String name = "";
 
-        public Player(){
+    SharedPreferences sharedPreferences;
+    // Set on the startup thread once both are open, under startupLock; see openPlayerStore
+    volatile PlayerStore playerStore;
+    volatile PersistenceWorker persistenceWorker;
+    // Every court ever played, for statistics; null if it could not be opened
+    DrawHistory drawHistory;
+    // Seed and candidates of every drawn round, to check a disputed draw later
+    DrawAudit drawAudit;
+    // Changes within this window after the first one are written together
+    static final long PERSIST_DEBOUNCE_MS = 300;
+    ArrayList<String> drawnPlayers = new ArrayList<String>();
+
+    final PlayerRegistry players = new PlayerRegistry();
+    // Named groups of players to select in one go; saved to attendance.presets
+    final AttendancePresets attendancePresets = new AttendancePresets(players);
+    PlayerListAdapter playerListAdapter;
+    // Draws and records rounds; roster changes go through addPlayer/removePlayer/recordDraw
+    ClubNight clubNight;
+    // Courts (round * MAX_COURTS + court) of the current draw or session whose result was entered
+    final HashSet<Integer> reportedCourts = new HashSet<Integer>();
+    static final int MAX_COURTS = 10000;
+
+    int currentFieldIndex = 1;
+    int numberCourts = 4;
+    // Format of every court of the last draw; null when all of them were doubles
+    CourtAllocator.Court[] venue;
+
+    // Selected players in the order they get to play; whoever sat out is at the head
+    RotationQueue rotationQueue = new RotationQueue();
+    final ArrayList<String> waitingPlayers = new ArrayList<String>();
+    static final int MAX_WAITING_SHOWN = 30;
+
+    // Session mode: the whole evening is planned up front, ids index sessionNames
+    SessionPlanner session;
+    final ArrayList<String> sessionNames = new ArrayList<String>();
+    final HashMap<String, Integer> sessionIds = new HashMap<String, Integer>();
+    int currentRound = 0;
+
+    // Continuous play: a finished court gets the next four at once; null in the other modes
+    volatile CourtScheduler liveScheduler;
+    // Tells callbacks of a stopped scheduler apart from the running one
+    int liveGeneration = 0;
+
+    // Roster sync with the other devices of the club; null when no sync_url is configured
+    RosterSync rosterSync;
+    SyncTransport syncTransport;
+    ExecutorService syncExecutor;
+    final AtomicBoolean syncQueued = new AtomicBoolean();
+
+    // Counters and latency histograms of the hot paths; saved to metrics.json in onStop
+    Metrics metrics;
+    LatencyHistogram refreshTime;
+    LatencyHistogram databaseStringTime;
+    LatencyHistogram databaseParseTime;
+    LatencyHistogram syncTime;
+
+    // Bulk import and export through files the user picks; runs off the main thread
+    static final int REQUEST_IMPORT = 1;
+    static final int REQUEST_EXPORT_CSV = 2;
+    static final int REQUEST_EXPORT_JSON = 3;
+    final ExecutorService transferExecutor = Executors.newSingleThreadExecutor();
+
+    // The roster is read off the main thread after the page is up; about one screen of players
+    // is shown before the rest. Roster changes wait until rosterLoaded.
+    static final int FIRST_PAGE_PLAYERS = 30;
+    final ExecutorService startupExecutor = Executors.newSingleThreadExecutor();
+    boolean rosterLoaded = false;
+    // Guards handing the player store over from the startup thread; once closed, onDestroy has
+    // run and the startup thread closes what it opened itself
+    final Object startupLock = new Object();
+    boolean startupClosed = false;
+
+    // Draws run here one at a time; drawing is set on the main thread while one is in flight
+    final ExecutorService drawExecutor = Executors.newSingleThreadExecutor();
+    boolean drawing = false;
+
+    // Roster changes of the club night and of imports; goes through the sync layer when there is one
+    final Roster roster = new Roster() {
+        @Override
+        public boolean add(String name) {
+            return addPlayer(name);
         }
 
-        public Player(String name){
-            this.name = name;
+        @Override
+        public BitSet addAll(RosterBatch batch) {
+            return addPlayers(batch);
         }
 
-        public Player copy(){
-            Player p = new Player();
-            p.numberSelected = this.numberSelected;
-            p.name = this.name;
-            p.selected = this.selected;
-            return p;
+        @Override
+        public boolean remove(String name) {
+            return removePlayer(name);
         }
+
+        @Override
+        public void recordDraw(Collection<String> drawn, int round) {
+            MainActivity.this.recordDraw(drawn, round);
+        }
+    };
+
+    public String getDatabaseString(){
+        long start = databaseStringTime.start();
+        StringBuilder res = new StringBuilder();
+        for(Player p : players.getPlayers()){
+            res.append(p.name);
+            res.append('_');
+            res.append(p.numberSelected);
+            res.append('_');
+            res.append(p.selected);
+            res.append('|');
+        }
+        databaseStringTime.recordSince(start);
+        return res.toString();
     }
 
+    // Runs on the startup thread. The store and its worker are only published together, and not
+    // at all once the activity is destroyed, so a late start never leaves a second writer behind.
+    public void openPlayerStore(){
+        synchronized(startupLock){
+            if(startupClosed){
+                return;
+            }
+        }
+        PlayerStore store = null;
+        try {
+            store = PlayerStore.open(new File(getFilesDir(), "players.db"), rosterLoader());
+
+            // One-time migration of the old pipe/underscore string in the "Database" key
+            String database = sharedPreferences.getString("Database", null);
+            if(database != null){
+                if(store.isEmpty()){
+                    parseDatabaseFromString(database);
+                    for(Player p : players.getPlayers()){
+                        store.put(p.name, p.numberSelected, p.selected);
+                    }
+                    store.flush();
+                }
+                sharedPreferences.edit().remove("Database").apply();
+            }
 
-    SharedPreferences sharedPreferences;
-    ArrayList<String> drawnPlayers = new ArrayList<String>();
+            PersistenceWorker worker = new PersistenceWorker(players, store, PERSIST_DEBOUNCE_MS, new PersistenceWorker.Listener() {
+                @Override
+                public void onWriteFailed(IOException e) {
+                    Log.e("DATABASE", "could not persist players", e);
+                }
+            });
+            worker.setMetrics(metrics);
+            synchronized(startupLock){
+                if(!startupClosed){
+                    playerStore = store;
+                    persistenceWorker = worker;
+                    return;
+                }
+            }
+            closePlayerStore(store, worker);
+        } catch (IOException e) {
+            Log.e("DATABASE", "could not open player store", e);
+            closePlayerStore(store, null);
+            String database = sharedPreferences.getString("Database", null);
+            if(database != null){
+                parseDatabaseFromString(database);
+            }
+        }
+    }
 
-    ArrayList<Player> availablePlayers = new ArrayList<Player>();
-    Object mutex = new Object();
+    // Adds the players startup reads to the roster and shows the first screen of them right away
+    public PlayerStore.Visitor rosterLoader(){
+        return new PlayerStore.Visitor() {
+            int loaded = 0;
 
-    int currentFieldIndex = 1;
-    int numberCourts = 4;
+            @Override
+            public void visit(String name, int numberSelected, boolean selected, double rating) {
+                players.add(name, numberSelected, selected, rating);
+                loaded += 1;
+                if(loaded == FIRST_PAGE_PLAYERS){
+                    runOnUiThread(new Runnable() {
+                        @Override
+                        public void run() {
+                            refreshScrollView();
+                            updateSelectedPlayerTextCount();
+                        }
+                    });
+                }
+            }
+        };
+    }
 
-    public String getDatabaseString(){
-        String res  = "";
-        synchronized (mutex){
-            for(Player p : availablePlayers){
-                res += p.name;
-                res += "_";
-                res += Integer.toString(p.numberSelected);
-                res += "_";
-                res += Boolean.toString(p.selected);
-                res += "|";
+    public void loadRoster(){
+        startupExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                openPlayerStore();
+                runOnUiThread(new Runnable() {
+                    @Override
+                    public void run() {
+                        onRosterLoaded();
+                    }
+                });
             }
+        });
+    }
 
+    // Whatever needs the whole roster opens once it is in
+    public void onRosterLoaded(){
+        if(isDestroyed()){
+            // onDestroy already closed the store, or openPlayerStore did when it came too late
+            return;
         }
-        return res;
+        openRotationQueue();
+        openClubNight();
+        openAttendancePresets();
+        openRosterSync();
+        rosterLoaded = true;
+        refreshScrollView();
+        updateSelectedPlayerTextCount();
     }
 
-    public void parseDatabaseFromString(String database){
-        ArrayList<Player> playerList = new ArrayList<>();
-
-        // Split the input string by '|'
-        String[] playerDataArray = database.split("\\|");
+    // True, with a hint, while the roster is still being read
+    public boolean rosterLoading(){
+        if(rosterLoaded){
+            return false;
+        }
+        Toast.makeText(this, "Still loading players", Toast.LENGTH_SHORT).show();
+        return true;
+    }
 
-        for (String playerData : playerDataArray) {
-            // Split each player data by '_'
-            String[] playerFields = playerData.split("_");
+    // Queues the player's record for the background writer; a burst of changes is written
+    // once. Removed players are marked dead in the store.
+    public void persistPlayer(String name){
+        if(persistenceWorker == null){
+            return;
+        }
+        persistenceWorker.markDirty(name);
+    }
 
-            // Ensure that there are enough fields to create a Player object
-            if (playerFields.length == 3) {
-                Player player = new Player();
+    public void openMetrics(){
+        metrics = new Metrics(getResources().getBoolean(R.bool.metrics_enabled));
+        refreshTime = metrics.histogram("ui.refreshScrollView");
+        databaseStringTime = metrics.histogram("database.toString");
+        databaseParseTime = metrics.histogram("database.parse");
+        syncTime = metrics.histogram("sync.roundTrip");
+        players.setMetrics(metrics);
+    }
 
-                // Extract and set the player's name
-                player.name = playerFields[0];
+    // Snapshot for `adb shell run-as com.courtplanner.court cat files/metrics.json`
+    public void saveMetrics(){
+        if(!metrics.isEnabled()){
+            return;
+        }
+        File file = new File(getFilesDir(), "metrics.json");
+        File temp = new File(getFilesDir(), "metrics.json.tmp");
+        try {
+            try (OutputStream out = new FileOutputStream(temp)) {
+                out.write(metrics.toJson().getBytes("UTF-8"));
+            }
+            if(!temp.renameTo(file)){
+                throw new IOException("could not replace " + file);
+            }
+        } catch (IOException e) {
+            Log.e("METRICS", "could not save metrics", e);
+        }
+    }
 
-                // Extract and set the numberSelected as an integer
-                try {
-                    player.numberSelected = Integer.parseInt(playerFields[1]);
-                } catch (NumberFormatException e) {
-                    // Handle parsing error as needed
-                    player.numberSelected = 0; // Default value
-                }
+    public void openDrawHistory(){
+        try {
+            drawHistory = DrawHistory.open(new File(getFilesDir(), "history"));
+        } catch (IOException e) {
+            Log.e("HISTORY", "could not open draw history", e);
+            drawHistory = null;
+        }
+    }
 
-                // Extract and set the selected status as a boolean
-                player.selected = Boolean.parseBoolean(playerFields[2]);
+    public void openDrawAudit(){
+        try {
+            drawAudit = DrawAudit.open(new File(getFilesDir(), "draws.audit"));
+        } catch (IOException e) {
+            Log.e("AUDIT", "could not open draw audit", e);
+            drawAudit = null;
+        }
+    }
 
-                // Add the Player object to the list
-                playerList.add(player);
-            } else {
-                // Handle invalid data format as needed
-            }
+    public void recordAudit(DrawAudit.Entry entry){
+        if(drawAudit == null){
+            return;
         }
+        try {
+            drawAudit.append(entry);
+        } catch (IOException e) {
+            Log.e("AUDIT", "could not record draw", e);
+        }
+    }
 
-        availablePlayers = playerList;
+    // Courts are buffered by the history and reach the disk in onStop at the latest
+    public void recordHistory(int round, int court, String[] courtPlayers){
+        if(drawHistory == null){
+            return;
+        }
+        try {
+            drawHistory.appendCourt(System.currentTimeMillis(), round, court, courtPlayers);
+        } catch (IOException e) {
+            Log.e("HISTORY", "could not record court", e);
+        } catch (IllegalStateException e) {
+            // Out of player ids; the draw itself goes on without its history entry
+            Log.e("HISTORY", "could not record court", e);
+        }
     }
 
-    public void increaseNumberSelectedOnPlayer(String name){
-        synchronized (mutex){
-            Player p = getPlayer(name);
-            if(p != null){
-                p.numberSelected += 1;
+    public void openRotationQueue(){
+        File file = new File(getFilesDir(), "rotation.queue");
+        if(file.exists()){
+            try (InputStream in = new FileInputStream(file)) {
+                rotationQueue = RotationQueue.readFrom(in);
+            } catch (IOException e) {
+                Log.e("ROTATION", "could not read rotation queue", e);
             }
         }
+        // Selection may have changed while the queue was not saved; newcomers join in random order
+        ArrayList<String> selected = new ArrayList<String>();
+        for(Player p : players.getSelectedPlayers()){
+            selected.add(p.name);
+        }
+        Collections.shuffle(selected);
+        rotationQueue.retainOnly(selected);
     }
 
-    public ArrayList<Player> copyAvailablePlayers(){
-        synchronized (mutex) {
-            ArrayList<Player> newAvailablePlayers = new ArrayList<Player>();
-            for(Player p : availablePlayers){
-                newAvailablePlayers.add(p.copy());
+    public void saveRotationQueue(){
+        File file = new File(getFilesDir(), "rotation.queue");
+        File temp = new File(getFilesDir(), "rotation.queue.tmp");
+        try {
+            try (OutputStream out = new FileOutputStream(temp)) {
+                rotationQueue.writeTo(out);
+            }
+            if(!temp.renameTo(file)){
+                throw new IOException("could not replace " + file);
             }
-            return newAvailablePlayers;
+        } catch (IOException e) {
+            Log.e("ROTATION", "could not save rotation queue", e);
         }
     }
 
-    public ArrayList<Player> getSelectedPlayers(){
-        synchronized (mutex) {
-            ArrayList<Player> newAvailablePlayers = new ArrayList<Player>();
-            for(Player p : availablePlayers){
-                if(p.selected == true) {
-                    newAvailablePlayers.add(p.copy());
-                }
-            }
-            return newAvailablePlayers;
+    // Presets are saved with the names they were made from and remapped onto the roster as loaded
+    public void openAttendancePresets(){
+        File file = new File(getFilesDir(), "attendance.presets");
+        if(!file.exists()){
+            return;
+        }
+        try (InputStream in = new FileInputStream(file)) {
+            attendancePresets.read(in);
+        } catch (IOException e) {
+            Log.e("PRESETS", "could not read attendance presets", e);
         }
     }
 
-    public boolean isPlayerPresent(String name){
-        for (Player p : availablePlayers) {
-            if (p.name.equals(name)) {
-                return true;
+    public void saveAttendancePresets(){
+        File file = new File(getFilesDir(), "attendance.presets");
+        File temp = new File(getFilesDir(), "attendance.presets.tmp");
+        try {
+            try (OutputStream out = new FileOutputStream(temp)) {
+                attendancePresets.write(out);
             }
+            if(!temp.renameTo(file)){
+                throw new IOException("could not replace " + file);
+            }
+        } catch (IOException e) {
+            Log.e("PRESETS", "could not save attendance presets", e);
         }
-        return false;
     }
 
-    public void addPlayer(Player p){
-        synchronized (mutex) {
-            if (!isPlayerPresent(p.name)) {
-                availablePlayers.add(p);
+    public void openClubNight(){
+        clubNight = new ClubNight(players, roster, rotationQueue);
+        clubNight.setMetrics(metrics);
+        clubNight.setListener(new ClubNight.Listener() {
+            @Override
+            public void onCourtPlayed(int round, int court, String[] courtPlayers) {
+                recordHistory(round, court, courtPlayers);
             }
-        }
+
+            @Override
+            public void onRoundDrawn(DrawAudit.Entry entry) {
+                recordAudit(entry);
+            }
+        });
     }
 
-    public void removePlayer(String name){
-        synchronized (mutex) {
-            Iterator<Player> iterator = availablePlayers.iterator();
-            while (iterator.hasNext()) {
-                Player p2 = iterator.next();
-                if (p2.name.equals(name)) {
-                    iterator.remove(); // Safely remove the player
+    public void openRosterSync(){
+        String url = getString(R.string.sync_url);
+        if(url.isEmpty()){
+            return;
+        }
+        if(getString(R.string.sync_secret).isEmpty()){
+            Log.e("SYNC", "sync_url is set but sync_secret is empty; roster stays local");
+            return;
+        }
+        File state = new File(getFilesDir(), "sync.state");
+        try {
+            syncTransport = new HttpSyncTransport(url, getString(R.string.sync_club), getString(R.string.sync_secret));
+            if(state.exists()){
+                try (InputStream in = new FileInputStream(state)) {
+                    rosterSync = RosterSync.readState(players, in);
                 }
+            }else{
+                // First start with sync: share whatever roster this device already has
+                rosterSync = new RosterSync(players, new SecureRandom().nextLong() & Long.MAX_VALUE);
+                rosterSync.seedFromRegistry();
             }
+        } catch (IOException e) {
+            Log.e("SYNC", "could not restore sync state", e);
+            rosterSync = null;
+            return;
         }
-    }
-
-    public Player getPlayer(String name){
-        synchronized (mutex) {
-            if (isPlayerPresent(name)) {
-                for (Player p : availablePlayers) {
-                    if (p.name.equals(name)) {
-                        return p;
+        rosterSync.setListener(new RosterSync.Listener() {
+            @Override
+            public void onRemoteChanges(Collection<String> names) {
+                for(String name : names){
+                    persistPlayer(name);
+                    if(!players.isSelected(name)){
+                        rotationQueue.remove(name);
+                        if(liveScheduler != null){
+                            liveScheduler.playerLeft(name);
+                        }
                     }
                 }
+                runOnUiThread(new Runnable() {
+                    @Override
+                    public void run() {
+                        refreshScrollView();
+                        updateSelectedPlayerTextCount();
+                    }
+                });
             }
-            return null;
+        });
+        syncExecutor = Executors.newSingleThreadExecutor();
+        requestSync();
+    }
+
+    // Queues one sync on the background thread; changes made before it starts go out with it.
+    public void requestSync(){
+        if(rosterSync == null || !syncQueued.compareAndSet(false, true)){
+            return;
         }
+        syncExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                syncQueued.set(false);
+                long start = syncTime.start();
+                try {
+                    rosterSync.sync(syncTransport);
+                    syncTime.recordSince(start);
+                } catch (IOException e) {
+                    // Offline: the operations stay pending for the next sync
+                    Log.w("SYNC", "sync failed", e);
+                }
+            }
+        });
     }
 
-    public void selectPlayer(String name){
-        Player p = getPlayer(name);
-        if(p != null){
-            p.selected = true;
+    public void saveSyncState(){
+        if(rosterSync == null){
+            return;
+        }
+        File state = new File(getFilesDir(), "sync.state");
+        File temp = new File(getFilesDir(), "sync.state.tmp");
+        try {
+            try (OutputStream out = new FileOutputStream(temp)) {
+                rosterSync.writeState(out);
+            }
+            if(!temp.renameTo(state)){
+                throw new IOException("could not replace " + state);
+            }
+        } catch (IOException e) {
+            Log.e("SYNC", "could not save sync state", e);
         }
     }
 
-    public void deselectPlayer(String name){
-        Player p = getPlayer(name);
-        if(p != null){
-            p.selected = false;
+    // Roster changes go through the sync layer when there is one so other devices see them
+    public boolean addPlayer(String name){
+        boolean added = rosterSync != null ? rosterSync.add(name) : players.add(name);
+        requestSync();
+        return added;
+    }
+
+    public BitSet addPlayers(RosterBatch batch){
+        BitSet added = rosterSync != null ? rosterSync.addAll(batch) : players.addAll(batch);
+        requestSync();
+        return added;
+    }
+
+    public boolean removePlayer(String name){
+        boolean removed = rosterSync != null ? rosterSync.remove(name) : players.remove(name);
+        requestSync();
+        return removed;
+    }
+
+    public void recordDraw(Collection<String> drawn, int round){
+        if(rosterSync != null){
+            rosterSync.recordDraw(drawn, round);
+        }else{
+            players.recordDraw(drawn, round);
         }
+        requestSync();
+    }
+
+    public void parseDatabaseFromString(String database){
+        long start = databaseParseTime.start();
+        players.clear();
+        LegacyDatabase.parse(database, rosterLoader());
+        databaseParseTime.recordSince(start);
     }
 
     private DisplayPage currentPage;
+    // The four name fields of the result page, looked up once per setContentView
+    private TextView[] playerViews;
+    private CourtBoardView courtBoard;
 
     public void setPage(DisplayPage page){
+        playerViews = null;
+        courtBoard = null;
         if(page == DisplayPage.RESULT){
             setContentView(R.layout.activity_result);
+            playerViews = new TextView[]{
+                    findViewById(R.id.textViewPlayer1),
+                    findViewById(R.id.textViewPlayer2),
+                    findViewById(R.id.textViewPlayer3),
+                    findViewById(R.id.textViewPlayer4)
+            };
+            currentPage = page;
+        }else if(page == DisplayPage.BOARD){
+            setContentView(R.layout.activity_board);
+            courtBoard = findViewById(R.id.courtBoard);
+            courtBoard.setListener(new CourtBoardView.Listener() {
+                @Override
+                public void onCourtClicked(int court) {
+                    currentFieldIndex = court + 1;
+                    setPage(DisplayPage.RESULT);
+                    updateResultField();
+                }
+            });
             currentPage = page;
         }else if(page == DisplayPage.MAIN){
             setContentView(R.layout.activity_main);
+            RecyclerView recyclerView = findViewById(R.id.recyclerViewPlayers);
+            recyclerView.setLayoutManager(new LinearLayoutManager(this));
+            recyclerView.setHasFixedSize(true);
+            recyclerView.setAdapter(playerListAdapter);
+            findViewById(R.id.buttonExport).setOnLongClickListener(new View.OnLongClickListener() {
+                @Override
+                public boolean onLongClick(View view) {
+                    pickExportFile(REQUEST_EXPORT_JSON);
+                    return true;
+                }
+            });
             currentPage = page;
         }
     }
@@ -225,77 +642,54 @@ public class MainActivity extends AppCompatActivity {
         return currentPage;
     }
 
-    public int getNumberSelected(){
-        synchronized (mutex) {
-            int res = 0;
-            for(Player p : availablePlayers){
-                if(p.selected == true){
-                    res += 1;
-                }
-            }
-            return res;
-        }
-    }
-
-    public void sortAvailablePlayers(){
-        synchronized (mutex) {
-            ArrayList<Player> newAvailablePlayers = new ArrayList<Player>();
-
-            while (availablePlayers.size() > 0) {
-                int currentMax = 0;
-                Player curBest = null;
-                for (Player p : availablePlayers) {
-                    if (curBest == null) {
-                        curBest = p;
-                        currentMax = p.numberSelected;
-                    } else if (p.numberSelected > currentMax) {
-                        curBest = p;
-                        currentMax = p.numberSelected;
-                    } else if (curBest != null && p.numberSelected == currentMax) {
-                        if (p.name.toLowerCase().charAt(0) < curBest.name.toLowerCase().charAt(0)) {
-                            curBest = p;
-                            currentMax = p.numberSelected;
-                        }
-                    }
-                }
-                newAvailablePlayers.add(curBest.copy());
-                availablePlayers.remove(curBest);
-            }
-            availablePlayers.clear();
-            availablePlayers = newAvailablePlayers;
-        }
-    }
-
     @Override
     protected void onCreate(Bundle savedInstanceState) {
         super.onCreate(savedInstanceState);
 
         sharedPreferences = getSharedPreferences("court-planner-cache-marko", MODE_PRIVATE);
+        openMetrics();
+        openDrawHistory();
+        openDrawAudit();
 
-        String defaultValue = "---";
-
-        String database = sharedPreferences.getString("Database", defaultValue);
-
-        if(!database.equals(defaultValue)){
-            parseDatabaseFromString(database);
-        }
+        playerListAdapter = new PlayerListAdapter(this, this);
 
         setPage(DisplayPage.MAIN);
         addTextWatcher();
-        final ScrollView scrollView = findViewById(R.id.scrollViewPlayers); // Replace with your ScrollView's ID
-
-        // Add a ViewTreeObserver.OnGlobalLayoutListener
-        scrollView.getViewTreeObserver().addOnGlobalLayoutListener(new ViewTreeObserver.OnGlobalLayoutListener() {
-            @Override
-            public void onGlobalLayout() {
-                // Remove the listener to avoid multiple calls
-                scrollView.getViewTreeObserver().removeOnGlobalLayoutListener(this);
+        updateSelectedPlayerTextCount();
+        loadRoster();
+    }
 
-                // Now, update your ScrollView and other UI components
-                refreshScrollView();
-                updateSelectedPlayerTextCount();
+    @Override
+    public void onPlayerClicked(Player player) {
+        if(rosterLoading()){
+            return;
+        }
+        if(clubNight.toggleSelected(player.name)){
+            if(liveScheduler != null){
+                liveScheduler.playerArrived(player.name, System.currentTimeMillis());
             }
-        });
+        }else{
+            if(liveScheduler != null){
+                liveScheduler.playerLeft(player.name);
+            }
+        }
+        persistPlayer(player.name);
+        refreshScrollView();
+        updateSelectedPlayerTextCount();
+    }
+
+    @Override
+    public void onPlayerRemoveClicked(Player player) {
+        if(rosterLoading()){
+            return;
+        }
+        clubNight.remove(player.name);
+        if(liveScheduler != null){
+            liveScheduler.playerLeft(player.name);
+        }
+        persistPlayer(player.name);
+        refreshScrollView();
+        updateSelectedPlayerTextCount();
     }
 
 
@@ -327,6 +721,9 @@ public class MainActivity extends AppCompatActivity {
     }
 
     public void onButtonClickAddPlayer(View view) {
+        if(rosterLoading()){
+            return;
+        }
         TextInputEditText tv = findViewById(R.id.textInputEditText);
         if(tv == null){
             return;
@@ -336,23 +733,344 @@ public class MainActivity extends AppCompatActivity {
             return;
         }
 
-        addPlayer(new Player(newPlayer.toUpperCase()));
+        addPlayer(newPlayer.toUpperCase(Locale.ROOT));
         updateSelectedPlayerTextCount();
         refreshScrollView();
         tv.setText("");
 
-        SharedPreferences.Editor editor = sharedPreferences.edit();
-        editor.putString("Database", getDatabaseString());
-        editor.apply(); // or editor.commit();
+        persistPlayer(newPlayer.toUpperCase(Locale.ROOT));
+    }
+
+    public void onButtonClickPresets(View view) {
+        if(rosterLoading()){
+            return;
+        }
+        final List<String> names = attendancePresets.names();
+        String[] items = new String[names.size() + 1];
+        for(int i = 0; i < names.size(); ++i){
+            items[i] = names.get(i) + " (" + Integer.toString(attendancePresets.size(names.get(i))) + ")";
+        }
+        items[names.size()] = "Save selection as group...";
+        new AlertDialog.Builder(this)
+                .setTitle("Groups")
+                .setItems(items, new DialogInterface.OnClickListener() {
+                    @Override
+                    public void onClick(DialogInterface dialog, int which) {
+                        if(which == names.size()){
+                            showSavePresetDialog();
+                        }else{
+                            showPresetDialog(names.get(which));
+                        }
+                    }
+                })
+                .show();
+    }
+
+    public void showPresetDialog(final String name){
+        final PlayerRegistry.SelectionOp[] ops = {
+                PlayerRegistry.SelectionOp.REPLACE,
+                PlayerRegistry.SelectionOp.UNION,
+                PlayerRegistry.SelectionOp.INTERSECT,
+                PlayerRegistry.SelectionOp.SUBTRACT
+        };
+        String[] items = {"Select only this group", "Also select this group", "Keep only this group selected",
+                "Deselect this group", "Delete group"};
+        new AlertDialog.Builder(this)
+                .setTitle(name)
+                .setItems(items, new DialogInterface.OnClickListener() {
+                    @Override
+                    public void onClick(DialogInterface dialog, int which) {
+                        if(which < ops.length){
+                            applyPreset(name, ops[which]);
+                        }else{
+                            attendancePresets.remove(name);
+                            saveAttendancePresets();
+                        }
+                    }
+                })
+                .show();
+    }
+
+    public void showSavePresetDialog(){
+        final EditText input = new EditText(this);
+        input.setHint("Group name");
+        new AlertDialog.Builder(this)
+                .setTitle("Save selection as group")
+                .setView(input)
+                .setPositiveButton("Save", new DialogInterface.OnClickListener() {
+                    @Override
+                    public void onClick(DialogInterface dialog, int which) {
+                        String name = input.getText().toString().trim();
+                        if(name.equals("")){
+                            return;
+                        }
+                        attendancePresets.saveSelection(name);
+                        saveAttendancePresets();
+                    }
+                })
+                .setNegativeButton("Cancel", null)
+                .show();
+    }
+
+    // One bulk change to the selection, then one refresh of the list and the counter
+    public void applyPreset(String name, PlayerRegistry.SelectionOp op){
+        ArrayList<String> flipped = clubNight.applyPreset(attendancePresets, name, op);
+        if(flipped == null){
+            return;
+        }
+        for(String player : flipped){
+            if(liveScheduler != null){
+                if(players.isSelected(player)){
+                    liveScheduler.playerArrived(player, System.currentTimeMillis());
+                }else{
+                    liveScheduler.playerLeft(player);
+                }
+            }
+            persistPlayer(player);
+        }
+        refreshScrollView();
+        updateSelectedPlayerTextCount();
+    }
+
+    public void onButtonClickImport(View view) {
+        if(rosterLoading()){
+            return;
+        }
+        Intent intent = new Intent(Intent.ACTION_OPEN_DOCUMENT);
+        intent.addCategory(Intent.CATEGORY_OPENABLE);
+        intent.setType("*/*");
+        intent.putExtra(Intent.EXTRA_MIME_TYPES, new String[]{"text/csv", "text/comma-separated-values",
+                "text/plain", "application/json"});
+        startActivityForResult(intent, REQUEST_IMPORT);
+    }
+
+    public void onButtonClickExport(View view) {
+        pickExportFile(REQUEST_EXPORT_CSV);
+    }
+
+    public void pickExportFile(int request){
+        if(rosterLoading()){
+            return;
+        }
+        boolean json = request == REQUEST_EXPORT_JSON;
+        Intent intent = new Intent(Intent.ACTION_CREATE_DOCUMENT);
+        intent.addCategory(Intent.CATEGORY_OPENABLE);
+        intent.setType(json ? "application/json" : "text/csv");
+        intent.putExtra(Intent.EXTRA_TITLE, json ? "players.json" : "players.csv");
+        startActivityForResult(intent, request);
+    }
+
+    @Override
+    protected void onActivityResult(int requestCode, int resultCode, Intent data) {
+        super.onActivityResult(requestCode, resultCode, data);
+        if(resultCode != RESULT_OK || data == null || data.getData() == null){
+            return;
+        }
+        if(requestCode == REQUEST_IMPORT){
+            importRoster(data.getData());
+        }else if(requestCode == REQUEST_EXPORT_CSV){
+            exportRoster(data.getData(), RosterTransfer.Format.CSV);
+        }else if(requestCode == REQUEST_EXPORT_JSON){
+            exportRoster(data.getData(), RosterTransfer.Format.JSON);
+        }
+    }
+
+    // Streams the file into the roster a batch at a time; every batch is one roster change and
+    // one append to the player store, the list is refreshed once at the end.
+    public void importRoster(final Uri uri){
+        transferExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                String message;
+                // Batches are kept as they are applied, so a file that breaks off leaves its first players added
+                final long[] imported = {0};
+                try (InputStream in = getContentResolver().openInputStream(uri)) {
+                    if(in == null){
+                        throw new IOException("could not open " + uri);
+                    }
+                    RosterTransfer.Result result = RosterTransfer.importFrom(in, roster, new RosterTransfer.Listener() {
+                        @Override
+                        public void onBatch(RosterBatch batch, BitSet added, long rows, long bytes) throws IOException {
+                            imported[0] += added.cardinality();
+                            persistImported(batch, added);
+                            showTransferProgress("Importing: " + rows + " rows");
+                        }
+                    });
+                    if(persistenceWorker != null){
+                        persistenceWorker.flush();
+                    }
+                    message = "Imported " + result.added + " players (" + result.duplicates + " already there, "
+                            + result.invalid + " invalid)";
+                } catch (IOException e) {
+                    Log.e("TRANSFER", "could not import players", e);
+                    message = imported[0] == 0 ? "Import failed: " + e.getMessage()
+                            : "Import failed after adding " + imported[0] + " players: " + e.getMessage();
+                }
+                final String shown = message;
+                runOnUiThread(new Runnable() {
+                    @Override
+                    public void run() {
+                        refreshScrollView();
+                        updateSelectedPlayerTextCount();
+                        Toast.makeText(MainActivity.this, shown, Toast.LENGTH_LONG).show();
+                    }
+                });
+            }
+        });
+    }
+
+    // With sync a re-added name keeps its synced games, so the store copies them out of the registry
+    public void persistImported(RosterBatch batch, BitSet added) throws IOException {
+        if(persistenceWorker == null){
+            return;
+        }
+        if(rosterSync == null){
+            persistenceWorker.putAll(batch, added);
+            return;
+        }
+        RosterBatch synced = new RosterBatch(Math.max(added.cardinality(), 1));
+        for(int row = added.nextSetBit(0); row >= 0; row = added.nextSetBit(row + 1)){
+            Player p = players.get(batch.name(row));
+            if(p != null){
+                synced.add(p.name, p.numberSelected, p.rating);
+            }
+        }
+        BitSet rows = new BitSet();
+        rows.set(0, synced.size());
+        persistenceWorker.putAll(synced, rows);
+    }
+
+    public void exportRoster(final Uri uri, final RosterTransfer.Format format){
+        transferExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                String message;
+                try (OutputStream out = getContentResolver().openOutputStream(uri)) {
+                    if(out == null){
+                        throw new IOException("could not open " + uri);
+                    }
+                    RosterTransfer.exportTo(out, players, format);
+                    message = "Exported " + players.size() + " players";
+                } catch (IOException e) {
+                    Log.e("TRANSFER", "could not export players", e);
+                    message = "Export failed: " + e.getMessage();
+                }
+                final String shown = message;
+                runOnUiThread(new Runnable() {
+                    @Override
+                    public void run() {
+                        Toast.makeText(MainActivity.this, shown, Toast.LENGTH_LONG).show();
+                    }
+                });
+            }
+        });
+    }
+
+    public void showTransferProgress(final String progress){
+        runOnUiThread(new Runnable() {
+            @Override
+            public void run() {
+                TextView t = findViewById(R.id.textViewSelectedPlayer);
+                if(t != null){
+                    t.setText(progress);
+                }
+            }
+        });
+    }
+
+    @Override
+    protected void onStop() {
+        super.onStop();
+        if(persistenceWorker != null){
+            try {
+                persistenceWorker.flush();
+            } catch (IOException e) {
+                Log.e("DATABASE", "could not flush player store", e);
+            }
+        }
+        if(drawHistory != null){
+            try {
+                drawHistory.flush();
+            } catch (IOException e) {
+                Log.e("HISTORY", "could not flush draw history", e);
+            }
+        }
+        if(drawAudit != null){
+            try {
+                drawAudit.flush();
+            } catch (IOException e) {
+                Log.e("AUDIT", "could not flush draw audit", e);
+            }
+        }
+        saveSyncState();
+        // Until then the queue is empty and would overwrite the saved one
+        if(rosterLoaded){
+            saveRotationQueue();
+        }
+        saveMetrics();
+    }
+
+    // Worker first, so its last writes reach the store before it closes; either may be null
+    public void closePlayerStore(PlayerStore store, PersistenceWorker worker){
+        if(worker != null){
+            try {
+                worker.close();
+            } catch (IOException e) {
+                Log.e("DATABASE", "could not flush player store", e);
+            }
+        }
+        if(store != null){
+            try {
+                store.close();
+            } catch (IOException e) {
+                Log.e("DATABASE", "could not close player store", e);
+            }
+        }
     }
 
     @Override
     protected void onDestroy() {
         super.onDestroy();
-        SharedPreferences.Editor editor = sharedPreferences.edit();
-        editor.putString("Database", getDatabaseString());
-        editor.apply(); // or editor.commit();
-        Log.println(Log.ERROR,"DATABASE",getDatabaseString());
+        // A startup still running closes the store itself once it sees this
+        PlayerStore store;
+        PersistenceWorker worker;
+        synchronized(startupLock){
+            startupClosed = true;
+            store = playerStore;
+            worker = persistenceWorker;
+        }
+        closePlayerStore(store, worker);
+        if(drawHistory != null){
+            try {
+                drawHistory.close();
+            } catch (IOException e) {
+                Log.e("HISTORY", "could not close draw history", e);
+            }
+        }
+        if(drawAudit != null){
+            try {
+                drawAudit.close();
+            } catch (IOException e) {
+                Log.e("AUDIT", "could not close draw audit", e);
+            }
+        }
+        if(syncExecutor != null){
+            syncExecutor.shutdown();
+        }
+        transferExecutor.shutdown();
+        startupExecutor.shutdown();
+        drawExecutor.shutdown();
+        stopLivePlay();
+    }
+
+    public void onButtonClickBoard(View view){
+        setPage(DisplayPage.BOARD);
+        updateResultField();
+    }
+
+    public void onButtonClickBoardBack(View view){
+        setPage(DisplayPage.RESULT);
+        updateResultField();
     }
 
     public void onButtonClickResultBack(View view){
@@ -366,6 +1084,54 @@ public class MainActivity extends AppCompatActivity {
         });
     }
 
+    public void onButtonClickTopWon(View view) {
+        reportResult(true);
+    }
+
+    public void onButtonClickBottomWon(View view) {
+        reportResult(false);
+    }
+
+    // Slots 0/1 of the shown court played against 2/3; updates both teams' ratings once
+    public void reportResult(boolean topWon){
+        int court = currentFieldIndex - 1;
+        int key = currentRound * MAX_COURTS + court;
+        ArrayList<String> top = courtTeam(court, 0);
+        ArrayList<String> bottom = courtTeam(court, 2);
+        if(reportedCourts.contains(key) || !roundStarted() || top.isEmpty() || bottom.isEmpty()){
+            return;
+        }
+        if(topWon){
+            players.recordResult(top, bottom);
+        }else{
+            players.recordResult(bottom, top);
+        }
+        reportedCourts.add(key);
+        for(String name : top){
+            persistPlayer(name);
+        }
+        for(String name : bottom){
+            persistPlayer(name);
+        }
+        updateResultField();
+    }
+
+    // A planned round of a session has no results until it is started
+    public boolean roundStarted(){
+        return session == null || currentRound < session.committedRounds();
+    }
+
+    public ArrayList<String> courtTeam(int court, int firstSlot){
+        ArrayList<String> team = new ArrayList<String>();
+        for(int slot = firstSlot; slot < firstSlot + 2; ++slot){
+            int index = DrawEngine.PLAYERS_PER_COURT * court + slot;
+            if(index < drawnPlayers.size() && !drawnPlayers.get(index).isEmpty()){
+                team.add(drawnPlayers.get(index));
+            }
+        }
+        return team;
+    }
+
     public void onButtonClickResultLeft(View view) {
         currentFieldIndex -= 1;
         if(currentFieldIndex == 0){
@@ -383,7 +1149,37 @@ public class MainActivity extends AppCompatActivity {
         updateResultField();
     }
 
+    public void onButtonClickCourtFinished(View view) {
+        if(liveScheduler != null){
+            liveScheduler.courtFinished(currentFieldIndex - 1, System.currentTimeMillis());
+            refreshLiveWaiting();
+        }
+    }
+
+    public void onButtonClickRoundLeft(View view) {
+        if(session != null && currentRound > 0){
+            showRound(currentRound - 1);
+        }
+    }
+
+    public void onButtonClickRoundRight(View view) {
+        if(session != null && currentRound + 1 < session.rounds()){
+            showRound(currentRound + 1);
+        }
+    }
+
+    // Only the next round to play can be started; planned rounds after it can be looked at
+    public void onButtonClickStartRound(View view) {
+        if(session != null && currentRound == session.committedRounds()){
+            startRound(currentRound);
+            updateResultField();
+        }
+    }
+
     public void onButtonClickDraw(View view) {
+        if(rosterLoading()){
+            return;
+        }
         LayoutInflater inflater = (LayoutInflater) getSystemService(Context.LAYOUT_INFLATER_SERVICE);
         View popupView = inflater.inflate(R.layout.popup_layout, null);
 
@@ -402,46 +1198,171 @@ public class MainActivity extends AppCompatActivity {
         // Set background color for the pop-up window
         // popupWindow.setBackgroundDrawable(new ColorDrawable(Color.WHITE));
 
+        TextInputEditText keyHolder = popupView.findViewById(R.id.textInputEditTextKeyHolder);
+        if(keyHolder != null && clubNight.constraints().keyHolder() != null){
+            keyHolder.setText(clubNight.constraints().keyHolder());
+        }
+
         // Show the pop-up in the middle of the screen
         popupWindow.showAtLocation(view, Gravity.CENTER, 0, 0);
     }
 
     public void onButtonClickDrawConfirm(View view) {
-        LayoutInflater inflater = (LayoutInflater) getSystemService(Context.LAYOUT_INFLATER_SERVICE);
-        View popupView = inflater.inflate(R.layout.popup_layout, null);
-        TextInputEditText t = popupView.findViewById(R.id.textInputEditCourts);
-        if(t == null){
+        if(drawing){
             return;
         }
+        // Read the popup that is showing; a freshly inflated one would always say 4
         numberCourts = 4;
-        try {
-            numberCourts = Integer.parseInt(t.getText().toString());
-        }catch (Exception e){
+        boolean rotation = true;
+        boolean fairDraw = false;
+        boolean avoidRepeats = true;
+        boolean balanceTeams = false;
+        boolean continuous = false;
+        int numberRounds = 1;
+        int singlesCourts = 0;
+        int trainingPlaces = 0;
+        String keyHolder = null;
+        if (popupWindow != null) {
+            TextInputEditText k = popupWindow.getContentView().findViewById(R.id.textInputEditTextKeyHolder);
+            if(k != null && !k.getText().toString().trim().equals("")){
+                keyHolder = k.getText().toString().trim().toUpperCase(Locale.ROOT);
+                if(!players.contains(keyHolder)){
+                    Toast.makeText(this, "No player called " + keyHolder, Toast.LENGTH_SHORT).show();
+                    return;
+                }
+            }
+            TextInputEditText t = popupWindow.getContentView().findViewById(R.id.textInputEditCourts);
+            try {
+                numberCourts = Integer.parseInt(t.getText().toString());
+            }catch (Exception e){
 
-        }
+            }
+            TextInputEditText s = popupWindow.getContentView().findViewById(R.id.textInputEditSinglesCourts);
+            try {
+                singlesCourts = Integer.parseInt(s.getText().toString());
+            }catch (Exception e){
 
-        ArrayList<Player> selectedPlayer = getSelectedPlayers();
+            }
+            TextInputEditText p = popupWindow.getContentView().findViewById(R.id.textInputEditTrainingPlaces);
+            try {
+                trainingPlaces = Integer.parseInt(p.getText().toString());
+            }catch (Exception e){
 
-        drawnPlayers.clear();
-        for(int cur_court = 1; cur_court <= numberCourts; ++cur_court) {
-            for (int var_field = 0; var_field < 4; ++var_field) {
-                if (selectedPlayer.size() == 0) {
-                    break;
-                }
-                Random random = new Random();
-                int randomIndex = random.nextInt(selectedPlayer.size());
-                Player player = selectedPlayer.get(randomIndex);
+            }
+            TextInputEditText rounds = popupWindow.getContentView().findViewById(R.id.textInputEditRounds);
+            try {
+                numberRounds = Integer.parseInt(rounds.getText().toString());
+            }catch (Exception e){
 
-                drawnPlayers.add(player.name);
-                increaseNumberSelectedOnPlayer(player.name);
+            }
+            CheckBox q = popupWindow.getContentView().findViewById(R.id.checkBoxRotation);
+            rotation = q == null || q.isChecked();
+            CheckBox c = popupWindow.getContentView().findViewById(R.id.checkBoxFairDraw);
+            fairDraw = c != null && c.isChecked();
+            CheckBox r = popupWindow.getContentView().findViewById(R.id.checkBoxAvoidRepeats);
+            avoidRepeats = r == null || r.isChecked();
+            CheckBox b = popupWindow.getContentView().findViewById(R.id.checkBoxBalanceTeams);
+            balanceTeams = b != null && b.isChecked();
+            CheckBox l = popupWindow.getContentView().findViewById(R.id.checkBoxContinuous);
+            continuous = l != null && l.isChecked();
+        }
 
-                selectedPlayer.remove(player);
+        ArrayList<Player> selectedPlayer = players.getSelectedPlayers();
+        int courts = Math.max(numberCourts, 0);
+        if(continuous && courts > 0){
+            stopLivePlay();
+            if (popupWindow != null && popupWindow.isShowing()) {
+                popupWindow.dismiss();
+            }
+            startLivePlay(courts);
+            return;
+        }
+        if(numberRounds > 1 && courts > 0){
+            stopLivePlay();
+            if (popupWindow != null && popupWindow.isShowing()) {
+                popupWindow.dismiss();
+            }
+            planSession(selectedPlayer, numberRounds, courts);
+            return;
+        }
+        ClubNight.DrawMode mode = rotation ? ClubNight.DrawMode.ROTATION
+                : fairDraw ? ClubNight.DrawMode.FAIR : ClubNight.DrawMode.RANDOM;
+        clubNight.constraints().setKeyHolder(keyHolder);
+        // Singles courts come after the doubles courts, the training court last
+        CourtAllocator.Court[] drawVenue = null;
+        singlesCourts = Math.min(Math.max(singlesCourts, 0), courts);
+        trainingPlaces = Math.max(trainingPlaces, 0);
+        if(singlesCourts > 0 || trainingPlaces > 0){
+            drawVenue = new CourtAllocator.Court[courts + (trainingPlaces > 0 ? 1 : 0)];
+            for(int i = 0; i < courts; ++i){
+                drawVenue[i] = i < courts - singlesCourts ? CourtAllocator.Court.doubles() : CourtAllocator.Court.singles();
+            }
+            if(trainingPlaces > 0){
+                drawVenue[courts] = CourtAllocator.Court.training(trainingPlaces);
             }
         }
+        // The optimizer, the balancer and the constraint solver may take their whole budgets, so the
+        // draw runs off the main thread; the popup stays up until it is back
+        drawing = true;
+        final CourtAllocator.Court[] venueToDraw = drawVenue;
+        final int courtsToDraw = courts;
+        final ClubNight.DrawMode drawMode = mode;
+        final boolean avoid = avoidRepeats;
+        final boolean balance = balanceTeams;
+        drawExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                ArrayList<String> layout = null;
+                String failure = null;
+                try {
+                    layout = venueToDraw == null ? clubNight.draw(courtsToDraw, drawMode, avoid, balance)
+                            : clubNight.drawVenue(venueToDraw, drawMode, avoid, balance);
+                } catch (ConstraintSolver.InfeasibleException e) {
+                    failure = e.getMessage();
+                } catch (RuntimeException e) {
+                    // Reported like an infeasible draw, so the popup does not stay stuck on drawing
+                    Log.e("DRAW", "draw failed", e);
+                    failure = "Draw failed: " + e;
+                }
+                final ArrayList<String> drawn = layout;
+                final String shown = failure;
+                runOnUiThread(new Runnable() {
+                    @Override
+                    public void run() {
+                        drawing = false;
+                        if(isDestroyed()){
+                            return;
+                        }
+                        if(drawn == null){
+                            // Nothing was recorded and the last round stays up; the popup stays open to change the draw
+                            Toast.makeText(MainActivity.this, shown, Toast.LENGTH_LONG).show();
+                            return;
+                        }
+                        showDraw(drawn, venueToDraw);
+                    }
+                });
+            }
+        });
+    }
 
-        SharedPreferences.Editor editor = sharedPreferences.edit();
-        editor.putString("Database", getDatabaseString());
-        editor.apply(); // or editor.commit();
+    // Puts a finished draw up on the court page
+    public void showDraw(ArrayList<String> layout, CourtAllocator.Court[] drawVenue){
+        stopLivePlay();
+        session = null;
+        currentRound = 0;
+        venue = drawVenue;
+        if(venue != null){
+            numberCourts = venue.length;
+        }
+        drawnPlayers.clear();
+        drawnPlayers.addAll(layout);
+        waitingPlayers.clear();
+        waitingPlayers.addAll(clubNight.waiting());
+        reportedCourts.clear();
+
+        for(String name : drawnPlayers){
+            persistPlayer(name);
+        }
 
         // Close the PopupWindow
         if (popupWindow != null && popupWindow.isShowing()) {
@@ -451,15 +1372,198 @@ public class MainActivity extends AppCompatActivity {
         updateResultField();
     }
 
+    // Everyone selected joins the line in rotation order, so whoever sat out last goes on first
+    public void startLivePlay(int courts){
+        session = null;
+        venue = null;
+        currentRound = 0;
+        currentFieldIndex = 1;
+        drawnPlayers.clear();
+        waitingPlayers.clear();
+        reportedCourts.clear();
+        final int generation = ++liveGeneration;
+        liveScheduler = new CourtScheduler(new CourtScheduler.Listener() {
+            @Override
+            public void onCourtAssigned(final int court, final List<String> assigned) {
+                runOnUiThread(new Runnable() {
+                    @Override
+                    public void run() {
+                        if(generation == liveGeneration){
+                            onLiveCourtAssigned(court, assigned);
+                        }
+                    }
+                });
+            }
+        });
+        long now = System.currentTimeMillis();
+        for(String name : rotationQueue.waiting()){
+            if(players.contains(name)){
+                liveScheduler.playerArrived(name, now);
+            }
+        }
+        liveScheduler.setCourts(courts, now);
+        refreshLiveWaiting();
+        setPage(DisplayPage.RESULT);
+        updateResultField();
+    }
+
+    // The scheduler's line changes with every assignment and finished court; its snapshot waits
+    // for the scheduler thread, so it is taken off the main thread
+    public void refreshLiveWaiting(){
+        final CourtScheduler scheduler = liveScheduler;
+        final int generation = liveGeneration;
+        if(scheduler == null){
+            return;
+        }
+        try {
+            drawExecutor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    final CourtScheduler.Snapshot snapshot;
+                    try {
+                        snapshot = scheduler.snapshot();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        return;
+                    } catch (RejectedExecutionException e) {
+                        // Stopped meanwhile
+                        return;
+                    }
+                    runOnUiThread(new Runnable() {
+                        @Override
+                        public void run() {
+                            if(generation != liveGeneration || isDestroyed()){
+                                return;
+                            }
+                            waitingPlayers.clear();
+                            waitingPlayers.addAll(snapshot.waiting);
+                            if(getPage() == DisplayPage.RESULT || getPage() == DisplayPage.BOARD){
+                                updateResultField();
+                            }
+                        }
+                    });
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            // Shutting down
+        }
+    }
+
+    public void stopLivePlay(){
+        if(liveScheduler != null){
+            liveScheduler.close();
+            liveScheduler = null;
+            liveGeneration += 1;
+            clubNight.endLivePlay();
+        }
+    }
+
+    // A court got new players: show them and count the game like a drawn court
+    public void onLiveCourtAssigned(int court, List<String> assigned){
+        int base = DrawEngine.PLAYERS_PER_COURT * court;
+        while(drawnPlayers.size() < base + DrawEngine.PLAYERS_PER_COURT){
+            drawnPlayers.add("");
+        }
+        String[] courtPlayers = new String[DrawEngine.PLAYERS_PER_COURT];
+        for(int slot = 0; slot < assigned.size() && slot < courtPlayers.length; ++slot){
+            drawnPlayers.set(base + slot, assigned.get(slot));
+            courtPlayers[slot] = assigned.get(slot);
+        }
+        // All games of continuous play share one round; stopLivePlay closes it
+        clubNight.recordLiveCourt(court, courtPlayers);
+        reportedCourts.remove(currentRound * MAX_COURTS + court);
+        for(String name : assigned){
+            persistPlayer(name);
+        }
+        refreshLiveWaiting();
+        if(getPage() == DisplayPage.RESULT || getPage() == DisplayPage.BOARD){
+            updateResultField();
+        }
+    }
+
+    // Starts a session, or, when one with the same shape is still running, brings its attendance
+    // in line with the current selection and replans only the rounds not played yet.
+    public void planSession(ArrayList<Player> selectedPlayer, int rounds, int courts){
+        boolean running = session != null && session.rounds() == rounds && session.courts() == courts
+                && session.committedRounds() < rounds;
+        venue = null;
+        if(!running){
+            session = new SessionPlanner(rounds, courts);
+            sessionNames.clear();
+            sessionIds.clear();
+            reportedCourts.clear();
+        }
+        HashSet<String> attending = new HashSet<String>();
+        for(Player p : selectedPlayer){
+            attending.add(p.name);
+            Integer id = sessionIds.get(p.name);
+            if(id == null){
+                sessionIds.put(p.name, session.join());
+                sessionNames.add(p.name);
+            }else if(!session.isPresent(id)){
+                // Left earlier and came back: a fresh id starts them level with the others
+                int fresh = session.join();
+                sessionIds.put(p.name, fresh);
+                sessionNames.add(p.name);
+            }
+        }
+        for(int id = 0; id < sessionNames.size(); ++id){
+            if(session.isPresent(id) && !attending.contains(sessionNames.get(id))){
+                session.leave(id);
+            }
+        }
+        session.plan();
+        setPage(DisplayPage.RESULT);
+        showRound(session.committedRounds());
+    }
+
+    // Shows a round of the session, played or planned; looking at a planned round changes nothing
+    public void showRound(int round){
+        drawnPlayers.clear();
+        for(int id : session.round(round)){
+            drawnPlayers.add(id == SessionPlanner.EMPTY ? "" : sessionNames.get(id));
+        }
+        currentRound = round;
+        currentFieldIndex = 1;
+        updateResultField();
+    }
+
+    // The round goes on court: it is frozen in the plan and its games count as played
+    public void startRound(int round){
+        session.commitRound();
+        ArrayList<String> played = new ArrayList<String>();
+        int[] layout = session.round(round);
+        for(int base = 0; base < layout.length; base += DrawEngine.PLAYERS_PER_COURT){
+            String[] courtPlayers = new String[DrawEngine.PLAYERS_PER_COURT];
+            for(int slot = 0; slot < courtPlayers.length; ++slot){
+                int id = layout[base + slot];
+                if(id != SessionPlanner.EMPTY){
+                    played.add(sessionNames.get(id));
+                    courtPlayers[slot] = sessionNames.get(id);
+                }
+            }
+            clubNight.recordCourt(base / DrawEngine.PLAYERS_PER_COURT, courtPlayers);
+        }
+        clubNight.recordPlayed(played);
+        for(String name : played){
+            persistPlayer(name);
+        }
+    }
+
     public static String addLineBreaksOnSpaces(String input) {
         return input.replaceAll(" ", "\n");
     }
 
     public void updateResultField(){
-        int startIndex = numberCourts * (currentFieldIndex-1);
-        for(int i = 0; i < 4; ++i){
-            int textViewId = getResources().getIdentifier("textViewPlayer" + Integer.toString(i+ 1), "id", getPackageName());
-            TextView t = findViewById(textViewId);
+        if(courtBoard != null){
+            int courts = session != null ? session.courts() : numberCourts;
+            courtBoard.setCourts(drawnPlayers, courts);
+            courtBoard.setSelected(currentFieldIndex - 1);
+        }
+
+        int startIndex = DrawEngine.PLAYERS_PER_COURT * (currentFieldIndex-1);
+        for(int i = 0; playerViews != null && i < playerViews.length; ++i){
+            TextView t = playerViews[i];
             if(t == null){
                 continue;
             }
@@ -477,108 +1581,103 @@ public class MainActivity extends AppCompatActivity {
             }
         }
 
+        int court = currentFieldIndex - 1;
+        boolean open = !reportedCourts.contains(currentRound * MAX_COURTS + court) && roundStarted()
+                && !courtTeam(court, 0).isEmpty() && !courtTeam(court, 2).isEmpty();
+        View topWon = findViewById(R.id.buttonTopWon);
+        View bottomWon = findViewById(R.id.buttonBottomWon);
+        if(topWon != null && bottomWon != null){
+            topWon.setVisibility(open ? View.VISIBLE : View.INVISIBLE);
+            bottomWon.setVisibility(open ? View.VISIBLE : View.INVISIBLE);
+        }
+
+        TextView waiting = findViewById(R.id.textViewWaiting);
+        if(waiting != null){
+            List<String> training = session == null && venue != null ? clubNight.training() : new ArrayList<String>();
+            if(session != null || (waitingPlayers.isEmpty() && training.isEmpty())){
+                waiting.setText("");
+            }else{
+                StringBuilder line = new StringBuilder();
+                if(!training.isEmpty()){
+                    line.append("Training: ");
+                    for(int i = 0; i < Math.min(training.size(), MAX_WAITING_SHOWN); ++i){
+                        if(i > 0){
+                            line.append(", ");
+                        }
+                        line.append(training.get(i));
+                    }
+                    if(training.size() > MAX_WAITING_SHOWN){
+                        line.append(" +").append(training.size() - MAX_WAITING_SHOWN);
+                    }
+                    if(!waitingPlayers.isEmpty()){
+                        line.append("\n");
+                    }
+                }
+                if(!waitingPlayers.isEmpty()){
+                    line.append("Next up: ");
+                }
+                for(int i = 0; i < Math.min(waitingPlayers.size(), MAX_WAITING_SHOWN); ++i){
+                    if(i > 0){
+                        line.append(", ");
+                    }
+                    line.append(waitingPlayers.get(i));
+                }
+                if(waitingPlayers.size() > MAX_WAITING_SHOWN){
+                    line.append(" +").append(waitingPlayers.size() - MAX_WAITING_SHOWN);
+                }
+                waiting.setText(line.toString());
+            }
+        }
+
+        View finished = findViewById(R.id.buttonCourtFinished);
+        if(finished != null){
+            finished.setVisibility(liveScheduler != null ? View.VISIBLE : View.GONE);
+        }
+
+        View roundBar = findViewById(R.id.linearLayoutRound);
+        TextView round = findViewById(R.id.textViewRound);
+        if(roundBar != null && round != null){
+            roundBar.setVisibility(session != null ? View.VISIBLE : View.GONE);
+            if(session != null){
+                round.setText("Round: " + Integer.toString(currentRound + 1) + "/" + Integer.toString(session.rounds())
+                        + (roundStarted() ? "" : " planned"));
+            }
+        }
+        View startRound = findViewById(R.id.buttonStartRound);
+        if(startRound != null){
+            startRound.setVisibility(session != null && currentRound == session.committedRounds() ? View.VISIBLE : View.GONE);
+        }
+
         TextView t = findViewById(R.id.textViewField);
         if(t == null){
             return;
         }
-        t.setText("Field: " + Integer.toString(currentFieldIndex) + "/" + Integer.toString(numberCourts));
+        String field = "Field: " + Integer.toString(currentFieldIndex) + "/" + Integer.toString(numberCourts);
+        if(session == null && venue != null && court < venue.length){
+            if(venue[court].format == CourtAllocator.Format.SINGLES){
+                field += " Singles";
+            }else if(venue[court].format == CourtAllocator.Format.TRAINING){
+                field += " Training";
+            }
+        }
+        t.setText(field);
 
     }
 
 
 
+    // Hands the filtered list, already in ranking order, to the adapter, which diffs it
+    // off the main thread and rebinds only the rows that changed.
     public void refreshScrollView(){
         TextInputEditText tv = findViewById(R.id.textInputEditText);
         if(tv == null){
             return;
         }
+        long start = refreshTime.start();
         String typedName = tv.getText().toString();
 
-
-        LinearLayout l = findViewById(R.id.scrollViewLinearPlayers);
-        if(l == null){
-            return;
-        }
-        l.removeAllViews();
-
-        // DisplayMetrics displayMetrics = new DisplayMetrics();
-        // getWindowManager().getDefaultDisplay().getMetrics(displayMetrics);
-        // int height = displayMetrics.heightPixels;
-        int width = l.getWidth();
-
-        sortAvailablePlayers();
-        synchronized (mutex) {
-            for (Player p : copyAvailablePlayers()) {
-                if (p.name.contains(typedName.toUpperCase())) {
-                    LinearLayout.LayoutParams layoutParams_lh = new LinearLayout.LayoutParams((int) (width - 30), dpToPx(40));
-                    layoutParams_lh.setMargins(10, 10, 10, 0);
-                    LinearLayout lh = new LinearLayout(this);
-                    lh.setDividerPadding(100);
-
-                    lh.setOrientation(LinearLayout.HORIZONTAL);
-                    LinearLayout.LayoutParams layoutParams1 = new LinearLayout.LayoutParams((int) (width * 0.8), dpToPx(40));
-                    layoutParams1.setMargins(2, 2, 2, 2);
-
-                    Button b0 = new Button(this);
-                    // b0.setWidth(dpToPx(40));
-                    // b0.setHeight(dpToPx(40));
-                    b0.setText(p.name);
-                    b0.setTextSize(18);
-                    if (p.selected == true) {
-                        b0.setBackgroundColor(getResources().getColor(R.color.colorSelected));
-                    } else {
-                        b0.setBackgroundColor(getResources().getColor(R.color.buttonColor));
-                    }
-                    b0.setTextColor(getResources().getColor(R.color.buttonFontColor));
-                    b0.setOnClickListener(new View.OnClickListener() {
-                        @Override
-                        public void onClick(View view) {
-                            if (getPlayer(p.name).selected == true) {
-                                deselectPlayer(p.name);
-                                b0.setBackgroundColor(getResources().getColor(R.color.buttonColor));
-                            } else {
-                                selectPlayer(p.name);
-                                b0.setBackgroundColor(getResources().getColor(R.color.colorSelected));
-                            }
-                            updateSelectedPlayerTextCount();
-                        }
-                    });
-
-                    LinearLayout.LayoutParams layoutParams2 = new LinearLayout.LayoutParams((int) (width * 0.2), dpToPx(40));
-                    layoutParams2.setMargins(2, 2, 2, 2);
-                    Button b1 = new Button(this);
-                    //b1.setWidth((int)(width * 0.2));
-                    //b1.setHeight(dpToPx(40));
-                    b1.setText("X");
-                    b1.setTextSize(18);
-                    b1.setBackgroundColor(getResources().getColor(R.color.buttonColor));
-                    b1.setTextColor(getResources().getColor(R.color.buttonFontColor));
-                    b1.setOnClickListener(new View.OnClickListener() {
-                        @Override
-                        public void onClick(View view) {
-                            final String playerNameToRemove = p.name;
-                            runOnUiThread(new Runnable() {
-                                @Override
-                                public void run() {
-                                    removePlayer(playerNameToRemove);
-                                }
-                            });
-                            refreshScrollView();
-                            SharedPreferences.Editor editor = sharedPreferences.edit();
-                            editor.putString("Database", getDatabaseString());
-                            editor.apply(); // or editor.commit();
-                        }
-                    });
-
-                    lh.addView(b1, layoutParams2);
-                    lh.addView(b0, layoutParams1);
-
-                    l.addView(lh, layoutParams_lh);
-
-                }
-            }
-
-        }
+        playerListAdapter.submitList(players.search(typedName));
+        refreshTime.recordSince(start);
     }
 
     public void updateSelectedPlayerTextCount(){
@@ -586,10 +1685,12 @@ public class MainActivity extends AppCompatActivity {
         if(t == null){
             return;
         }
+        // Both counts from one snapshot, so they always match each other
+        final RosterSnapshot snapshot = players.snapshot();
         runOnUiThread(new Runnable() {
             @Override
             public void run() {
-                t.setText("Selected Players: " + Integer.toString(getNumberSelected()) + "/" + Integer.toString(availablePlayers.size()));
+                t.setText("Selected Players: " + Integer.toString(snapshot.getNumberSelected()) + "/" + Integer.toString(snapshot.size()));
             }
         });
     }
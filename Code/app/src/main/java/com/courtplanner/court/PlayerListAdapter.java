@@ -0,0 +1,92 @@
+package com.courtplanner.court;
+
+import android.content.Context;
+import android.view.LayoutInflater;
+import android.view.View;
+import android.view.ViewGroup;
+import android.widget.Button;
+
+import androidx.core.content.ContextCompat;
+import androidx.recyclerview.widget.DiffUtil;
+import androidx.recyclerview.widget.ListAdapter;
+import androidx.recyclerview.widget.RecyclerView;
+
+import com.courtplanner.court.engine.Player;
+
+/**
+ * Recycling adapter for the player list. Rows are inflated once per visible slot and rebound on
+ * scroll; list updates are diffed on a background thread by {@link ListAdapter}.
+ */
+public class PlayerListAdapter extends ListAdapter<Player, PlayerListAdapter.ViewHolder> {
+
+    public interface Listener {
+        void onPlayerClicked(Player player);
+
+        void onPlayerRemoveClicked(Player player);
+    }
+
+    private static final DiffUtil.ItemCallback<Player> DIFF = new DiffUtil.ItemCallback<Player>() {
+        @Override
+        public boolean areItemsTheSame(Player a, Player b) {
+            return a.name.equals(b.name);
+        }
+
+        @Override
+        public boolean areContentsTheSame(Player a, Player b) {
+            return a.selected == b.selected && a.numberSelected == b.numberSelected;
+        }
+    };
+
+    private final Listener listener;
+    private final int colorSelected;
+    private final int colorButton;
+
+    public PlayerListAdapter(Context context, Listener listener) {
+        super(DIFF);
+        this.listener = listener;
+        this.colorSelected = ContextCompat.getColor(context, R.color.colorSelected);
+        this.colorButton = ContextCompat.getColor(context, R.color.buttonColor);
+    }
+
+    @Override
+    public ViewHolder onCreateViewHolder(ViewGroup parent, int viewType) {
+        View row = LayoutInflater.from(parent.getContext()).inflate(R.layout.item_player, parent, false);
+        return new ViewHolder(row);
+    }
+
+    @Override
+    public void onBindViewHolder(ViewHolder holder, int position) {
+        Player p = getItem(position);
+        holder.name.setText(p.name);
+        holder.name.setBackgroundColor(p.selected ? colorSelected : colorButton);
+    }
+
+    class ViewHolder extends RecyclerView.ViewHolder {
+        final Button name;
+        final Button remove;
+
+        ViewHolder(View row) {
+            super(row);
+            name = row.findViewById(R.id.buttonPlayerName);
+            remove = row.findViewById(R.id.buttonRemovePlayer);
+            name.setOnClickListener(new View.OnClickListener() {
+                @Override
+                public void onClick(View view) {
+                    int position = getBindingAdapterPosition();
+                    if (position != RecyclerView.NO_POSITION) {
+                        listener.onPlayerClicked(getItem(position));
+                    }
+                }
+            });
+            remove.setOnClickListener(new View.OnClickListener() {
+                @Override
+                public void onClick(View view) {
+                    int position = getBindingAdapterPosition();
+                    if (position != RecyclerView.NO_POSITION) {
+                        listener.onPlayerRemoveClicked(getItem(position));
+                    }
+                }
+            });
+        }
+    }
+}
@@ -0,0 +1,92 @@
+package com.courtplanner.court.engine;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Switching tonight's attendance between two groups of a third of the roster each. "tapEach"
+ * selects and deselects player by player, the way tapping rows does, and counts the selection
+ * after every tap as the counter did; "preset" applies the group as an {@link AttendancePresets}
+ * bitset and "union" adds it to the selection. Every variant reads one snapshot afterwards, as
+ * the list refresh does.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class AttendancePresetBenchmark {
+
+    @Param({"1000", "10000"})
+    int players;
+
+    private PlayerRegistry registry;
+    private AttendancePresets presets;
+    private final ArrayList<String> tuesday = new ArrayList<>();
+    private final ArrayList<String> juniors = new ArrayList<>();
+    private boolean flip;
+
+    @Setup
+    public void setup() {
+        registry = new PlayerRegistry();
+        presets = new AttendancePresets(registry);
+        BitSet a = new BitSet();
+        BitSet b = new BitSet();
+        for (int i = 0; i < players; ++i) {
+            String name = "PLAYER " + i;
+            registry.add(name);
+            if (i % 3 == 0) {
+                tuesday.add(name);
+                a.set(i);
+            } else if (i % 3 == 1) {
+                juniors.add(name);
+                b.set(i);
+            }
+        }
+        presets.put("TUESDAY", a);
+        presets.put("JUNIORS", b);
+    }
+
+    @Benchmark
+    public int tapEach() {
+        flip = !flip;
+        int count = 0;
+        for (String name : flip ? juniors : tuesday) {
+            registry.select(name, false);
+            count += registry.getNumberSelected();
+        }
+        for (String name : flip ? tuesday : juniors) {
+            registry.select(name, true);
+            count += registry.getNumberSelected();
+        }
+        return count + registry.snapshot().getNumberSelected();
+    }
+
+    @Benchmark
+    public int preset() {
+        flip = !flip;
+        presets.apply(flip ? "TUESDAY" : "JUNIORS", PlayerRegistry.SelectionOp.REPLACE);
+        return registry.snapshot().getNumberSelected();
+    }
+
+    @Benchmark
+    public int union() {
+        flip = !flip;
+        presets.apply("TUESDAY", flip ? PlayerRegistry.SelectionOp.UNION : PlayerRegistry.SelectionOp.SUBTRACT);
+        return registry.snapshot().getNumberSelected();
+    }
+}
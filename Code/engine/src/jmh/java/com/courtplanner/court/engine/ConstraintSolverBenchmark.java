@@ -0,0 +1,105 @@
+package com.courtplanner.court.engine;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.BitSet;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Constraint-heavy rounds on 50 courts (200 players), each solved from a shuffled layout:
+ * "couples" has 40 fixed pairs, "beginners" 48 players limited to the last 12 courts and kept
+ * apart in pairs, "mixed" both plus a key holder and 60 more players kept apart, "tight" fills
+ * the beginner courts exactly. "infeasible" puts five mutually-apart players on a four-court
+ * venue plus 46 unconstrained courts and measures how long it takes to be rejected.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ConstraintSolverBenchmark {
+
+    private static final int PLAYERS = 200;
+
+    @Param({"couples", "beginners", "mixed", "tight", "infeasible"})
+    String scenario;
+
+    private ConstraintSolver solver;
+    private ConstraintSolver.Problem problem;
+    private int[] shuffled;
+
+    @Setup
+    public void setup() {
+        solver = new ConstraintSolver(ForkJoinPool.commonPool(), new Random(1));
+        problem = new ConstraintSolver.Problem(PLAYERS);
+        boolean couples = scenario.equals("couples") || scenario.equals("mixed");
+        boolean beginners = !scenario.equals("couples") && !scenario.equals("infeasible");
+        if (couples) {
+            for (int i = 0; i < 80; i += 2) {
+                problem.partners(i, i + 1);
+            }
+        }
+        if (beginners) {
+            int count = scenario.equals("tight") ? 48 : 40;
+            BitSet last = new BitSet();
+            last.set(38, 50);
+            for (int i = 100; i < 100 + count; ++i) {
+                problem.allow(i, last);
+            }
+            for (int i = 100; i < 100 + count; i += 2) {
+                problem.apart(i, i + 1);
+            }
+        }
+        if (scenario.equals("mixed")) {
+            BitSet first = new BitSet();
+            first.set(0);
+            problem.allow(199, first);
+            for (int i = 0; i < 60; ++i) {
+                problem.apart(i, 140 + i % 59);
+            }
+        }
+        if (scenario.equals("infeasible")) {
+            BitSet venue = new BitSet();
+            venue.set(0, 4);
+            for (int a = 0; a < 5; ++a) {
+                problem.allow(a, venue);
+                for (int b = a + 1; b < 5; ++b) {
+                    problem.apart(a, b);
+                }
+            }
+        }
+        shuffled = new int[PLAYERS];
+        for (int i = 0; i < PLAYERS; ++i) {
+            shuffled[i] = i;
+        }
+        Random random = new Random(7);
+        for (int i = PLAYERS - 1; i > 0; --i) {
+            int j = random.nextInt(i + 1);
+            int t = shuffled[i];
+            shuffled[i] = shuffled[j];
+            shuffled[j] = t;
+        }
+    }
+
+    @Benchmark
+    public int solve() {
+        try {
+            return solver.solve(problem, shuffled, ConstraintSolver.DEFAULT_BUDGET_NANOS)[0];
+        } catch (ConstraintSolver.InfeasibleException e) {
+            return e.isProven() ? -1 : -2;
+        }
+    }
+}
@@ -0,0 +1,60 @@
+package com.courtplanner.court.engine;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Packing a round onto a mixed venue: 60% doubles courts, 30% singles courts and 10% training
+ * courts of 6-12 places, with 10% more players than places and a third of them asking for
+ * singles and a third for doubles.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CourtAllocatorBenchmark {
+
+    @Param({"20", "200"})
+    int courts;
+
+    private CourtAllocator.Court[] venue;
+    private CourtAllocator.Preference[] preferences;
+
+    @Setup
+    public void setup() {
+        Random random = new Random(11);
+        venue = new CourtAllocator.Court[courts];
+        int places = 0;
+        for (int c = 0; c < courts; ++c) {
+            int kind = random.nextInt(10);
+            venue[c] = kind < 6 ? CourtAllocator.Court.doubles()
+                    : kind < 9 ? CourtAllocator.Court.singles()
+                    : CourtAllocator.Court.training(6 + random.nextInt(7));
+            places += venue[c].places;
+        }
+        preferences = new CourtAllocator.Preference[places + places / 10];
+        CourtAllocator.Preference[] kinds = CourtAllocator.Preference.values();
+        for (int i = 0; i < preferences.length; ++i) {
+            preferences[i] = kinds[random.nextInt(kinds.length)];
+        }
+    }
+
+    @Benchmark
+    public int allocate() {
+        return CourtAllocator.allocate(venue, preferences).playing();
+    }
+}
@@ -0,0 +1,142 @@
+package com.courtplanner.court.engine;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.awt.BasicStroke;
+import java.awt.Color;
+import java.awt.Font;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.font.FontRenderContext;
+import java.awt.image.BufferedImage;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Frame time of the court board on a 1920x1080 buffer, painted with Java2D the way the view
+ * paints its bitmap with a Canvas. "newRound" is the worst frame: every name changed, so every
+ * court is laid out and painted. "repaintAll" paints every court with cached text layouts,
+ * "oneCourt" is the usual live-play frame where one court got new players.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Djava.awt.headless=true")
+public class CourtBoardBenchmark {
+
+    @Param({"30", "100"})
+    int courts;
+
+    private BufferedImage image;
+    private Graphics2D g;
+    private CourtBoard board;
+    private CourtBoard.Painter painter;
+    private List<String> first;
+    private List<String> second;
+    private List<String> live;
+    private boolean flip;
+
+    @Setup
+    public void setup() {
+        image = new BufferedImage(1920, 1080, BufferedImage.TYPE_INT_ARGB);
+        g = image.createGraphics();
+        g.setRenderingHint(RenderingHints.KEY_TEXT_ANTIALIASING, RenderingHints.VALUE_TEXT_ANTIALIAS_ON);
+        final Font reference = new Font(Font.SANS_SERIF, Font.PLAIN, (int) CourtBoard.REFERENCE_SIZE);
+        final FontRenderContext context = g.getFontRenderContext();
+        board = new CourtBoard(new CourtBoard.TextMeasure() {
+            @Override
+            public float width(String text) {
+                return (float) reference.getStringBounds(text, context).getWidth();
+            }
+        });
+        painter = new CourtBoard.Painter() {
+            private final Color background = new Color(0xF3F3F3);
+            private final Color court = new Color(0x1E5B3A);
+            private final Color line = Color.WHITE;
+            private final Color selected = new Color(0xBD920F);
+            private final BasicStroke stroke = new BasicStroke(2f);
+
+            @Override
+            public void clear() {
+                g.setColor(background);
+                g.fillRect(0, 0, image.getWidth(), image.getHeight());
+            }
+
+            @Override
+            public void court(int index, float left, float top, float right, float bottom, boolean isSelected) {
+                g.setColor(court);
+                g.fillRect((int) left, (int) top, (int) (right - left), (int) (bottom - top));
+                g.setColor(isSelected ? selected : line);
+                g.setStroke(stroke);
+                g.drawRect((int) left, (int) top, (int) (right - left), (int) (bottom - top));
+                int net = (int) ((top + bottom) / 2);
+                g.drawLine((int) left, net, (int) right, net);
+            }
+
+            @Override
+            public void text(String text, float x, float y, float size) {
+                g.setFont(reference.deriveFont(size));
+                int width = g.getFontMetrics().stringWidth(text);
+                g.drawString(text, x - width / 2f, y);
+            }
+        };
+        first = names("ANNA MARIA", "BEN");
+        second = names("CARL", "DORA VAN DEN BERG");
+        live = new ArrayList<>(first);
+        board.setSize(image.getWidth(), image.getHeight());
+        board.setCourts(first, courts);
+        board.paint(painter);
+    }
+
+    @TearDown
+    public void dispose() {
+        g.dispose();
+    }
+
+    private List<String> names(String a, String b) {
+        List<String> names = new ArrayList<>();
+        for (int i = 0; i < courts * DrawEngine.PLAYERS_PER_COURT; ++i) {
+            names.add((i % 2 == 0 ? a : b) + " " + i);
+        }
+        return names;
+    }
+
+    @Benchmark
+    public int newRound() {
+        flip = !flip;
+        board.setCourts(flip ? second : first, courts);
+        return board.paint(painter);
+    }
+
+    @Benchmark
+    public int repaintAll() {
+        board.invalidateAll();
+        return board.paint(painter);
+    }
+
+    @Benchmark
+    public int oneCourt() {
+        flip = !flip;
+        int court = courts / 2;
+        for (int slot = 0; slot < DrawEngine.PLAYERS_PER_COURT; ++slot) {
+            int i = court * DrawEngine.PLAYERS_PER_COURT + slot;
+            live.set(i, (flip ? second : first).get(i));
+        }
+        board.setCourts(live, courts);
+        return board.paint(painter);
+    }
+}
@@ -0,0 +1,70 @@
+package com.courtplanner.court.engine;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of one "court finished" event including the hand-off to the scheduler thread: a burst
+ * of events over 40 courts is posted and then waited for.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CourtSchedulerBenchmark {
+
+    static final int COURTS = 40;
+    static final int BURST = 1000;
+
+    @Param({"1000", "10000", "100000"})
+    int players;
+
+    private CourtScheduler scheduler;
+    private long clock;
+
+    @Setup(Level.Trial)
+    public void setup() throws InterruptedException {
+        scheduler = new CourtScheduler(new CourtScheduler.Listener() {
+            @Override
+            public void onCourtAssigned(int court, List<String> assigned) {
+            }
+        });
+        for (int i = 0; i < players; ++i) {
+            scheduler.playerArrived("PLAYER " + i, 0);
+        }
+        scheduler.setCourts(COURTS, 0);
+        scheduler.awaitProcessed();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        scheduler.close();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BURST)
+    public long courtFinishedBurst() throws InterruptedException {
+        for (int i = 0; i < BURST; ++i) {
+            clock += 1;
+            scheduler.courtFinished(i % COURTS, clock);
+        }
+        return scheduler.awaitProcessed();
+    }
+}
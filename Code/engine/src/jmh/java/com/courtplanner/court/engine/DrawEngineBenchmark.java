@@ -0,0 +1,75 @@
+package com.courtplanner.court.engine;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.ArrayList;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Draws per second for the engine against the old per-slot loop from MainActivity.
+ * Run with {@code -prof gc} (the default of the jmh task) to get allocations per draw.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DrawEngineBenchmark {
+
+    @Param({"16", "200", "1000", "10000"})
+    int players;
+
+    @Param({"1", "4", "50", "500"})
+    int courts;
+
+    private final DrawEngine engine = new DrawEngine(new Random(42));
+    private int[] out;
+    private ArrayList<String> names;
+
+    @Setup
+    public void setup() {
+        out = new int[courts * DrawEngine.PLAYERS_PER_COURT];
+        names = new ArrayList<>(players);
+        for (int i = 0; i < players; ++i) {
+            names.add("PLAYER " + i);
+        }
+    }
+
+    @Benchmark
+    public void engineDraw(Blackhole bh) {
+        bh.consume(engine.draw(players, courts, out));
+        bh.consume(out);
+    }
+
+    // The loop that used to live in MainActivity.onButtonClickDrawConfirm.
+    @Benchmark
+    public ArrayList<String> legacyDraw() {
+        ArrayList<String> selected = new ArrayList<>(names);
+        ArrayList<String> drawn = new ArrayList<>();
+        for (int court = 1; court <= courts; ++court) {
+            for (int field = 0; field < DrawEngine.PLAYERS_PER_COURT; ++field) {
+                if (selected.size() == 0) {
+                    break;
+                }
+                Random random = new Random();
+                String player = selected.get(random.nextInt(selected.size()));
+                drawn.add(player);
+                selected.remove(player);
+            }
+        }
+        return drawn;
+    }
+}
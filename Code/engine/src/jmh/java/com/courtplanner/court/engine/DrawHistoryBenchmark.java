@@ -0,0 +1,174 @@
+package com.courtplanner.court.engine;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Random;
+import java.util.TimeZone;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * DrawHistory over 1M recorded games: ten years of club nights, 400 players. "ingest" appends
+ * all of them to an empty log (single shot, time per million); the queries run on a full log.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DrawHistoryBenchmark {
+
+    static final int GAMES = 1_000_000;
+    static final int PLAYERS = 400;
+    static final int DAYS = 3650;
+    static final long DAY = 24L * 60 * 60 * 1000;
+    static final TimeZone UTC = TimeZone.getTimeZone("UTC");
+
+    private File dir;
+    private DrawHistory history;
+    private int lastDay;
+    private int player;
+
+    static void fill(DrawHistory history, String[] names) throws IOException {
+        Random random = new Random(11);
+        String[] court = new String[4];
+        for (int g = 0; g < GAMES; ++g) {
+            for (int slot = 0; slot < 4; ++slot) {
+                court[slot] = names[random.nextInt(PLAYERS)];
+            }
+            history.appendCourt((long) g * DAYS / GAMES * DAY, (g / 8) % 20, g % 8, court);
+        }
+    }
+
+    static String[] names() {
+        String[] names = new String[PLAYERS];
+        for (int i = 0; i < PLAYERS; ++i) {
+            names[i] = "PLAYER " + i;
+        }
+        return names;
+    }
+
+    static void delete(File dir) {
+        File[] files = dir.listFiles();
+        if (files != null) {
+            for (File f : files) {
+                f.delete();
+            }
+        }
+        dir.delete();
+    }
+
+    @Setup
+    public void setup() throws IOException {
+        dir = File.createTempFile("draw-history", "");
+        dir.delete();
+        history = DrawHistory.open(dir, UTC);
+        fill(history, names());
+        history.checkpoint();
+        lastDay = DAYS - 1;
+        player = history.idOf("PLAYER 7");
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        history.close();
+        delete(dir);
+    }
+
+    @Benchmark
+    public int[] gamesThisMonth() throws IOException {
+        return history.gamesPerPlayer(DrawHistory.firstDayOfMonth(lastDay), lastDay);
+    }
+
+    @Benchmark
+    public int[] gamesLast365Days() throws IOException {
+        return history.gamesPerPlayer(lastDay - 364, lastDay);
+    }
+
+    @Benchmark
+    public int[] gamesAllTime() throws IOException {
+        return history.gamesPerPlayer(0, lastDay);
+    }
+
+    @Benchmark
+    public int[] partnersThisMonth() throws IOException {
+        return history.partnerCounts(player, DrawHistory.firstDayOfMonth(lastDay), lastDay);
+    }
+
+    @Benchmark
+    public int[] partnersAllTime() throws IOException {
+        return history.partnerCounts(player, 0, lastDay);
+    }
+
+    @State(Scope.Thread)
+    public static class Ingest {
+        File dir;
+        DrawHistory history;
+        final String[] names = names();
+
+        @Setup(Level.Invocation)
+        public void open() throws IOException {
+            dir = File.createTempFile("draw-ingest", "");
+            dir.delete();
+            history = DrawHistory.open(dir, UTC);
+        }
+
+        @TearDown(Level.Invocation)
+        public void close() throws IOException {
+            history.close();
+            delete(dir);
+        }
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    @Warmup(iterations = 2)
+    @Measurement(iterations = 5)
+    public long ingestMillion(Ingest state) throws IOException {
+        fill(state.history, state.names);
+        state.history.flush();
+        return state.history.size();
+    }
+
+    @State(Scope.Thread)
+    public static class Reopen {
+        File dir;
+
+        @Setup(Level.Trial)
+        public void create() throws IOException {
+            dir = File.createTempFile("draw-reopen", "");
+            dir.delete();
+            DrawHistory history = DrawHistory.open(dir, UTC);
+            fill(history, names());
+            history.close();
+        }
+
+        @TearDown(Level.Trial)
+        public void delete() {
+            DrawHistoryBenchmark.delete(dir);
+        }
+    }
+
+    /** Opening a closed million-game history: names plus checkpoint, nothing to replay. */
+    @Benchmark
+    public long reopen(Reopen state) throws IOException {
+        DrawHistory history = DrawHistory.open(state.dir, UTC);
+        long size = history.size();
+        history.close();
+        return size;
+    }
+}
@@ -0,0 +1,102 @@
+package com.courtplanner.court.engine;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Draws per second with a new {@link Random} for every slot, as the draw loop used to create
+ * them, against one shared {@link Random} and against a seeded round ({@link SeededDraw}: a
+ * {@link DrawRandom} stream for the players and one per court). "verify" is what the audit
+ * pays to re-derive a recorded fair round from its entry.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DrawRandomBenchmark {
+
+    @Param({"200", "10000"})
+    int players;
+
+    @Param({"4", "50"})
+    int courts;
+
+    private final DrawEngine engine = new DrawEngine(new Random(42));
+    private final SeededDraw seeded = new SeededDraw();
+    private int[] indices;
+    private int[] out;
+    private int[] playCounts;
+    private int[] lastRounds;
+    private long seed;
+    private DrawAudit.Entry entry;
+
+    @Setup
+    public void setup() {
+        indices = new int[players];
+        out = new int[courts * DrawEngine.PLAYERS_PER_COURT];
+        playCounts = new int[players];
+        lastRounds = new int[players];
+        String[] names = new String[players];
+        Random random = new Random(7);
+        for (int i = 0; i < players; ++i) {
+            indices[i] = i;
+            names[i] = "PLAYER " + i;
+            playCounts[i] = random.nextInt(20);
+            lastRounds[i] = random.nextInt(40) - 1;
+        }
+        int[] drawn = seeded.draw(ClubNight.DrawMode.FAIR, 99, courts, playCounts, lastRounds, players);
+        entry = new DrawAudit.Entry(0, 40, ClubNight.DrawMode.FAIR, 99, courts, names, playCounts, lastRounds, drawn);
+    }
+
+    // Partial shuffle with a fresh, clock-seeded Random per slot
+    @Benchmark
+    public int[] perSlotRandom() {
+        int slots = Math.min(players, out.length);
+        for (int i = 0; i < slots; ++i) {
+            Random random = new Random();
+            int j = i + random.nextInt(players - i);
+            int picked = indices[j];
+            indices[j] = indices[i];
+            indices[i] = picked;
+            out[i] = picked;
+        }
+        return out;
+    }
+
+    @Benchmark
+    public int[] sharedRandom() {
+        engine.draw(players, courts, out);
+        return out;
+    }
+
+    @Benchmark
+    public int[] seededRound() {
+        return seeded.draw(ClubNight.DrawMode.RANDOM, seed++, courts, playCounts, lastRounds, players);
+    }
+
+    @Benchmark
+    public int[] seededFairRound() {
+        return seeded.draw(ClubNight.DrawMode.FAIR, seed++, courts, playCounts, lastRounds, players);
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public boolean verify() {
+        return DrawAudit.verify(entry);
+    }
+}
@@ -0,0 +1,63 @@
+package com.courtplanner.court.engine;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of one fairness-weighted round next to the uniform draw, e.g. 100 courts out of 1000
+ * present players.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FairDrawBenchmark {
+
+    @Param({"200", "1000", "10000"})
+    int players;
+
+    @Param({"10", "100"})
+    int courts;
+
+    private final DrawEngine uniform = new DrawEngine(new Random(42));
+    private final FairDrawEngine fair = new FairDrawEngine(new Random(42));
+    private int[] playCounts;
+    private int[] lastPlayedRound;
+    private int[] out;
+
+    @Setup
+    public void setup() {
+        Random random = new Random(7);
+        playCounts = new int[players];
+        lastPlayedRound = new int[players];
+        for (int i = 0; i < players; ++i) {
+            playCounts[i] = random.nextInt(30);
+            lastPlayedRound[i] = random.nextInt(10) - 1;
+        }
+        out = new int[courts * DrawEngine.PLAYERS_PER_COURT];
+    }
+
+    @Benchmark
+    public int uniformDraw() {
+        return uniform.draw(players, courts, out);
+    }
+
+    @Benchmark
+    public int fairDraw() {
+        return fair.draw(playCounts, lastPlayedRound, players, courts, out);
+    }
+}
@@ -0,0 +1,127 @@
+package com.courtplanner.court.engine;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+
+/** The ArrayList-plus-mutex roster MainActivity used before PlayerRegistry, kept as a baseline. */
+class LegacyRoster {
+
+    static class LegacyPlayer {
+        boolean selected = false;
+        int numberSelected = 0;
+        String name;
+
+        LegacyPlayer(String name) {
+            this.name = name;
+        }
+    }
+
+    final ArrayList<LegacyPlayer> availablePlayers = new ArrayList<>();
+    final Object mutex = new Object();
+
+    boolean isPlayerPresent(String name) {
+        for (LegacyPlayer p : availablePlayers) {
+            if (p.name.equals(name)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    void addPlayer(LegacyPlayer p) {
+        synchronized (mutex) {
+            if (!isPlayerPresent(p.name)) {
+                availablePlayers.add(p);
+            }
+        }
+    }
+
+    void removePlayer(String name) {
+        synchronized (mutex) {
+            Iterator<LegacyPlayer> iterator = availablePlayers.iterator();
+            while (iterator.hasNext()) {
+                if (iterator.next().name.equals(name)) {
+                    iterator.remove();
+                }
+            }
+        }
+    }
+
+    LegacyPlayer getPlayer(String name) {
+        synchronized (mutex) {
+            if (isPlayerPresent(name)) {
+                for (LegacyPlayer p : availablePlayers) {
+                    if (p.name.equals(name)) {
+                        return p;
+                    }
+                }
+            }
+            return null;
+        }
+    }
+
+    void selectPlayer(String name) {
+        LegacyPlayer p = getPlayer(name);
+        if (p != null) {
+            p.selected = true;
+        }
+    }
+
+    void deselectPlayer(String name) {
+        LegacyPlayer p = getPlayer(name);
+        if (p != null) {
+            p.selected = false;
+        }
+    }
+
+    int getNumberSelected() {
+        synchronized (mutex) {
+            int res = 0;
+            for (LegacyPlayer p : availablePlayers) {
+                if (p.selected) {
+                    res += 1;
+                }
+            }
+            return res;
+        }
+    }
+
+    void increaseNumberSelectedOnPlayers(Collection<String> names) {
+        for (String name : names) {
+            synchronized (mutex) {
+                LegacyPlayer p = getPlayer(name);
+                if (p != null) {
+                    p.numberSelected += 1;
+                }
+            }
+        }
+    }
+
+    // MainActivity.sortAvailablePlayers: selection sort on play count, ties broken by the first
+    // letter only.
+    static ArrayList<Player> sortAvailablePlayers(ArrayList<Player> availablePlayers) {
+        ArrayList<Player> newAvailablePlayers = new ArrayList<>();
+        while (availablePlayers.size() > 0) {
+            int currentMax = 0;
+            Player curBest = null;
+            for (Player p : availablePlayers) {
+                if (curBest == null) {
+                    curBest = p;
+                    currentMax = p.numberSelected;
+                } else if (p.numberSelected > currentMax) {
+                    curBest = p;
+                    currentMax = p.numberSelected;
+                } else if (p.numberSelected == currentMax) {
+                    if (p.name.toLowerCase().charAt(0) < curBest.name.toLowerCase().charAt(0)) {
+                        curBest = p;
+                        currentMax = p.numberSelected;
+                    }
+                }
+            }
+            newAvailablePlayers.add(curBest);
+            availablePlayers.remove(curBest);
+        }
+        return newAvailablePlayers;
+    }
+}
@@ -0,0 +1,64 @@
+package com.courtplanner.court.engine;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * What timing a section costs: nothing, a histogram of a disabled registry, an enabled one,
+ * and an enabled counter.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MetricsBenchmark {
+
+    private final LatencyHistogram disabled = new Metrics(false).histogram("section");
+    private final Metrics enabledMetrics = new Metrics(true);
+    private final LatencyHistogram enabled = enabledMetrics.histogram("section");
+    private final Metrics.Counter counter = enabledMetrics.counter("calls");
+    private long work = 1;
+
+    private long section() {
+        work = work * 6364136223846793005L + 1442695040888963407L;
+        return work;
+    }
+
+    @Benchmark
+    public long uninstrumented() {
+        return section();
+    }
+
+    @Benchmark
+    public long disabledHistogram() {
+        long start = disabled.start();
+        long result = section();
+        disabled.recordSince(start);
+        return result;
+    }
+
+    @Benchmark
+    public long enabledHistogram() {
+        long start = enabled.start();
+        long result = section();
+        enabled.recordSince(start);
+        return result;
+    }
+
+    @Benchmark
+    public long enabledCounter() {
+        counter.increment();
+        return section();
+    }
+}
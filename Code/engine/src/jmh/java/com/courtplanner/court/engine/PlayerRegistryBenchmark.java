@@ -0,0 +1,114 @@
+package com.courtplanner.court.engine;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The roster operations behind every button click, PlayerRegistry against the old linear
+ * ArrayList scans. "drawUpdate" is the per-draw play count update for 100 courts.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PlayerRegistryBenchmark {
+
+    @Param({"200", "1000", "10000"})
+    int players;
+
+    private final PlayerRegistry registry = new PlayerRegistry();
+    private final LegacyRoster legacy = new LegacyRoster();
+    private String[] names;
+    private List<String> drawn;
+    private int next;
+
+    @Setup
+    public void setup() {
+        names = new String[players];
+        for (int i = 0; i < players; ++i) {
+            names[i] = "PLAYER " + i;
+            registry.add(names[i], 0, i % 3 == 0);
+            LegacyRoster.LegacyPlayer p = new LegacyRoster.LegacyPlayer(names[i]);
+            p.selected = i % 3 == 0;
+            legacy.addPlayer(p);
+        }
+        Random random = new Random(1);
+        drawn = new ArrayList<>();
+        for (int i = 0; i < Math.min(400, players); ++i) {
+            drawn.add(names[random.nextInt(players)]);
+        }
+    }
+
+    private String nextName() {
+        next = (next + 7919) % players;
+        return names[next];
+    }
+
+    @Benchmark
+    public boolean registryToggle() {
+        boolean now = registry.toggleSelected(nextName());
+        return now && registry.getNumberSelected() > 0;
+    }
+
+    @Benchmark
+    public boolean legacyToggle() {
+        String name = nextName();
+        LegacyRoster.LegacyPlayer p = legacy.getPlayer(name);
+        if (p.selected) {
+            legacy.deselectPlayer(name);
+        } else {
+            legacy.selectPlayer(name);
+        }
+        return legacy.getNumberSelected() > 0;
+    }
+
+    @Benchmark
+    public Player registryLookup() {
+        return registry.get(nextName());
+    }
+
+    @Benchmark
+    public LegacyRoster.LegacyPlayer legacyLookup() {
+        return legacy.getPlayer(nextName());
+    }
+
+    @Benchmark
+    public int registryAddRemove() {
+        registry.add("NEW PLAYER");
+        registry.remove("NEW PLAYER");
+        return registry.size();
+    }
+
+    @Benchmark
+    public int legacyAddRemove() {
+        legacy.addPlayer(new LegacyRoster.LegacyPlayer("NEW PLAYER"));
+        legacy.removePlayer("NEW PLAYER");
+        return legacy.availablePlayers.size();
+    }
+
+    @Benchmark
+    public void registryDrawUpdate() {
+        registry.recordDraw(drawn, 0);
+    }
+
+    @Benchmark
+    public void legacyDrawUpdate() {
+        legacy.increaseNumberSelectedOnPlayers(drawn);
+    }
+}
@@ -0,0 +1,124 @@
+package com.courtplanner.court.engine;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Filter latency while typing a name into a 50k player roster. One op is one full typing
+ * sequence (every prefix of a random name), so divide by the name length for per-keystroke
+ * latency, or read the "keystroke" variants that replay a single character. The "registry"
+ * variants go through {@link PlayerRegistry#search}, the call the player list makes, which also
+ * puts the matches in ranking order.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PlayerSearchBenchmark {
+
+    private static final String[] FIRST = {"AN", "BE", "CA", "DA", "EL", "FI", "GRE", "HAN", "IS", "JO",
+            "KA", "LE", "MA", "NI", "OL", "PE", "RA", "SO", "TI", "VE", "WIL", "ZO"};
+    private static final String[] LAST = {"BERG", "MANN", "SON", "STEIN", "OVA", "SKI", "ER", "ING",
+            "HOFF", "LUND", "RICH", "TON", "WOOD", "FIELD", "AUX"};
+
+    @Param({"50000"})
+    int players;
+
+    private final PlayerSearchIndex index = new PlayerSearchIndex();
+    private final PlayerRegistry registry = new PlayerRegistry();
+    private String[] names;
+    private String[] typed;
+    private int next;
+
+    static String syntheticName(Random random) {
+        StringBuilder name = new StringBuilder();
+        for (int i = 0, n = 1 + random.nextInt(3); i < n; ++i) {
+            name.append(FIRST[random.nextInt(FIRST.length)]);
+        }
+        name.append(' ');
+        for (int i = 0, n = 1 + random.nextInt(2); i < n; ++i) {
+            name.append(LAST[random.nextInt(LAST.length)]);
+        }
+        return name.append(' ').append(random.nextInt(1000)).toString();
+    }
+
+    @Setup
+    public void setup() {
+        Random random = new Random(3);
+        names = new String[players];
+        for (int i = 0; i < players; ++i) {
+            names[i] = syntheticName(random);
+            index.add(i, names[i]);
+            registry.add(names[i], random.nextInt(50), false, EloRating.INITIAL);
+        }
+        List<String> queries = new ArrayList<>();
+        for (int i = 0; i < 64; ++i) {
+            queries.add(names[random.nextInt(players)]);
+        }
+        typed = queries.toArray(new String[0]);
+    }
+
+    @Benchmark
+    public void indexTypingSequence(Blackhole bh) {
+        String name = typed[next++ & 63];
+        for (int end = 1; end <= name.length(); ++end) {
+            bh.consume(index.query(name.substring(0, end)));
+        }
+    }
+
+    @Benchmark
+    public BitSet indexKeystroke() {
+        String name = typed[next++ & 63];
+        index.query(name.substring(0, 2));
+        return index.query(name.substring(0, 3));
+    }
+
+    @Benchmark
+    public void registryTypingSequence(Blackhole bh) {
+        String name = typed[next++ & 63];
+        for (int end = 1; end <= name.length(); ++end) {
+            bh.consume(registry.search(name.substring(0, end)));
+        }
+    }
+
+    @Benchmark
+    public List<Player> registryKeystroke() {
+        String name = typed[next++ & 63];
+        registry.search(name.substring(0, 2));
+        return registry.search(name.substring(0, 3));
+    }
+
+    // The old filter: contains() on every name for every keystroke.
+    @Benchmark
+    public void scanTypingSequence(Blackhole bh) {
+        String name = typed[next++ & 63];
+        for (int end = 1; end <= name.length(); ++end) {
+            String q = name.substring(0, end);
+            BitSet result = new BitSet(players);
+            for (int i = 0; i < players; ++i) {
+                if (names[i].contains(q)) {
+                    result.set(i);
+                }
+            }
+            bh.consume(result);
+        }
+    }
+}
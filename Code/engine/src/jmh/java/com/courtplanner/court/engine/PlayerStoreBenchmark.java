@@ -0,0 +1,99 @@
+package com.courtplanner.court.engine;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Writing a 10k player file: "save" puts every player into an empty store and closes it,
+ * "patch" rewrites every tenth record of a full one in place. Loading it back is in
+ * {@link StartupBenchmark}.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(1)
+public class PlayerStoreBenchmark {
+
+    static final int PLAYERS = 10_000;
+
+    private final String[] names = new String[PLAYERS];
+    private File file;
+
+    @Setup(Level.Trial)
+    public void names() {
+        for (int i = 0; i < PLAYERS; ++i) {
+            names[i] = "PLAYER NUMBER " + i;
+        }
+    }
+
+    @Setup(Level.Invocation)
+    public void create() throws IOException {
+        file = File.createTempFile("player-store", ".db");
+        file.delete();
+    }
+
+    @TearDown(Level.Invocation)
+    public void delete() {
+        file.delete();
+    }
+
+    @Benchmark
+    public long save() throws IOException {
+        PlayerStore saved = PlayerStore.open(file);
+        for (String name : names) {
+            saved.put(name, 0, false);
+        }
+        saved.close();
+        return file.length();
+    }
+
+    @State(Scope.Thread)
+    public static class Full {
+        final String[] names = new String[PLAYERS];
+        File file;
+        PlayerStore store;
+
+        @Setup(Level.Invocation)
+        public void fill() throws IOException {
+            file = File.createTempFile("player-patch", ".db");
+            file.delete();
+            PlayerStore filled = PlayerStore.open(file);
+            for (int i = 0; i < PLAYERS; ++i) {
+                names[i] = "PLAYER NUMBER " + i;
+                filled.put(names[i], 0, false);
+            }
+            filled.close();
+            store = PlayerStore.open(file);
+        }
+
+        @TearDown(Level.Invocation)
+        public void delete() throws IOException {
+            store.close();
+            file.delete();
+        }
+    }
+
+    @Benchmark
+    public PlayerStore patch(Full state) throws IOException {
+        for (int i = 0; i < PLAYERS; i += 10) {
+            state.store.put(state.names[i], 1, true);
+        }
+        return state.store;
+    }
+}
@@ -0,0 +1,107 @@
+package com.courtplanner.court.engine;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * One draw of 10 courts followed by a re-render of the roster: the incrementally maintained
+ * ranking, a full {@link Collections#sort} per render, and the old selection sort.
+ *
+ * <p>Setup fails unless the maintained ranking equals a full sort by (games desc, full name), and
+ * logs how many positions the old first-letter order gets wrong on the same roster.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RosterOrderBenchmark {
+
+    private static final int DRAWN = 40;
+
+    @Param({"200", "1000", "10000"})
+    int players;
+
+    private final PlayerRegistry registry = new PlayerRegistry();
+    private final PlayerRegistry resorted = new PlayerRegistry();
+    private final PlayerRegistry legacy = new PlayerRegistry();
+    private String[] names;
+    private int next;
+
+    @Setup
+    public void setup() {
+        Random random = new Random(5);
+        while (registry.size() < players) {
+            String name = PlayerSearchBenchmark.syntheticName(random);
+            int games = random.nextInt(8);
+            if (registry.add(name, games, false)) {
+                resorted.add(name, games, false);
+                legacy.add(name, games, false);
+            }
+        }
+        names = new String[players];
+        for (int i = 0; i < players; ++i) {
+            names[i] = registry.nameOf(i);
+        }
+
+        ArrayList<Player> expected = registry.getPlayers();
+        Collections.sort(expected, PlayerRegistry.RANKING);
+        ArrayList<Player> ranked = registry.getRankedPlayers();
+        ArrayList<Player> old = LegacyRoster.sortAvailablePlayers(registry.getPlayers());
+        int misplaced = 0;
+        for (int i = 0; i < players; ++i) {
+            if (!ranked.get(i).name.equals(expected.get(i).name)) {
+                throw new IllegalStateException("ranking differs from a full sort at " + i);
+            }
+            if (!old.get(i).name.equals(expected.get(i).name)) {
+                misplaced += 1;
+            }
+        }
+        System.out.println("\nold first-letter order misplaces " + misplaced + " of " + players + " players");
+    }
+
+    private List<String> nextDraw() {
+        List<String> drawn = new ArrayList<>(DRAWN);
+        for (int i = 0; i < DRAWN; ++i) {
+            next = (next + 7919) % players;
+            drawn.add(names[next]);
+        }
+        return drawn;
+    }
+
+    @Benchmark
+    public List<Player> maintainedRanking() {
+        registry.recordDraw(nextDraw(), 0);
+        return registry.getRankedPlayers();
+    }
+
+    @Benchmark
+    public List<Player> sortPerRender() {
+        resorted.recordDraw(nextDraw(), 0);
+        ArrayList<Player> list = resorted.getPlayers();
+        Collections.sort(list, PlayerRegistry.RANKING);
+        return list;
+    }
+
+    @Benchmark
+    public List<Player> legacySelectionSort() {
+        legacy.recordDraw(nextDraw(), 0);
+        return LegacyRoster.sortAvailablePlayers(legacy.getPlayers());
+    }
+}
@@ -0,0 +1,98 @@
+package com.courtplanner.court.engine;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Three readers listing the selected players while one writer toggles attendance. "locked"
+ * deep-copies every player while holding the registry lock, as the roster reads did before
+ * snapshots; "snapshot" reads the published {@link RosterSnapshot}. Per-method scores show what
+ * the readers pay and how long the writer waits for them.
+ */
+@State(Scope.Group)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RosterSnapshotBenchmark {
+
+    @Param({"200", "10000"})
+    int players;
+
+    private final PlayerRegistry registry = new PlayerRegistry();
+    private String[] names;
+
+    @Setup
+    public void setup() {
+        names = new String[players];
+        for (int i = 0; i < players; ++i) {
+            names[i] = "PLAYER " + i;
+            registry.add(names[i], i % 20, i % 3 == 0);
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class Cursor {
+        int next;
+    }
+
+    private String nextName(Cursor cursor) {
+        cursor.next = (cursor.next + 7919) % players;
+        return names[cursor.next];
+    }
+
+    @Benchmark
+    @Group("locked")
+    @GroupThreads(3)
+    public int lockedRead() {
+        int games = 0;
+        synchronized (registry) {
+            for (int i = 0; i < registry.size(); ++i) {
+                Player p = registry.get(i);
+                if (p.selected) {
+                    games += p.numberSelected;
+                }
+            }
+        }
+        return games;
+    }
+
+    @Benchmark
+    @Group("locked")
+    @GroupThreads(1)
+    public boolean lockedToggle(Cursor cursor) {
+        return registry.toggleSelected(nextName(cursor));
+    }
+
+    @Benchmark
+    @Group("snapshot")
+    @GroupThreads(3)
+    public int snapshotRead() {
+        int games = 0;
+        for (Player p : registry.snapshot().selected()) {
+            games += p.numberSelected;
+        }
+        return games;
+    }
+
+    @Benchmark
+    @Group("snapshot")
+    @GroupThreads(1)
+    public boolean snapshotToggle(Cursor cursor) {
+        return registry.toggleSelected(nextName(cursor));
+    }
+}
@@ -0,0 +1,165 @@
+package com.courtplanner.court.engine;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Bulk import of 100k members into a fresh registry and player file, batched against adding them
+ * one at a time the way the add button does, plus export. "parseMillion" streams a million rows
+ * through the parser in a 16 MB heap, which only works if the file is never held in memory.
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class RosterTransferBenchmark {
+
+    static final int ROWS = 100_000;
+
+    /** An empty registry and player file for every import. */
+    @State(Scope.Thread)
+    public static class Target {
+        File file;
+        PlayerRegistry registry;
+        PlayerStore store;
+
+        @Setup(Level.Trial)
+        public void create() throws IOException {
+            file = File.createTempFile("roster", ".db");
+        }
+
+        @Setup(Level.Invocation)
+        public void open() throws IOException {
+            file.delete();
+            registry = new PlayerRegistry();
+            store = PlayerStore.open(file);
+        }
+
+        @TearDown(Level.Invocation)
+        public void close() throws IOException {
+            store.close();
+        }
+
+        @TearDown(Level.Trial)
+        public void delete() {
+            file.delete();
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class Exported {
+        final PlayerRegistry registry = new PlayerRegistry();
+
+        @Setup(Level.Trial)
+        public void fill() throws IOException {
+            RosterTransfer.importFrom(new GeneratedCsv(ROWS), registry, null);
+        }
+    }
+
+    @Benchmark
+    public RosterTransfer.Result importBatched(final Target target) throws IOException {
+        RosterTransfer.Result result = RosterTransfer.importFrom(new GeneratedCsv(ROWS), target.registry,
+                new RosterTransfer.Listener() {
+                    @Override
+                    public void onBatch(RosterBatch batch, BitSet added, long rows, long bytes) throws IOException {
+                        target.store.putAll(batch, added);
+                    }
+                });
+        target.store.flush();
+        return result;
+    }
+
+    @Benchmark
+    public int importOneByOne(Target target) throws IOException {
+        RosterTransfer.importFrom(new GeneratedCsv(ROWS), target.registry, null);
+        for (Player p : target.registry.getPlayers()) {
+            target.store.put(p.name, p.numberSelected, p.selected, p.rating);
+        }
+        target.store.flush();
+        return target.store.size();
+    }
+
+    @Benchmark
+    public void export(Exported exported) throws IOException {
+        RosterTransfer.exportTo(new OutputStream() {
+            @Override
+            public void write(int b) {
+            }
+
+            @Override
+            public void write(byte[] b, int off, int len) {
+            }
+        }, exported.registry, RosterTransfer.Format.CSV);
+    }
+
+    @Benchmark
+    @Fork(value = 1, jvmArgsAppend = "-Xmx16m")
+    public RosterTransfer.Result parseMillion() throws IOException {
+        return RosterTransfer.importFrom(new GeneratedCsv(10 * ROWS), new Roster() {
+            @Override
+            public boolean add(String name) {
+                return true;
+            }
+
+            @Override
+            public BitSet addAll(RosterBatch batch) {
+                BitSet added = new BitSet(batch.size());
+                added.set(0, batch.size());
+                return added;
+            }
+
+            @Override
+            public boolean remove(String name) {
+                return false;
+            }
+
+            @Override
+            public void recordDraw(Collection<String> drawn, int round) {
+            }
+        }, null);
+    }
+
+    /** A header and {@code rows} member rows, produced as they are read. */
+    static final class GeneratedCsv extends InputStream {
+        private final int rows;
+        private int row = -1;
+        private byte[] line = "name,games,rating\n".getBytes();
+        private int position;
+
+        GeneratedCsv(int rows) {
+            this.rows = rows;
+        }
+
+        @Override
+        public int read() {
+            if (position == line.length) {
+                if (row + 1 == rows) {
+                    return -1;
+                }
+                row += 1;
+                line = ("MEMBER " + row + "," + row % 50 + "," + (1400 + row % 200) + "\n").getBytes();
+                position = 0;
+            }
+            return line[position++];
+        }
+    }
+}
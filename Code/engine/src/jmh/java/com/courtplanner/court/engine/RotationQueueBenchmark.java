@@ -0,0 +1,91 @@
+package com.courtplanner.court.engine;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Turnover of one 40-court round: the rotation queue against reshuffling every present player,
+ * the fairness-ranked draw and the original pick-and-remove loop.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RotationQueueBenchmark {
+
+    static final int COURTS = 40;
+
+    @Param({"1000", "10000", "100000"})
+    int players;
+
+    private final RotationQueue queue = new RotationQueue();
+    private final FairDrawEngine fair = new FairDrawEngine(new Random(1));
+    private final Random random = new Random(1);
+    private ArrayList<String> present;
+    private int[] playCounts;
+    private int[] lastRounds;
+    private final int[] drawn = new int[COURTS * DrawEngine.PLAYERS_PER_COURT];
+    private int round;
+
+    @Setup
+    public void setup() {
+        present = new ArrayList<>(players);
+        playCounts = new int[players];
+        lastRounds = new int[players];
+        for (int i = 0; i < players; ++i) {
+            present.add("PLAYER " + i);
+            queue.add(present.get(i));
+            lastRounds[i] = FairDrawEngine.NEVER_PLAYED;
+        }
+    }
+
+    @Benchmark
+    public List<String> queueRound() {
+        return queue.nextRound(COURTS);
+    }
+
+    @Benchmark
+    public List<String> reshuffleRound() {
+        Collections.shuffle(present, random);
+        return new ArrayList<>(present.subList(0, COURTS * DrawEngine.PLAYERS_PER_COURT));
+    }
+
+    @Benchmark
+    public int fairDrawRound() {
+        int n = fair.draw(playCounts, lastRounds, players, COURTS, drawn);
+        for (int i = 0; i < n; ++i) {
+            playCounts[drawn[i]] += 1;
+            lastRounds[drawn[i]] = round;
+        }
+        round = (round + 1) & 0x7FFF;
+        return n;
+    }
+
+    // The loop onButtonClickDrawConfirm used to run: random pick, then ArrayList.remove
+    @Benchmark
+    public List<String> legacyPickAndRemove() {
+        ArrayList<String> candidates = new ArrayList<>(present);
+        ArrayList<String> picked = new ArrayList<>();
+        for (int i = 0; i < COURTS * DrawEngine.PLAYERS_PER_COURT; ++i) {
+            picked.add(candidates.remove(random.nextInt(candidates.size())));
+        }
+        return picked;
+    }
+}
@@ -0,0 +1,81 @@
+package com.courtplanner.court.engine;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Planning a 30 round x 20 court evening for 100 players. Target: the whole evening in under
+ * 200 ms with the default 5 ms optimizer budget per round, and a mid-session replan (one player
+ * leaves, one arrives after round 15) in under 100 ms.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SessionPlannerBenchmark {
+
+    @Param({"30"})
+    int rounds;
+
+    @Param({"20"})
+    int courts;
+
+    @Param({"100"})
+    int players;
+
+    @Param({"1000000", "5000000"})
+    long roundBudgetNanos;
+
+    private final Random seeds = new Random(8);
+    private SessionPlanner fresh;
+    private SessionPlanner midSession;
+
+    private SessionPlanner newPlanner() {
+        SessionPlanner planner = new SessionPlanner(rounds, courts, ForkJoinPool.commonPool(), seeds);
+        planner.setRoundBudgetNanos(roundBudgetNanos);
+        for (int i = 0; i < players; ++i) {
+            planner.join();
+        }
+        return planner;
+    }
+
+    @Setup(Level.Invocation)
+    public void setup() {
+        fresh = newPlanner();
+        midSession = newPlanner();
+        midSession.plan();
+        for (int r = 0; r < rounds / 2; ++r) {
+            midSession.commitRound();
+        }
+        midSession.leave(seeds.nextInt(players));
+        midSession.join();
+    }
+
+    @Benchmark
+    public SessionPlanner planEvening() {
+        fresh.plan();
+        return fresh;
+    }
+
+    @Benchmark
+    public SessionPlanner replanAfterRoster() {
+        midSession.plan();
+        return midSession;
+    }
+}
@@ -0,0 +1,121 @@
+package com.courtplanner.court.engine;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * What startup pays to get the roster into memory. "splitParse" is the regex split of the old
+ * "Database" string that onCreate used to run, "singlePassParse" is {@link LegacyDatabase};
+ * both only hand the fields to a visitor. "storeOpenThenLoad" and "storeOpenVisiting" fill a
+ * registry from the player file, reading it twice and once.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class StartupBenchmark {
+
+    @Param({"1000", "10000", "100000"})
+    int players;
+
+    private String database;
+    private File file;
+
+    @Setup
+    public void setup() throws IOException {
+        file = File.createTempFile("startup", ".db");
+        file.delete();
+        PlayerStore store = PlayerStore.open(file);
+        StringBuilder s = new StringBuilder();
+        for (int i = 0; i < players; ++i) {
+            String name = "PLAYER " + i;
+            s.append(name).append('_').append(i % 40).append('_').append(i % 3 == 0).append('|');
+            store.put(name, i % 40, i % 3 == 0);
+        }
+        store.close();
+        database = s.toString();
+    }
+
+    @TearDown
+    public void delete() {
+        file.delete();
+    }
+
+    private static PlayerStore.Visitor into(final Blackhole bh) {
+        return new PlayerStore.Visitor() {
+            @Override
+            public void visit(String name, int numberSelected, boolean selected, double rating) {
+                bh.consume(name);
+                bh.consume(numberSelected);
+                bh.consume(selected);
+            }
+        };
+    }
+
+    @Benchmark
+    public void splitParse(Blackhole bh) {
+        PlayerStore.Visitor visitor = into(bh);
+        for (String playerData : database.split("\\|")) {
+            String[] playerFields = playerData.split("_");
+            if (playerFields.length == 3) {
+                int numberSelected;
+                try {
+                    numberSelected = Integer.parseInt(playerFields[1]);
+                } catch (NumberFormatException e) {
+                    numberSelected = 0;
+                }
+                visitor.visit(playerFields[0], numberSelected, Boolean.parseBoolean(playerFields[2]),
+                        Player.DEFAULT_RATING);
+            }
+        }
+    }
+
+    @Benchmark
+    public int singlePassParse(Blackhole bh) {
+        return LegacyDatabase.parse(database, into(bh));
+    }
+
+    @Benchmark
+    public PlayerRegistry storeOpenThenLoad() throws IOException {
+        final PlayerRegistry registry = new PlayerRegistry();
+        PlayerStore store = PlayerStore.open(file);
+        store.load(new PlayerStore.Visitor() {
+            @Override
+            public void visit(String name, int numberSelected, boolean selected, double rating) {
+                registry.add(name, numberSelected, selected, rating);
+            }
+        });
+        store.close();
+        return registry;
+    }
+
+    @Benchmark
+    public PlayerRegistry storeOpenVisiting() throws IOException {
+        final PlayerRegistry registry = new PlayerRegistry();
+        PlayerStore store = PlayerStore.open(file, new PlayerStore.Visitor() {
+            @Override
+            public void visit(String name, int numberSelected, boolean selected, double rating) {
+                registry.add(name, numberSelected, selected, rating);
+            }
+        });
+        store.close();
+        return registry;
+    }
+}
@@ -0,0 +1,71 @@
+package com.courtplanner.court.engine;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The balancing step of a rated draw: TeamBalancer on the common pool against a single worker,
+ * and the snake draft alone (zero budget) as the floor.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TeamBalancerBenchmark {
+
+    @Param({"10", "40"})
+    int courts;
+
+    private double[] ratings;
+    private ForkJoinPool single;
+    private TeamBalancer parallel;
+    private TeamBalancer sequential;
+
+    @Setup
+    public void setup() {
+        Random random = new Random(2);
+        ratings = new double[courts * DrawEngine.PLAYERS_PER_COURT];
+        for (int i = 0; i < ratings.length; ++i) {
+            ratings[i] = 1500 + 250 * random.nextGaussian();
+        }
+        single = new ForkJoinPool(1);
+        parallel = new TeamBalancer();
+        sequential = new TeamBalancer(single);
+    }
+
+    @TearDown
+    public void tearDown() {
+        single.shutdown();
+    }
+
+    @Benchmark
+    public int[] balanceParallel() {
+        return parallel.balance(ratings, TeamBalancer.DEFAULT_BUDGET_NANOS);
+    }
+
+    @Benchmark
+    public int[] balanceSingleWorker() {
+        return sequential.balance(ratings, TeamBalancer.DEFAULT_BUDGET_NANOS);
+    }
+
+    @Benchmark
+    public int[] snakeDraftOnly() {
+        return parallel.balance(ratings, 0);
+    }
+}
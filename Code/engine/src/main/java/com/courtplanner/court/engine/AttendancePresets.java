@@ -0,0 +1,190 @@
+package com.courtplanner.court.engine;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Named groups of players ("Tuesday group", "juniors") to select in one go. Each preset is a
+ * {@link BitSet} over registry ordinals, so applying one is a word-parallel
+ * {@link PlayerRegistry#applySelection}. Registered as a {@link PlayerRegistry.Listener} it
+ * follows ordinal moves on removal; players added later are simply not in any preset.
+ *
+ * <p>Guarded by the registry's lock rather than its own, so ordinals cannot move between reading
+ * a preset and applying it.
+ *
+ * <p>Saved as the roster's names in ordinal order followed by each preset's bitset words:
+ *
+ * <pre>
+ * int magic "CPAP", short version, int players, players x UTF name,
+ * int presets, presets x (UTF name, int words, words x long)
+ * </pre>
+ *
+ * Loading maps every saved ordinal to the player's ordinal now, by name, and drops players who
+ * are no longer on the roster.
+ */
+public class AttendancePresets implements PlayerRegistry.Listener {
+
+    private static final int MAGIC = 0x43504150; // "CPAP"
+    private static final short VERSION = 1;
+
+    private final PlayerRegistry players;
+    private final LinkedHashMap<String, BitSet> presets = new LinkedHashMap<>();
+
+    public AttendancePresets(PlayerRegistry players) {
+        this.players = players;
+        players.addListener(this);
+    }
+
+    /** Preset names in the order they were first saved. */
+    public List<String> names() {
+        synchronized (players) {
+            return new ArrayList<>(presets.keySet());
+        }
+    }
+
+    public boolean contains(String name) {
+        synchronized (players) {
+            return presets.containsKey(name);
+        }
+    }
+
+    /** A copy of the preset's ordinals, or null. */
+    public BitSet get(String name) {
+        synchronized (players) {
+            BitSet preset = presets.get(name);
+            return preset == null ? null : (BitSet) preset.clone();
+        }
+    }
+
+    /** Number of players in the preset, 0 if there is none. */
+    public int size(String name) {
+        synchronized (players) {
+            BitSet preset = presets.get(name);
+            return preset == null ? 0 : preset.cardinality();
+        }
+    }
+
+    /** Saves the current selection as {@code name}, replacing a preset of that name. */
+    public void saveSelection(String name) {
+        synchronized (players) {
+            presets.put(name, players.selection());
+        }
+    }
+
+    /** Stores the players at {@code ordinals} as {@code name}. */
+    public void put(String name, BitSet ordinals) {
+        synchronized (players) {
+            presets.put(name, (BitSet) ordinals.clone());
+        }
+    }
+
+    public boolean remove(String name) {
+        synchronized (players) {
+            return presets.remove(name) != null;
+        }
+    }
+
+    /**
+     * Combines the selection with the preset; see {@link PlayerRegistry#applySelection}. Returns
+     * the ordinals whose selection flipped, or null if there is no such preset.
+     */
+    public BitSet apply(String name, PlayerRegistry.SelectionOp op) {
+        synchronized (players) {
+            BitSet preset = presets.get(name);
+            return preset == null ? null : players.applySelection(preset, op);
+        }
+    }
+
+    @Override
+    public void onPlayerRemoved(int ordinal, int movedFrom) {
+        for (BitSet preset : presets.values()) {
+            preset.set(ordinal, movedFrom >= 0 && preset.get(movedFrom));
+            if (movedFrom >= 0) {
+                preset.clear(movedFrom);
+            }
+        }
+    }
+
+    public void write(OutputStream out) throws IOException {
+        DataOutputStream data = new DataOutputStream(out);
+        synchronized (players) {
+            RosterSnapshot roster = players.snapshot();
+            data.writeInt(MAGIC);
+            data.writeShort(VERSION);
+            data.writeInt(roster.size());
+            for (int ordinal = 0; ordinal < roster.size(); ++ordinal) {
+                data.writeUTF(roster.get(ordinal).name);
+            }
+            data.writeInt(presets.size());
+            for (Map.Entry<String, BitSet> preset : presets.entrySet()) {
+                data.writeUTF(preset.getKey());
+                long[] words = preset.getValue().toLongArray();
+                data.writeInt(words.length);
+                for (long word : words) {
+                    data.writeLong(word);
+                }
+            }
+        }
+        data.flush();
+    }
+
+    /** Replaces every preset with the ones saved in {@code in}, remapped onto the roster as it is now. */
+    public void read(InputStream in) throws IOException {
+        DataInputStream data = new DataInputStream(in);
+        if (data.readInt() != MAGIC) {
+            throw new IOException("not an attendance preset file");
+        }
+        short version = data.readShort();
+        if (version != VERSION) {
+            throw new IOException("unsupported attendance preset version " + version);
+        }
+        String[] saved = new String[data.readInt()];
+        for (int i = 0; i < saved.length; ++i) {
+            saved[i] = data.readUTF();
+        }
+        int count = data.readInt();
+        LinkedHashMap<String, BitSet> loaded = new LinkedHashMap<>();
+        for (int p = 0; p < count; ++p) {
+            String name = data.readUTF();
+            long[] words = new long[data.readInt()];
+            for (int w = 0; w < words.length; ++w) {
+                words[w] = data.readLong();
+            }
+            loaded.put(name, BitSet.valueOf(words));
+        }
+        synchronized (players) {
+            // Saved ordinal -> ordinal now, -1 for players who have gone
+            int[] remap = new int[saved.length];
+            boolean identity = true;
+            for (int i = 0; i < saved.length; ++i) {
+                remap[i] = players.ordinalOf(saved[i]);
+                identity &= remap[i] == i;
+            }
+            presets.clear();
+            for (Map.Entry<String, BitSet> preset : loaded.entrySet()) {
+                BitSet bits = preset.getValue();
+                if (bits.length() > saved.length) {
+                    bits.clear(saved.length, bits.length());
+                }
+                if (!identity) {
+                    BitSet mapped = new BitSet(players.size());
+                    for (int i = bits.nextSetBit(0); i >= 0; i = bits.nextSetBit(i + 1)) {
+                        if (remap[i] >= 0) {
+                            mapped.set(remap[i]);
+                        }
+                    }
+                    bits = mapped;
+                }
+                presets.put(preset.getKey(), bits);
+            }
+        }
+    }
+}
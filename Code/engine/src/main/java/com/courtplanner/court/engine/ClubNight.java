@@ -0,0 +1,461 @@
+package com.courtplanner.court.engine;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * The flow of a club night without any Android around it: players come and go, rounds are
+ * drawn and laid out on courts, and whatever was played is recorded in the roster, the rotation
+ * queue and the pair history. The app and the headless simulator run the same code.
+ *
+ * <p>Roster changes go through a {@link Roster}, so the app can put the sync layer in between.
+ * A night is driven by one thread at a time, except that attendance and preferences may change
+ * while a draw runs on another thread, so the registry, the queue and the preferences are
+ * thread-safe.
+ */
+public class ClubNight {
+
+    public enum DrawMode {
+        /** Whoever waited longest plays next ({@link RotationQueue}). */
+        ROTATION,
+        /** Fewest games first ({@link FairDrawEngine}). */
+        FAIR,
+        /** Uniformly at random ({@link DrawEngine}). */
+        RANDOM
+    }
+
+    public interface Listener {
+        /** A court was played in {@code round}; slots without a player are null. */
+        void onCourtPlayed(int round, int court, String[] players);
+
+        /** A round was drawn; keep {@code entry} to {@link DrawAudit#verify check} the draw later. */
+        void onRoundDrawn(DrawAudit.Entry entry);
+    }
+
+    /** Histogram of {@link #draw}, layout and recording included. */
+    public static final String DRAW = "draw";
+
+    private static final int PER_COURT = DrawEngine.PLAYERS_PER_COURT;
+
+    private final PlayerRegistry players;
+    private final Roster roster;
+    private final RotationQueue queue;
+    private final PairHistory pairHistory = new PairHistory();
+    private final PairingOptimizer pairingOptimizer;
+    private final TeamBalancer teamBalancer = new TeamBalancer();
+    private final Random seeds;
+    private final SeededDraw seededDraw = new SeededDraw();
+    private final ConstraintSolver constraintSolver;
+    private final DrawConstraints constraints = new DrawConstraints();
+    private final ArrayList<String> waiting = new ArrayList<>();
+    private final ArrayList<String> training = new ArrayList<>();
+    private final ConcurrentHashMap<String, CourtAllocator.Preference> preferences = new ConcurrentHashMap<>();
+    private Listener listener;
+    private LatencyHistogram drawTime = Metrics.NONE.histogram(DRAW);
+    private long optimizerBudgetNanos = PairingOptimizer.DEFAULT_BUDGET_NANOS;
+    private long balanceBudgetNanos = TeamBalancer.DEFAULT_BUDGET_NANOS;
+    private long constraintBudgetNanos = ConstraintSolver.DEFAULT_BUDGET_NANOS;
+    private int round;
+    // A game of continuous play was recorded in the current round
+    private boolean livePlayed;
+
+    public ClubNight(PlayerRegistry players, Roster roster, RotationQueue queue) {
+        this(players, roster, queue, new Random());
+    }
+
+    /** {@code random} seeds every draw and the optimizer restarts, for repeatable simulations. */
+    public ClubNight(PlayerRegistry players, Roster roster, RotationQueue queue, Random random) {
+        this.players = players;
+        this.roster = roster;
+        this.queue = queue;
+        this.pairingOptimizer = new PairingOptimizer(pairHistory, ForkJoinPool.commonPool(), random);
+        this.constraintSolver = new ConstraintSolver(ForkJoinPool.commonPool(), random);
+        this.seeds = random;
+        players.addListener(pairHistory);
+    }
+
+    public void setListener(Listener listener) {
+        this.listener = listener;
+    }
+
+    public void setMetrics(Metrics metrics) {
+        drawTime = metrics.histogram(DRAW);
+    }
+
+    /** Time the repeat-avoiding layout may take per draw (default 50 ms). */
+    public void setOptimizerBudgetNanos(long optimizerBudgetNanos) {
+        this.optimizerBudgetNanos = optimizerBudgetNanos;
+    }
+
+    /** Time the team balancing may take per draw (default 20 ms). */
+    public void setBalanceBudgetNanos(long balanceBudgetNanos) {
+        this.balanceBudgetNanos = balanceBudgetNanos;
+    }
+
+    /** Time the constraint solver may take per draw (default 50 ms). */
+    public void setConstraintBudgetNanos(long constraintBudgetNanos) {
+        this.constraintBudgetNanos = constraintBudgetNanos;
+    }
+
+    /** Partners, players kept apart, court limits and the key holder every draw lays out around. */
+    public DrawConstraints constraints() {
+        return constraints;
+    }
+
+    /** Rounds played so far; the next round that is recorded gets this number. */
+    public int round() {
+        return round;
+    }
+
+    public boolean add(String name) {
+        return roster.add(name);
+    }
+
+    /** Adds a batch of players in one go; see {@link Roster#addAll}. */
+    public BitSet addAll(RosterBatch batch) {
+        return roster.addAll(batch);
+    }
+
+    public boolean remove(String name) {
+        boolean removed = roster.remove(name);
+        queue.remove(name);
+        preferences.remove(name);
+        return removed;
+    }
+
+    /** Whether {@code name} would rather play singles or doubles in {@link #drawVenue}. */
+    public void setPreference(String name, CourtAllocator.Preference preference) {
+        if (preference == CourtAllocator.Preference.ANY) {
+            preferences.remove(name);
+        } else {
+            preferences.put(name, preference);
+        }
+    }
+
+    public CourtAllocator.Preference preference(String name) {
+        CourtAllocator.Preference preference = preferences.get(name);
+        return preference == null ? CourtAllocator.Preference.ANY : preference;
+    }
+
+    /**
+     * Combines attendance with a saved preset in one change (see {@link AttendancePresets#apply})
+     * and returns the players whose attendance flipped, or null if there is no such preset.
+     * Players who now attend join the end of the line in roster order.
+     */
+    public ArrayList<String> applyPreset(AttendancePresets presets, String name, PlayerRegistry.SelectionOp op) {
+        ArrayList<String> flipped = new ArrayList<>();
+        BitSet attending = new BitSet();
+        synchronized (players) {
+            BitSet ordinals = presets.apply(name, op);
+            if (ordinals == null) {
+                return null;
+            }
+            for (int ordinal = ordinals.nextSetBit(0); ordinal >= 0; ordinal = ordinals.nextSetBit(ordinal + 1)) {
+                String player = players.nameOf(ordinal);
+                attending.set(flipped.size(), players.isSelected(player));
+                flipped.add(player);
+            }
+        }
+        for (int i = 0; i < flipped.size(); ++i) {
+            if (attending.get(i)) {
+                queue.add(flipped.get(i));
+            } else {
+                queue.remove(flipped.get(i));
+            }
+        }
+        return flipped;
+    }
+
+    /** Flips attendance and returns the new value; attending players join the end of the line. */
+    public boolean toggleSelected(String name) {
+        boolean selected = players.toggleSelected(name);
+        if (selected) {
+            queue.add(name);
+        } else {
+            queue.remove(name);
+        }
+        return selected;
+    }
+
+    public void setSelected(String name, boolean selected) {
+        if (players.isSelected(name) != selected) {
+            toggleSelected(name);
+        }
+    }
+
+    /**
+     * Draws a round over {@code courts} courts and records it. Returns the drawn names in court
+     * layout: four per court, slots 0/1 against 2/3, the last court possibly short. The layout
+     * meets the {@link #constraints()}, which win over avoiding repeats and balancing teams.
+     *
+     * @throws ConstraintSolver.InfeasibleException if the constraints cannot be met by the drawn
+     *         players; nothing is recorded then
+     */
+    public ArrayList<String> draw(int courts, DrawMode mode, boolean avoidRepeats, boolean balanceTeams) {
+        return draw(null, Math.max(courts, 0), mode, avoidRepeats, balanceTeams);
+    }
+
+    /**
+     * Draws a round for a venue of singles, doubles and training courts and records it. As many
+     * attending players play as the venue seats, in formats chosen by {@link CourtAllocator} from
+     * their {@link #setPreference preferences}. Returns four slots per venue court in venue
+     * order: doubles 0/1 against 2/3, singles in slots 0 and 2, and "" for empty slots; training
+     * courts stay blank and their players are in {@link #training()}. Avoiding repeats, team
+     * balancing and the {@link #constraints()} apply to the doubles games, in the order of the
+     * doubles courts.
+     */
+    public ArrayList<String> drawVenue(CourtAllocator.Court[] venue, DrawMode mode, boolean avoidRepeats,
+                                       boolean balanceTeams) {
+        return draw(venue, 0, mode, avoidRepeats, balanceTeams);
+    }
+
+    private ArrayList<String> draw(CourtAllocator.Court[] venue, int courts, DrawMode mode, boolean avoidRepeats,
+                                   boolean balanceTeams) {
+        long start = drawTime.start();
+        RosterSnapshot snapshot = players.snapshot();
+        int seats = courts * PER_COURT;
+        if (venue != null) {
+            int attending = mode == DrawMode.ROTATION ? queue.size() : snapshot.getNumberSelected();
+            seats = CourtAllocator.seats(venue, attending);
+            courts = (seats + PER_COURT - 1) / PER_COURT;
+        }
+        // The draw works on the snapshot only: players may leave on another thread meanwhile,
+        // and the registry then hands their ordinals to someone else
+        HashMap<String, Integer> ordinals = new HashMap<>();
+        List<Player> candidates;
+        if (mode == DrawMode.ROTATION) {
+            candidates = new ArrayList<>();
+            // Only looked at: an infeasible layout must leave the line as it was
+            for (String name : queue.head(seats)) {
+                int ordinal = players.ordinalOf(name);
+                if (ordinal >= 0 && ordinal < snapshot.size() && snapshot.get(ordinal).name.equals(name)) {
+                    candidates.add(snapshot.get(ordinal));
+                    ordinals.put(name, ordinal);
+                } else {
+                    queue.remove(name);
+                }
+            }
+        } else {
+            candidates = snapshot.selected();
+            int[] selected = snapshot.selectedOrdinals();
+            for (int i = 0; i < selected.length; ++i) {
+                ordinals.put(candidates.get(i).name, selected[i]);
+            }
+        }
+        int n = candidates.size();
+        String[] names = new String[n];
+        int[] playCounts = new int[n];
+        int[] lastDrawnRounds = new int[n];
+        for (int i = 0; i < n; ++i) {
+            names[i] = candidates.get(i).name;
+            playCounts[i] = candidates.get(i).numberSelected;
+            lastDrawnRounds[i] = candidates.get(i).lastDrawnRound;
+        }
+        long seed = seeds.nextLong();
+        int[] picked = seededDraw.draw(mode, seed, courts, playCounts, lastDrawnRounds, n);
+        // A venue may seat fewer than whole courts of four; the last picks sit out then
+        ArrayList<String> drawn = new ArrayList<>(picked.length);
+        for (int i = 0; i < picked.length && i < seats; ++i) {
+            drawn.add(names[picked[i]]);
+        }
+        training.clear();
+        ArrayList<String> layout = venue == null
+                ? constrain(arrange(snapshot, ordinals, drawn, avoidRepeats, balanceTeams))
+                : layOut(snapshot, ordinals, venue, drawn, avoidRepeats, balanceTeams);
+
+        // A drawn round follows any continuous play instead of sharing its round number
+        endLivePlay();
+        // Keep the line right for the next rotated round; rotated players go back in line order
+        queue.movedToBack(mode == DrawMode.ROTATION ? Arrays.asList(names) : drawn);
+        if (listener != null) {
+            listener.onRoundDrawn(new DrawAudit.Entry(System.currentTimeMillis(), round, mode, seed, courts,
+                    names, playCounts, lastDrawnRounds, picked));
+        }
+
+        HashSet<String> playing = new HashSet<>(drawn);
+        waiting.clear();
+        for (String name : queue.waiting()) {
+            if (!playing.contains(name)) {
+                waiting.add(name);
+            }
+        }
+
+        for (int base = 0; base < layout.size(); base += PER_COURT) {
+            String[] court = new String[PER_COURT];
+            boolean empty = true;
+            for (int slot = 0; slot < PER_COURT && base + slot < layout.size(); ++slot) {
+                String name = layout.get(base + slot);
+                if (!name.isEmpty()) {
+                    court[slot] = name;
+                    empty = false;
+                }
+            }
+            if (!empty) {
+                recordCourt(base / PER_COURT, court);
+            }
+        }
+        roster.recordDraw(drawn, round);
+        round += 1;
+        drawTime.recordSince(start);
+        return layout;
+    }
+
+    /** Players on the training courts in the last {@link #drawVenue venue draw}. */
+    public List<String> training() {
+        return training;
+    }
+
+    /** Attending players who sat out the last draw, next in line first. */
+    public List<String> waiting() {
+        return waiting;
+    }
+
+    /**
+     * Records one court of the current round that was laid out elsewhere (a planned session,
+     * continuous play); call {@link #recordPlayed} once the round's courts are recorded.
+     */
+    public void recordCourt(int court, String[] names) {
+        int[] ordinals = {-1, -1, -1, -1};
+        for (int slot = 0; slot < PER_COURT && slot < names.length; ++slot) {
+            if (names[slot] != null) {
+                ordinals[slot] = players.ordinalOf(names[slot]);
+            }
+        }
+        pairHistory.recordCourt(ordinals[0], ordinals[1], ordinals[2], ordinals[3]);
+        if (listener != null) {
+            listener.onCourtPlayed(round, court, names);
+        }
+    }
+
+    /** Counts a round that was laid out elsewhere and moves its players to the end of the line. */
+    public void recordPlayed(Collection<String> played) {
+        endLivePlay();
+        roster.recordDraw(played, round);
+        queue.movedToBack(played);
+        round += 1;
+    }
+
+    /**
+     * Records a game of continuous play and moves its players to the end of the line. Every game
+     * until {@link #endLivePlay} belongs to the current round, so a long evening of play takes
+     * one round number instead of one per game.
+     */
+    public void recordLiveCourt(int court, String[] names) {
+        recordCourt(court, names);
+        ArrayList<String> played = new ArrayList<>(PER_COURT);
+        for (String name : names) {
+            if (name != null) {
+                played.add(name);
+            }
+        }
+        roster.recordDraw(played, round);
+        queue.movedToBack(played);
+        livePlayed = true;
+    }
+
+    /** Closes the round of continuous play, if a game was recorded in it. */
+    public void endLivePlay() {
+        if (livePlayed) {
+            livePlayed = false;
+            round += 1;
+        }
+    }
+
+    private ArrayList<String> layOut(RosterSnapshot snapshot, HashMap<String, Integer> ordinals,
+                                     CourtAllocator.Court[] venue, ArrayList<String> drawn, boolean avoidRepeats,
+                                     boolean balanceTeams) {
+        CourtAllocator.Preference[] wanted = new CourtAllocator.Preference[drawn.size()];
+        for (int i = 0; i < wanted.length; ++i) {
+            wanted[i] = preference(drawn.get(i));
+        }
+        CourtAllocator.Allocation allocation = CourtAllocator.allocate(venue, wanted);
+        ArrayList<String> doubles = new ArrayList<>();
+        for (int c = 0; c < venue.length; ++c) {
+            if (allocation.played(c) == CourtAllocator.Format.DOUBLES) {
+                for (int i = 0; i < allocation.players(c); ++i) {
+                    doubles.add(drawn.get(allocation.player(c, i)));
+                }
+            }
+        }
+        ArrayList<String> arranged = constrain(arrange(snapshot, ordinals, doubles, avoidRepeats, balanceTeams));
+
+        ArrayList<String> layout = new ArrayList<>(venue.length * PER_COURT);
+        int nextDoubles = 0;
+        for (int c = 0; c < venue.length; ++c) {
+            int base = layout.size();
+            for (int slot = 0; slot < PER_COURT; ++slot) {
+                layout.add("");
+            }
+            CourtAllocator.Format played = allocation.played(c);
+            if (played == CourtAllocator.Format.DOUBLES) {
+                for (int slot = 0; slot < PER_COURT; ++slot) {
+                    layout.set(base + slot, arranged.get(nextDoubles++));
+                }
+            } else if (played == CourtAllocator.Format.SINGLES) {
+                layout.set(base, drawn.get(allocation.player(c, 0)));
+                layout.set(base + 2, drawn.get(allocation.player(c, 1)));
+            } else if (played == CourtAllocator.Format.TRAINING) {
+                for (int i = 0; i < allocation.players(c); ++i) {
+                    training.add(drawn.get(allocation.player(c, i)));
+                }
+            }
+        }
+        return layout;
+    }
+
+    private ArrayList<String> constrain(ArrayList<String> layout) {
+        if (constraints.isEmpty()) {
+            return layout;
+        }
+        ConstraintSolver.Problem problem = constraints.problem(layout);
+        if (problem.isEmpty()) {
+            return layout;
+        }
+        int[] order = new int[layout.size()];
+        for (int i = 0; i < order.length; ++i) {
+            order[i] = i;
+        }
+        ArrayList<String> solved = new ArrayList<>(layout.size());
+        for (int index : constraintSolver.solve(problem, order, constraintBudgetNanos)) {
+            solved.add(layout.get(index));
+        }
+        return solved;
+    }
+
+    // ordinals: snapshot ordinal of every drawn name
+    private ArrayList<String> arrange(RosterSnapshot snapshot, HashMap<String, Integer> ordinals,
+                                      ArrayList<String> drawn, boolean avoidRepeats, boolean balanceTeams) {
+        if (balanceTeams) {
+            // Even teams win over avoiding repeats, the optimizer would undo the balancing
+            double[] ratings = new double[drawn.size()];
+            for (int i = 0; i < ratings.length; ++i) {
+                ratings[i] = snapshot.get(ordinals.get(drawn.get(i))).rating;
+            }
+            ArrayList<String> balanced = new ArrayList<>(drawn.size());
+            for (int index : teamBalancer.balance(ratings, balanceBudgetNanos)) {
+                balanced.add(drawn.get(index));
+            }
+            return balanced;
+        }
+        if (!avoidRepeats) {
+            return drawn;
+        }
+        int[] drawnOrdinals = new int[drawn.size()];
+        for (int i = 0; i < drawnOrdinals.length; ++i) {
+            drawnOrdinals[i] = ordinals.get(drawn.get(i));
+        }
+        ArrayList<String> optimized = new ArrayList<>(drawn.size());
+        for (int ordinal : pairingOptimizer.optimize(drawnOrdinals, optimizerBudgetNanos)) {
+            optimized.add(snapshot.get(ordinal).name);
+        }
+        return optimized;
+    }
+}
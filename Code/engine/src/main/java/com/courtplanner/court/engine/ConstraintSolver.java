@@ -0,0 +1,582 @@
+package com.courtplanner.court.engine;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Lays drawn players out over courts so that fixed partners share a side, players who must be
+ * kept apart are on different courts and restricted players only get their allowed courts.
+ *
+ * <p>Partners are merged into one unit of two, then units are assigned to courts by
+ * backtracking: the unit with the fewest courts left goes first, and every assignment is
+ * propagated to the units it must avoid and checked against the courts' free places (forward
+ * checking). Courts that no remaining unit can tell apart are tried only once. Searches give up
+ * after a node limit that doubles on every restart; independent restarts with their own random
+ * value order run in a {@link ForkJoinPool} until one finds a layout, one finishes its search
+ * without hitting the limit (which proves there is none), or the time budget runs out. Counting
+ * arguments rule out the common impossible cases before any search.
+ */
+public class ConstraintSolver {
+
+    public static final long DEFAULT_BUDGET_NANOS = 50_000_000L;
+
+    private static final int PER_COURT = DrawEngine.PLAYERS_PER_COURT;
+    private static final int CLOCK_CHECK_MASK = 255;
+    private static final int FIRST_NODE_LIMIT = 1 << 12;
+
+    /** The constraints cannot all hold, or no layout was found in time. */
+    public static class InfeasibleException extends IllegalStateException {
+        private static final long serialVersionUID = 1L;
+
+        private final boolean proven;
+
+        InfeasibleException(String message, boolean proven) {
+            super(message);
+            this.proven = proven;
+        }
+
+        /** True if no layout exists; false if the time budget ran out first. */
+        public boolean isProven() {
+            return proven;
+        }
+    }
+
+    /** Constraints over players {@code 0..players-1} laid out four per court, the last court possibly short. */
+    public static final class Problem {
+        final int players;
+        final int courts;
+        final ArrayList<int[]> partners = new ArrayList<>();
+        final ArrayList<int[]> apart = new ArrayList<>();
+        final BitSet[] allowed;
+        String[] names;
+
+        public Problem(int players) {
+            this.players = players;
+            this.courts = (players + PER_COURT - 1) / PER_COURT;
+            this.allowed = new BitSet[players];
+        }
+
+        public int players() {
+            return players;
+        }
+
+        /** Names to use in the messages of {@link InfeasibleException}s. */
+        public void setNames(String[] names) {
+            this.names = names;
+        }
+
+        String name(int player) {
+            return names != null ? names[player] : "player " + player;
+        }
+
+        public int courts() {
+            return courts;
+        }
+
+        /** {@code a} and {@code b} play on the same side of the same court. */
+        public void partners(int a, int b) {
+            partners.add(new int[]{a, b});
+        }
+
+        /** {@code a} and {@code b} play on different courts. */
+        public void apart(int a, int b) {
+            apart.add(new int[]{a, b});
+        }
+
+        /** {@code player} only plays on the given courts; repeated calls narrow it further. */
+        public void allow(int player, BitSet courts) {
+            if (allowed[player] == null) {
+                allowed[player] = (BitSet) courts.clone();
+            } else {
+                allowed[player].and(courts);
+            }
+        }
+
+        public boolean isEmpty() {
+            if (!partners.isEmpty() || !apart.isEmpty()) {
+                return false;
+            }
+            for (BitSet courts : allowed) {
+                if (courts != null) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        /** Whether the layout ({@code order[slot]} is the player in that slot) meets every constraint. */
+        public boolean isSatisfiedBy(int[] order) {
+            int[] slotOf = new int[players];
+            for (int slot = 0; slot < order.length; ++slot) {
+                slotOf[order[slot]] = slot;
+            }
+            for (int[] pair : partners) {
+                if (slotOf[pair[0]] / 2 != slotOf[pair[1]] / 2) {
+                    return false;
+                }
+            }
+            for (int[] pair : apart) {
+                if (slotOf[pair[0]] / PER_COURT == slotOf[pair[1]] / PER_COURT) {
+                    return false;
+                }
+            }
+            for (int player = 0; player < players; ++player) {
+                if (allowed[player] != null && !allowed[player].get(slotOf[player] / PER_COURT)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+
+    private final ForkJoinPool pool;
+    private final int restarts;
+    private final Random seeds;
+
+    public ConstraintSolver() {
+        this(ForkJoinPool.commonPool(), new Random());
+    }
+
+    public ConstraintSolver(ForkJoinPool pool, Random seeds) {
+        this.pool = pool;
+        this.restarts = Math.max(1, pool.getParallelism());
+        this.seeds = seeds;
+    }
+
+    /**
+     * Returns a layout ({@code order[slot]} is the player in that slot) that meets every
+     * constraint. A layout that already does is returned unchanged; otherwise the first search
+     * prefers each player's current court, so a nearly valid layout changes little.
+     *
+     * @throws InfeasibleException if there is no such layout or none was found in time
+     */
+    public int[] solve(Problem problem, int[] current, long budgetNanos) {
+        if (problem.isSatisfiedBy(current)) {
+            return current.clone();
+        }
+        final Model model = new Model(problem, current);
+        long deadline = System.nanoTime() + budgetNanos;
+        final AtomicReference<int[]> found = new AtomicReference<>();
+        final AtomicBoolean proven = new AtomicBoolean();
+        List<ForkJoinTask<Void>> tasks = new ArrayList<>(restarts);
+        synchronized (seeds) {
+            for (int r = 0; r < restarts; ++r) {
+                tasks.add(pool.submit(new Search(model, new Random(seeds.nextLong()), r == 0, deadline,
+                        found, proven)));
+            }
+        }
+        for (ForkJoinTask<Void> task : tasks) {
+            task.join();
+        }
+        if (found.get() != null) {
+            return found.get();
+        }
+        if (proven.get()) {
+            throw new InfeasibleException("the draw constraints cannot all be met", true);
+        }
+        throw new InfeasibleException("no layout meeting the draw constraints was found in time", false);
+    }
+
+    // Partners merged into units, with everything the searches share read-only
+    private static final class Model {
+        final int courts;
+        final int[] capacity;
+        final int units;
+        final int[][] members;
+        final BitSet[] domain;
+        final int[][] conflicts;
+        final int[] courtClass;
+        final int[] currentCourt;
+
+        Model(Problem problem, int[] current) {
+            int n = problem.players;
+            courts = problem.courts;
+            capacity = new int[courts];
+            for (int c = 0; c < courts; ++c) {
+                capacity[c] = Math.min(PER_COURT, n - c * PER_COURT);
+            }
+
+            int[] partner = new int[n];
+            Arrays.fill(partner, -1);
+            for (int[] pair : problem.partners) {
+                int a = pair[0];
+                int b = pair[1];
+                if (a == b || partner[a] == b) {
+                    continue;
+                }
+                if (partner[a] >= 0 || partner[b] >= 0) {
+                    int taken = partner[a] >= 0 ? a : b;
+                    throw new InfeasibleException(problem.name(taken) + " can only have one fixed partner", true);
+                }
+                partner[a] = b;
+                partner[b] = a;
+            }
+            int[] unitOf = new int[n];
+            ArrayList<int[]> grouped = new ArrayList<>();
+            for (int p = 0; p < n; ++p) {
+                if (partner[p] < 0) {
+                    unitOf[p] = grouped.size();
+                    grouped.add(new int[]{p});
+                } else if (partner[p] > p) {
+                    unitOf[p] = grouped.size();
+                    unitOf[partner[p]] = grouped.size();
+                    grouped.add(new int[]{p, partner[p]});
+                }
+            }
+            units = grouped.size();
+            members = grouped.toArray(new int[0][]);
+
+            domain = new BitSet[units];
+            for (int u = 0; u < units; ++u) {
+                domain[u] = new BitSet(courts);
+                domain[u].set(0, courts);
+                for (int p : members[u]) {
+                    if (problem.allowed[p] != null) {
+                        domain[u].and(problem.allowed[p]);
+                    }
+                }
+                if (members[u].length == 2) {
+                    for (int c = domain[u].nextSetBit(0); c >= 0; c = domain[u].nextSetBit(c + 1)) {
+                        if (capacity[c] < 2) {
+                            domain[u].clear(c);
+                        }
+                    }
+                }
+                if (domain[u].isEmpty()) {
+                    throw new InfeasibleException("no court is open to " + problem.name(members[u][0])
+                            + (members[u].length == 2 ? " and " + problem.name(members[u][1]) : ""), true);
+                }
+            }
+
+            ArrayList<BitSet> neighbours = new ArrayList<>(units);
+            for (int u = 0; u < units; ++u) {
+                neighbours.add(new BitSet());
+            }
+            for (int[] pair : problem.apart) {
+                int a = unitOf[pair[0]];
+                int b = unitOf[pair[1]];
+                if (a == b) {
+                    throw new InfeasibleException(problem.name(pair[0]) + " and " + problem.name(pair[1])
+                            + " are partners and must also be kept apart", true);
+                }
+                neighbours.get(a).set(b);
+                neighbours.get(b).set(a);
+            }
+            conflicts = new int[units][];
+            for (int u = 0; u < units; ++u) {
+                BitSet set = neighbours.get(u);
+                conflicts[u] = new int[set.cardinality()];
+                int next = 0;
+                for (int v = set.nextSetBit(0); v >= 0; v = set.nextSetBit(v + 1)) {
+                    conflicts[u][next++] = v;
+                }
+            }
+
+            // Courts with the same size that every unit may use both or neither of are interchangeable
+            courtClass = new int[courts];
+            HashMap<String, Integer> classes = new HashMap<>();
+            StringBuilder key = new StringBuilder();
+            for (int c = 0; c < courts; ++c) {
+                key.setLength(0);
+                key.append(capacity[c]).append(':');
+                for (int u = 0; u < units; ++u) {
+                    key.append(domain[u].get(c) ? '1' : '0');
+                }
+                Integer id = classes.get(key.toString());
+                if (id == null) {
+                    id = classes.size();
+                    classes.put(key.toString(), id);
+                }
+                courtClass[c] = id;
+            }
+
+            currentCourt = new int[units];
+            int[] slotOf = new int[n];
+            for (int slot = 0; slot < current.length; ++slot) {
+                slotOf[current[slot]] = slot;
+            }
+            for (int u = 0; u < units; ++u) {
+                currentCourt[u] = slotOf[members[u][0]] / PER_COURT;
+            }
+            checkCounts();
+        }
+
+        // For every distinct domain, the units confined to it must fit into its courts
+        private void checkCounts() {
+            HashMap<BitSet, Boolean> checked = new HashMap<>();
+            for (int u = 0; u < units; ++u) {
+                if (checked.put(domain[u], Boolean.TRUE) != null) {
+                    continue;
+                }
+                BitSet within = domain[u];
+                int places = 0;
+                int sides = 0;
+                for (int c = within.nextSetBit(0); c >= 0; c = within.nextSetBit(c + 1)) {
+                    places += capacity[c];
+                    sides += capacity[c] / 2;
+                }
+                int players = 0;
+                int pairs = 0;
+                for (int v = 0; v < units; ++v) {
+                    BitSet outside = (BitSet) domain[v].clone();
+                    outside.andNot(within);
+                    if (outside.isEmpty()) {
+                        players += members[v].length;
+                        pairs += members[v].length == 2 ? 1 : 0;
+                    }
+                }
+                if (players > places || pairs > sides) {
+                    throw new InfeasibleException(players + " players are limited to " + within.cardinality()
+                            + " courts with room for " + places, true);
+                }
+            }
+        }
+    }
+
+    private static final class Search implements Callable<Void> {
+        private final Model m;
+        private final Random random;
+        private final boolean preferCurrent;
+        private final long deadline;
+        private final AtomicReference<int[]> found;
+        private final AtomicBoolean proven;
+        private final int[] courtOf;
+        private final int[] free;
+        private final int[] sides;
+        private final int[] used;
+        // blocked[u * courts + c]: units on court c that u must keep apart from
+        private final int[] blocked;
+        private final int[] values;
+        private long nodes;
+        private long nodeLimit;
+        private boolean stopped;
+
+        Search(Model model, Random random, boolean preferCurrent, long deadline,
+               AtomicReference<int[]> found, AtomicBoolean proven) {
+            this.m = model;
+            this.random = random;
+            this.preferCurrent = preferCurrent;
+            this.deadline = deadline;
+            this.found = found;
+            this.proven = proven;
+            courtOf = new int[model.units];
+            free = new int[model.courts];
+            sides = new int[model.courts];
+            used = new int[model.courts];
+            blocked = new int[model.units * model.courts];
+            values = new int[model.courts * model.units];
+        }
+
+        @Override
+        public Void call() {
+            nodeLimit = FIRST_NODE_LIMIT;
+            boolean first = true;
+            while (found.get() == null && !proven.get() && System.nanoTime() < deadline) {
+                Arrays.fill(courtOf, -1);
+                Arrays.fill(blocked, 0);
+                Arrays.fill(used, 0);
+                for (int c = 0; c < m.courts; ++c) {
+                    free[c] = m.capacity[c];
+                    sides[c] = m.capacity[c] / 2;
+                }
+                nodes = 0;
+                stopped = false;
+                boolean useCurrent = preferCurrent && first;
+                if (assign(0, useCurrent)) {
+                    found.compareAndSet(null, layout(useCurrent));
+                    return null;
+                }
+                if (!stopped) {
+                    proven.set(true);
+                    return null;
+                }
+                first = false;
+                nodeLimit *= 2;
+            }
+            return null;
+        }
+
+        private boolean fits(int u, int c) {
+            int size = m.members[u].length;
+            return m.domain[u].get(c) && blocked[u * m.courts + c] == 0 && free[c] >= size
+                    && (size == 1 || sides[c] > 0);
+        }
+
+        private int options(int u) {
+            int count = 0;
+            BitSet d = m.domain[u];
+            for (int c = d.nextSetBit(0); c >= 0; c = d.nextSetBit(c + 1)) {
+                if (fits(u, c)) {
+                    count += 1;
+                }
+            }
+            return count;
+        }
+
+        private boolean assign(int depth, boolean useCurrent) {
+            if (depth == m.units) {
+                return true;
+            }
+            if ((++nodes & CLOCK_CHECK_MASK) == 0
+                    && (found.get() != null || proven.get() || System.nanoTime() >= deadline)) {
+                stopped = true;
+                return false;
+            }
+            if (nodes > nodeLimit) {
+                stopped = true;
+                return false;
+            }
+            // Fewest courts left first, then pairs, then most conflicts; ties broken at random
+            int best = -1;
+            int bestOptions = Integer.MAX_VALUE;
+            int ties = 0;
+            for (int u = 0; u < m.units; ++u) {
+                if (courtOf[u] >= 0) {
+                    continue;
+                }
+                int options = options(u);
+                if (options == 0) {
+                    return false;
+                }
+                int cmp = best < 0 ? -1 : compare(options, u, bestOptions, best);
+                if (cmp < 0) {
+                    best = u;
+                    bestOptions = options;
+                    ties = 1;
+                } else if (cmp == 0 && random.nextInt(++ties) == 0) {
+                    best = u;
+                }
+            }
+
+            int base = depth * m.courts;
+            int count = 0;
+            BitSet d = m.domain[best];
+            for (int c = d.nextSetBit(0); c >= 0; c = d.nextSetBit(c + 1)) {
+                if (fits(best, c)) {
+                    values[base + count++] = c;
+                }
+            }
+            shuffle(base, count);
+            if (useCurrent) {
+                for (int i = 0; i < count; ++i) {
+                    if (values[base + i] == m.currentCourt[best]) {
+                        values[base + i] = values[base];
+                        values[base] = m.currentCourt[best];
+                        break;
+                    }
+                }
+            }
+            int size = m.members[best].length;
+            for (int i = 0; i < count; ++i) {
+                int c = values[base + i];
+                if (used[c] == 0 && triedEquivalent(base, i, c)) {
+                    continue;
+                }
+                place(best, c, size, 1);
+                if (assign(depth + 1, useCurrent)) {
+                    return true;
+                }
+                place(best, c, size, -1);
+                if (stopped) {
+                    return false;
+                }
+            }
+            return false;
+        }
+
+        private int compare(int optionsA, int a, int optionsB, int b) {
+            if (optionsA != optionsB) {
+                return optionsA < optionsB ? -1 : 1;
+            }
+            int sizeA = m.members[a].length;
+            int sizeB = m.members[b].length;
+            if (sizeA != sizeB) {
+                return sizeA > sizeB ? -1 : 1;
+            }
+            int conflictsA = m.conflicts[a].length;
+            int conflictsB = m.conflicts[b].length;
+            return conflictsA == conflictsB ? 0 : conflictsA > conflictsB ? -1 : 1;
+        }
+
+        // An empty court of a class that was already tried empty at this node adds nothing
+        private boolean triedEquivalent(int base, int i, int c) {
+            for (int j = 0; j < i; ++j) {
+                int other = values[base + j];
+                if (m.courtClass[other] == m.courtClass[c] && used[other] == 0) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        private void place(int u, int c, int size, int sign) {
+            courtOf[u] = sign > 0 ? c : -1;
+            free[c] -= sign * size;
+            used[c] += sign;
+            if (size == 2) {
+                sides[c] -= sign;
+            }
+            for (int v : m.conflicts[u]) {
+                blocked[v * m.courts + c] += sign;
+            }
+        }
+
+        private void shuffle(int base, int count) {
+            for (int i = count - 1; i > 0; --i) {
+                int j = random.nextInt(i + 1);
+                int t = values[base + i];
+                values[base + i] = values[base + j];
+                values[base + j] = t;
+            }
+        }
+
+        // Pairs take a side of their court, single players fill the remaining places in unit order
+        private int[] layout(boolean keepOrder) {
+            int players = 0;
+            for (int c = 0; c < m.courts; ++c) {
+                players += m.capacity[c];
+            }
+            int[] order = new int[players];
+            Arrays.fill(order, -1);
+            Integer[] byCourt = new Integer[m.units];
+            for (int u = 0; u < m.units; ++u) {
+                byCourt[u] = u;
+            }
+            if (!keepOrder) {
+                for (int i = m.units - 1; i > 0; --i) {
+                    int j = random.nextInt(i + 1);
+                    Integer t = byCourt[i];
+                    byCourt[i] = byCourt[j];
+                    byCourt[j] = t;
+                }
+            }
+            for (Integer u : byCourt) {
+                if (m.members[u].length == 2) {
+                    int base = courtOf[u] * PER_COURT;
+                    int side = order[base] < 0 ? base : base + 2;
+                    order[side] = m.members[u][0];
+                    order[side + 1] = m.members[u][1];
+                }
+            }
+            for (Integer u : byCourt) {
+                if (m.members[u].length == 1) {
+                    int slot = courtOf[u] * PER_COURT;
+                    while (order[slot] >= 0) {
+                        slot += 1;
+                    }
+                    order[slot] = m.members[u][0];
+                }
+            }
+            return order;
+        }
+    }
+}
@@ -0,0 +1,290 @@
+package com.courtplanner.court.engine;
+
+import java.util.Arrays;
+
+/**
+ * Packs players onto a venue of singles courts (2 players), doubles courts (4, or 2 playing
+ * singles on them) and training courts (any number up to their places). As many players as the
+ * venue can seat get to play; players prefer real games, so training courts only take whoever
+ * does not fit into a game. Between the ways of splitting the players into singles and doubles
+ * games, the one that gives the most players the format they asked for wins.
+ *
+ * <p>Candidates come in priority order and only the last ones sit out. The split is chosen by
+ * trying every number of doubles games once and seating is a few passes over the players, so an
+ * allocation is O(players + courts).
+ */
+public class CourtAllocator {
+
+    public enum Format {
+        SINGLES,
+        DOUBLES,
+        TRAINING
+    }
+
+    public enum Preference {
+        ANY,
+        SINGLES,
+        DOUBLES
+    }
+
+    /** One court of the venue: its format and how many players it takes. */
+    public static final class Court {
+        private static final Court SINGLES = new Court(Format.SINGLES, 2);
+        private static final Court DOUBLES = new Court(Format.DOUBLES, DrawEngine.PLAYERS_PER_COURT);
+
+        public final Format format;
+        public final int places;
+
+        private Court(Format format, int places) {
+            this.format = format;
+            this.places = places;
+        }
+
+        public static Court singles() {
+            return SINGLES;
+        }
+
+        public static Court doubles() {
+            return DOUBLES;
+        }
+
+        public static Court training(int places) {
+            if (places <= 0) {
+                throw new IllegalArgumentException("a training court needs at least one place");
+            }
+            return new Court(Format.TRAINING, places);
+        }
+    }
+
+    /**
+     * Where every candidate plays. Court {@code c} hosts candidates
+     * {@code player(c, 0..players(c)-1)} in seating order: a doubles game seats 0/1 against 2/3,
+     * singles 0 against 1.
+     */
+    public static final class Allocation {
+        private final int[] courtOf;
+        private final Format[] played;
+        private final int[] start;
+        private final int[] order;
+
+        Allocation(int[] courtOf, Format[] played, int[] start, int[] order) {
+            this.courtOf = courtOf;
+            this.played = played;
+            this.start = start;
+            this.order = order;
+        }
+
+        /** The court candidate {@code candidate} plays on, or -1 if they sit out. */
+        public int courtOf(int candidate) {
+            return courtOf[candidate];
+        }
+
+        /** What is played on court {@code court}, null if it stays empty. */
+        public Format played(int court) {
+            return played[court];
+        }
+
+        public int players(int court) {
+            return start[court + 1] - start[court];
+        }
+
+        public int player(int court, int index) {
+            return order[start[court] + index];
+        }
+
+        /** Number of candidates who play. */
+        public int playing() {
+            return order.length;
+        }
+    }
+
+    private CourtAllocator() {
+    }
+
+    /**
+     * The number of players that {@code venue} seats out of {@code candidates}: all of them if
+     * there is room, and an even number unless a training court takes the odd one.
+     */
+    public static int seats(Court[] venue, int candidates) {
+        int places = 0;
+        int training = 0;
+        for (Court court : venue) {
+            places += court.places;
+            if (court.format == Format.TRAINING) {
+                training += court.places;
+            }
+        }
+        int seats = Math.min(candidates, places);
+        return training == 0 ? seats & ~1 : seats;
+    }
+
+    /** Allocates {@code preferences.length} candidates, in priority order, to {@code venue}. */
+    public static Allocation allocate(Court[] venue, Preference[] preferences) {
+        int n = preferences.length;
+        int doublesCourts = 0;
+        int singlesCourts = 0;
+        int trainingPlaces = 0;
+        for (Court court : venue) {
+            if (court.format == Format.DOUBLES) {
+                doublesCourts += 1;
+            } else if (court.format == Format.SINGLES) {
+                singlesCourts += 1;
+            } else {
+                trainingPlaces += court.places;
+            }
+        }
+        int playing = seats(venue, n);
+        int wantSingles = 0;
+        int wantDoubles = 0;
+        for (int i = 0; i < playing; ++i) {
+            if (preferences[i] == Preference.SINGLES) {
+                wantSingles += 1;
+            } else if (preferences[i] == Preference.DOUBLES) {
+                wantDoubles += 1;
+            }
+        }
+
+        // Most players in their format, then fewest in training, then fewest doubles courts
+        // given to singles
+        int bestDoubles = -1;
+        int bestSingles = 0;
+        int bestScore = -1;
+        int bestTraining = 0;
+        int bestBorrowed = 0;
+        for (int doubles = 0; doubles <= doublesCourts && 4 * doubles <= playing; ++doubles) {
+            int rest = playing - 4 * doubles;
+            int singles = Math.min(rest / 2, singlesCourts + doublesCourts - doubles);
+            int training = rest - 2 * singles;
+            if (training > trainingPlaces) {
+                continue;
+            }
+            int score = Math.min(wantSingles, 2 * singles) + Math.min(wantDoubles, 4 * doubles);
+            int borrowed = Math.max(0, singles - singlesCourts);
+            if (bestDoubles < 0 || score > bestScore
+                    || (score == bestScore && (training < bestTraining
+                    || (training == bestTraining && borrowed < bestBorrowed)))) {
+                bestDoubles = doubles;
+                bestSingles = singles;
+                bestScore = score;
+                bestTraining = training;
+                bestBorrowed = borrowed;
+            }
+        }
+        if (bestDoubles < 0) {
+            throw new IllegalStateException("no split of " + playing + " players fits the venue");
+        }
+
+        // Seat everyone who gets their format, then fill the remaining game places in priority
+        // order and give training places to whoever is left
+        int singlesSeats = 2 * bestSingles;
+        int doublesSeats = 4 * bestDoubles;
+        Format[] format = new Format[playing];
+        for (int i = 0; i < playing; ++i) {
+            if (preferences[i] == Preference.SINGLES && singlesSeats > 0) {
+                format[i] = Format.SINGLES;
+                singlesSeats -= 1;
+            } else if (preferences[i] == Preference.DOUBLES && doublesSeats > 0) {
+                format[i] = Format.DOUBLES;
+                doublesSeats -= 1;
+            }
+        }
+        for (int i = 0; i < playing; ++i) {
+            if (format[i] != null) {
+                continue;
+            }
+            if (singlesSeats > 0 && preferences[i] != Preference.DOUBLES) {
+                format[i] = Format.SINGLES;
+                singlesSeats -= 1;
+            } else if (doublesSeats > 0) {
+                format[i] = Format.DOUBLES;
+                doublesSeats -= 1;
+            } else if (singlesSeats > 0) {
+                format[i] = Format.SINGLES;
+                singlesSeats -= 1;
+            } else {
+                format[i] = Format.TRAINING;
+            }
+        }
+
+        // Doubles games on the first doubles courts, singles on singles courts and then on the
+        // doubles courts left over, training courts filled in order
+        Format[] played = new Format[venue.length];
+        int[] capacity = new int[venue.length];
+        int doublesGames = bestDoubles;
+        int singlesGames = bestSingles;
+        for (int c = 0; c < venue.length; ++c) {
+            if (venue[c].format == Format.DOUBLES && doublesGames > 0) {
+                played[c] = Format.DOUBLES;
+                capacity[c] = 4;
+                doublesGames -= 1;
+            } else if (venue[c].format == Format.SINGLES && singlesGames > 0) {
+                played[c] = Format.SINGLES;
+                capacity[c] = 2;
+                singlesGames -= 1;
+            }
+        }
+        for (int c = 0; c < venue.length && singlesGames > 0; ++c) {
+            if (venue[c].format == Format.DOUBLES && played[c] == null) {
+                played[c] = Format.SINGLES;
+                capacity[c] = 2;
+                singlesGames -= 1;
+            }
+        }
+        for (int c = 0; c < venue.length; ++c) {
+            if (venue[c].format == Format.TRAINING) {
+                capacity[c] = venue[c].places;
+            }
+        }
+
+        int[] courtOf = new int[n];
+        Arrays.fill(courtOf, -1);
+        int[] filled = new int[venue.length];
+        int nextDoubles = 0;
+        int nextSingles = 0;
+        int nextTraining = 0;
+        for (int i = 0; i < playing; ++i) {
+            int c;
+            if (format[i] == Format.DOUBLES) {
+                nextDoubles = next(played, capacity, filled, Format.DOUBLES, nextDoubles);
+                c = nextDoubles;
+            } else if (format[i] == Format.SINGLES) {
+                nextSingles = next(played, capacity, filled, Format.SINGLES, nextSingles);
+                c = nextSingles;
+            } else {
+                nextTraining = nextTrainingCourt(venue, capacity, filled, nextTraining);
+                c = nextTraining;
+                played[c] = Format.TRAINING;
+            }
+            courtOf[i] = c;
+            filled[c] += 1;
+        }
+
+        int[] start = new int[venue.length + 1];
+        for (int c = 0; c < venue.length; ++c) {
+            start[c + 1] = start[c] + filled[c];
+        }
+        int[] order = new int[playing];
+        int[] cursor = Arrays.copyOf(start, venue.length);
+        for (int i = 0; i < playing; ++i) {
+            order[cursor[courtOf[i]]++] = i;
+        }
+        return new Allocation(courtOf, played, start, order);
+    }
+
+    // The first court from {@code from} on that plays {@code format} and has a free place
+    private static int next(Format[] played, int[] capacity, int[] filled, Format format, int from) {
+        int c = from;
+        while (played[c] != format || filled[c] == capacity[c]) {
+            c += 1;
+        }
+        return c;
+    }
+
+    private static int nextTrainingCourt(Court[] venue, int[] capacity, int[] filled, int from) {
+        int c = from;
+        while (venue[c].format != Format.TRAINING || filled[c] == capacity[c]) {
+            c += 1;
+        }
+        return c;
+    }
+}
@@ -0,0 +1,259 @@
+package com.courtplanner.court.engine;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+
+/**
+ * Layout of a whole-venue board: every court of a round in one grid, scaled to fill the screen.
+ * A court shows slots 0/1 in its top half and 2/3 in its bottom half, each name broken into
+ * lines on spaces and sized to fit its quarter. Text layouts are worked out when a name or the
+ * court size changes, not per frame, and {@link #paint} only repaints the courts that changed
+ * since the last paint.
+ *
+ * <p>Drawing goes through a {@link Painter}, so the Android view and the JVM benchmark run the
+ * same layout code. Used from one thread (the UI thread).
+ */
+public class CourtBoard {
+
+    public interface TextMeasure {
+        /** Width of {@code text} at {@link #REFERENCE_SIZE}; widths scale with the text size. */
+        float width(String text);
+    }
+
+    public interface Painter {
+        /** Clears the whole board; called before repainting every court after a layout change. */
+        void clear();
+
+        /** Clears and draws the court in the given bounds. */
+        void court(int court, float left, float top, float right, float bottom, boolean selected);
+
+        /** Draws one line of text centred on {@code x} with its baseline at {@code y}. */
+        void text(String text, float x, float y, float size);
+    }
+
+    public static final float REFERENCE_SIZE = 100f;
+    /** Width over height of a court on the board, about that of a badminton court from above. */
+    public static final float COURT_ASPECT = 0.8f;
+
+    private static final int PER_COURT = DrawEngine.PLAYERS_PER_COURT;
+    private static final float GAP = 0.04f;
+    private static final float LINE_HEIGHT = 1.2f;
+    // Largest text as a share of the court height, so a short name on a few courts stays sane
+    private static final float MAX_TEXT = 0.09f;
+
+    private final TextMeasure measure;
+    private float width;
+    private float height;
+    private int courts;
+    private int columns = 1;
+    private float cellWidth;
+    private float cellHeight;
+    private float originX;
+    private float originY;
+    private int selected = -1;
+    // Set when the whole board has to be cleared before the next paint
+    private boolean relaidOut;
+    // Per slot (court * 4 + slot): the name, its lines and their text size
+    private final ArrayList<String> names = new ArrayList<>();
+    private final ArrayList<String[]> lines = new ArrayList<>();
+    private float[] sizes = new float[0];
+    private final BitSet dirty = new BitSet();
+
+    public CourtBoard(TextMeasure measure) {
+        this.measure = measure;
+    }
+
+    public int courts() {
+        return courts;
+    }
+
+    public int columns() {
+        return columns;
+    }
+
+    /** Lays the board out for a new size; every court is repainted. */
+    public void setSize(float width, float height) {
+        if (width == this.width && height == this.height) {
+            return;
+        }
+        this.width = width;
+        this.height = height;
+        relayout();
+    }
+
+    /**
+     * Shows {@code courts} courts with the players of {@code drawn}, four per court as the draw
+     * lays them out; missing or empty names leave a slot blank. Returns whether anything has to
+     * be repainted.
+     */
+    public boolean setCourts(List<String> drawn, int courts) {
+        courts = Math.max(courts, (drawn.size() + PER_COURT - 1) / PER_COURT);
+        boolean resized = courts != this.courts;
+        if (resized) {
+            this.courts = courts;
+            while (names.size() < courts * PER_COURT) {
+                names.add(null);
+                lines.add(null);
+            }
+            while (names.size() > courts * PER_COURT) {
+                names.remove(names.size() - 1);
+                lines.remove(lines.size() - 1);
+            }
+            if (sizes.length < names.size()) {
+                sizes = new float[names.size()];
+            }
+        }
+        for (int i = 0; i < courts * PER_COURT; ++i) {
+            String name = i < drawn.size() ? drawn.get(i) : null;
+            if (name != null && name.isEmpty()) {
+                name = null;
+            }
+            String old = names.get(i);
+            if (resized || (name == null ? old != null : !name.equals(old))) {
+                names.set(i, name);
+                lines.set(i, null);
+                dirty.set(i / PER_COURT);
+            }
+        }
+        if (resized) {
+            relayout();
+        }
+        return !dirty.isEmpty();
+    }
+
+    /** Highlights {@code court} (-1 for none). */
+    public void setSelected(int court) {
+        if (court == selected) {
+            return;
+        }
+        if (selected >= 0 && selected < courts) {
+            dirty.set(selected);
+        }
+        if (court >= 0 && court < courts) {
+            dirty.set(court);
+        }
+        selected = court;
+    }
+
+    /** Clears the board and repaints every court, e.g. after the surface was lost. */
+    public void invalidateAll() {
+        relaidOut = true;
+        dirty.set(0, courts);
+    }
+
+    public boolean needsPaint() {
+        return !dirty.isEmpty();
+    }
+
+    /** The court at a point on the board, or -1. */
+    public int courtAt(float x, float y) {
+        if (cellWidth <= 0 || x < originX || y < originY) {
+            return -1;
+        }
+        int column = (int) ((x - originX) / cellWidth);
+        int row = (int) ((y - originY) / cellHeight);
+        int court = row * columns + column;
+        return column < columns && court < courts ? court : -1;
+    }
+
+    /** Paints the courts that changed since the last paint; returns how many. */
+    public int paint(Painter painter) {
+        if (cellWidth <= 0) {
+            return 0;
+        }
+        if (relaidOut) {
+            painter.clear();
+            relaidOut = false;
+        }
+        int painted = 0;
+        float gapX = cellWidth * GAP;
+        float gapY = cellHeight * GAP;
+        for (int court = dirty.nextSetBit(0); court >= 0 && court < courts; court = dirty.nextSetBit(court + 1)) {
+            float left = originX + (court % columns) * cellWidth + gapX;
+            float top = originY + (court / columns) * cellHeight + gapY;
+            float right = left + cellWidth - 2 * gapX;
+            float bottom = top + cellHeight - 2 * gapY;
+            painter.court(court, left, top, right, bottom, court == selected);
+            for (int slot = 0; slot < PER_COURT; ++slot) {
+                paintSlot(painter, court * PER_COURT + slot, left, top, right - left, bottom - top, slot);
+            }
+            painted += 1;
+        }
+        dirty.clear();
+        return painted;
+    }
+
+    private void paintSlot(Painter painter, int index, float left, float top, float w, float h, int slot) {
+        if (names.get(index) == null) {
+            return;
+        }
+        String[] text = lines.get(index);
+        if (text == null) {
+            text = splitOnSpaces(names.get(index));
+            lines.set(index, text);
+            sizes[index] = fit(text, w / 2, h / 2);
+        }
+        float size = sizes[index];
+        float x = left + w * (slot % 2 == 0 ? 0.25f : 0.75f);
+        float centre = top + h * (slot < 2 ? 0.25f : 0.75f);
+        float y = centre - (text.length - 1) * size * LINE_HEIGHT / 2 + size * 0.35f;
+        for (String line : text) {
+            painter.text(line, x, y, size);
+            y += size * LINE_HEIGHT;
+        }
+    }
+
+    // Largest size at which every line fits a quarter of the court
+    private float fit(String[] text, float w, float h) {
+        float widest = 0;
+        for (String line : text) {
+            widest = Math.max(widest, measure.width(line));
+        }
+        float size = Math.min(2 * h * MAX_TEXT, 0.8f * h / (text.length * LINE_HEIGHT));
+        if (widest > 0) {
+            size = Math.min(size, 0.9f * w * REFERENCE_SIZE / widest);
+        }
+        return size;
+    }
+
+    private static String[] splitOnSpaces(String name) {
+        ArrayList<String> parts = new ArrayList<>(2);
+        int start = 0;
+        for (int i = 0; i <= name.length(); ++i) {
+            if (i == name.length() || name.charAt(i) == ' ') {
+                if (i > start) {
+                    parts.add(name.substring(start, i));
+                }
+                start = i + 1;
+            }
+        }
+        return parts.toArray(new String[0]);
+    }
+
+    // Picks the column count that gives the largest courts
+    private void relayout() {
+        cellWidth = 0;
+        if (courts == 0 || width <= 0 || height <= 0) {
+            return;
+        }
+        float best = 0;
+        for (int c = 1; c <= courts; ++c) {
+            int rows = (courts + c - 1) / c;
+            float h = Math.min(height / rows, width / c / COURT_ASPECT);
+            if (h > best) {
+                best = h;
+                columns = c;
+            }
+        }
+        cellHeight = best;
+        cellWidth = best * COURT_ASPECT;
+        int rows = (courts + columns - 1) / columns;
+        originX = (width - columns * cellWidth) / 2;
+        originY = (height - rows * cellHeight) / 2;
+        for (int i = 0; i < lines.size(); ++i) {
+            lines.set(i, null);
+        }
+        invalidateAll();
+    }
+}
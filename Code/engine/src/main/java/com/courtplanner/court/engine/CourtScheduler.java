@@ -0,0 +1,362 @@
+package com.courtplanner.court.engine;
+
+import java.io.Closeable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.TreeMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Continuous play: instead of drawing all courts at once, every "court finished" event sends
+ * its players back to the waiting line and puts the next four on that court right away.
+ *
+ * <p>Waiting players are ordered by {@code games * gamePenaltyMillis + time they started
+ * waiting}, so the longest wait goes first and every game played counts as having waited
+ * {@code gamePenaltyMillis} less. The key does not change while a player waits, so the line
+ * is a binary heap and an event costs O(log n). Players who leave stay in the heap as
+ * tombstones and are skipped.
+ *
+ * <p>All state is owned by one scheduler thread: events from any thread are queued to it and
+ * applied in order, so event storms need no locks and cannot interleave. The
+ * {@link Listener} is called on that thread.
+ */
+public class CourtScheduler implements Closeable {
+
+    public interface Listener {
+        /** {@code players} (four names, slots 0/1 against 2/3) now play on {@code court}. */
+        void onCourtAssigned(int court, List<String> players);
+    }
+
+    /** One game counts like a quarter of an hour less waiting. */
+    public static final long DEFAULT_GAME_PENALTY_MILLIS = 15 * 60 * 1000L;
+
+    /** Copy of the scheduler state; courts that are idle are null. */
+    public static final class Snapshot {
+        public final List<List<String>> courts;
+        public final List<String> waiting;
+        public final long events;
+
+        Snapshot(List<List<String>> courts, List<String> waiting, long events) {
+            this.courts = courts;
+            this.waiting = waiting;
+            this.events = events;
+        }
+    }
+
+    private static final int PER_COURT = DrawEngine.PLAYERS_PER_COURT;
+
+    private static final class Member {
+        final String name;
+        int games;
+        Waiting waiting;
+        int court = -1;
+
+        Member(String name, int games) {
+            this.name = name;
+            this.games = games;
+        }
+    }
+
+    private static final class Waiting {
+        final Member member;
+        final long key;
+        final long sequence;
+
+        Waiting(Member member, long key, long sequence) {
+            this.member = member;
+            this.key = key;
+            this.sequence = sequence;
+        }
+    }
+
+    private final ExecutorService actor;
+    private final Listener listener;
+    private final long gamePenaltyMillis;
+
+    // Owned by the scheduler thread
+    private final PriorityQueue<Waiting> line = new PriorityQueue<>(64, new Comparator<Waiting>() {
+        @Override
+        public int compare(Waiting a, Waiting b) {
+            if (a.key != b.key) {
+                return a.key < b.key ? -1 : 1;
+            }
+            return a.sequence < b.sequence ? -1 : (a.sequence == b.sequence ? 0 : 1);
+        }
+    });
+    private final HashMap<String, Member> members = new HashMap<>();
+    // games -> number of present players with that many, for a late arrival's start
+    private final TreeMap<Integer, Integer> gameCounts = new TreeMap<>();
+    private Member[][] courts = new Member[0][];
+    private int waitingCount;
+    private long sequence;
+    private long events;
+
+    public CourtScheduler(Listener listener) {
+        this(listener, DEFAULT_GAME_PENALTY_MILLIS);
+    }
+
+    public CourtScheduler(Listener listener, long gamePenaltyMillis) {
+        this.listener = listener;
+        this.gamePenaltyMillis = gamePenaltyMillis;
+        this.actor = Executors.newSingleThreadExecutor(new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable r) {
+                Thread t = new Thread(r, "court-scheduler");
+                t.setDaemon(true);
+                return t;
+            }
+        });
+    }
+
+    /** Sets the number of courts; players of dropped courts wait again, new courts are filled. */
+    public void setCourts(final int count, final long timeMillis) {
+        post(new Runnable() {
+            @Override
+            public void run() {
+                Member[][] resized = Arrays.copyOf(courts, Math.max(count, 0));
+                for (int c = resized.length; c < courts.length; ++c) {
+                    release(c, timeMillis, false);
+                }
+                courts = resized;
+                fillIdleCourts();
+            }
+        });
+    }
+
+    /**
+     * A player joins the line. Someone who arrives late starts with the fewest games anyone
+     * present has played, so they neither jump the whole line nor wait for everyone.
+     */
+    public void playerArrived(final String name, final long timeMillis) {
+        post(new Runnable() {
+            @Override
+            public void run() {
+                if (members.containsKey(name)) {
+                    return;
+                }
+                Member member = new Member(name, gameCounts.isEmpty() ? 0 : gameCounts.firstKey());
+                members.put(name, member);
+                count(member.games, 1);
+                enqueue(member, timeMillis);
+                fillIdleCourts();
+            }
+        });
+    }
+
+    /** A player leaves; if they are on a court the others finish the game without them. */
+    public void playerLeft(final String name) {
+        post(new Runnable() {
+            @Override
+            public void run() {
+                Member member = members.remove(name);
+                if (member == null) {
+                    return;
+                }
+                count(member.games, -1);
+                if (member.waiting != null) {
+                    member.waiting = null;
+                    waitingCount -= 1;
+                    maybeCompact();
+                }
+                if (member.court >= 0) {
+                    Member[] court = courts[member.court];
+                    for (int slot = 0; slot < court.length; ++slot) {
+                        if (court[slot] == member) {
+                            court[slot] = null;
+                        }
+                    }
+                }
+            }
+        });
+    }
+
+    /** The game on {@code court} is over; its players wait again and the next four go on. */
+    public void courtFinished(final int court, final long timeMillis) {
+        post(new Runnable() {
+            @Override
+            public void run() {
+                // A second tap or a court that was removed meanwhile
+                if (court < 0 || court >= courts.length || courts[court] == null) {
+                    return;
+                }
+                release(court, timeMillis, true);
+                fillIdleCourts();
+            }
+        });
+    }
+
+    /** Waits until all events posted so far are applied; returns how many there were in total. */
+    public long awaitProcessed() throws InterruptedException {
+        try {
+            return actor.submit(new Callable<Long>() {
+                @Override
+                public Long call() {
+                    return events;
+                }
+            }).get();
+        } catch (ExecutionException e) {
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    /** Waits for all events posted so far and returns the state after them. */
+    public Snapshot snapshot() throws InterruptedException {
+        try {
+            return actor.submit(new Callable<Snapshot>() {
+                @Override
+                public Snapshot call() {
+                    List<List<String>> courtCopy = new ArrayList<>(courts.length);
+                    for (Member[] court : courts) {
+                        if (court == null) {
+                            courtCopy.add(null);
+                            continue;
+                        }
+                        List<String> names = new ArrayList<>(PER_COURT);
+                        for (Member m : court) {
+                            if (m != null) {
+                                names.add(m.name);
+                            }
+                        }
+                        courtCopy.add(names);
+                    }
+                    ArrayList<Waiting> live = new ArrayList<>(waitingCount);
+                    for (Waiting w : line) {
+                        if (isLive(w)) {
+                            live.add(w);
+                        }
+                    }
+                    Collections.sort(live, line.comparator());
+                    List<String> waiting = new ArrayList<>(live.size());
+                    for (Waiting w : live) {
+                        waiting.add(w.member.name);
+                    }
+                    return new Snapshot(courtCopy, waiting, events);
+                }
+            }).get();
+        } catch (ExecutionException e) {
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    /** Applies the events posted so far and stops; events posted after that are dropped. */
+    @Override
+    public void close() {
+        actor.shutdown();
+        try {
+            actor.awaitTermination(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void post(final Runnable event) {
+        try {
+            actor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    events += 1;
+                    event.run();
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            // Closed: late events from other threads have nothing left to change
+        }
+    }
+
+    private void release(int court, long timeMillis, boolean played) {
+        Member[] players = courts[court];
+        if (players == null) {
+            return;
+        }
+        courts[court] = null;
+        for (Member m : players) {
+            if (m == null || members.get(m.name) != m) {
+                continue;
+            }
+            m.court = -1;
+            if (played) {
+                count(m.games, -1);
+                m.games += 1;
+                count(m.games, 1);
+            }
+            enqueue(m, timeMillis);
+        }
+    }
+
+    private void fillIdleCourts() {
+        for (int c = 0; c < courts.length && waitingCount >= PER_COURT; ++c) {
+            if (courts[c] != null) {
+                continue;
+            }
+            Member[] court = new Member[PER_COURT];
+            List<String> names = new ArrayList<>(PER_COURT);
+            for (int slot = 0; slot < PER_COURT; ++slot) {
+                Member m = pollLive();
+                m.court = c;
+                court[slot] = m;
+                names.add(m.name);
+            }
+            courts[c] = court;
+            if (listener != null) {
+                listener.onCourtAssigned(c, names);
+            }
+        }
+    }
+
+    private void enqueue(Member member, long timeMillis) {
+        Waiting entry = new Waiting(member, member.games * gamePenaltyMillis + timeMillis, sequence++);
+        member.waiting = entry;
+        line.add(entry);
+        waitingCount += 1;
+    }
+
+    private boolean isLive(Waiting w) {
+        return w.member.waiting == w && members.get(w.member.name) == w.member;
+    }
+
+    // The caller makes sure a live entry exists
+    private Member pollLive() {
+        while (true) {
+            Waiting w = line.poll();
+            if (isLive(w)) {
+                w.member.waiting = null;
+                waitingCount -= 1;
+                return w.member;
+            }
+        }
+    }
+
+    private void maybeCompact() {
+        if (line.size() > 64 && line.size() > 2 * waitingCount) {
+            ArrayList<Waiting> live = new ArrayList<>(waitingCount);
+            for (Waiting w : line) {
+                if (isLive(w)) {
+                    live.add(w);
+                }
+            }
+            line.clear();
+            line.addAll(live);
+        }
+    }
+
+    private void count(int games, int delta) {
+        Integer n = gameCounts.get(games);
+        int updated = (n == null ? 0 : n) + delta;
+        if (updated == 0) {
+            gameCounts.remove(games);
+        } else {
+            gameCounts.put(games, updated);
+        }
+    }
+}
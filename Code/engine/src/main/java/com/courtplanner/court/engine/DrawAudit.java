@@ -0,0 +1,271 @@
+package com.courtplanner.court.engine;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Append-only log of every drawn round with everything needed to draw it again: the seed, the
+ * mode and the candidates with the play counts the draw saw. {@link #verify} re-derives a round
+ * from its entry, so a disputed draw can be checked long after the night.
+ *
+ * <pre>
+ * header: int magic, short version
+ * record: int length, long timeMillis, int round, byte mode, long seed, int courts,
+ *         int candidates, {utf name, int playCount, int lastRound} x candidates,
+ *         int drawn, int candidateIndex x drawn, int drawVersion
+ * </pre>
+ *
+ * Records written before {@code drawVersion} was added end after the drawn indices and are read
+ * as version 1.
+ *
+ * The drawn players are stored before the repeat-avoiding or balancing layout, which is
+ * time-budgeted and not part of the draw. Record offsets are kept in memory, so reading an old
+ * round is one seek.
+ */
+public class DrawAudit implements Closeable {
+
+    static final int MAGIC = 0x43504441; // "CPDA"
+    static final short VERSION = 1;
+    static final int HEADER_SIZE = 6;
+
+    private static final ClubNight.DrawMode[] MODES = ClubNight.DrawMode.values();
+
+    /** One drawn round. */
+    public static final class Entry {
+        public final long timeMillis;
+        public final int round;
+        public final ClubNight.DrawMode mode;
+        public final long seed;
+        public final int courts;
+        /** Revision of the drawing rules the round was drawn with. */
+        public final int drawVersion;
+        private final String[] candidates;
+        private final int[] playCounts;
+        private final int[] lastRounds;
+        // Candidate indices in court layout
+        private final int[] drawn;
+
+        Entry(long timeMillis, int round, ClubNight.DrawMode mode, long seed, int courts,
+              String[] candidates, int[] playCounts, int[] lastRounds, int[] drawn) {
+            this(timeMillis, round, mode, seed, courts, SeededDraw.VERSION, candidates, playCounts, lastRounds, drawn);
+        }
+
+        Entry(long timeMillis, int round, ClubNight.DrawMode mode, long seed, int courts, int drawVersion,
+              String[] candidates, int[] playCounts, int[] lastRounds, int[] drawn) {
+            this.timeMillis = timeMillis;
+            this.round = round;
+            this.mode = mode;
+            this.seed = seed;
+            this.courts = courts;
+            this.drawVersion = drawVersion;
+            this.candidates = candidates;
+            this.playCounts = playCounts;
+            this.lastRounds = lastRounds;
+            this.drawn = drawn;
+        }
+
+        public int candidateCount() {
+            return candidates.length;
+        }
+
+        public String candidate(int index) {
+            return candidates[index];
+        }
+
+        public int playCount(int index) {
+            return playCounts[index];
+        }
+
+        /** The round the candidate last played in, {@link FairDrawEngine#NEVER_PLAYED} if never. */
+        public int lastRound(int index) {
+            return lastRounds[index];
+        }
+
+        /** The drawn names, four per court. */
+        public List<String> drawn() {
+            return new AbstractList<String>() {
+                @Override
+                public String get(int index) {
+                    return candidates[drawn[index]];
+                }
+
+                @Override
+                public int size() {
+                    return drawn.length;
+                }
+            };
+        }
+    }
+
+    private final File file;
+    private RandomAccessFile raf;
+    private long[] offsets = new long[64];
+    private int count;
+    private long end;
+
+    private DrawAudit(File file) {
+        this.file = file;
+    }
+
+    /** Opens or creates the log; a record torn by a crash is cut off. */
+    public static DrawAudit open(File file) throws IOException {
+        DrawAudit audit = new DrawAudit(file);
+        audit.scan();
+        return audit;
+    }
+
+    private void scan() throws IOException {
+        raf = new RandomAccessFile(file, "rw");
+        if (raf.length() < HEADER_SIZE) {
+            raf.setLength(0);
+            raf.writeInt(MAGIC);
+            raf.writeShort(VERSION);
+            end = HEADER_SIZE;
+            return;
+        }
+        long length = raf.length();
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+            if (in.readInt() != MAGIC || in.readShort() != VERSION) {
+                throw new IOException(file + " is not a draw audit");
+            }
+            end = HEADER_SIZE;
+            while (end + 4 <= length) {
+                int size = in.readInt();
+                if (size < 0 || end + 4 + size > length) {
+                    break;
+                }
+                skipFully(in, size);
+                addOffset(end);
+                end += 4 + size;
+            }
+        } catch (EOFException e) {
+            // Shorter than it claimed while we read it; keep what was complete
+        }
+        if (end != length) {
+            raf.setLength(end);
+        }
+    }
+
+    private static void skipFully(DataInputStream in, int bytes) throws IOException {
+        while (bytes > 0) {
+            int skipped = in.skipBytes(bytes);
+            if (skipped <= 0) {
+                throw new EOFException();
+            }
+            bytes -= skipped;
+        }
+    }
+
+    private void addOffset(long offset) {
+        if (count == offsets.length) {
+            offsets = Arrays.copyOf(offsets, count * 2);
+        }
+        offsets[count++] = offset;
+    }
+
+    public synchronized int size() {
+        return count;
+    }
+
+    /** Appends a round. It reaches the disk in {@link #flush} at the latest. */
+    public synchronized void append(Entry entry) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(64 + 16 * entry.candidates.length);
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeInt(0);
+        out.writeLong(entry.timeMillis);
+        out.writeInt(entry.round);
+        out.writeByte(entry.mode.ordinal());
+        out.writeLong(entry.seed);
+        out.writeInt(entry.courts);
+        out.writeInt(entry.candidates.length);
+        for (int i = 0; i < entry.candidates.length; ++i) {
+            out.writeUTF(entry.candidates[i]);
+            out.writeInt(entry.playCounts[i]);
+            out.writeInt(entry.lastRounds[i]);
+        }
+        out.writeInt(entry.drawn.length);
+        for (int index : entry.drawn) {
+            out.writeInt(index);
+        }
+        out.writeInt(entry.drawVersion);
+        byte[] record = bytes.toByteArray();
+        int size = record.length - 4;
+        record[0] = (byte) (size >>> 24);
+        record[1] = (byte) (size >>> 16);
+        record[2] = (byte) (size >>> 8);
+        record[3] = (byte) size;
+        raf.seek(end);
+        raf.write(record);
+        addOffset(end);
+        end += record.length;
+    }
+
+    /** The {@code index}th round in the log, oldest first. */
+    public synchronized Entry read(int index) throws IOException {
+        if (index < 0 || index >= count) {
+            throw new IndexOutOfBoundsException("round " + index + " of " + count);
+        }
+        raf.seek(offsets[index]);
+        byte[] record = new byte[raf.readInt()];
+        raf.readFully(record);
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(record));
+        long timeMillis = in.readLong();
+        int round = in.readInt();
+        int mode = in.readByte();
+        if (mode < 0 || mode >= MODES.length) {
+            throw new IOException("unknown draw mode " + mode + " in round " + round);
+        }
+        long seed = in.readLong();
+        int courts = in.readInt();
+        int candidates = in.readInt();
+        String[] names = new String[candidates];
+        int[] playCounts = new int[candidates];
+        int[] lastRounds = new int[candidates];
+        for (int i = 0; i < candidates; ++i) {
+            names[i] = in.readUTF();
+            playCounts[i] = in.readInt();
+            lastRounds[i] = in.readInt();
+        }
+        int[] drawn = new int[in.readInt()];
+        for (int i = 0; i < drawn.length; ++i) {
+            drawn[i] = in.readInt();
+        }
+        int drawVersion = in.available() >= 4 ? in.readInt() : 1;
+        return new Entry(timeMillis, round, MODES[mode], seed, courts, drawVersion, names, playCounts, lastRounds,
+                drawn);
+    }
+
+    /** Draws the round of {@code entry} again from its seed; candidate indices in court layout. */
+    public static int[] redraw(Entry entry) {
+        return new SeededDraw().draw(entry.mode, entry.seed, entry.courts,
+                entry.playCounts, entry.lastRounds, entry.candidates.length, entry.drawVersion);
+    }
+
+    /** Whether drawing the round again from its seed gives exactly the recorded courts. */
+    public static boolean verify(Entry entry) {
+        return Arrays.equals(redraw(entry), entry.drawn);
+    }
+
+    /** Syncs the log to disk. */
+    public synchronized void flush() throws IOException {
+        raf.getFD().sync();
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        flush();
+        raf.close();
+    }
+}
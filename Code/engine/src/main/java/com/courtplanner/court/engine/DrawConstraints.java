@@ -0,0 +1,98 @@
+package com.courtplanner.court.engine;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * What a club wants from the layout of a round, by player name: fixed partners who share a side,
+ * players who must not be on the same court, players limited to some courts (beginners) and a
+ * key holder who plays on the first court. Courts are numbered from 0.
+ *
+ * <p>Only the layout is constrained, not who plays: a constraint about a player who was not
+ * drawn is left out of that round. {@link ConstraintSolver} does the solving.
+ */
+public class DrawConstraints {
+
+    private final ArrayList<String[]> partners = new ArrayList<>();
+    private final ArrayList<String[]> apart = new ArrayList<>();
+    private final LinkedHashMap<String, BitSet> courts = new LinkedHashMap<>();
+    private String keyHolder;
+
+    public synchronized void addPartners(String a, String b) {
+        partners.add(new String[]{a, b});
+    }
+
+    public synchronized void addApart(String a, String b) {
+        apart.add(new String[]{a, b});
+    }
+
+    /** Limits {@code name} to the given courts; null lifts the limit. */
+    public synchronized void restrict(String name, BitSet allowed) {
+        if (allowed == null) {
+            courts.remove(name);
+        } else {
+            courts.put(name, (BitSet) allowed.clone());
+        }
+    }
+
+    /** The player who has to be on the first court when drawn; null for none. */
+    public synchronized void setKeyHolder(String name) {
+        keyHolder = name;
+    }
+
+    public synchronized String keyHolder() {
+        return keyHolder;
+    }
+
+    public synchronized boolean isEmpty() {
+        return partners.isEmpty() && apart.isEmpty() && courts.isEmpty() && keyHolder == null;
+    }
+
+    public synchronized void clear() {
+        partners.clear();
+        apart.clear();
+        courts.clear();
+        keyHolder = null;
+    }
+
+    /** The constraints that apply to the players of {@code layout}, indexed by their position in it. */
+    public synchronized ConstraintSolver.Problem problem(List<String> layout) {
+        ConstraintSolver.Problem problem = new ConstraintSolver.Problem(layout.size());
+        problem.setNames(layout.toArray(new String[0]));
+        HashMap<String, Integer> index = new HashMap<>();
+        for (int i = 0; i < layout.size(); ++i) {
+            index.put(layout.get(i), i);
+        }
+        for (String[] pair : partners) {
+            Integer a = index.get(pair[0]);
+            Integer b = index.get(pair[1]);
+            if (a != null && b != null) {
+                problem.partners(a, b);
+            }
+        }
+        for (String[] pair : apart) {
+            Integer a = index.get(pair[0]);
+            Integer b = index.get(pair[1]);
+            if (a != null && b != null) {
+                problem.apart(a, b);
+            }
+        }
+        for (Map.Entry<String, BitSet> entry : courts.entrySet()) {
+            Integer player = index.get(entry.getKey());
+            if (player != null) {
+                problem.allow(player, entry.getValue());
+            }
+        }
+        Integer holder = keyHolder == null ? null : index.get(keyHolder);
+        if (holder != null) {
+            BitSet first = new BitSet();
+            first.set(0);
+            problem.allow(holder, first);
+        }
+        return problem;
+    }
+}
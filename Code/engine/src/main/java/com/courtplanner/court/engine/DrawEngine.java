@@ -0,0 +1,84 @@
+package com.courtplanner.court.engine;
+
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * UI-free uniform draw. Picks distinct candidate indices with a partial Fisher-Yates shuffle
+ * over a reusable index array, so a draw costs O(courts) once the array is warm. The swaps are
+ * undone after every draw, so the result depends on nothing but the random stream it was given.
+ */
+public class DrawEngine {
+
+    public static final int PLAYERS_PER_COURT = 4;
+
+    private final Random random;
+    // Always the identity between draws
+    private int[] indices = new int[0];
+    private int[] swaps = new int[0];
+
+    public DrawEngine() {
+        this(new Random());
+    }
+
+    public DrawEngine(Random random) {
+        this.random = random;
+    }
+
+    /**
+     * Draws up to {@code courts * PLAYERS_PER_COURT} distinct indices out of {@code [0, candidates)}
+     * into {@code out}. Every consecutive group of {@link #PLAYERS_PER_COURT} entries is one court.
+     *
+     * @return the number of indices written to {@code out}
+     */
+    public int draw(int candidates, int courts, int[] out) {
+        return draw(candidates, courts, out, random);
+    }
+
+    /** As {@link #draw(int, int, int[])}, drawing from {@code random} instead of the engine's own. */
+    public int draw(int candidates, int courts, int[] out, Random random) {
+        if (candidates < 0 || courts < 0) {
+            throw new IllegalArgumentException("candidates and courts must not be negative");
+        }
+        prepare(candidates);
+        int slots = Math.min(candidates, Math.min(out.length, courts * PLAYERS_PER_COURT));
+        if (swaps.length < slots) {
+            swaps = new int[slots];
+        }
+        int[] idx = indices;
+        for (int i = 0; i < slots; ++i) {
+            int j = i + random.nextInt(candidates - i);
+            int picked = idx[j];
+            idx[j] = idx[i];
+            idx[i] = picked;
+            out[i] = picked;
+            swaps[i] = j;
+        }
+        for (int i = slots - 1; i >= 0; --i) {
+            int j = swaps[i];
+            int t = idx[j];
+            idx[j] = idx[i];
+            idx[i] = t;
+        }
+        return slots;
+    }
+
+    public int[] draw(int candidates, int courts) {
+        int[] out = new int[Math.min(candidates, courts * PLAYERS_PER_COURT)];
+        draw(candidates, courts, out);
+        return out;
+    }
+
+    // The identity over [0, n) is a prefix of the identity over any larger range,
+    // so the array only has to be extended when more candidates than ever before come in.
+    private void prepare(int candidates) {
+        if (indices.length >= candidates) {
+            return;
+        }
+        int from = indices.length;
+        indices = Arrays.copyOf(indices, candidates);
+        for (int i = from; i < candidates; ++i) {
+            indices[i] = i;
+        }
+    }
+}
@@ -0,0 +1,430 @@
+package com.courtplanner.court.engine;
+
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.TimeZone;
+
+/**
+ * Append-only log of every court that was played, kept in a directory of three files:
+ *
+ * <pre>
+ * draws.log   16-byte records: int day, short round, short court, short[4] player ids
+ * names.log   player id -> name, one length-prefixed UTF-8 name per id
+ * checkpoint  number of records and names covered, monthly games per player
+ * </pre>
+ *
+ * Player ids are the position in {@code names.log} and never change, unlike registry ordinals.
+ * Days are local epoch days and are kept non-decreasing, so a date range is a binary search on
+ * the log. Range scans read the log through a read-only mapping and never copy it onto the heap.
+ *
+ * <p>Games per player are also rolled up per month in primitive arrays, so a range made of whole
+ * months costs O(months x players) regardless of how many games were played; only the partial
+ * months at its edges are scanned. The rollups are saved every {@link #CHECKPOINT_INTERVAL}
+ * records and on close; opening replays only the records after the last checkpoint.
+ */
+public class DrawHistory implements Closeable {
+
+    public static final int EMPTY = -1;
+    public static final int MAX_PLAYERS = 0xFFFF;
+    static final int RECORD_SIZE = 16;
+    static final int CHECKPOINT_INTERVAL = 1 << 16;
+
+    private static final int CHECKPOINT_MAGIC = 0x43504448; // "CPDH"
+    private static final short CHECKPOINT_VERSION = 1;
+    private static final int WRITE_BUFFER_RECORDS = 4096;
+    private static final int NO_PLAYER = 0xFFFF;
+    private static final long MILLIS_PER_DAY = 24L * 60 * 60 * 1000;
+
+    private final File dir;
+    private final TimeZone zone;
+    private RandomAccessFile logFile;
+    private FileChannel log;
+    private RandomAccessFile namesFile;
+    private final ArrayList<String> names = new ArrayList<>();
+    private final HashMap<String, Integer> ids = new HashMap<>();
+    private final ByteBuffer writeBuffer = ByteBuffer.allocate(WRITE_BUFFER_RECORDS * RECORD_SIZE);
+    private MappedByteBuffer mapped;
+    private long mappedRecords;
+    private long records;
+    private long checkpointedRecords;
+    private int lastDay = Integer.MIN_VALUE;
+    // months.get(m) holds games per player id in month firstMonth + m
+    private int firstMonth = -1;
+    private final ArrayList<int[]> months = new ArrayList<>();
+
+    private DrawHistory(File dir, TimeZone zone) {
+        this.dir = dir;
+        this.zone = zone;
+    }
+
+    public static DrawHistory open(File dir) throws IOException {
+        return open(dir, TimeZone.getDefault());
+    }
+
+    /** Opens or creates the history in {@code dir}; {@code zone} decides where days begin. */
+    public static DrawHistory open(File dir, TimeZone zone) throws IOException {
+        if (!dir.isDirectory() && !dir.mkdirs()) {
+            throw new IOException("could not create " + dir);
+        }
+        DrawHistory history = new DrawHistory(dir, zone);
+        history.openFiles();
+        return history;
+    }
+
+    private void openFiles() throws IOException {
+        namesFile = new RandomAccessFile(new File(dir, "names.log"), "rw");
+        readNames();
+        logFile = new RandomAccessFile(new File(dir, "draws.log"), "rw");
+        log = logFile.getChannel();
+        records = log.size() / RECORD_SIZE;
+        if (log.size() != records * RECORD_SIZE) {
+            // A torn record from a crash mid-write
+            log.truncate(records * RECORD_SIZE);
+        }
+        long replayFrom = readCheckpoint() ? checkpointedRecords : 0;
+        if (replayFrom == 0) {
+            firstMonth = -1;
+            months.clear();
+        }
+        ByteBuffer view = map();
+        for (long r = replayFrom; r < records; ++r) {
+            int position = (int) (r * RECORD_SIZE);
+            int day = view.getInt(position);
+            for (int slot = 0; slot < 4; ++slot) {
+                int id = view.getChar(position + 8 + 2 * slot);
+                if (id != NO_PLAYER) {
+                    countGame(day, id);
+                }
+            }
+        }
+        if (records > 0) {
+            lastDay = view.getInt((int) ((records - 1) * RECORD_SIZE));
+        }
+    }
+
+    private void readNames() throws IOException {
+        byte[] bytes = new byte[(int) namesFile.length()];
+        namesFile.readFully(bytes);
+        ByteArrayInputStream buffer = new ByteArrayInputStream(bytes);
+        DataInputStream in = new DataInputStream(buffer);
+        int end = 0;
+        try {
+            while (buffer.available() > 0) {
+                String name = in.readUTF();
+                ids.put(name, names.size());
+                names.add(name);
+                end = bytes.length - buffer.available();
+            }
+        } catch (EOFException e) {
+            // A name torn by a crash; no record can refer to it yet
+        }
+        namesFile.setLength(end);
+        namesFile.seek(end);
+    }
+
+    /** Local epoch day of {@code timeMillis}, the unit all queries take. */
+    public int dayOf(long timeMillis) {
+        return (int) floorDiv(timeMillis + zone.getOffset(timeMillis), MILLIS_PER_DAY);
+    }
+
+    /** First day of the calendar month {@code day} falls in. */
+    public static int firstDayOfMonth(int day) {
+        int[] date = civil(day);
+        return day - date[2] + 1;
+    }
+
+    public synchronized long size() {
+        return records;
+    }
+
+    public synchronized int playerCount() {
+        return names.size();
+    }
+
+    /** The player's history id, or -1 if they never played. */
+    public synchronized int idOf(String name) {
+        Integer id = ids.get(name);
+        return id == null ? EMPTY : id;
+    }
+
+    public synchronized String nameOf(int id) {
+        return names.get(id);
+    }
+
+    /**
+     * Appends one court of a draw. {@code players} holds up to four names in slot order (the first
+     * two are one team), null for an empty slot. A day before the last recorded one is recorded
+     * as that day so the log stays sorted.
+     */
+    public synchronized void appendCourt(long timeMillis, int round, int court, String... players) throws IOException {
+        if (players.length > 4) {
+            throw new IllegalArgumentException("a court has at most 4 players: " + players.length);
+        }
+        int[] slots = {NO_PLAYER, NO_PLAYER, NO_PLAYER, NO_PLAYER};
+        for (int slot = 0; slot < players.length; ++slot) {
+            if (players[slot] != null) {
+                slots[slot] = idFor(players[slot]);
+            }
+        }
+        int day = Math.max(lastDay, dayOf(timeMillis));
+        if (!writeBuffer.hasRemaining()) {
+            flushBuffer();
+        }
+        writeBuffer.putInt(day).putShort((short) round).putShort((short) court);
+        for (int id : slots) {
+            writeBuffer.putChar((char) id);
+            if (id != NO_PLAYER) {
+                countGame(day, id);
+            }
+        }
+        lastDay = day;
+        records += 1;
+        if (records - checkpointedRecords >= CHECKPOINT_INTERVAL) {
+            checkpoint();
+        }
+    }
+
+    private int idFor(String name) throws IOException {
+        Integer id = ids.get(name);
+        if (id != null) {
+            return id;
+        }
+        if (names.size() == MAX_PLAYERS) {
+            throw new IllegalStateException("draw history is limited to " + MAX_PLAYERS + " players");
+        }
+        // Names are written before any record that refers to them
+        namesFile.writeUTF(name);
+        ids.put(name, names.size());
+        names.add(name);
+        return names.size() - 1;
+    }
+
+    /** Games per player id in the days {@code fromDay..toDay}, both inclusive. */
+    public synchronized int[] gamesPerPlayer(int fromDay, int toDay) throws IOException {
+        int[] games = new int[names.size()];
+        int day = fromDay;
+        while (day <= toDay) {
+            int monthStart = firstDayOfMonth(day);
+            int nextMonth = monthStart + civil(monthStart)[3];
+            int month = monthIndex(day) - firstMonth;
+            if (day == monthStart && nextMonth - 1 <= toDay) {
+                if (firstMonth >= 0 && month >= 0 && month < months.size()) {
+                    int[] rollup = months.get(month);
+                    for (int id = 0; id < Math.min(rollup.length, games.length); ++id) {
+                        games[id] += rollup[id];
+                    }
+                }
+            } else {
+                scanGames(day, Math.min(toDay, nextMonth - 1), games);
+            }
+            day = nextMonth;
+        }
+        return games;
+    }
+
+    private void scanGames(int fromDay, int toDay, int[] games) throws IOException {
+        ByteBuffer view = map();
+        for (long r = firstRecordOn(view, fromDay); r < records; ++r) {
+            int position = (int) (r * RECORD_SIZE);
+            if (view.getInt(position) > toDay) {
+                break;
+            }
+            for (int slot = 0; slot < 4; ++slot) {
+                int id = view.getChar(position + 8 + 2 * slot);
+                if (id != NO_PLAYER) {
+                    games[id] += 1;
+                }
+            }
+        }
+    }
+
+    /** How often each player id was {@code player}'s partner (same team) in {@code fromDay..toDay}. */
+    public synchronized int[] partnerCounts(int player, int fromDay, int toDay) throws IOException {
+        int[] partners = new int[names.size()];
+        ByteBuffer view = map();
+        for (long r = firstRecordOn(view, fromDay); r < records; ++r) {
+            int position = (int) (r * RECORD_SIZE);
+            if (view.getInt(position) > toDay) {
+                break;
+            }
+            for (int slot = 0; slot < 4; ++slot) {
+                if (view.getChar(position + 8 + 2 * slot) == player) {
+                    int partner = view.getChar(position + 8 + 2 * (slot ^ 1));
+                    if (partner != NO_PLAYER) {
+                        partners[partner] += 1;
+                    }
+                    break;
+                }
+            }
+        }
+        return partners;
+    }
+
+    // Binary search for the first record on or after day
+    private long firstRecordOn(ByteBuffer view, int day) {
+        long low = 0;
+        long high = records;
+        while (low < high) {
+            long mid = (low + high) >>> 1;
+            if (view.getInt((int) (mid * RECORD_SIZE)) < day) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    // Maps everything written so far; remapped only after new records were appended
+    private ByteBuffer map() throws IOException {
+        flushBuffer();
+        if (mapped == null || mappedRecords != records) {
+            if (records * RECORD_SIZE > Integer.MAX_VALUE) {
+                throw new IOException("draw history larger than 2 GB");
+            }
+            mapped = log.map(FileChannel.MapMode.READ_ONLY, 0, records * RECORD_SIZE);
+            mappedRecords = records;
+        }
+        return mapped;
+    }
+
+    private void flushBuffer() throws IOException {
+        writeBuffer.flip();
+        long position = (records - writeBuffer.remaining() / RECORD_SIZE) * RECORD_SIZE;
+        while (writeBuffer.hasRemaining()) {
+            position += log.write(writeBuffer, position);
+        }
+        writeBuffer.clear();
+    }
+
+    private void countGame(int day, int id) {
+        int month = monthIndex(day);
+        if (firstMonth < 0) {
+            firstMonth = month;
+        }
+        while (months.size() <= month - firstMonth) {
+            months.add(new int[0]);
+        }
+        int[] rollup = months.get(month - firstMonth);
+        if (rollup.length <= id) {
+            rollup = Arrays.copyOf(rollup, Math.max(id + 1, rollup.length * 2));
+            months.set(month - firstMonth, rollup);
+        }
+        rollup[id] += 1;
+    }
+
+    /** Writes buffered records and syncs the log to disk. */
+    public synchronized void flush() throws IOException {
+        flushBuffer();
+        log.force(false);
+        namesFile.getFD().sync();
+    }
+
+    /** Flushes the log and saves the monthly rollups so the next open replays nothing. */
+    public synchronized void checkpoint() throws IOException {
+        flush();
+        File tmp = new File(dir, "checkpoint.tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tmp)))) {
+            out.writeInt(CHECKPOINT_MAGIC);
+            out.writeShort(CHECKPOINT_VERSION);
+            out.writeLong(records);
+            out.writeInt(names.size());
+            out.writeInt(firstMonth);
+            out.writeInt(months.size());
+            for (int[] rollup : months) {
+                out.writeInt(rollup.length);
+                for (int games : rollup) {
+                    out.writeInt(games);
+                }
+            }
+        }
+        if (!tmp.renameTo(new File(dir, "checkpoint"))) {
+            throw new IOException("could not replace checkpoint in " + dir);
+        }
+        checkpointedRecords = records;
+    }
+
+    // Loads the rollups if the checkpoint matches the files; false means replay everything.
+    private boolean readCheckpoint() throws IOException {
+        File file = new File(dir, "checkpoint");
+        if (!file.exists()) {
+            return false;
+        }
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+            if (in.readInt() != CHECKPOINT_MAGIC || in.readShort() != CHECKPOINT_VERSION) {
+                return false;
+            }
+            long covered = in.readLong();
+            int playerCount = in.readInt();
+            if (covered > records || playerCount > names.size()) {
+                return false;
+            }
+            firstMonth = in.readInt();
+            for (int m = 0, n = in.readInt(); m < n; ++m) {
+                int[] rollup = new int[in.readInt()];
+                for (int id = 0; id < rollup.length; ++id) {
+                    rollup[id] = in.readInt();
+                }
+                months.add(rollup);
+            }
+            checkpointedRecords = covered;
+            return true;
+        } catch (EOFException e) {
+            months.clear();
+            return false;
+        }
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        checkpoint();
+        log.close();
+        logFile.close();
+        namesFile.close();
+        mapped = null;
+    }
+
+    // Math.floorDiv needs API 24
+    private static long floorDiv(long x, long y) {
+        long q = x / y;
+        return (x % y != 0 && (x < 0) != (y < 0)) ? q - 1 : q;
+    }
+
+    // year * 12 + month - 1
+    private static int monthIndex(int day) {
+        int[] date = civil(day);
+        return date[0] * 12 + date[1] - 1;
+    }
+
+    // {year, month 1-12, day of month 1-31, days in month} of an epoch day (proleptic Gregorian)
+    private static int[] civil(int epochDay) {
+        long z = epochDay + 719468L;
+        long era = floorDiv(z, 146097);
+        long doe = z - era * 146097;
+        long yoe = (doe - doe / 1460 + doe / 36524 - doe / 146096) / 365;
+        long doy = doe - (365 * yoe + yoe / 4 - yoe / 100);
+        long mp = (5 * doy + 2) / 153;
+        int dayOfMonth = (int) (doy - (153 * mp + 2) / 5 + 1);
+        int month = (int) (mp < 10 ? mp + 3 : mp - 9);
+        int year = (int) (yoe + era * 400 + (month <= 2 ? 1 : 0));
+        boolean leap = year % 4 == 0 && (year % 100 != 0 || year % 400 == 0);
+        int length = month == 2 ? (leap ? 29 : 28) : (month == 4 || month == 6 || month == 9 || month == 11 ? 30 : 31);
+        return new int[]{year, month, dayOfMonth, length};
+    }
+}
@@ -0,0 +1,67 @@
+package com.courtplanner.court.engine;
+
+import java.util.Random;
+
+/**
+ * Small, fast and reproducible random stream for draws: xoshiro256** seeded through SplitMix64,
+ * so any 64-bit seed gives a well-mixed state. Unlike {@link Random} it takes no lock or atomic
+ * per call, and unlike {@code SplittableRandom} it is available on every Android version.
+ *
+ * <p>{@link #stream} derives independent streams from one seed by index, so parts of a round
+ * (one per court) can be generated in any order, or in parallel, and still come out the same.
+ * Not thread-safe; give every thread its own stream.
+ */
+public final class DrawRandom extends Random {
+
+    private static final long serialVersionUID = 1L;
+    private static final long GOLDEN_GAMMA = 0x9E3779B97F4A7C15L;
+
+    private long s0;
+    private long s1;
+    private long s2;
+    private long s3;
+
+    public DrawRandom(long seed) {
+        super(seed);
+    }
+
+    /** Stream {@code index} of {@code seed}; different indices give unrelated sequences. */
+    public static DrawRandom stream(long seed, int index) {
+        return new DrawRandom(mix(seed + GOLDEN_GAMMA * (index + 1L)));
+    }
+
+    /** The SplitMix64 finalizer: a bijective 64-bit hash. */
+    public static long mix(long z) {
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+
+    // Also called by the Random constructor, before this class's fields are initialised
+    @Override
+    public void setSeed(long seed) {
+        long z = seed;
+        s0 = mix(z += GOLDEN_GAMMA);
+        s1 = mix(z += GOLDEN_GAMMA);
+        s2 = mix(z += GOLDEN_GAMMA);
+        s3 = mix(z + GOLDEN_GAMMA);
+    }
+
+    @Override
+    public long nextLong() {
+        long result = Long.rotateLeft(s1 * 5, 7) * 9;
+        long t = s1 << 17;
+        s2 ^= s0;
+        s3 ^= s1;
+        s1 ^= s2;
+        s0 ^= s3;
+        s2 ^= t;
+        s3 = Long.rotateLeft(s3, 45);
+        return result;
+    }
+
+    @Override
+    protected int next(int bits) {
+        return (int) (nextLong() >>> (64 - bits));
+    }
+}
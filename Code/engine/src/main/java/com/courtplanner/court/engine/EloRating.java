@@ -0,0 +1,25 @@
+package com.courtplanner.court.engine;
+
+/**
+ * Elo ratings for doubles. A team plays at the mean rating of its two players; after a match
+ * both players of the winning team gain what both players of the losing team lose.
+ */
+public final class EloRating {
+
+    public static final double INITIAL = 1500;
+    /** Rating points at stake in one match between equal teams is half of this. */
+    public static final double K = 32;
+
+    private EloRating() {
+    }
+
+    /** Probability that a team rated {@code rating} beats one rated {@code opponent}. */
+    public static double expectedScore(double rating, double opponent) {
+        return 1.0 / (1.0 + Math.pow(10, (opponent - rating) / 400.0));
+    }
+
+    /** Points every player of the winning team gains (and every loser loses). */
+    public static double delta(double winnerTeamRating, double loserTeamRating) {
+        return K * (1.0 - expectedScore(winnerTeamRating, loserTeamRating));
+    }
+}
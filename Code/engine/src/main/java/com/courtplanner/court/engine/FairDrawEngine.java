@@ -0,0 +1,128 @@
+package com.courtplanner.court.engine;
+
+import java.util.Random;
+
+/**
+ * Draw that favours the players who have played least. Candidates are ranked by play count,
+ * then by the round they last played in (longest rest first), with random tie breaking. The
+ * lowest ranked ones are found with a quickselect, so a round costs O(n) expected.
+ */
+public class FairDrawEngine {
+
+    public static final int NEVER_PLAYED = -1;
+
+    // Sort key layout, most significant first: play count, last round + 1, random tie break,
+    // candidate index. The index is kept in the low bits so it survives the selection.
+    private static final int INDEX_BITS = 20;
+    private static final int TIE_BITS = 13;
+    private static final int ROUND_BITS = 16;
+    private static final int COUNT_BITS = 14;
+    public static final int MAX_CANDIDATES = 1 << INDEX_BITS;
+
+    private final Random random;
+    private long[] keys = new long[0];
+
+    public FairDrawEngine() {
+        this(new Random());
+    }
+
+    public FairDrawEngine(Random random) {
+        this.random = random;
+    }
+
+    /**
+     * Draws up to {@code courts * PLAYERS_PER_COURT} candidates into {@code out}, preferring low
+     * {@code playCounts} and then low {@code lastPlayedRound} ({@link #NEVER_PLAYED} ranks first).
+     * Court composition among the picked players is shuffled.
+     *
+     * @return the number of indices written to {@code out}
+     */
+    public int draw(int[] playCounts, int[] lastPlayedRound, int candidates, int courts, int[] out) {
+        return draw(playCounts, lastPlayedRound, candidates, courts, out, random);
+    }
+
+    /** As {@link #draw(int[], int[], int, int, int[])}, drawing from {@code random} instead of the engine's own. */
+    public int draw(int[] playCounts, int[] lastPlayedRound, int candidates, int courts, int[] out, Random random) {
+        if (candidates < 0 || courts < 0) {
+            throw new IllegalArgumentException("candidates and courts must not be negative");
+        }
+        if (candidates > MAX_CANDIDATES) {
+            throw new IllegalArgumentException("at most " + MAX_CANDIDATES + " candidates are supported");
+        }
+        int slots = Math.min(candidates, Math.min(out.length, courts * DrawEngine.PLAYERS_PER_COURT));
+        if (slots == 0) {
+            return 0;
+        }
+        if (keys.length < candidates) {
+            keys = new long[candidates];
+        }
+        long[] k = keys;
+        for (int i = 0; i < candidates; ++i) {
+            k[i] = key(playCounts[i], lastPlayedRound[i], i, random);
+        }
+        if (slots < candidates) {
+            select(k, 0, candidates - 1, slots);
+        }
+        long mask = (1L << INDEX_BITS) - 1;
+        for (int i = 0; i < slots; ++i) {
+            int j = i + random.nextInt(slots - i);
+            long picked = k[j];
+            k[j] = k[i];
+            k[i] = picked;
+            out[i] = (int) (picked & mask);
+        }
+        return slots;
+    }
+
+    public int[] draw(int[] playCounts, int[] lastPlayedRound, int candidates, int courts) {
+        int[] out = new int[Math.min(candidates, courts * DrawEngine.PLAYERS_PER_COURT)];
+        draw(playCounts, lastPlayedRound, candidates, courts, out);
+        return out;
+    }
+
+    private static long key(int playCount, int lastPlayedRound, int index, Random random) {
+        long count = clamp(playCount, COUNT_BITS);
+        long round = clamp(lastPlayedRound + 1L, ROUND_BITS);
+        long tie = random.nextInt(1 << TIE_BITS);
+        return (((count << ROUND_BITS | round) << TIE_BITS | tie) << INDEX_BITS) | index;
+    }
+
+    private static long clamp(long value, int bits) {
+        long max = (1L << bits) - 1;
+        return value < 0 ? 0 : Math.min(value, max);
+    }
+
+    // Moves the k smallest keys into k[0, count) (Hoare partitioning, median-of-three pivot).
+    private static void select(long[] k, int lo, int hi, int count) {
+        int target = count - 1;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (k[mid] < k[lo]) swap(k, mid, lo);
+            if (k[hi] < k[lo]) swap(k, hi, lo);
+            if (k[hi] < k[mid]) swap(k, hi, mid);
+            long pivot = k[mid];
+            int i = lo;
+            int j = hi;
+            while (i <= j) {
+                while (k[i] < pivot) ++i;
+                while (k[j] > pivot) --j;
+                if (i <= j) {
+                    swap(k, i++, j--);
+                }
+            }
+            if (target <= j) {
+                hi = j;
+            } else if (target >= i) {
+                lo = i;
+            } else {
+                return;
+            }
+        }
+    }
+
+    private static void swap(long[] k, int a, int b) {
+        long t = k[a];
+        k[a] = k[b];
+        k[b] = t;
+    }
+}
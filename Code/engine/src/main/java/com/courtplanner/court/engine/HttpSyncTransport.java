@@ -0,0 +1,64 @@
+package com.courtplanner.court.engine;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.net.URLEncoder;
+
+/**
+ * POSTs batches to {@code <baseUrl>/clubs/<club>/sync} with the club secret. Connections are kept
+ * alive by the JDK.
+ */
+public class HttpSyncTransport implements SyncTransport {
+
+    /** Request header with the secret shared by the devices of a club. */
+    public static final String SECRET_HEADER = "X-Club-Secret";
+
+    private static final int TIMEOUT_MILLIS = 10_000;
+
+    private final URL url;
+    private final String secret;
+
+    public HttpSyncTransport(String baseUrl, String club, String secret) throws IOException {
+        if (secret.isEmpty()) {
+            throw new IllegalArgumentException("a club needs a secret to sync");
+        }
+        String base = baseUrl.endsWith("/") ? baseUrl.substring(0, baseUrl.length() - 1) : baseUrl;
+        this.url = new URL(base + "/clubs/" + URLEncoder.encode(club, "UTF-8") + "/sync");
+        this.secret = secret;
+    }
+
+    @Override
+    public SyncBatch exchange(SyncBatch request) throws IOException {
+        HttpURLConnection connection = (HttpURLConnection) url.openConnection();
+        try {
+            connection.setRequestMethod("POST");
+            connection.setDoOutput(true);
+            connection.setConnectTimeout(TIMEOUT_MILLIS);
+            connection.setReadTimeout(TIMEOUT_MILLIS);
+            connection.setRequestProperty("Content-Type", "application/octet-stream");
+            connection.setRequestProperty(SECRET_HEADER, secret);
+            try (OutputStream out = new BufferedOutputStream(connection.getOutputStream())) {
+                request.writeTo(out);
+            }
+            int status = connection.getResponseCode();
+            if (status == HttpURLConnection.HTTP_FORBIDDEN) {
+                throw new IOException("the sync server refused the club secret");
+            }
+            if (status != HttpURLConnection.HTTP_OK) {
+                throw new IOException("sync failed with HTTP " + status);
+            }
+            // Reading the body to the end hands the connection back to the keep-alive pool
+            try (InputStream in = new BufferedInputStream(connection.getInputStream())) {
+                return SyncBatch.readFrom(in);
+            }
+        } catch (IOException e) {
+            connection.disconnect();
+            throw e;
+        }
+    }
+}
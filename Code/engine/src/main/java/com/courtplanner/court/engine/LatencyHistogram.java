@@ -0,0 +1,108 @@
+package com.courtplanner.court.engine;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Latency histogram in nanoseconds with HDR-style log-linear buckets: a value goes to the bucket
+ * of its highest set bit and the {@value #SUB_BITS} bits below it, so a bucket is never wider
+ * than 1/32 (about 3%) of the values in it and the whole range of a long fits in under 2000
+ * counters. Recording is a handful of atomic adds and never allocates; any thread may record.
+ *
+ * <p>Histograms come from {@link Metrics#histogram}. Time a section with {@link #start} and
+ * {@link #recordSince}; while the registry is disabled that is one volatile read.
+ */
+public final class LatencyHistogram {
+
+    /** Returned by {@link #start} while metrics are disabled; {@link #recordSince} ignores it. */
+    public static final long DISABLED = Long.MIN_VALUE;
+
+    static final int SUB_BITS = 5;
+    private static final int SUB_COUNT = 1 << SUB_BITS;
+    private static final int BUCKETS = (64 - SUB_BITS) * SUB_COUNT;
+
+    private final Metrics metrics;
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+    private final AtomicLong count = new AtomicLong();
+    private final AtomicLong sum = new AtomicLong();
+    private final AtomicLong max = new AtomicLong();
+
+    LatencyHistogram(Metrics metrics) {
+        this.metrics = metrics;
+    }
+
+    /** Start time for {@link #recordSince}, or {@link #DISABLED}. */
+    public long start() {
+        return metrics.isEnabled() ? System.nanoTime() : DISABLED;
+    }
+
+    public void recordSince(long start) {
+        if (start != DISABLED) {
+            record(System.nanoTime() - start);
+        }
+    }
+
+    public void record(long nanos) {
+        long value = Math.max(nanos, 0);
+        counts.incrementAndGet(bucketOf(value));
+        count.incrementAndGet();
+        sum.addAndGet(value);
+        long seen = max.get();
+        while (value > seen && !max.compareAndSet(seen, value)) {
+            seen = max.get();
+        }
+    }
+
+    public long count() {
+        return count.get();
+    }
+
+    public long maxNanos() {
+        return max.get();
+    }
+
+    public double meanNanos() {
+        long n = count.get();
+        return n == 0 ? 0 : (double) sum.get() / n;
+    }
+
+    /**
+     * The value below which {@code percentile} (0..100) of the recordings fall, rounded up to the
+     * end of its bucket; 0 while empty.
+     */
+    public long valueAtPercentile(double percentile) {
+        long total = 0;
+        for (int i = 0; i < BUCKETS; ++i) {
+            total += counts.get(i);
+        }
+        if (total == 0) {
+            return 0;
+        }
+        long rank = Math.max(1, (long) Math.ceil(percentile / 100.0 * total));
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; ++i) {
+            seen += counts.get(i);
+            if (seen >= rank) {
+                return Math.min(highestValueIn(i), max.get());
+            }
+        }
+        return max.get();
+    }
+
+    static int bucketOf(long value) {
+        if (value < SUB_COUNT) {
+            return (int) value;
+        }
+        int shift = 63 - Long.numberOfLeadingZeros(value) - SUB_BITS;
+        return (shift + 1) * SUB_COUNT + (int) ((value >>> shift) & (SUB_COUNT - 1));
+    }
+
+    static long highestValueIn(int bucket) {
+        if (bucket < SUB_COUNT) {
+            return bucket;
+        }
+        int shift = bucket / SUB_COUNT - 1;
+        long sub = bucket % SUB_COUNT;
+        return ((SUB_COUNT + sub + 1) << shift) - 1;
+    }
+}
@@ -0,0 +1,82 @@
+package com.courtplanner.court.engine;
+
+/**
+ * Reader for the roster string the app kept in the "Database" preference before the player
+ * file: {@code name_games_selected|name_games_selected|...}. It is only read once, to migrate
+ * it, but that happens during startup, so it is parsed in one pass over the characters
+ * without regular expressions or intermediate arrays; the only allocation per player is its name.
+ *
+ * <p>Accepts exactly what {@code split("\\|")} and {@code split("_")} did: a record needs three
+ * fields once trailing empty ones are dropped, unparsable games count as 0 and any selected
+ * value other than "true" (in any case) is false.
+ */
+public final class LegacyDatabase {
+
+    private LegacyDatabase() {
+    }
+
+    /** Visits every valid record in order; returns the number visited. */
+    public static int parse(String database, PlayerStore.Visitor visitor) {
+        int players = 0;
+        int length = database.length();
+        int start = 0;
+        while (start < length) {
+            int end = database.indexOf('|', start);
+            if (end < 0) {
+                end = length;
+            }
+            if (record(database, start, end, visitor)) {
+                players += 1;
+            }
+            start = end + 1;
+        }
+        return players;
+    }
+
+    private static boolean record(String s, int start, int end, PlayerStore.Visitor visitor) {
+        // Trailing empty fields do not count
+        while (end > start && s.charAt(end - 1) == '_') {
+            --end;
+        }
+        int first = s.indexOf('_', start);
+        if (first < 0 || first >= end) {
+            return false;
+        }
+        int second = s.indexOf('_', first + 1);
+        if (second < 0 || second >= end) {
+            return false;
+        }
+        int third = s.indexOf('_', second + 1);
+        if (third >= 0 && third < end) {
+            return false;
+        }
+        visitor.visit(s.substring(start, first), games(s, first + 1, second),
+                end - second - 1 == 4 && s.regionMatches(true, second + 1, "true", 0, 4), Player.DEFAULT_RATING);
+        return true;
+    }
+
+    // Integer.parseInt of s[start, end), or 0 where it would throw
+    private static int games(String s, int start, int end) {
+        if (start == end) {
+            return 0;
+        }
+        boolean negative = s.charAt(start) == '-';
+        int i = s.charAt(start) == '-' || s.charAt(start) == '+' ? start + 1 : start;
+        if (i == end) {
+            return 0;
+        }
+        long value = 0;
+        for (; i < end; ++i) {
+            int digit = Character.digit(s.charAt(i), 10);
+            if (digit < 0) {
+                return 0;
+            }
+            value = value * 10 + digit;
+            if (value > Integer.MAX_VALUE + 1L) {
+                return 0;
+            }
+        }
+        value = negative ? -value : value;
+        return value > Integer.MAX_VALUE ? 0 : (int) value;
+    }
+}
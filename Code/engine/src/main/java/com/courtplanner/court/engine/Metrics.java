@@ -0,0 +1,136 @@
+package com.courtplanner.court.engine;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Named counters and {@link LatencyHistogram}s for the hot paths. Look a metric up once and keep
+ * the reference; recording is lock-free. While disabled nothing is recorded and timing a section
+ * costs one volatile read, so instrumented code can stay in release builds.
+ *
+ * <p>{@link #toJson} takes a snapshot of everything recorded so far, sorted by name.
+ */
+public class Metrics {
+
+    public static final class Counter {
+        private final Metrics metrics;
+        private final AtomicLong value = new AtomicLong();
+
+        Counter(Metrics metrics) {
+            this.metrics = metrics;
+        }
+
+        public void increment() {
+            add(1);
+        }
+
+        public void add(long delta) {
+            if (metrics.isEnabled()) {
+                value.addAndGet(delta);
+            }
+        }
+
+        public long get() {
+            return value.get();
+        }
+    }
+
+    /** Shared disabled registry, the default for components that were not given one. */
+    static final Metrics NONE = new Metrics(false);
+
+    private volatile boolean enabled;
+    private final ConcurrentHashMap<String, Counter> counters = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, LatencyHistogram> histograms = new ConcurrentHashMap<>();
+
+    public Metrics(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public Counter counter(String name) {
+        Counter counter = counters.get(name);
+        if (counter == null) {
+            Counter created = new Counter(this);
+            counter = counters.putIfAbsent(name, created);
+            if (counter == null) {
+                counter = created;
+            }
+        }
+        return counter;
+    }
+
+    public LatencyHistogram histogram(String name) {
+        LatencyHistogram histogram = histograms.get(name);
+        if (histogram == null) {
+            LatencyHistogram created = new LatencyHistogram(this);
+            histogram = histograms.putIfAbsent(name, created);
+            if (histogram == null) {
+                histogram = created;
+            }
+        }
+        return histogram;
+    }
+
+    /**
+     * Snapshot as JSON: counters by name, and per histogram its count, mean, p50/p90/p99/p99.9
+     * and max in microseconds.
+     */
+    public String toJson() {
+        StringBuilder json = new StringBuilder();
+        json.append("{\n  \"enabled\": ").append(enabled).append(",\n  \"counters\": {");
+        String separator = "\n";
+        for (Map.Entry<String, Counter> e : new TreeMap<>(counters).entrySet()) {
+            json.append(separator).append("    ");
+            appendString(json, e.getKey());
+            json.append(": ").append(e.getValue().get());
+            separator = ",\n";
+        }
+        json.append(counters.isEmpty() ? "},\n" : "\n  },\n");
+        json.append("  \"histograms\": {");
+        separator = "\n";
+        for (Map.Entry<String, LatencyHistogram> e : new TreeMap<>(histograms).entrySet()) {
+            LatencyHistogram h = e.getValue();
+            json.append(separator).append("    ");
+            appendString(json, e.getKey());
+            json.append(": {\"count\": ").append(h.count());
+            appendMicros(json, "mean", h.meanNanos());
+            appendMicros(json, "p50", h.valueAtPercentile(50));
+            appendMicros(json, "p90", h.valueAtPercentile(90));
+            appendMicros(json, "p99", h.valueAtPercentile(99));
+            appendMicros(json, "p999", h.valueAtPercentile(99.9));
+            appendMicros(json, "max", h.maxNanos());
+            json.append('}');
+            separator = ",\n";
+        }
+        json.append(histograms.isEmpty() ? "}\n}\n" : "\n  }\n}\n");
+        return json.toString();
+    }
+
+    private static void appendMicros(StringBuilder json, String key, double nanos) {
+        json.append(", \"").append(key).append("Micros\": ").append(Math.round(nanos / 10.0) / 100.0);
+    }
+
+    private static void appendString(StringBuilder json, String s) {
+        json.append('"');
+        for (int i = 0; i < s.length(); ++i) {
+            char c = s.charAt(i);
+            if (c == '"' || c == '\\') {
+                json.append('\\').append(c);
+            } else if (c < 0x20) {
+                json.append(String.format("\\u%04x", (int) c));
+            } else {
+                json.append(c);
+            }
+        }
+        json.append('"');
+    }
+}
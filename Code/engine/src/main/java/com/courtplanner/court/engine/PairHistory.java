@@ -0,0 +1,132 @@
+package com.courtplanner.court.engine;
+
+import java.util.Arrays;
+
+/**
+ * How often two players have been partners or opponents, indexed by player ordinal.
+ * Counts live in two triangular {@code short[]} matrices; row {@code i} holds the pairs
+ * {@code (i, j)} with {@code j < i}, so growing the roster only appends rows.
+ * Registered as a {@link PlayerRegistry.Listener} it follows ordinal moves on removal.
+ */
+public class PairHistory implements PlayerRegistry.Listener {
+
+    private short[] partners = new short[0];
+    private short[] opponents = new short[0];
+    private int capacity = 0;
+
+    public synchronized void ensureCapacity(int players) {
+        if (players <= capacity) {
+            return;
+        }
+        int newCapacity = Math.max(players, capacity + (capacity >> 1) + 8);
+        partners = Arrays.copyOf(partners, triangle(newCapacity));
+        opponents = Arrays.copyOf(opponents, triangle(newCapacity));
+        capacity = newCapacity;
+    }
+
+    public synchronized int capacity() {
+        return capacity;
+    }
+
+    public synchronized int partnerCount(int a, int b) {
+        return a == b || a >= capacity || b >= capacity ? 0 : partners[index(a, b)];
+    }
+
+    public synchronized int opponentCount(int a, int b) {
+        return a == b || a >= capacity || b >= capacity ? 0 : opponents[index(a, b)];
+    }
+
+    /**
+     * Records one court laid out like the draw result: slots 0 and 1 against slots 2 and 3.
+     * Missing slots (short courts) are passed as -1.
+     */
+    public synchronized void recordCourt(int a, int b, int c, int d) {
+        ensureCapacity(Math.max(Math.max(a, b), Math.max(c, d)) + 1);
+        increment(partners, a, b);
+        increment(partners, c, d);
+        increment(opponents, a, c);
+        increment(opponents, a, d);
+        increment(opponents, b, c);
+        increment(opponents, b, d);
+    }
+
+    @Override
+    public synchronized void onPlayerRemoved(int ordinal, int movedFrom) {
+        if (ordinal >= capacity) {
+            return;
+        }
+        boolean move = movedFrom >= 0 && movedFrom < capacity;
+        for (int j = 0; j < capacity; ++j) {
+            if (j == ordinal) {
+                continue;
+            }
+            int to = index(ordinal, j);
+            if (move && j != movedFrom) {
+                int from = index(movedFrom, j);
+                partners[to] = partners[from];
+                opponents[to] = opponents[from];
+                partners[from] = 0;
+                opponents[from] = 0;
+            } else {
+                partners[to] = 0;
+                opponents[to] = 0;
+            }
+        }
+    }
+
+    /** An independent copy, for planning ahead without touching the recorded history. */
+    public synchronized PairHistory copy() {
+        PairHistory copy = new PairHistory();
+        copy.partners = partners.clone();
+        copy.opponents = opponents.clone();
+        copy.capacity = capacity;
+        return copy;
+    }
+
+    /**
+     * Copies the counts among the given players into triangular matrices laid out like this
+     * history's own, so the optimizer workers can read them without taking the lock. Entry
+     * {@link #index index(i, j)} belongs to {@code players[i], players[j]}.
+     */
+    synchronized void copyCounts(int[] players, int k, short[] partnerCounts, short[] opponentCounts) {
+        for (int i = 1; i < k; ++i) {
+            int a = players[i];
+            int row = index(i, 0);
+            for (int j = 0; j < i; ++j) {
+                int b = players[j];
+                short p = 0;
+                short o = 0;
+                if (a != b && a < capacity && b < capacity) {
+                    p = partners[index(a, b)];
+                    o = opponents[index(a, b)];
+                }
+                partnerCounts[row + j] = p;
+                opponentCounts[row + j] = o;
+            }
+        }
+    }
+
+    private static void increment(short[] counts, int a, int b) {
+        if (a < 0 || b < 0 || a == b) {
+            return;
+        }
+        int i = index(a, b);
+        if (counts[i] < Short.MAX_VALUE) {
+            counts[i] += 1;
+        }
+    }
+
+    static int index(int a, int b) {
+        int hi = Math.max(a, b);
+        int lo = Math.min(a, b);
+        return (int) ((long) hi * (hi - 1) / 2) + lo;
+    }
+
+    static int triangle(int players) {
+        long size = (long) players * (players - 1) / 2;
+        if (size > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("too many players for a pair matrix: " + players);
+        }
+        return (int) size;
+    }
+}
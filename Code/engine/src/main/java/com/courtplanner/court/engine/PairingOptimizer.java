@@ -0,0 +1,214 @@
+package com.courtplanner.court.engine;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+/**
+ * Rearranges drawn players across courts so that repeated partners and opponents from the
+ * {@link PairHistory} are avoided. Runs independent simulated annealing restarts in a
+ * {@link ForkJoinPool} under a hard time budget and keeps the best layout found.
+ */
+public class PairingOptimizer {
+
+    public static final long DEFAULT_BUDGET_NANOS = 50_000_000L;
+
+    private static final int PER_COURT = DrawEngine.PLAYERS_PER_COURT;
+    private static final int CLOCK_CHECK_MASK = 255;
+    private static final double START_TEMPERATURE = 2.0;
+    private static final double END_TEMPERATURE = 0.05;
+
+    private final PairHistory history;
+    private final ForkJoinPool pool;
+    private final int restarts;
+    private final Random seeds;
+    private int partnerWeight = 3;
+    private int opponentWeight = 1;
+    // Counts among the players of the current call, triangular like PairHistory's; reused across
+    // calls so a large draw does not allocate two k*k matrices every time
+    private short[] partnerCounts = new short[0];
+    private short[] opponentCounts = new short[0];
+
+    public PairingOptimizer(PairHistory history) {
+        this(history, ForkJoinPool.commonPool(), new Random());
+    }
+
+    public PairingOptimizer(PairHistory history, ForkJoinPool pool, Random seeds) {
+        this.history = history;
+        this.pool = pool;
+        this.restarts = Math.max(1, pool.getParallelism());
+        this.seeds = seeds;
+    }
+
+    public void setWeights(int partnerWeight, int opponentWeight) {
+        this.partnerWeight = partnerWeight;
+        this.opponentWeight = opponentWeight;
+    }
+
+    /**
+     * Returns {@code players} (ordinals in draw layout, four per court, slots 0/1 against 2/3)
+     * reordered to minimise the weighted number of repeated pairings. The input is not modified.
+     */
+    public synchronized int[] optimize(int[] players, long budgetNanos) {
+        int k = players.length;
+        if (k <= 2) {
+            return players.clone();
+        }
+        copyCounts(players);
+        long deadline = System.nanoTime() + budgetNanos;
+
+        List<ForkJoinTask<Layout>> tasks = new ArrayList<>(restarts);
+        synchronized (seeds) {
+            for (int r = 0; r < restarts; ++r) {
+                tasks.add(pool.submit(new Anneal(k, partnerCounts, opponentCounts,
+                        new Random(seeds.nextLong()), r == 0, deadline, budgetNanos)));
+            }
+        }
+        Layout best = null;
+        for (ForkJoinTask<Layout> task : tasks) {
+            Layout layout = task.join();
+            if (best == null || layout.cost < best.cost) {
+                best = layout;
+            }
+        }
+        int[] result = new int[k];
+        for (int i = 0; i < k; ++i) {
+            result[i] = players[best.order[i]];
+        }
+        return result;
+    }
+
+    /** Weighted repeat count of a layout, as minimised by {@link #optimize}. */
+    public synchronized int cost(int[] players) {
+        int k = players.length;
+        copyCounts(players);
+        int[] order = new int[k];
+        for (int i = 0; i < k; ++i) {
+            order[i] = i;
+        }
+        return new Anneal(k, partnerCounts, opponentCounts, null, true, 0, 0).totalCost(order);
+    }
+
+    private void copyCounts(int[] players) {
+        int size = PairHistory.triangle(players.length);
+        if (partnerCounts.length < size) {
+            partnerCounts = new short[size];
+            opponentCounts = new short[size];
+        }
+        history.copyCounts(players, players.length, partnerCounts, opponentCounts);
+    }
+
+    private static final class Layout {
+        final int[] order;
+        final int cost;
+
+        Layout(int[] order, int cost) {
+            this.order = order;
+            this.cost = cost;
+        }
+    }
+
+    private final class Anneal implements Callable<Layout> {
+        private final int k;
+        private final short[] partnerCounts;
+        private final short[] opponentCounts;
+        private final Random random;
+        private final boolean keepInitialOrder;
+        private final long deadline;
+        private final long budgetNanos;
+
+        Anneal(int k, short[] partnerCounts, short[] opponentCounts, Random random,
+               boolean keepInitialOrder, long deadline, long budgetNanos) {
+            this.k = k;
+            this.partnerCounts = partnerCounts;
+            this.opponentCounts = opponentCounts;
+            this.random = random;
+            this.keepInitialOrder = keepInitialOrder;
+            this.deadline = deadline;
+            this.budgetNanos = budgetNanos;
+        }
+
+        @Override
+        public Layout call() {
+            int[] order = new int[k];
+            for (int i = 0; i < k; ++i) {
+                order[i] = i;
+            }
+            if (!keepInitialOrder) {
+                for (int i = k - 1; i > 0; --i) {
+                    swap(order, i, random.nextInt(i + 1));
+                }
+            }
+            int cost = totalCost(order);
+            int[] best = order.clone();
+            int bestCost = cost;
+            double temperature = START_TEMPERATURE;
+            for (long step = 0; bestCost > 0; ++step) {
+                if ((step & CLOCK_CHECK_MASK) == 0) {
+                    long left = deadline - System.nanoTime();
+                    if (left <= 0) {
+                        break;
+                    }
+                    double progress = 1.0 - (double) left / budgetNanos;
+                    temperature = START_TEMPERATURE * Math.pow(END_TEMPERATURE / START_TEMPERATURE, progress);
+                }
+                int x = random.nextInt(k);
+                int y = random.nextInt(k);
+                int courtX = x / PER_COURT;
+                int courtY = y / PER_COURT;
+                if (courtX == courtY && (x & 2) == (y & 2)) {
+                    continue;
+                }
+                int before = courtCost(order, courtX) + (courtX == courtY ? 0 : courtCost(order, courtY));
+                swap(order, x, y);
+                int after = courtCost(order, courtX) + (courtX == courtY ? 0 : courtCost(order, courtY));
+                int delta = after - before;
+                if (delta <= 0 || random.nextDouble() < Math.exp(-delta / temperature)) {
+                    cost += delta;
+                    if (cost < bestCost) {
+                        bestCost = cost;
+                        System.arraycopy(order, 0, best, 0, k);
+                    }
+                } else {
+                    swap(order, x, y);
+                }
+            }
+            return new Layout(best, bestCost);
+        }
+
+        int totalCost(int[] order) {
+            int cost = 0;
+            for (int court = 0; court * PER_COURT < k; ++court) {
+                cost += courtCost(order, court);
+            }
+            return cost;
+        }
+
+        // Slots 0/1 and 2/3 of a court are teams; every other pair in the court are opponents.
+        private int courtCost(int[] order, int court) {
+            int base = court * PER_COURT;
+            int end = Math.min(base + PER_COURT, k);
+            int cost = 0;
+            for (int i = base; i < end; ++i) {
+                for (int j = i + 1; j < end; ++j) {
+                    int pair = PairHistory.index(order[i], order[j]);
+                    if ((i & 2) == (j & 2)) {
+                        cost += partnerWeight * partnerCounts[pair];
+                    } else {
+                        cost += opponentWeight * opponentCounts[pair];
+                    }
+                }
+            }
+            return cost;
+        }
+
+        private void swap(int[] a, int i, int j) {
+            int t = a[i];
+            a[i] = a[j];
+            a[j] = t;
+        }
+    }
+}
@@ -0,0 +1,234 @@
+package com.courtplanner.court.engine;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.LinkedHashSet;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Single-writer persistence for a {@link PlayerRegistry}. Callers only mark players dirty; the
+ * first mark of a batch schedules a write {@code debounceMillis} later on the worker thread, and
+ * every further mark inside that window is folded into the same write. The worker copies each
+ * dirty player out of the registry one at a time, so the registry lock is never held while the
+ * store does I/O.
+ */
+public class PersistenceWorker implements Closeable {
+
+    /** Histogram of one debounced batch written to the store. */
+    public static final String WRITE_BATCH = "store.writeBatch";
+    /** Counter of player records written. */
+    public static final String RECORDS = "store.records";
+
+    public interface Listener {
+        /** Called on the worker thread; the failed players stay dirty and go out with the next write. */
+        void onWriteFailed(IOException e);
+    }
+
+    private final PlayerRegistry registry;
+    private final PlayerStore store;
+    private final long debounceMillis;
+    private final ScheduledExecutorService writer;
+    private final Listener listener;
+
+    private final Object pendingLock = new Object();
+    private LinkedHashSet<String> pending = new LinkedHashSet<>();
+    private boolean scheduled;
+
+    private final AtomicLong marks = new AtomicLong();
+    private final AtomicLong recordsWritten = new AtomicLong();
+    private final AtomicLong flushes = new AtomicLong();
+    private final AtomicLong lastFlushNanos = new AtomicLong();
+    private final AtomicLong maxFlushNanos = new AtomicLong();
+    private volatile LatencyHistogram batchTime = Metrics.NONE.histogram(WRITE_BATCH);
+    private volatile Metrics.Counter recordCounter = Metrics.NONE.counter(RECORDS);
+
+    public PersistenceWorker(PlayerRegistry registry, PlayerStore store, long debounceMillis, Listener listener) {
+        if (debounceMillis < 0) {
+            throw new IllegalArgumentException("debounceMillis < 0");
+        }
+        this.registry = registry;
+        this.store = store;
+        this.debounceMillis = debounceMillis;
+        this.listener = listener;
+        this.writer = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable r) {
+                Thread t = new Thread(r, "player-store-writer");
+                t.setDaemon(true);
+                return t;
+            }
+        });
+    }
+
+    public void setMetrics(Metrics metrics) {
+        batchTime = metrics.histogram(WRITE_BATCH);
+        recordCounter = metrics.counter(RECORDS);
+    }
+
+    /** Queues the player's current state (or its removal) for the next write. */
+    public void markDirty(String name) {
+        marks.incrementAndGet();
+        synchronized (pendingLock) {
+            pending.add(name);
+            if (scheduled) {
+                return;
+            }
+            scheduled = true;
+        }
+        writer.schedule(new Runnable() {
+            @Override
+            public void run() {
+                writePending();
+            }
+        }, debounceMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /** Writes everything still pending and forces it to disk; blocks until done. */
+    public void flush() throws IOException {
+        Future<IOException> done = writer.submit(new Callable<IOException>() {
+            @Override
+            public IOException call() {
+                writePending();
+                try {
+                    store.flush();
+                    return null;
+                } catch (IOException e) {
+                    return e;
+                }
+            }
+        });
+        await(done);
+    }
+
+    /**
+     * Writes the {@code added} rows of an imported batch on the worker thread, appended as one
+     * write, and blocks until they are in the store so the caller may reuse the batch. Like
+     * {@link #markDirty} it does not force the store to disk; {@link #flush} does.
+     */
+    public void putAll(final RosterBatch batch, final BitSet added) throws IOException {
+        final int records = added.cardinality();
+        marks.addAndGet(records);
+        Future<IOException> done = writer.submit(new Callable<IOException>() {
+            @Override
+            public IOException call() {
+                long start = System.nanoTime();
+                try {
+                    store.putAll(batch, added);
+                } catch (IOException e) {
+                    return e;
+                }
+                recordsWritten.addAndGet(records);
+                recordCounter.add(records);
+                batchTime.record(System.nanoTime() - start);
+                return null;
+            }
+        });
+        await(done);
+    }
+
+    private static void await(Future<IOException> done) throws IOException {
+        IOException failure;
+        try {
+            failure = done.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("interrupted while writing", e);
+        } catch (ExecutionException e) {
+            throw new IOException(e.getCause());
+        }
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    /** Flushes and stops the worker. The store itself stays open. */
+    @Override
+    public void close() throws IOException {
+        try {
+            flush();
+        } finally {
+            writer.shutdown();
+        }
+    }
+
+    /** Marks that were folded into another write of the same player instead of writing again. */
+    public long writesAvoided() {
+        return marks.get() - recordsWritten.get();
+    }
+
+    public long recordsWritten() {
+        return recordsWritten.get();
+    }
+
+    public long bytesWritten() {
+        return store.bytesWritten();
+    }
+
+    /** Number of batches written. */
+    public long flushCount() {
+        return flushes.get();
+    }
+
+    public long lastFlushNanos() {
+        return lastFlushNanos.get();
+    }
+
+    public long maxFlushNanos() {
+        return maxFlushNanos.get();
+    }
+
+    // Runs on the writer thread only.
+    private void writePending() {
+        LinkedHashSet<String> batch;
+        synchronized (pendingLock) {
+            scheduled = false;
+            if (pending.isEmpty()) {
+                return;
+            }
+            batch = pending;
+            pending = new LinkedHashSet<>();
+        }
+        long start = System.nanoTime();
+        ArrayList<String> failed = new ArrayList<>();
+        IOException failure = null;
+        for (String name : batch) {
+            Player p = registry.get(name);
+            try {
+                if (p != null) {
+                    store.put(name, p.numberSelected, p.selected, p.rating);
+                } else {
+                    store.remove(name);
+                }
+                recordsWritten.incrementAndGet();
+                recordCounter.increment();
+            } catch (IOException e) {
+                failed.add(name);
+                failure = e;
+            }
+        }
+        long elapsed = System.nanoTime() - start;
+        batchTime.record(elapsed);
+        flushes.incrementAndGet();
+        lastFlushNanos.set(elapsed);
+        if (elapsed > maxFlushNanos.get()) {
+            maxFlushNanos.set(elapsed);
+        }
+        if (failure != null) {
+            synchronized (pendingLock) {
+                pending.addAll(failed);
+            }
+            if (listener != null) {
+                listener.onWriteFailed(failure);
+            }
+        }
+    }
+}
@@ -0,0 +1,31 @@
+package com.courtplanner.court.engine;
+
+/** Immutable copy of one roster entry, as handed out by {@link PlayerRegistry}. */
+public class Player {
+
+    public static final int NEVER_DRAWN = FairDrawEngine.NEVER_PLAYED;
+    /** Elo rating of a player without recorded results. */
+    public static final double DEFAULT_RATING = EloRating.INITIAL;
+
+    public final String name;
+    public final int numberSelected;
+    public final boolean selected;
+    public final int lastDrawnRound;
+    public final double rating;
+
+    public Player(String name) {
+        this(name, 0, false, NEVER_DRAWN);
+    }
+
+    public Player(String name, int numberSelected, boolean selected, int lastDrawnRound) {
+        this(name, numberSelected, selected, lastDrawnRound, DEFAULT_RATING);
+    }
+
+    public Player(String name, int numberSelected, boolean selected, int lastDrawnRound, double rating) {
+        this.name = name;
+        this.numberSelected = numberSelected;
+        this.selected = selected;
+        this.lastDrawnRound = lastDrawnRound;
+        this.rating = rating;
+    }
+}
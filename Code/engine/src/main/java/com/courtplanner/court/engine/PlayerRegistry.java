@@ -0,0 +1,510 @@
+package com.courtplanner.court.engine;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.TreeSet;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Thread-safe roster. Names map to dense ordinals through a hash index; per-player state is kept
+ * as struct-of-arrays ({@link BitSet} for selection, primitive arrays for counts and ratings) and the
+ * number of selected players is maintained, so lookups and counts are O(1).
+ *
+ * <p>Removing a player moves the last ordinal into the freed slot to keep ordinals dense;
+ * {@link Listener}s are told about it so ordinal-indexed side tables can follow.
+ *
+ * <p>The display order ({@link #RANKING}: most games first, then by full name) is kept in a
+ * {@link TreeSet} of ordinals that is updated whenever a count changes, so listing the roster
+ * never sorts it.
+ *
+ * <p>Bulk reads go through an immutable {@link RosterSnapshot} published in an
+ * {@link AtomicReference}. Writers only bump a version under the lock; the first reader after a
+ * batch of writes builds the next snapshot, reusing the {@link Player} copies of everyone who did
+ * not change, and every later reader gets it without taking the lock or copying anything.
+ * Point lookups ({@link #get(String)}, {@link #contains}) still read under the lock.
+ */
+public class PlayerRegistry implements Roster {
+
+    public interface Listener {
+        /**
+         * {@code ordinal} was removed. If {@code movedFrom} is not -1, the player that had
+         * ordinal {@code movedFrom} now has ordinal {@code ordinal}. Called under the registry lock.
+         */
+        void onPlayerRemoved(int ordinal, int movedFrom);
+    }
+
+    /** How {@link #applySelection} combines a set of players with the current selection. */
+    public enum SelectionOp {
+        /** Exactly the given players are selected. */
+        REPLACE,
+        /** The given players are selected as well. */
+        UNION,
+        /** Only the selected players that are also given stay selected. */
+        INTERSECT,
+        /** The given players are deselected. */
+        SUBTRACT
+    }
+
+    /**
+     * Histogram of the time {@link #search}, {@link #toggleSelected}, {@link #recordDraw} and
+     * {@link #get(String)} wait for the registry lock.
+     */
+    public static final String LOCK_WAIT = "registry.lockWait";
+
+    /** Most games first, then by name ignoring case; the order of {@link #getRankedPlayers()}. */
+    public static final Comparator<Player> RANKING = new Comparator<Player>() {
+        @Override
+        public int compare(Player a, Player b) {
+            return compareRank(a.numberSelected, a.name, b.numberSelected, b.name);
+        }
+    };
+
+    private final HashMap<String, Integer> index = new HashMap<>();
+    private String[] names = new String[16];
+    private int[] numberSelected = new int[16];
+    private int[] lastDrawnRound = new int[16];
+    private double[] ratings = new double[16];
+    private final BitSet selected = new BitSet();
+    // Immutable copies for snapshots, null where the player changed since the last one
+    private Player[] copies = new Player[16];
+    private int[] rankedOrdinals;
+    private int[] ranks;
+    private int[] selectedOrdinals;
+    private volatile long version;
+    private final AtomicReference<RosterSnapshot> published = new AtomicReference<>(RosterSnapshot.EMPTY);
+    private final PlayerSearchIndex searchIndex = new PlayerSearchIndex();
+    private final TreeSet<Integer> ranked = new TreeSet<>(new Comparator<Integer>() {
+        @Override
+        public int compare(Integer a, Integer b) {
+            return compareRank(numberSelected[a], names[a], numberSelected[b], names[b]);
+        }
+    });
+    private int size = 0;
+    private int selectedCount = 0;
+    private final List<Listener> listeners = new CopyOnWriteArrayList<>();
+    // Time spent waiting for the registry lock on the paths the UI and the writer share
+    private volatile LatencyHistogram lockWait = Metrics.NONE.histogram(LOCK_WAIT);
+
+    public void addListener(Listener listener) {
+        listeners.add(listener);
+    }
+
+    public void setMetrics(Metrics metrics) {
+        lockWait = metrics.histogram(LOCK_WAIT);
+    }
+
+    public synchronized int size() {
+        return size;
+    }
+
+    public synchronized int getNumberSelected() {
+        return selectedCount;
+    }
+
+    public synchronized boolean contains(String name) {
+        return index.containsKey(name);
+    }
+
+    /** Returns the player's current ordinal, or -1. */
+    public synchronized int ordinalOf(String name) {
+        Integer ordinal = index.get(name);
+        return ordinal == null ? -1 : ordinal;
+    }
+
+    public synchronized String nameOf(int ordinal) {
+        checkOrdinal(ordinal);
+        return names[ordinal];
+    }
+
+    /** Adds a new player; returns false if the name is already taken. */
+    @Override
+    public boolean add(String name) {
+        return add(name, 0, false);
+    }
+
+    public boolean add(String name, int playCount, boolean isSelected) {
+        return add(name, playCount, isSelected, Player.DEFAULT_RATING);
+    }
+
+    public synchronized boolean add(String name, int playCount, boolean isSelected, double rating) {
+        if (index.containsKey(name)) {
+            return false;
+        }
+        if (size == names.length) {
+            int capacity = size * 2;
+            names = Arrays.copyOf(names, capacity);
+            numberSelected = Arrays.copyOf(numberSelected, capacity);
+            lastDrawnRound = Arrays.copyOf(lastDrawnRound, capacity);
+            ratings = Arrays.copyOf(ratings, capacity);
+            copies = Arrays.copyOf(copies, capacity);
+        }
+        int ordinal = size++;
+        index.put(name, ordinal);
+        names[ordinal] = name;
+        numberSelected[ordinal] = playCount;
+        lastDrawnRound[ordinal] = Player.NEVER_DRAWN;
+        ratings[ordinal] = rating;
+        setSelected(ordinal, isSelected);
+        searchIndex.add(ordinal, name);
+        ranked.add(ordinal);
+        changed(ordinal, true);
+        return true;
+    }
+
+    @Override
+    public synchronized BitSet addAll(RosterBatch batch) {
+        BitSet added = new BitSet(batch.size());
+        for (int row = 0; row < batch.size(); ++row) {
+            if (add(batch.name(row), batch.games(row), false, batch.rating(row))) {
+                added.set(row);
+            }
+        }
+        return added;
+    }
+
+    @Override
+    public synchronized boolean remove(String name) {
+        Integer boxed = index.remove(name);
+        if (boxed == null) {
+            return false;
+        }
+        int ordinal = boxed;
+        setSelected(ordinal, false);
+        int last = --size;
+        int movedFrom = last == ordinal ? -1 : last;
+        searchIndex.remove(ordinal, movedFrom);
+        ranked.remove(ordinal);
+        if (ordinal != last) {
+            ranked.remove(last);
+            names[ordinal] = names[last];
+            numberSelected[ordinal] = numberSelected[last];
+            lastDrawnRound[ordinal] = lastDrawnRound[last];
+            ratings[ordinal] = ratings[last];
+            selected.set(ordinal, selected.get(last));
+            selected.clear(last);
+            copies[ordinal] = copies[last];
+            index.put(names[ordinal], ordinal);
+            ranked.add(ordinal);
+        }
+        names[last] = null;
+        copies[last] = null;
+        selectedOrdinals = null;
+        changed(-1, true);
+        for (Listener listener : listeners) {
+            listener.onPlayerRemoved(ordinal, movedFrom);
+        }
+        return true;
+    }
+
+    public synchronized void clear() {
+        while (size > 0) {
+            remove(names[size - 1]);
+        }
+    }
+
+    /** Sets the selection flag; returns false if the player does not exist. */
+    public synchronized boolean select(String name, boolean isSelected) {
+        Integer ordinal = index.get(name);
+        if (ordinal == null) {
+            return false;
+        }
+        setSelected(ordinal, isSelected);
+        return true;
+    }
+
+    /** Flips the selection flag and returns the new value (false for unknown players). */
+    public boolean toggleSelected(String name) {
+        LatencyHistogram wait = lockWait;
+        long start = wait.start();
+        synchronized (this) {
+            wait.recordSince(start);
+            Integer ordinal = index.get(name);
+            if (ordinal == null) {
+                return false;
+            }
+            boolean now = !selected.get(ordinal);
+            setSelected(ordinal, now);
+            return now;
+        }
+    }
+
+    public synchronized boolean isSelected(String name) {
+        Integer ordinal = index.get(name);
+        return ordinal != null && selected.get(ordinal);
+    }
+
+    /** The ordinals of the selected players. */
+    public synchronized BitSet selection() {
+        return (BitSet) selected.clone();
+    }
+
+    /**
+     * Combines the selection with the players at {@code ordinals} a word at a time and publishes
+     * the result as one change. Ordinals past the end of the roster are ignored. Returns the
+     * ordinals whose selection flipped.
+     */
+    public synchronized BitSet applySelection(BitSet ordinals, SelectionOp op) {
+        BitSet next;
+        switch (op) {
+            case REPLACE:
+                next = (BitSet) ordinals.clone();
+                break;
+            case UNION:
+                next = (BitSet) selected.clone();
+                next.or(ordinals);
+                break;
+            case INTERSECT:
+                next = (BitSet) selected.clone();
+                next.and(ordinals);
+                break;
+            default:
+                next = (BitSet) selected.clone();
+                next.andNot(ordinals);
+                break;
+        }
+        if (next.length() > size) {
+            next.clear(size, next.length());
+        }
+        next.xor(selected);
+        if (next.isEmpty()) {
+            return next;
+        }
+        selected.xor(next);
+        selectedCount = selected.cardinality();
+        selectedOrdinals = null;
+        for (int ordinal = next.nextSetBit(0); ordinal >= 0; ordinal = next.nextSetBit(ordinal + 1)) {
+            copies[ordinal] = null;
+        }
+        changed(-1, false);
+        return next;
+    }
+
+    /** Adds one game for every named player and remembers the round they played in. */
+    @Override
+    public void recordDraw(Collection<String> drawn, int round) {
+        LatencyHistogram wait = lockWait;
+        long start = wait.start();
+        synchronized (this) {
+            wait.recordSince(start);
+            for (String name : drawn) {
+                Integer ordinal = index.get(name);
+                if (ordinal != null) {
+                    ranked.remove(ordinal);
+                    numberSelected[ordinal] += 1;
+                    lastDrawnRound[ordinal] = round;
+                    ranked.add(ordinal);
+                    changed(ordinal, true);
+                }
+            }
+        }
+    }
+
+    /** Adds games played elsewhere (another device, an import); the last drawn round is kept. */
+    public synchronized boolean addGames(String name, int games) {
+        Integer ordinal = index.get(name);
+        if (ordinal == null) {
+            return false;
+        }
+        ranked.remove(ordinal);
+        numberSelected[ordinal] += games;
+        ranked.add(ordinal);
+        changed(ordinal, true);
+        return true;
+    }
+
+    /**
+     * Updates the {@link EloRating}s of both teams after a match {@code winners} won against
+     * {@code losers}. Unknown names are left out of the team averages and are not updated.
+     * Returns false if either team has no known player.
+     */
+    public synchronized boolean recordResult(Collection<String> winners, Collection<String> losers) {
+        double winnerRating = teamRating(winners);
+        double loserRating = teamRating(losers);
+        if (Double.isNaN(winnerRating) || Double.isNaN(loserRating)) {
+            return false;
+        }
+        double delta = EloRating.delta(winnerRating, loserRating);
+        for (String name : winners) {
+            Integer ordinal = index.get(name);
+            if (ordinal != null) {
+                ratings[ordinal] += delta;
+                changed(ordinal, false);
+            }
+        }
+        for (String name : losers) {
+            Integer ordinal = index.get(name);
+            if (ordinal != null) {
+                ratings[ordinal] -= delta;
+                changed(ordinal, false);
+            }
+        }
+        return true;
+    }
+
+    // Mean rating of the known players, NaN if there are none
+    private double teamRating(Collection<String> team) {
+        double sum = 0;
+        int known = 0;
+        for (String name : team) {
+            Integer ordinal = index.get(name);
+            if (ordinal != null) {
+                sum += ratings[ordinal];
+                known += 1;
+            }
+        }
+        return known == 0 ? Double.NaN : sum / known;
+    }
+
+    /** Returns a copy of the player, or null. */
+    public Player get(String name) {
+        LatencyHistogram wait = lockWait;
+        long start = wait.start();
+        synchronized (this) {
+            wait.recordSince(start);
+            Integer ordinal = index.get(name);
+            return ordinal == null ? null : player(ordinal);
+        }
+    }
+
+    public synchronized Player get(int ordinal) {
+        checkOrdinal(ordinal);
+        return player(ordinal);
+    }
+
+    /**
+     * The roster as of now. Lock-free unless the roster changed since the last snapshot, in which
+     * case this one builds the next.
+     */
+    public RosterSnapshot snapshot() {
+        RosterSnapshot current = published.get();
+        if (current.version == version) {
+            return current;
+        }
+        synchronized (this) {
+            return snapshotLocked();
+        }
+    }
+
+    /** All players in ordinal order. */
+    public ArrayList<Player> getPlayers() {
+        return new ArrayList<>(snapshot().players());
+    }
+
+    /** All players in {@link #RANKING} order. */
+    public ArrayList<Player> getRankedPlayers() {
+        return new ArrayList<>(snapshot().ranked());
+    }
+
+    /**
+     * The players whose name contains {@code query}, ignoring case, in {@link #RANKING}
+     * order. Typing one more character narrows the previous result instead of rescanning, and
+     * the matches are put in order through their ranks rather than by walking the whole ranking.
+     */
+    public ArrayList<Player> search(String query) {
+        LatencyHistogram wait = lockWait;
+        long start = wait.start();
+        BitSet matches;
+        RosterSnapshot snapshot;
+        synchronized (this) {
+            wait.recordSince(start);
+            matches = searchIndex.query(query);
+            snapshot = snapshotLocked();
+        }
+        // Matches go into a bitset by rank, which hands them back in ranking order
+        int[] rankedOrdinals = snapshot.rankedOrdinals();
+        BitSet ranks = new BitSet(rankedOrdinals.length);
+        for (int ordinal = matches.nextSetBit(0); ordinal >= 0; ordinal = matches.nextSetBit(ordinal + 1)) {
+            ranks.set(snapshot.rankOf(ordinal));
+        }
+        ArrayList<Player> players = new ArrayList<>(ranks.cardinality());
+        for (int rank = ranks.nextSetBit(0); rank >= 0; rank = ranks.nextSetBit(rank + 1)) {
+            players.add(snapshot.get(rankedOrdinals[rank]));
+        }
+        return players;
+    }
+
+    /** The selected players in ordinal order. */
+    public ArrayList<Player> getSelectedPlayers() {
+        return new ArrayList<>(snapshot().selected());
+    }
+
+    private RosterSnapshot snapshotLocked() {
+        RosterSnapshot current = published.get();
+        long now = version;
+        if (current.version == now) {
+            return current;
+        }
+        Player[] players = new Player[size];
+        for (int i = 0; i < size; ++i) {
+            if (copies[i] == null) {
+                copies[i] = player(i);
+            }
+            players[i] = copies[i];
+        }
+        if (rankedOrdinals == null) {
+            rankedOrdinals = new int[size];
+            int next = 0;
+            ranks = new int[size];
+            for (int ordinal : ranked) {
+                ranks[ordinal] = next;
+                rankedOrdinals[next++] = ordinal;
+            }
+        }
+        if (selectedOrdinals == null) {
+            selectedOrdinals = new int[selectedCount];
+            int next = 0;
+            for (int i = selected.nextSetBit(0); i >= 0; i = selected.nextSetBit(i + 1)) {
+                selectedOrdinals[next++] = i;
+            }
+        }
+        RosterSnapshot snapshot = new RosterSnapshot(now, players, rankedOrdinals, ranks, selectedOrdinals);
+        published.set(snapshot);
+        return snapshot;
+    }
+
+    // Called under the lock after every change; ordinal -1 if no single player's copy went stale
+    private void changed(int ordinal, boolean reranked) {
+        if (ordinal >= 0) {
+            copies[ordinal] = null;
+        }
+        if (reranked) {
+            rankedOrdinals = null;
+        }
+        version += 1;
+    }
+
+    private static int compareRank(int countA, String nameA, int countB, String nameB) {
+        if (countA != countB) {
+            return countA > countB ? -1 : 1;
+        }
+        int byName = nameA.compareToIgnoreCase(nameB);
+        return byName != 0 ? byName : nameA.compareTo(nameB);
+    }
+
+    private Player player(int ordinal) {
+        return new Player(names[ordinal], numberSelected[ordinal], selected.get(ordinal), lastDrawnRound[ordinal],
+                ratings[ordinal]);
+    }
+
+    private void setSelected(int ordinal, boolean isSelected) {
+        if (selected.get(ordinal) == isSelected) {
+            return;
+        }
+        selected.set(ordinal, isSelected);
+        selectedCount += isSelected ? 1 : -1;
+        selectedOrdinals = null;
+        changed(ordinal, false);
+    }
+
+    private void checkOrdinal(int ordinal) {
+        if (ordinal < 0 || ordinal >= size) {
+            throw new IndexOutOfBoundsException("ordinal " + ordinal + " of " + size);
+        }
+    }
+}
@@ -0,0 +1,168 @@
+package com.courtplanner.court.engine;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Locale;
+
+/**
+ * Substring index over upper-case player names, keyed by registry ordinal. Every 1-, 2- and
+ * 3-character gram of a name has a posting list of the ordinals containing it. A query starts
+ * from the shortest posting list among its grams, or from the previous result when the new
+ * query extends it (the user typed another character), whichever is smaller.
+ *
+ * <p>Not thread-safe; {@link PlayerRegistry} calls it under its own lock.
+ */
+class PlayerSearchIndex {
+
+    private static final int MAX_GRAM = 3;
+
+    private static final class Posting {
+        int[] ordinals = new int[4];
+        int size;
+
+        void add(int ordinal) {
+            if (size == ordinals.length) {
+                ordinals = Arrays.copyOf(ordinals, size * 2);
+            }
+            ordinals[size++] = ordinal;
+        }
+
+        void replace(int from, int to) {
+            for (int i = 0; i < size; ++i) {
+                if (ordinals[i] == from) {
+                    if (to < 0) {
+                        ordinals[i] = ordinals[--size];
+                    } else {
+                        ordinals[i] = to;
+                    }
+                    return;
+                }
+            }
+        }
+    }
+
+    private final HashMap<Long, Posting> postings = new HashMap<>();
+    private String[] names = new String[16];
+    private int size;
+
+    private String lastQuery;
+    private final BitSet lastResult = new BitSet();
+
+    // Names are upper-cased with Locale.ROOT wherever they are entered, so the same name is the
+    // same key on every device whatever its language
+    static String normalize(String query) {
+        return query.toUpperCase(Locale.ROOT);
+    }
+
+    void add(int ordinal, String name) {
+        if (ordinal >= names.length) {
+            names = Arrays.copyOf(names, Math.max(ordinal + 1, names.length * 2));
+        }
+        String key = normalize(name);
+        names[ordinal] = key;
+        size = Math.max(size, ordinal + 1);
+        forEachGram(key, ordinal, -1);
+        if (lastQuery != null && key.contains(lastQuery)) {
+            lastResult.set(ordinal);
+        }
+    }
+
+    /** Mirrors {@link PlayerRegistry.Listener#onPlayerRemoved}. */
+    void remove(int ordinal, int movedFrom) {
+        forEachGram(names[ordinal], ordinal, Integer.MIN_VALUE);
+        if (movedFrom >= 0) {
+            forEachGram(names[movedFrom], movedFrom, ordinal);
+            names[ordinal] = names[movedFrom];
+            names[movedFrom] = null;
+            lastResult.set(ordinal, lastResult.get(movedFrom));
+            lastResult.clear(movedFrom);
+            size = movedFrom;
+        } else {
+            names[ordinal] = null;
+            lastResult.clear(ordinal);
+            size = ordinal;
+        }
+    }
+
+    /** Ordinals whose name contains {@code query} (case-insensitive). The set is a fresh copy. */
+    BitSet query(String query) {
+        String q = normalize(query);
+        BitSet result = new BitSet(size);
+        if (q.isEmpty()) {
+            result.set(0, size);
+        } else {
+            Posting best = null;
+            boolean exact = q.length() <= MAX_GRAM;
+            for (int i = 0; i + Math.min(q.length(), MAX_GRAM) <= q.length(); ++i) {
+                Posting p = postings.get(gram(q, i, Math.min(q.length(), MAX_GRAM)));
+                if (p == null) {
+                    best = null;
+                    exact = true;
+                    break;
+                }
+                if (best == null || p.size < best.size) {
+                    best = p;
+                }
+            }
+            boolean narrow = lastQuery != null && q.contains(lastQuery);
+            if (narrow && (best == null ? 0 : best.size) > lastResult.cardinality()) {
+                for (int o = lastResult.nextSetBit(0); o >= 0; o = lastResult.nextSetBit(o + 1)) {
+                    if (names[o].contains(q)) {
+                        result.set(o);
+                    }
+                }
+            } else if (best != null) {
+                for (int i = 0; i < best.size; ++i) {
+                    int o = best.ordinals[i];
+                    if (exact || names[o].contains(q)) {
+                        result.set(o);
+                    }
+                }
+            }
+        }
+        lastQuery = q;
+        lastResult.clear();
+        lastResult.or(result);
+        return result;
+    }
+
+    // Adds (replaceWith == -1), removes (MIN_VALUE) or renumbers the ordinal in every distinct
+    // gram posting of the name.
+    private void forEachGram(String key, int ordinal, int replaceWith) {
+        HashSet<Long> seen = new HashSet<>();
+        for (int n = 1; n <= MAX_GRAM; ++n) {
+            for (int i = 0; i + n <= key.length(); ++i) {
+                Long gram = gram(key, i, n);
+                if (!seen.add(gram)) {
+                    continue;
+                }
+                if (replaceWith == -1) {
+                    Posting p = postings.get(gram);
+                    if (p == null) {
+                        p = new Posting();
+                        postings.put(gram, p);
+                    }
+                    p.add(ordinal);
+                } else {
+                    Posting p = postings.get(gram);
+                    if (p != null) {
+                        p.replace(ordinal, replaceWith == Integer.MIN_VALUE ? -1 : replaceWith);
+                        if (p.size == 0) {
+                            postings.remove(gram);
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    private static long gram(String s, int start, int length) {
+        long key = length;
+        for (int i = 0; i < length; ++i) {
+            key = (key << 16) | s.charAt(start + i);
+        }
+        return key;
+    }
+}
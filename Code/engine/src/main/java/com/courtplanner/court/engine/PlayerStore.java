@@ -0,0 +1,368 @@
+package com.courtplanner.court.engine;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Versioned binary player file. Every player is one length-prefixed record; a changed play
+ * count or selection is patched in place, a new player is appended and a removed one is marked
+ * dead. Dead records are dropped by a background compaction once they outweigh the live ones.
+ *
+ * <pre>
+ * header: int magic, short version
+ * record: byte state, int numberSelected, byte selected, float rating, short nameLength, byte[] utf8Name
+ * </pre>
+ *
+ * Version 1 files (no rating) are rewritten as version 2 with {@link Player#DEFAULT_RATING} on open.
+ */
+public class PlayerStore implements Closeable {
+
+    public interface Visitor {
+        void visit(String name, int numberSelected, boolean selected, double rating);
+    }
+
+    static final int MAGIC = 0x43505053; // "CPPS"
+    static final short VERSION = 2;
+    static final int HEADER_SIZE = 6;
+
+    private static final byte DEAD = 0;
+    private static final byte LIVE = 1;
+    private static final int FIXED_RECORD_SIZE = 12;
+    private static final int V1_FIXED_RECORD_SIZE = 8;
+    private static final int PATCH_OFFSET = 1;
+    private static final long COMPACT_THRESHOLD = 64 * 1024;
+    private static final int APPEND_BUFFER_SIZE = 64 * 1024;
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    private final File file;
+    private final ExecutorService compactor;
+    private RandomAccessFile raf;
+    private FileChannel channel;
+    private final HashMap<String, Long> offsets = new HashMap<>();
+    private final ByteBuffer patch = ByteBuffer.allocate(9);
+    private long end;
+    private long deadBytes;
+    private boolean compactionQueued;
+    private long bytesWritten;
+    private short fileVersion;
+
+    private PlayerStore(File file, ExecutorService compactor) {
+        this.file = file;
+        this.compactor = compactor;
+    }
+
+    public static PlayerStore open(File file) throws IOException {
+        return open(file, null);
+    }
+
+    /**
+     * Opens the file and hands every live player to {@code visitor} while it is read, so a cold
+     * start reads the file once instead of opening and then {@link #load loading} it.
+     */
+    public static PlayerStore open(File file, Visitor visitor) throws IOException {
+        ExecutorService compactor = Executors.newSingleThreadExecutor(new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable r) {
+                Thread t = new Thread(r, "player-store-compactor");
+                t.setDaemon(true);
+                return t;
+            }
+        });
+        PlayerStore store = new PlayerStore(file, compactor);
+        store.openChannel(visitor);
+        return store;
+    }
+
+    private void openChannel(Visitor visitor) throws IOException {
+        raf = new RandomAccessFile(file, "rw");
+        channel = raf.getChannel();
+        offsets.clear();
+        deadBytes = 0;
+        if (channel.size() < HEADER_SIZE) {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+            header.putInt(MAGIC).putShort(VERSION).flip();
+            channel.truncate(0);
+            writeFully(header, 0);
+            end = HEADER_SIZE;
+            return;
+        }
+        end = scan(visitor);
+        if (fileVersion == 1) {
+            upgrade();
+        }
+    }
+
+    // Rewrites a version 1 file in the current format, keeping the old one until the new is complete
+    private void upgrade() throws IOException {
+        final ByteArrayOutputStream records = new ByteArrayOutputStream();
+        scan(new Visitor() {
+            @Override
+            public void visit(String name, int numberSelected, boolean selected, double rating) {
+                ByteBuffer record = record(name, numberSelected, selected, rating);
+                records.write(record.array(), 0, record.limit());
+            }
+        });
+        File tmp = new File(file.getPath() + ".tmp");
+        try (RandomAccessFile out = new RandomAccessFile(tmp, "rw")) {
+            out.setLength(0);
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+            header.putInt(MAGIC).putShort(VERSION).flip();
+            out.write(header.array());
+            out.write(records.toByteArray());
+            out.getFD().sync();
+        }
+        channel.close();
+        raf.close();
+        if (!tmp.renameTo(file)) {
+            throw new IOException("could not replace " + file + " with upgraded copy");
+        }
+        openChannel(null);
+    }
+
+    /** Number of live players in the file. */
+    public synchronized int size() {
+        return offsets.size();
+    }
+
+    public synchronized boolean isEmpty() {
+        return offsets.isEmpty();
+    }
+
+    /** Bytes written by {@link #put}, {@link #putAll} and {@link #remove} since the store was opened. */
+    public synchronized long bytesWritten() {
+        return bytesWritten;
+    }
+
+    /** Calls {@code visitor} for every live player in file order. */
+    public synchronized void load(Visitor visitor) throws IOException {
+        scan(visitor);
+    }
+
+    /** Writes one player with the default rating. */
+    public void put(String name, int numberSelected, boolean selected) throws IOException {
+        put(name, numberSelected, selected, Player.DEFAULT_RATING);
+    }
+
+    /** Writes one player, patching its record in place when it already exists. */
+    public synchronized void put(String name, int numberSelected, boolean selected, double rating) throws IOException {
+        Long offset = offsets.get(name);
+        if (offset != null) {
+            patch.clear();
+            patch.putInt(numberSelected).put(selected ? (byte) 1 : (byte) 0).putFloat((float) rating).flip();
+            writeFully(patch, offset + PATCH_OFFSET);
+            bytesWritten += patch.limit();
+            return;
+        }
+        ByteBuffer record = record(name, numberSelected, selected, rating);
+        writeFully(record, end);
+        bytesWritten += record.capacity();
+        offsets.put(name, end);
+        end += record.capacity();
+    }
+
+    /**
+     * Writes the {@code rows} of a batch unselected, as {@link #put} would, but appends the new
+     * records through one buffer so a bulk import costs a few large writes instead of one per
+     * player.
+     */
+    public synchronized void putAll(RosterBatch batch, BitSet rows) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(APPEND_BUFFER_SIZE);
+        long position = end;
+        for (int row = rows.nextSetBit(0); row >= 0; row = rows.nextSetBit(row + 1)) {
+            String name = batch.name(row);
+            if (offsets.containsKey(name)) {
+                put(name, batch.games(row), false, batch.rating(row));
+                continue;
+            }
+            ByteBuffer record = record(name, batch.games(row), false, batch.rating(row));
+            if (record.remaining() > buffer.remaining()) {
+                buffer.flip();
+                bytesWritten += buffer.remaining();
+                writeFully(buffer, position);
+                position = end;
+                buffer.clear();
+            }
+            offsets.put(name, end);
+            end += record.remaining();
+            buffer.put(record);
+        }
+        buffer.flip();
+        bytesWritten += buffer.remaining();
+        writeFully(buffer, position);
+    }
+
+    /** Marks the player's record dead; the bytes are reclaimed by the next compaction. */
+    public synchronized void remove(String name) throws IOException {
+        Long offset = offsets.remove(name);
+        if (offset == null) {
+            return;
+        }
+        ByteBuffer state = ByteBuffer.allocate(1);
+        state.put(DEAD).flip();
+        writeFully(state, offset);
+        bytesWritten += 1;
+        ByteBuffer length = ByteBuffer.allocate(2);
+        readFully(length, offset + FIXED_RECORD_SIZE - 2);
+        deadBytes += FIXED_RECORD_SIZE + length.getShort(0);
+        maybeCompact();
+    }
+
+    private static ByteBuffer record(String name, int numberSelected, boolean selected, double rating) {
+        byte[] bytes = name.getBytes(UTF_8);
+        if (bytes.length > Short.MAX_VALUE) {
+            throw new IllegalArgumentException("player name too long: " + bytes.length + " bytes");
+        }
+        ByteBuffer record = ByteBuffer.allocate(FIXED_RECORD_SIZE + bytes.length);
+        record.put(LIVE).putInt(numberSelected).put(selected ? (byte) 1 : (byte) 0).putFloat((float) rating)
+                .putShort((short) bytes.length).put(bytes).flip();
+        return record;
+    }
+
+    public synchronized void flush() throws IOException {
+        channel.force(false);
+    }
+
+    /** Rewrites the file with live records only. Runs on the caller's thread. */
+    public synchronized void compact() throws IOException {
+        compactionQueued = false;
+        if (deadBytes == 0) {
+            return;
+        }
+        File tmp = new File(file.getPath() + ".tmp");
+        try (RandomAccessFile out = new RandomAccessFile(tmp, "rw")) {
+            FileChannel target = out.getChannel();
+            target.truncate(0);
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+            header.putInt(MAGIC).putShort(VERSION).flip();
+            while (header.hasRemaining()) {
+                target.write(header);
+            }
+            long position = HEADER_SIZE;
+            ByteBuffer in = channel.map(FileChannel.MapMode.READ_ONLY, 0, end);
+            in.position(HEADER_SIZE);
+            while (in.remaining() >= FIXED_RECORD_SIZE) {
+                int start = in.position();
+                byte state = in.get();
+                in.position(start + FIXED_RECORD_SIZE - 2);
+                int length = FIXED_RECORD_SIZE + in.getShort();
+                in.position(start + length);
+                if (state == LIVE) {
+                    ByteBuffer record = in.duplicate();
+                    record.position(start).limit(start + length);
+                    while (record.hasRemaining()) {
+                        position += target.write(record, position);
+                    }
+                }
+            }
+            target.force(false);
+        }
+        channel.close();
+        raf.close();
+        if (!tmp.renameTo(file)) {
+            throw new IOException("could not replace " + file + " with compacted copy");
+        }
+        openChannel(null);
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        compactor.shutdown();
+        channel.force(false);
+        channel.close();
+        raf.close();
+    }
+
+    private void maybeCompact() {
+        long live = end - HEADER_SIZE - deadBytes;
+        if (compactionQueued || deadBytes < COMPACT_THRESHOLD || deadBytes < live) {
+            return;
+        }
+        compactionQueued = true;
+        compactor.execute(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    compact();
+                } catch (IOException e) {
+                    // the uncompacted file is still valid, the next removal will retry
+                }
+            }
+        });
+    }
+
+    // Walks all records, rebuilding the offset index. Cuts off a torn record at the tail that
+    // a crash during an append may have left behind. Returns the end of the last full record.
+    private long scan(Visitor visitor) throws IOException {
+        long size = channel.size();
+        ByteBuffer in = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+        if (in.getInt() != MAGIC) {
+            throw new IOException(file + " is not a player store");
+        }
+        fileVersion = in.getShort();
+        if (fileVersion != VERSION && fileVersion != 1) {
+            throw new IOException("unsupported player store version " + fileVersion);
+        }
+        int fixedSize = fileVersion == 1 ? V1_FIXED_RECORD_SIZE : FIXED_RECORD_SIZE;
+        offsets.clear();
+        deadBytes = 0;
+        byte[] name = new byte[64];
+        while (in.remaining() >= fixedSize) {
+            int start = in.position();
+            byte state = in.get();
+            int numberSelected = in.getInt();
+            boolean selected = in.get() != 0;
+            double rating = fileVersion == 1 ? Player.DEFAULT_RATING : in.getFloat();
+            int length = in.getShort();
+            if (length < 0 || in.remaining() < length) {
+                in.position(start);
+                break;
+            }
+            if (state != LIVE) {
+                in.position(in.position() + length);
+                deadBytes += fixedSize + length;
+                continue;
+            }
+            if (name.length < length) {
+                name = new byte[Math.max(length, name.length * 2)];
+            }
+            in.get(name, 0, length);
+            String playerName = new String(name, 0, length, UTF_8);
+            offsets.put(playerName, (long) start);
+            if (visitor != null) {
+                visitor.visit(playerName, numberSelected, selected, rating);
+            }
+        }
+        long last = in.position();
+        if (last < size) {
+            channel.truncate(last);
+        }
+        return last;
+    }
+
+    private void writeFully(ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            position += channel.write(buffer, position);
+        }
+    }
+
+    private void readFully(ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            int read = channel.read(buffer, position);
+            if (read < 0) {
+                throw new IOException("unexpected end of " + file);
+            }
+            position += read;
+        }
+    }
+}
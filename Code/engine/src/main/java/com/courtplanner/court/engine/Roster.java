@@ -0,0 +1,27 @@
+package com.courtplanner.court.engine;
+
+import java.util.BitSet;
+import java.util.Collection;
+
+/**
+ * The roster changes a club night makes. {@link PlayerRegistry} applies them on this device,
+ * {@link RosterSync} also shares them with the other devices of the club.
+ */
+public interface Roster {
+
+    /** Adds a new player; returns false if the name is already taken. */
+    boolean add(String name);
+
+    /**
+     * Adds the batch's players as one change, unselected, with their games and rating. Names
+     * that are already taken, also by an earlier row of the batch, are skipped; returns the rows
+     * that were added.
+     */
+    BitSet addAll(RosterBatch batch);
+
+    /** Returns false if there was no such player. */
+    boolean remove(String name);
+
+    /** Adds one game for every named player, played in {@code round}. */
+    void recordDraw(Collection<String> drawn, int round);
+}
@@ -0,0 +1,76 @@
+package com.courtplanner.court.engine;
+
+import java.util.Arrays;
+
+/**
+ * A bounded batch of new players (name, games, rating) in parallel arrays, so a bulk import can
+ * be applied with one {@link Roster#addAll} and reuse the same arrays for the next batch.
+ */
+public final class RosterBatch {
+
+    private final String[] names;
+    private final int[] games;
+    private final double[] ratings;
+    private int size;
+
+    public RosterBatch(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("capacity <= 0");
+        }
+        names = new String[capacity];
+        games = new int[capacity];
+        ratings = new double[capacity];
+    }
+
+    public int capacity() {
+        return names.length;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public boolean isFull() {
+        return size == names.length;
+    }
+
+    public void add(String name, int games, double rating) {
+        if (isFull()) {
+            throw new IllegalStateException("batch is full");
+        }
+        names[size] = name;
+        this.games[size] = games;
+        ratings[size] = rating;
+        size += 1;
+    }
+
+    public String name(int row) {
+        checkRow(row);
+        return names[row];
+    }
+
+    public int games(int row) {
+        checkRow(row);
+        return games[row];
+    }
+
+    public double rating(int row) {
+        checkRow(row);
+        return ratings[row];
+    }
+
+    public void clear() {
+        Arrays.fill(names, 0, size, null);
+        size = 0;
+    }
+
+    private void checkRow(int row) {
+        if (row < 0 || row >= size) {
+            throw new IndexOutOfBoundsException("row " + row + " of " + size);
+        }
+    }
+}
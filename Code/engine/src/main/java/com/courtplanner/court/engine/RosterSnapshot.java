@@ -0,0 +1,90 @@
+package com.courtplanner.court.engine;
+
+import java.util.AbstractList;
+import java.util.List;
+import java.util.RandomAccess;
+
+/**
+ * Immutable view of a {@link PlayerRegistry} at one point in time, as returned by
+ * {@link PlayerRegistry#snapshot()}. Any number of threads may read it without locking; the lists
+ * it hands out are unmodifiable views over its arrays, not copies.
+ */
+public final class RosterSnapshot {
+
+    static final RosterSnapshot EMPTY = new RosterSnapshot(-1, new Player[0], new int[0], new int[0], new int[0]);
+
+    final long version;
+    private final Player[] players;
+    private final int[] ranked;
+    // Position of every ordinal in ranked
+    private final int[] ranks;
+    private final int[] selected;
+
+    RosterSnapshot(long version, Player[] players, int[] ranked, int[] ranks, int[] selected) {
+        this.version = version;
+        this.players = players;
+        this.ranked = ranked;
+        this.ranks = ranks;
+        this.selected = selected;
+    }
+
+    public int size() {
+        return players.length;
+    }
+
+    public int getNumberSelected() {
+        return selected.length;
+    }
+
+    public Player get(int ordinal) {
+        return players[ordinal];
+    }
+
+    /** All players in ordinal order. */
+    public List<Player> players() {
+        return new View(players, null);
+    }
+
+    /** All players in {@link PlayerRegistry#RANKING} order. */
+    public List<Player> ranked() {
+        return new View(players, ranked);
+    }
+
+    /** The selected players in ordinal order. */
+    public List<Player> selected() {
+        return new View(players, selected);
+    }
+
+    int[] rankedOrdinals() {
+        return ranked;
+    }
+
+    int rankOf(int ordinal) {
+        return ranks[ordinal];
+    }
+
+    int[] selectedOrdinals() {
+        return selected;
+    }
+
+    private static final class View extends AbstractList<Player> implements RandomAccess {
+        private final Player[] players;
+        // null: ordinal order
+        private final int[] order;
+
+        View(Player[] players, int[] order) {
+            this.players = players;
+            this.order = order;
+        }
+
+        @Override
+        public Player get(int index) {
+            return order == null ? players[index] : players[order[index]];
+        }
+
+        @Override
+        public int size() {
+            return order == null ? players.length : order.length;
+        }
+    }
+}
@@ -0,0 +1,345 @@
+package com.courtplanner.court.engine;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Sync layer around a {@link PlayerRegistry}. Roster changes made through it are applied locally
+ * and logged as operations numbered per device (replica); {@link #sync} sends the unacknowledged
+ * ones together with the {@link VersionVector} of everything seen so far, and applies what other
+ * devices of the club did in the meantime.
+ *
+ * <p>Play counts are a grow-only counter per name: every draw operation adds its games whether or
+ * not the player is currently on the roster, and a player who is (re-)added starts from that
+ * total, so counts converge in any order. Adding and removing a player is last-writer-wins on a
+ * Lamport timestamp (ties by replica id).
+ * Selection is attendance on one device and is not synced.
+ */
+public class RosterSync implements Roster {
+
+    public interface Listener {
+        /** Players changed by other devices; called on the syncing thread after each sync. */
+        void onRemoteChanges(Collection<String> names);
+    }
+
+    private static final byte ADD = 1;
+    private static final byte REMOVE = 2;
+    private static final byte DRAW = 3;
+    private static final byte GAMES = 4;
+    private static final int STATE_MAGIC = 0x43505359; // "CPSY"
+    // Pending operations sent per round trip, well below what the server accepts in one body
+    static final int MAX_REQUEST_BYTES = 1 << 20;
+    private static final int FRAME_OVERHEAD = 16;
+
+    private final PlayerRegistry registry;
+    private final long replica;
+    private final Object syncLock = new Object();
+    private int nextSeq = 1;
+    private long clock;
+    private final VersionVector seen = new VersionVector();
+    private final ArrayList<SyncBatch.Frame> pending = new ArrayList<>();
+    // Lamport stamp and replica of the add or remove that decided each name's membership
+    private final HashMap<String, long[]> membership = new HashMap<>();
+    // All games ever synced for each name, including while the player was removed
+    private final HashMap<String, Integer> games = new HashMap<>();
+    private Listener listener;
+
+    public RosterSync(PlayerRegistry registry, long replica) {
+        this.registry = registry;
+        this.replica = replica;
+    }
+
+    public void setListener(Listener listener) {
+        this.listener = listener;
+    }
+
+    public long replica() {
+        return replica;
+    }
+
+    public synchronized int pendingCount() {
+        return pending.size();
+    }
+
+    /**
+     * Logs every player already in the registry, with their games, so a device that had a roster
+     * before it was connected shares it. Two devices seeding the same player add up their games.
+     */
+    public synchronized void seedFromRegistry() {
+        for (Player p : registry.getPlayers()) {
+            stamp(p.name, ++clock, replica);
+            log(ADD, p.name);
+            countGames(p.name, p.numberSelected);
+            if (p.numberSelected > 0) {
+                log(GAMES, p.name, p.numberSelected);
+            }
+        }
+    }
+
+    @Override
+    public synchronized boolean add(String name) {
+        if (!registry.add(name, gamesOf(name), false)) {
+            return false;
+        }
+        stamp(name, ++clock, replica);
+        log(ADD, name);
+        return true;
+    }
+
+    /** Imported games count like games synced from another device: they add to the name's total. */
+    @Override
+    public synchronized BitSet addAll(RosterBatch batch) {
+        BitSet added = new BitSet(batch.size());
+        for (int row = 0; row < batch.size(); ++row) {
+            String name = batch.name(row);
+            int imported = batch.games(row);
+            if (!registry.add(name, gamesOf(name) + imported, false, batch.rating(row))) {
+                continue;
+            }
+            added.set(row);
+            stamp(name, ++clock, replica);
+            log(ADD, name);
+            if (imported > 0) {
+                countGames(name, imported);
+                log(GAMES, name, imported);
+            }
+        }
+        return added;
+    }
+
+    @Override
+    public synchronized boolean remove(String name) {
+        if (!registry.remove(name)) {
+            return false;
+        }
+        stamp(name, ++clock, replica);
+        log(REMOVE, name);
+        return true;
+    }
+
+    @Override
+    public synchronized void recordDraw(Collection<String> drawn, int round) {
+        registry.recordDraw(drawn, round);
+        for (String name : drawn) {
+            countGames(name, 1);
+        }
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        try {
+            out.writeByte(DRAW);
+            out.writeLong(++clock);
+            out.writeInt(drawn.size());
+            for (String name : drawn) {
+                out.writeUTF(name);
+            }
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+        append(bytes);
+    }
+
+    /**
+     * Sends the pending operations and applies the remote ones. Both go in chunks of about
+     * {@link #MAX_REQUEST_BYTES}, one round trip each, until everything is acknowledged and seen
+     * or a round trip moves nothing. Only one sync runs at a time; local changes may continue
+     * meanwhile and go out with it or the next one.
+     */
+    public void sync(SyncTransport transport) throws IOException {
+        synchronized (syncLock) {
+            LinkedHashSet<String> changed = new LinkedHashSet<>();
+            try {
+                boolean more = true;
+                while (more) {
+                    SyncBatch request;
+                    synchronized (this) {
+                        ArrayList<SyncBatch.Frame> chunk = new ArrayList<>();
+                        long bytes = 0;
+                        for (int i = 0; i < pending.size() && (chunk.isEmpty() || bytes < MAX_REQUEST_BYTES); ++i) {
+                            chunk.add(pending.get(i));
+                            bytes += FRAME_OVERHEAD + pending.get(i).payload.length;
+                        }
+                        request = new SyncBatch(replica, seen.copy(), chunk);
+                        request.versions.set(replica, nextSeq - 1);
+                    }
+                    SyncBatch response = transport.exchange(request);
+                    synchronized (this) {
+                        int before = pending.size();
+                        int applied = apply(response, changed);
+                        boolean progress = pending.size() < before || applied > 0;
+                        more = progress && (!pending.isEmpty() || behind(response.versions));
+                    }
+                }
+            } finally {
+                if (listener != null && !changed.isEmpty()) {
+                    listener.onRemoteChanges(changed);
+                }
+            }
+        }
+    }
+
+    // Whether the server holds operations of other replicas that were not applied yet
+    private boolean behind(VersionVector server) {
+        for (Map.Entry<Long, Integer> e : server.entries()) {
+            if (e.getKey() != replica && e.getValue() > seen.get(e.getKey())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // Applies the remote operations, adding the players they changed, and returns how many
+    private int apply(SyncBatch response, Collection<String> changed) throws IOException {
+        int acked = response.versions.get(replica);
+        int confirmed = (pending.isEmpty() ? nextSeq : pending.get(0).seq) - 1;
+        if (acked < confirmed) {
+            // Only acknowledged operations are dropped from pending, so these cannot be resent
+            throw new IOException("the sync server lost operations " + (acked + 1) + ".." + confirmed
+                    + " of replica " + replica);
+        }
+        int drop = 0;
+        while (drop < pending.size() && pending.get(drop).seq <= acked) {
+            ++drop;
+        }
+        pending.subList(0, drop).clear();
+
+        int applied = 0;
+        for (SyncBatch.Frame f : response.frames) {
+            if (f.replica == replica || f.seq != seen.get(f.replica) + 1) {
+                continue;
+            }
+            seen.set(f.replica, f.seq);
+            applied += 1;
+            DataInputStream in = new DataInputStream(new ByteArrayInputStream(f.payload));
+            byte type = in.readByte();
+            long stamp = in.readLong();
+            clock = Math.max(clock, stamp);
+            if (type == ADD || type == REMOVE) {
+                String name = in.readUTF();
+                if (stamp(name, stamp, f.replica)) {
+                    boolean changedHere = type == ADD
+                            ? registry.add(name, gamesOf(name), false) : registry.remove(name);
+                    if (changedHere) {
+                        changed.add(name);
+                    }
+                }
+            } else if (type == DRAW) {
+                for (int i = 0, n = in.readInt(); i < n; ++i) {
+                    String name = in.readUTF();
+                    countGames(name, 1);
+                    if (registry.addGames(name, 1)) {
+                        changed.add(name);
+                    }
+                }
+            } else if (type == GAMES) {
+                String name = in.readUTF();
+                int count = in.readInt();
+                countGames(name, count);
+                if (registry.addGames(name, count)) {
+                    changed.add(name);
+                }
+            }
+        }
+        return applied;
+    }
+
+    private int gamesOf(String name) {
+        Integer count = games.get(name);
+        return count == null ? 0 : count;
+    }
+
+    private void countGames(String name, int count) {
+        games.put(name, gamesOf(name) + count);
+    }
+
+    // Records the stamp if it is newer than the one that decided the name's membership so far.
+    private boolean stamp(String name, long lamport, long fromReplica) {
+        long[] current = membership.get(name);
+        if (current != null && (current[0] > lamport || (current[0] == lamport && current[1] >= fromReplica))) {
+            return false;
+        }
+        membership.put(name, new long[]{lamport, fromReplica});
+        return true;
+    }
+
+    private void log(byte type, String name) {
+        log(type, name, 0);
+    }
+
+    private void log(byte type, String name, int games) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        try {
+            out.writeByte(type);
+            out.writeLong(clock);
+            out.writeUTF(name);
+            if (type == GAMES) {
+                out.writeInt(games);
+            }
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+        append(bytes);
+    }
+
+    // ByteArrayOutputStream never throws; the IOExceptions above are only declared.
+    private void append(ByteArrayOutputStream payload) {
+        pending.add(new SyncBatch.Frame(replica, nextSeq++, payload.toByteArray()));
+    }
+
+    /** Saves replica id, clocks, version vector, membership stamps, game totals and unsent operations. */
+    public synchronized void writeState(OutputStream stream) throws IOException {
+        DataOutputStream out = new DataOutputStream(stream);
+        out.writeInt(STATE_MAGIC);
+        out.writeLong(replica);
+        out.writeInt(nextSeq);
+        out.writeLong(clock);
+        seen.writeTo(out);
+        out.writeInt(membership.size());
+        for (Map.Entry<String, long[]> e : membership.entrySet()) {
+            out.writeUTF(e.getKey());
+            out.writeLong(e.getValue()[0]);
+            out.writeLong(e.getValue()[1]);
+        }
+        out.writeInt(games.size());
+        for (Map.Entry<String, Integer> e : games.entrySet()) {
+            out.writeUTF(e.getKey());
+            out.writeInt(e.getValue());
+        }
+        new SyncBatch(replica, new VersionVector(), pending).writeTo(out);
+        out.flush();
+    }
+
+    /** Restores a {@link #writeState} snapshot on top of an already loaded registry. */
+    public static RosterSync readState(PlayerRegistry registry, InputStream stream) throws IOException {
+        DataInputStream in = new DataInputStream(stream);
+        if (in.readInt() != STATE_MAGIC) {
+            throw new IOException("not a roster sync state");
+        }
+        RosterSync sync = new RosterSync(registry, in.readLong());
+        sync.nextSeq = in.readInt();
+        sync.clock = in.readLong();
+        VersionVector seen = VersionVector.readFrom(in);
+        sync.seen.putAll(seen);
+        for (int i = 0, n = in.readInt(); i < n; ++i) {
+            sync.membership.put(in.readUTF(), new long[]{in.readLong(), in.readLong()});
+        }
+        for (int i = 0, n = in.readInt(); i < n; ++i) {
+            sync.games.put(in.readUTF(), in.readInt());
+        }
+        List<SyncBatch.Frame> pending = SyncBatch.readFrom(in).frames;
+        sync.pending.addAll(pending);
+        return sync;
+    }
+}
@@ -0,0 +1,555 @@
+package com.courtplanner.court.engine;
+
+import java.io.BufferedWriter;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Locale;
+
+/**
+ * Bulk roster import and export as CSV or JSON, streamed: an import parses {@link #BATCH_SIZE}
+ * rows at a time into a reused {@link RosterBatch} and applies each with one
+ * {@link Roster#addAll}, an export writes one {@link RosterSnapshot} of the registry. Neither
+ * holds the file in memory, so a league of any size takes the same few buffers.
+ *
+ * <pre>
+ * CSV:  name,games,rating          optional header in any column order; games and rating may be
+ *       "SMITH, ANNA",12,1520.5    left out or empty, fields may be quoted with "" as escape
+ * JSON: [{"name": "SMITH, ANNA", "games": 12, "rating": 1520.5}, ...]
+ * </pre>
+ *
+ * Imported names are trimmed and upper-cased like names typed into the app. The format is
+ * detected from the first character; input is UTF-8, with or without a byte order mark.
+ */
+public final class RosterTransfer {
+
+    public enum Format {
+        CSV,
+        JSON
+    }
+
+    public interface Listener {
+        /**
+         * A batch was applied to the roster; {@code added} are its rows that were new. Called on
+         * the importing thread with the rows parsed and the bytes read so far; the batch is
+         * reused once this returns.
+         */
+        void onBatch(RosterBatch batch, BitSet added, long rows, long bytes) throws IOException;
+    }
+
+    public static final class Result {
+        /** Data rows read, header and blank lines not counted. */
+        public final long rows;
+        public final long added;
+        /** Valid rows whose name was already on the roster or earlier in the file. */
+        public final long duplicates;
+        /** Rows without a name or with unreadable games or rating. */
+        public final long invalid;
+
+        Result(long rows, long added, long duplicates, long invalid) {
+            this.rows = rows;
+            this.added = added;
+            this.duplicates = duplicates;
+            this.invalid = invalid;
+        }
+
+        @Override
+        public String toString() {
+            return rows + " rows: " + added + " added, " + duplicates + " duplicates, " + invalid + " invalid";
+        }
+    }
+
+    public static final int BATCH_SIZE = 4096;
+    /** Longer fields are cut off and make their row invalid. */
+    static final int MAX_FIELD = 256;
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+    private static final int MAX_JSON_DEPTH = 32;
+
+    private RosterTransfer() {
+    }
+
+    /** Imports a CSV or JSON roster; {@code listener} may be null. */
+    public static Result importFrom(InputStream stream, Roster roster, Listener listener) throws IOException {
+        CountingInputStream counted = new CountingInputStream(stream);
+        Source in = new Source(new InputStreamReader(counted, UTF_8));
+        if (in.peek() == '\uFEFF') {
+            in.read();
+        }
+        Importer importer = new Importer(roster, listener, counted);
+        in.skipWhitespace();
+        if (in.peek() == '[') {
+            readJson(in, importer);
+        } else {
+            readCsv(in, importer);
+        }
+        importer.apply();
+        return new Result(importer.rows, importer.added, importer.rows - importer.invalid - importer.added,
+                importer.invalid);
+    }
+
+    /** Exports every player in ordinal order; {@code stream} is flushed, not closed. */
+    public static void exportTo(OutputStream stream, PlayerRegistry registry, Format format) throws IOException {
+        Writer out = new BufferedWriter(new OutputStreamWriter(stream, UTF_8));
+        out.write(format == Format.CSV ? "name,games,rating\n" : "[");
+        boolean first = true;
+        for (Player p : registry.snapshot().players()) {
+            if (format == Format.CSV) {
+                writeCsvField(out, p.name);
+                out.write("," + p.numberSelected + "," + p.rating + "\n");
+            } else {
+                out.write(first ? "\n  {\"name\": " : ",\n  {\"name\": ");
+                writeJsonString(out, p.name);
+                out.write(", \"games\": " + p.numberSelected + ", \"rating\": " + p.rating + "}");
+                first = false;
+            }
+        }
+        if (format == Format.JSON) {
+            out.write(first ? "]\n" : "\n]\n");
+        }
+        out.flush();
+    }
+
+    private static void readCsv(Source in, Importer importer) throws IOException {
+        int nameColumn = 0;
+        int gamesColumn = 1;
+        int ratingColumn = 2;
+        ArrayList<String> fields = new ArrayList<>();
+        boolean first = true;
+        while (readCsvRecord(in, fields)) {
+            if (fields.size() == 1 && fields.get(0) != null && fields.get(0).trim().isEmpty()) {
+                continue;
+            }
+            if (first) {
+                first = false;
+                int name = columnOf(fields, "name");
+                if (name >= 0) {
+                    nameColumn = name;
+                    gamesColumn = columnOf(fields, "games");
+                    ratingColumn = columnOf(fields, "rating");
+                    continue;
+                }
+            }
+            if (fields.contains(null)) {
+                importer.invalidRow();
+                continue;
+            }
+            importer.row(field(fields, nameColumn), field(fields, gamesColumn), field(fields, ratingColumn));
+        }
+    }
+
+    private static int columnOf(ArrayList<String> header, String column) {
+        for (int i = 0; i < header.size(); ++i) {
+            if (header.get(i) != null && header.get(i).trim().equalsIgnoreCase(column)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static String field(ArrayList<String> fields, int column) {
+        return column >= 0 && column < fields.size() ? fields.get(column) : null;
+    }
+
+    // One record into fields; false at the end of the input. Overlong fields are marked with a
+    // null so the row counts as invalid.
+    private static boolean readCsvRecord(Source in, ArrayList<String> fields) throws IOException {
+        fields.clear();
+        if (in.peek() < 0) {
+            return false;
+        }
+        StringBuilder field = new StringBuilder();
+        boolean overflow = false;
+        boolean quoted = false;
+        while (true) {
+            int c = in.read();
+            if (quoted) {
+                if (c < 0) {
+                    quoted = false;
+                } else if (c == '"' && in.peek() == '"') {
+                    in.read();
+                    overflow |= append(field, '"');
+                } else if (c == '"') {
+                    quoted = false;
+                } else {
+                    overflow |= append(field, (char) c);
+                }
+                continue;
+            }
+            if (c == '"' && field.length() == 0) {
+                quoted = true;
+            } else if (c == ',' || c == '\n' || c == '\r' || c < 0) {
+                fields.add(overflow ? null : field.toString());
+                field.setLength(0);
+                overflow = false;
+                if (c == '\r' && in.peek() == '\n') {
+                    in.read();
+                }
+                if (c != ',') {
+                    return true;
+                }
+            } else {
+                overflow |= append(field, (char) c);
+            }
+        }
+    }
+
+    private static boolean append(StringBuilder field, char c) {
+        if (field.length() == MAX_FIELD) {
+            return true;
+        }
+        field.append(c);
+        return false;
+    }
+
+    private static void readJson(Source in, Importer importer) throws IOException {
+        in.expect('[');
+        in.skipWhitespace();
+        if (in.peek() == ']') {
+            in.read();
+            return;
+        }
+        StringBuilder text = new StringBuilder();
+        while (true) {
+            in.skipWhitespace();
+            in.expect('{');
+            String name = null;
+            double games = 0;
+            double rating = Player.DEFAULT_RATING;
+            boolean valid = true;
+            in.skipWhitespace();
+            if (in.peek() == '}') {
+                in.read();
+                valid = false;
+            } else {
+                while (true) {
+                    in.skipWhitespace();
+                    String key = readJsonString(in, text) ? text.toString() : "";
+                    in.skipWhitespace();
+                    in.expect(':');
+                    in.skipWhitespace();
+                    int c = in.peek();
+                    if (key.equals("name") && c == '"') {
+                        name = readJsonString(in, text) ? text.toString() : null;
+                        valid &= name != null;
+                    } else if (key.equals("games") && c != '"' && c != '{' && c != '[') {
+                        games = readJsonNumber(in, text);
+                    } else if (key.equals("rating") && c != '"' && c != '{' && c != '[') {
+                        rating = readJsonNumber(in, text);
+                    } else {
+                        valid &= !key.equals("name") && !key.equals("games") && !key.equals("rating");
+                        skipJsonValue(in, text, 0);
+                    }
+                    in.skipWhitespace();
+                    int next = in.read();
+                    if (next == '}') {
+                        break;
+                    }
+                    if (next != ',') {
+                        throw in.malformed();
+                    }
+                }
+            }
+            if (!valid || games != Math.rint(games)) {
+                importer.invalidRow();
+            } else {
+                importer.row(name, games, rating);
+            }
+            in.skipWhitespace();
+            int c = in.read();
+            if (c == ']') {
+                return;
+            }
+            if (c != ',') {
+                throw in.malformed();
+            }
+        }
+    }
+
+    // Reads a string into text; false if it was cut off at MAX_FIELD
+    private static boolean readJsonString(Source in, StringBuilder text) throws IOException {
+        in.expect('"');
+        text.setLength(0);
+        boolean overflow = false;
+        while (true) {
+            int c = in.read();
+            if (c < 0x20) {
+                throw in.malformed();
+            }
+            if (c == '"') {
+                return !overflow;
+            }
+            if (c == '\\') {
+                c = in.read();
+                switch (c) {
+                    case 'b': c = '\b'; break;
+                    case 'f': c = '\f'; break;
+                    case 'n': c = '\n'; break;
+                    case 'r': c = '\r'; break;
+                    case 't': c = '\t'; break;
+                    case '"': case '\\': case '/': break;
+                    case 'u':
+                        c = 0;
+                        for (int i = 0; i < 4; ++i) {
+                            int digit = Character.digit(in.read(), 16);
+                            if (digit < 0) {
+                                throw in.malformed();
+                            }
+                            c = c * 16 + digit;
+                        }
+                        break;
+                    default:
+                        throw in.malformed();
+                }
+            }
+            overflow |= append(text, (char) c);
+        }
+    }
+
+    private static double readJsonNumber(Source in, StringBuilder text) throws IOException {
+        text.setLength(0);
+        int c = in.peek();
+        while (c == '-' || c == '+' || c == '.' || c == 'e' || c == 'E' || (c >= '0' && c <= '9')) {
+            if (append(text, (char) in.read())) {
+                throw in.malformed();
+            }
+            c = in.peek();
+        }
+        try {
+            return Double.parseDouble(text.toString());
+        } catch (NumberFormatException e) {
+            throw in.malformed();
+        }
+    }
+
+    private static void skipJsonValue(Source in, StringBuilder text, int depth) throws IOException {
+        if (depth > MAX_JSON_DEPTH) {
+            throw in.malformed();
+        }
+        int c = in.peek();
+        if (c == '"') {
+            readJsonString(in, text);
+        } else if (c == '{' || c == '[') {
+            int close = c == '{' ? '}' : ']';
+            in.read();
+            in.skipWhitespace();
+            if (in.peek() == close) {
+                in.read();
+                return;
+            }
+            while (true) {
+                in.skipWhitespace();
+                if (close == '}') {
+                    readJsonString(in, text);
+                    in.skipWhitespace();
+                    in.expect(':');
+                    in.skipWhitespace();
+                }
+                skipJsonValue(in, text, depth + 1);
+                in.skipWhitespace();
+                int next = in.read();
+                if (next == close) {
+                    return;
+                }
+                if (next != ',') {
+                    throw in.malformed();
+                }
+            }
+        } else if (c == 't' || c == 'f' || c == 'n') {
+            text.setLength(0);
+            while (in.peek() >= 'a' && in.peek() <= 'z') {
+                if (append(text, (char) in.read())) {
+                    throw in.malformed();
+                }
+            }
+            String literal = text.toString();
+            if (!literal.equals("true") && !literal.equals("false") && !literal.equals("null")) {
+                throw in.malformed();
+            }
+        } else {
+            readJsonNumber(in, text);
+        }
+    }
+
+    private static void writeCsvField(Writer out, String s) throws IOException {
+        boolean quote = !s.equals(s.trim());
+        for (int i = 0; i < s.length() && !quote; ++i) {
+            char c = s.charAt(i);
+            quote = c == ',' || c == '"' || c == '\n' || c == '\r';
+        }
+        if (!quote) {
+            out.write(s);
+            return;
+        }
+        out.write('"');
+        out.write(s.replace("\"", "\"\""));
+        out.write('"');
+    }
+
+    private static void writeJsonString(Writer out, String s) throws IOException {
+        out.write('"');
+        for (int i = 0; i < s.length(); ++i) {
+            char c = s.charAt(i);
+            if (c == '"' || c == '\\') {
+                out.write('\\');
+                out.write(c);
+            } else if (c < 0x20) {
+                out.write(String.format("\\u%04x", (int) c));
+            } else {
+                out.write(c);
+            }
+        }
+        out.write('"');
+    }
+
+    // Collects rows into the batch and applies it whenever it is full
+    private static final class Importer {
+        final Roster roster;
+        final Listener listener;
+        final CountingInputStream counted;
+        final RosterBatch batch = new RosterBatch(BATCH_SIZE);
+        long rows;
+        long added;
+        long invalid;
+
+        Importer(Roster roster, Listener listener, CountingInputStream counted) {
+            this.roster = roster;
+            this.listener = listener;
+            this.counted = counted;
+        }
+
+        void row(String name, String games, String rating) throws IOException {
+            try {
+                row(name, games == null || games.trim().isEmpty() ? 0 : Integer.parseInt(games.trim()),
+                        rating == null || rating.trim().isEmpty()
+                                ? Player.DEFAULT_RATING : Double.parseDouble(rating.trim()));
+            } catch (NumberFormatException e) {
+                invalidRow();
+            }
+        }
+
+        void row(String name, double games, double rating) throws IOException {
+            name = name == null ? "" : name.trim().toUpperCase(Locale.ROOT);
+            if (name.isEmpty() || games < 0 || games > Integer.MAX_VALUE
+                    || Double.isNaN(rating) || Double.isInfinite(rating)) {
+                invalidRow();
+                return;
+            }
+            rows += 1;
+            batch.add(name, (int) games, rating);
+            if (batch.isFull()) {
+                apply();
+            }
+        }
+
+        void invalidRow() {
+            rows += 1;
+            invalid += 1;
+        }
+
+        void apply() throws IOException {
+            if (batch.isEmpty()) {
+                return;
+            }
+            BitSet applied = roster.addAll(batch);
+            added += applied.cardinality();
+            if (listener != null) {
+                listener.onBatch(batch, applied, rows, counted.count);
+            }
+            batch.clear();
+        }
+    }
+
+    // Buffered characters with one character of lookahead
+    private static final class Source {
+        final Reader reader;
+        final char[] buffer = new char[8192];
+        int position;
+        int limit;
+        long consumed;
+
+        Source(Reader reader) {
+            this.reader = reader;
+        }
+
+        int peek() throws IOException {
+            if (position == limit) {
+                int read = reader.read(buffer, 0, buffer.length);
+                if (read <= 0) {
+                    return -1;
+                }
+                position = 0;
+                limit = read;
+            }
+            return buffer[position];
+        }
+
+        int read() throws IOException {
+            int c = peek();
+            if (c >= 0) {
+                position += 1;
+                consumed += 1;
+            }
+            return c;
+        }
+
+        void skipWhitespace() throws IOException {
+            int c = peek();
+            while (c == ' ' || c == '\t' || c == '\n' || c == '\r') {
+                read();
+                c = peek();
+            }
+        }
+
+        void expect(char expected) throws IOException {
+            if (read() != expected) {
+                throw malformed();
+            }
+        }
+
+        IOException malformed() {
+            return new IOException("malformed roster at character " + consumed);
+        }
+    }
+
+    private static final class CountingInputStream extends FilterInputStream {
+        long count;
+
+        CountingInputStream(InputStream in) {
+            super(in);
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            if (b >= 0) {
+                count += 1;
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            int read = super.read(b, off, len);
+            if (read > 0) {
+                count += read;
+            }
+            return read;
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            long skipped = super.skip(n);
+            count += skipped;
+            return skipped;
+        }
+    }
+}
@@ -0,0 +1,237 @@
+package com.courtplanner.court.engine;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+
+/**
+ * Waiting line of the attending players. A round takes the players at the head and puts them
+ * back at the tail, so whoever sat out is first in the next round and the order carries over
+ * between rounds (and, through {@link #writeTo}, between app starts).
+ *
+ * <p>The line is a ring buffer of names. A player who leaves is not searched for: their entry
+ * stays behind as a tombstone (its ticket no longer matches) and is skipped when it reaches the
+ * head, so every operation is O(1) amortised and a round costs O(courts). Tombstones are dropped
+ * once they make up half of the buffer.
+ */
+public class RotationQueue {
+
+    private static final int MAGIC = 0x43505251; // "CPRQ"
+    private static final short VERSION = 1;
+
+    private String[] names = new String[16];
+    private int[] tickets = new int[16];
+    private int head;
+    private int entries;
+    private int nextTicket;
+    // Live players and the ticket of their current entry
+    private final HashMap<String, Integer> queued = new HashMap<>();
+
+    /** Number of players in the line. */
+    public synchronized int size() {
+        return queued.size();
+    }
+
+    public synchronized boolean contains(String name) {
+        return queued.containsKey(name);
+    }
+
+    /** Puts a player at the end of the line; false if they are already waiting. */
+    public synchronized boolean add(String name) {
+        if (queued.containsKey(name)) {
+            return false;
+        }
+        append(name);
+        return true;
+    }
+
+    /** Takes a player out of the line; false if they were not in it. */
+    public synchronized boolean remove(String name) {
+        if (queued.remove(name) == null) {
+            return false;
+        }
+        maybeCompact();
+        return true;
+    }
+
+    /**
+     * Makes the line hold exactly {@code attending}: players not in it leave, new ones join at
+     * the end in the given order. O(line + attending); meant for start-up, not for every round.
+     */
+    public synchronized void retainOnly(Collection<String> attending) {
+        HashMap<String, Boolean> keep = new HashMap<>();
+        for (String name : attending) {
+            keep.put(name, Boolean.TRUE);
+        }
+        ArrayList<String> leaving = new ArrayList<>();
+        for (String name : queued.keySet()) {
+            if (!keep.containsKey(name)) {
+                leaving.add(name);
+            }
+        }
+        for (String name : leaving) {
+            queued.remove(name);
+        }
+        for (String name : attending) {
+            if (!queued.containsKey(name)) {
+                append(name);
+            }
+        }
+        maybeCompact();
+    }
+
+    /**
+     * Takes up to {@code courts * PLAYERS_PER_COURT} players from the head of the line, in line
+     * order, and puts them back at the tail. Everyone else moves up.
+     */
+    public synchronized List<String> nextRound(int courts) {
+        return nextPlayers(Math.max(courts, 0) * DrawEngine.PLAYERS_PER_COURT);
+    }
+
+    /** Like {@link #nextRound} for venues whose courts do not all take four players. */
+    public synchronized List<String> nextPlayers(int count) {
+        int slots = Math.min(queued.size(), Math.max(count, 0));
+        ArrayList<String> drawn = new ArrayList<>(slots);
+        while (drawn.size() < slots) {
+            String name = pollLive();
+            drawn.add(name);
+        }
+        for (String name : drawn) {
+            append(name);
+        }
+        return drawn;
+    }
+
+    /**
+     * The first {@code count} players of the line, without moving anyone; pass them to
+     * {@link #movedToBack} once their round is certain to be played.
+     */
+    public synchronized List<String> head(int count) {
+        int slots = Math.min(queued.size(), Math.max(count, 0));
+        ArrayList<String> line = new ArrayList<>(slots);
+        for (int i = 0; i < entries && line.size() < slots; ++i) {
+            int at = (head + i) & (names.length - 1);
+            if (isLive(at)) {
+                line.add(names[at]);
+            }
+        }
+        return line;
+    }
+
+    /**
+     * Moves players who were drawn some other way to the end of the line, so the line stays
+     * right when a round was not taken from it. Unknown names are ignored.
+     */
+    public synchronized void movedToBack(Collection<String> played) {
+        for (String name : played) {
+            if (queued.remove(name) != null) {
+                append(name);
+            }
+        }
+        maybeCompact();
+    }
+
+    /** The waiting players from the head of the line. */
+    public synchronized ArrayList<String> waiting() {
+        ArrayList<String> line = new ArrayList<>(queued.size());
+        for (int i = 0; i < entries; ++i) {
+            int at = (head + i) & (names.length - 1);
+            if (isLive(at)) {
+                line.add(names[at]);
+            }
+        }
+        return line;
+    }
+
+    /** Saves the line, head first. */
+    public synchronized void writeTo(OutputStream stream) throws IOException {
+        DataOutputStream out = new DataOutputStream(stream);
+        out.writeInt(MAGIC);
+        out.writeShort(VERSION);
+        out.writeInt(queued.size());
+        for (String name : waiting()) {
+            out.writeUTF(name);
+        }
+        out.flush();
+    }
+
+    public static RotationQueue readFrom(InputStream stream) throws IOException {
+        DataInputStream in = new DataInputStream(stream);
+        if (in.readInt() != MAGIC) {
+            throw new IOException("not a rotation queue");
+        }
+        short version = in.readShort();
+        if (version != VERSION) {
+            throw new IOException("unsupported rotation queue version " + version);
+        }
+        RotationQueue queue = new RotationQueue();
+        for (int i = 0, n = in.readInt(); i < n; ++i) {
+            queue.add(in.readUTF());
+        }
+        return queue;
+    }
+
+    private boolean isLive(int at) {
+        Integer ticket = queued.get(names[at]);
+        return ticket != null && ticket == tickets[at];
+    }
+
+    // Head entry of a live player, skipping tombstones; the caller makes sure one exists
+    private String pollLive() {
+        while (true) {
+            int at = head;
+            String name = names[at];
+            boolean live = isLive(at);
+            names[at] = null;
+            head = (head + 1) & (names.length - 1);
+            entries -= 1;
+            if (live) {
+                queued.remove(name);
+                return name;
+            }
+        }
+    }
+
+    private void append(String name) {
+        if (entries == names.length) {
+            resize(names.length * 2);
+        }
+        int at = (head + entries) & (names.length - 1);
+        int ticket = nextTicket++;
+        names[at] = name;
+        tickets[at] = ticket;
+        queued.put(name, ticket);
+        entries += 1;
+    }
+
+    private void maybeCompact() {
+        if (entries > 16 && entries > 2 * queued.size()) {
+            resize(names.length);
+        }
+    }
+
+    // Copies the live entries, head first, into arrays of the given power-of-two capacity
+    private void resize(int capacity) {
+        String[] newNames = new String[capacity];
+        int[] newTickets = new int[capacity];
+        int n = 0;
+        for (int i = 0; i < entries; ++i) {
+            int at = (head + i) & (names.length - 1);
+            if (isLive(at)) {
+                newNames[n] = names[at];
+                newTickets[n] = tickets[at];
+                n += 1;
+            }
+        }
+        names = newNames;
+        tickets = newTickets;
+        head = 0;
+        entries = n;
+    }
+}
@@ -0,0 +1,75 @@
+package com.courtplanner.court.engine;
+
+/**
+ * A round drawn entirely from one 64-bit seed, so it can be drawn again from its
+ * {@link DrawAudit.Entry} and come out the same. {@link DrawRandom#stream Stream} 0 of the seed
+ * picks the players and their order; stream {@code 1 + c} seats court {@code c}, so the courts
+ * of a round can be seated, or checked, independently of each other and in any order.
+ *
+ * <p>In rotation the first players in line play; stream 0 only spreads them over the courts.
+ */
+final class SeededDraw {
+
+    /**
+     * Revision of the drawing rules, kept with every audited round so older rounds are drawn
+     * again by the rules they were drawn with. 1: rotation kept the players in line order.
+     */
+    static final int VERSION = 2;
+
+    private static final int PER_COURT = DrawEngine.PLAYERS_PER_COURT;
+
+    private final DrawEngine drawEngine = new DrawEngine();
+    private final FairDrawEngine fairDrawEngine = new FairDrawEngine();
+
+    /**
+     * Draws up to {@code courts} courts out of {@code candidates} and returns the picked
+     * candidate indices in court layout. {@code playCounts} and {@code lastRounds} are read by
+     * {@link ClubNight.DrawMode#FAIR} only.
+     */
+    int[] draw(ClubNight.DrawMode mode, long seed, int courts, int[] playCounts, int[] lastRounds, int candidates) {
+        return draw(mode, seed, courts, playCounts, lastRounds, candidates, VERSION);
+    }
+
+    /** Draws like {@link #draw} by the rules of revision {@code version}. */
+    int[] draw(ClubNight.DrawMode mode, long seed, int courts, int[] playCounts, int[] lastRounds, int candidates,
+               int version) {
+        int[] picked = new int[Math.min(candidates, Math.max(courts, 0) * PER_COURT)];
+        DrawRandom players = DrawRandom.stream(seed, 0);
+        if (mode == ClubNight.DrawMode.ROTATION) {
+            for (int i = 0; i < picked.length; ++i) {
+                picked[i] = i;
+            }
+            if (version < 2) {
+                return picked;
+            }
+            // Without this, courts are runs of the line and the same players meet every round
+            for (int i = picked.length - 1; i > 0; --i) {
+                int j = players.nextInt(i + 1);
+                int t = picked[i];
+                picked[i] = picked[j];
+                picked[j] = t;
+            }
+        } else if (mode == ClubNight.DrawMode.FAIR) {
+            fairDrawEngine.draw(playCounts, lastRounds, candidates, courts, picked, players);
+        } else {
+            drawEngine.draw(candidates, courts, picked, players);
+        }
+        for (int court = 0; court * PER_COURT < picked.length; ++court) {
+            seat(seed, court, picked);
+        }
+        return picked;
+    }
+
+    /** Shuffles the slots of {@code court} in {@code layout} with the court's own stream. */
+    static void seat(long seed, int court, int[] layout) {
+        DrawRandom random = DrawRandom.stream(seed, 1 + court);
+        int base = court * PER_COURT;
+        int slots = Math.min(PER_COURT, layout.length - base);
+        for (int i = slots - 1; i > 0; --i) {
+            int j = random.nextInt(i + 1);
+            int t = layout[base + i];
+            layout[base + i] = layout[base + j];
+            layout[base + j] = t;
+        }
+    }
+}
@@ -0,0 +1,172 @@
+package com.courtplanner.court.engine;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Plans a whole evening of rounds up front. Each round sits out the players with the most games
+ * (ties: the shortest rest) through {@link FairDrawEngine}, then lays the rest out on courts with
+ * a {@link PairingOptimizer} that sees the pairings of every earlier round, played or planned.
+ *
+ * <p>Rounds are committed as they are played. {@link #plan()} only rebuilds the rounds after the
+ * last committed one, starting from counts and pair history kept up to date by
+ * {@link #commitRound()}, so an arrival or departure mid-session costs the remaining rounds only.
+ *
+ * <p>Players are session-local ids handed out by {@link #join}. Not thread-safe.
+ */
+public class SessionPlanner {
+
+    public static final int EMPTY = -1;
+    public static final long DEFAULT_ROUND_BUDGET_NANOS = 5_000_000L;
+
+    private static final int PER_COURT = DrawEngine.PLAYERS_PER_COURT;
+
+    private final int rounds;
+    private final int courts;
+    private final int[][] schedule;
+    private final FairDrawEngine fairDraw;
+    private final ForkJoinPool pool;
+    private final Random seeds;
+    private long roundBudgetNanos = DEFAULT_ROUND_BUDGET_NANOS;
+
+    // Committed state: everything played up to round committed - 1.
+    private final PairHistory history = new PairHistory();
+    private int[] games = new int[16];
+    private int[] lastRound = new int[16];
+    private final BitSet present = new BitSet();
+    private int players;
+    private int committed;
+
+    public SessionPlanner(int rounds, int courts) {
+        this(rounds, courts, ForkJoinPool.commonPool(), new Random());
+    }
+
+    public SessionPlanner(int rounds, int courts, ForkJoinPool pool, Random seeds) {
+        if (rounds < 1 || courts < 1) {
+            throw new IllegalArgumentException("need at least one round and one court");
+        }
+        this.rounds = rounds;
+        this.courts = courts;
+        this.schedule = new int[rounds][courts * PER_COURT];
+        for (int[] round : schedule) {
+            Arrays.fill(round, EMPTY);
+        }
+        this.pool = pool;
+        this.seeds = seeds;
+        this.fairDraw = new FairDrawEngine(new Random(seeds.nextLong()));
+    }
+
+    /** Wall-clock budget of the pairing optimizer per planned round. */
+    public void setRoundBudgetNanos(long roundBudgetNanos) {
+        this.roundBudgetNanos = roundBudgetNanos;
+    }
+
+    public int rounds() {
+        return rounds;
+    }
+
+    public int courts() {
+        return courts;
+    }
+
+    /** Rounds already played; {@link #plan()} leaves them untouched. */
+    public int committedRounds() {
+        return committed;
+    }
+
+    /**
+     * Adds a player and returns their id. Someone arriving after the first round starts level with
+     * the present player who has played least, so they are not drawn every round to catch up.
+     */
+    public int join() {
+        int id = players++;
+        if (id == games.length) {
+            games = Arrays.copyOf(games, id * 2);
+            lastRound = Arrays.copyOf(lastRound, id * 2);
+        }
+        int least = Integer.MAX_VALUE;
+        for (int p = present.nextSetBit(0); p >= 0; p = present.nextSetBit(p + 1)) {
+            least = Math.min(least, games[p]);
+        }
+        games[id] = committed == 0 || least == Integer.MAX_VALUE ? 0 : least;
+        lastRound[id] = FairDrawEngine.NEVER_PLAYED;
+        present.set(id);
+        return id;
+    }
+
+    /** The player leaves; they keep their place in committed rounds. Call {@link #plan()} after. */
+    public void leave(int id) {
+        present.clear(id);
+    }
+
+    public boolean isPresent(int id) {
+        return present.get(id);
+    }
+
+    /** Games played in committed rounds. */
+    public int gamesPlayed(int id) {
+        return games[id];
+    }
+
+    /** Copy of a round's layout, four slots per court, slots 0/1 against 2/3, {@link #EMPTY} if unused. */
+    public int[] round(int round) {
+        return schedule[round].clone();
+    }
+
+    /** (Re)plans every round after the committed ones for the players currently present. */
+    public void plan() {
+        PairHistory planned = history.copy();
+        PairingOptimizer optimizer = new PairingOptimizer(planned, pool, seeds);
+        int[] ids = new int[present.cardinality()];
+        int n = 0;
+        for (int p = present.nextSetBit(0); p >= 0; p = present.nextSetBit(p + 1)) {
+            ids[n++] = p;
+        }
+        int[] counts = new int[n];
+        int[] last = new int[n];
+        for (int i = 0; i < n; ++i) {
+            counts[i] = games[ids[i]];
+            last[i] = lastRound[ids[i]];
+        }
+        int[] picked = new int[Math.min(n, courts * PER_COURT)];
+        int[] layout = new int[picked.length];
+        for (int r = committed; r < rounds; ++r) {
+            int drawn = fairDraw.draw(counts, last, n, courts, picked);
+            for (int i = 0; i < drawn; ++i) {
+                counts[picked[i]] += 1;
+                last[picked[i]] = r;
+                layout[i] = ids[picked[i]];
+            }
+            int[] arranged = optimizer.optimize(Arrays.copyOf(layout, drawn), roundBudgetNanos);
+            int[] round = schedule[r];
+            Arrays.fill(round, EMPTY);
+            System.arraycopy(arranged, 0, round, 0, drawn);
+            recordRound(planned, round);
+        }
+    }
+
+    /** Marks the next planned round as played and returns its index. */
+    public int commitRound() {
+        if (committed == rounds) {
+            throw new IllegalStateException("all " + rounds + " rounds are already committed");
+        }
+        int r = committed++;
+        int[] round = schedule[r];
+        for (int id : round) {
+            if (id != EMPTY) {
+                games[id] += 1;
+                lastRound[id] = r;
+            }
+        }
+        recordRound(history, round);
+        return r;
+    }
+
+    private void recordRound(PairHistory target, int[] round) {
+        for (int base = 0; base < round.length; base += PER_COURT) {
+            target.recordCourt(round[base], round[base + 1], round[base + 2], round[base + 3]);
+        }
+    }
+}
@@ -0,0 +1,90 @@
+package com.courtplanner.court.engine;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * One sync message, in either direction: the sender's {@link VersionVector} and a batch of
+ * operations. The server treats operation payloads as opaque bytes; only {@link RosterSync}
+ * interprets them.
+ *
+ * <pre>
+ * batch: short version, long sender, versionVector, int count, frame[count]
+ * frame: long replica, int seq, int length, byte[length] payload
+ * </pre>
+ */
+public class SyncBatch {
+
+    public static final short VERSION = 1;
+    public static final int MAX_FRAMES = 1 << 20;
+    public static final int MAX_PAYLOAD = 1 << 16;
+
+    public static final class Frame {
+        public final long replica;
+        public final int seq;
+        public final byte[] payload;
+
+        public Frame(long replica, int seq, byte[] payload) {
+            this.replica = replica;
+            this.seq = seq;
+            this.payload = payload;
+        }
+    }
+
+    public final long sender;
+    public final VersionVector versions;
+    public final List<Frame> frames;
+
+    public SyncBatch(long sender, VersionVector versions, List<Frame> frames) {
+        this.sender = sender;
+        this.versions = versions;
+        this.frames = frames;
+    }
+
+    public void writeTo(OutputStream stream) throws IOException {
+        DataOutputStream out = new DataOutputStream(stream);
+        out.writeShort(VERSION);
+        out.writeLong(sender);
+        versions.writeTo(out);
+        out.writeInt(frames.size());
+        for (Frame f : frames) {
+            out.writeLong(f.replica);
+            out.writeInt(f.seq);
+            out.writeInt(f.payload.length);
+            out.write(f.payload);
+        }
+        out.flush();
+    }
+
+    public static SyncBatch readFrom(InputStream stream) throws IOException {
+        DataInputStream in = new DataInputStream(stream);
+        short version = in.readShort();
+        if (version != VERSION) {
+            throw new IOException("unsupported sync version " + version);
+        }
+        long sender = in.readLong();
+        VersionVector versions = VersionVector.readFrom(in);
+        int count = in.readInt();
+        if (count < 0 || count > MAX_FRAMES) {
+            throw new IOException("bad frame count " + count);
+        }
+        ArrayList<Frame> frames = new ArrayList<>(Math.min(count, 1024));
+        for (int i = 0; i < count; ++i) {
+            long replica = in.readLong();
+            int seq = in.readInt();
+            int length = in.readInt();
+            if (length < 0 || length > MAX_PAYLOAD) {
+                throw new IOException("bad payload length " + length);
+            }
+            byte[] payload = new byte[length];
+            in.readFully(payload);
+            frames.add(new Frame(replica, seq, payload));
+        }
+        return new SyncBatch(sender, versions, frames);
+    }
+}
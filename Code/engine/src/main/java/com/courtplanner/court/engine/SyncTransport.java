@@ -0,0 +1,8 @@
+package com.courtplanner.court.engine;
+
+import java.io.IOException;
+
+/** Carries one {@link SyncBatch} to the sync server and returns its answer. */
+public interface SyncTransport {
+    SyncBatch exchange(SyncBatch request) throws IOException;
+}
@@ -0,0 +1,205 @@
+package com.courtplanner.court.engine;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+/**
+ * Splits drawn players into rating-balanced 2 vs 2 courts. The cost of a court is the squared
+ * rating difference of its better team split plus the squared distance of its total from the
+ * average court, so both teams on a court are even and strong players are spread over courts.
+ *
+ * <p>Starts from a snake draft by rating and improves it by swapping players between courts.
+ * Each step pairs every court with another one (round-robin, so the pairs are disjoint) and
+ * improves the pairs in parallel on a {@link ForkJoinPool}; it stops when a whole round-robin
+ * cycle finds nothing better or the time budget is used up.
+ */
+public class TeamBalancer {
+
+    public static final long DEFAULT_BUDGET_NANOS = 20_000_000L;
+
+    private static final int PER_COURT = DrawEngine.PLAYERS_PER_COURT;
+    // Pairs of courts below this are improved on the calling thread
+    private static final int MIN_PARALLEL_PAIRS = 4;
+
+    private final ForkJoinPool pool;
+    private double spreadWeight = 1.0;
+
+    public TeamBalancer() {
+        this(ForkJoinPool.commonPool());
+    }
+
+    public TeamBalancer(ForkJoinPool pool) {
+        this.pool = pool;
+    }
+
+    /** Weight of spreading strength over courts against even teams on each court (default 1). */
+    public void setSpreadWeight(double spreadWeight) {
+        this.spreadWeight = spreadWeight;
+    }
+
+    /**
+     * Returns indices into {@code ratings} in draw layout: four per court, slots 0/1 against 2/3.
+     * Only full courts are balanced; the remaining (fewer than four) players come last.
+     */
+    public int[] balance(final double[] ratings, long budgetNanos) {
+        long deadline = System.nanoTime() + budgetNanos;
+        int n = ratings.length;
+        final int courts = n / PER_COURT;
+        Integer[] byRating = new Integer[n];
+        for (int i = 0; i < n; ++i) {
+            byRating[i] = i;
+        }
+        Arrays.sort(byRating, new Comparator<Integer>() {
+            @Override
+            public int compare(Integer a, Integer b) {
+                return Double.compare(ratings[b], ratings[a]);
+            }
+        });
+
+        // Snake draft: court 0 gets the strongest and the (2 * courts)th strongest, and so on
+        final int[] layout = new int[n];
+        double total = 0;
+        for (int i = 0; i < courts * PER_COURT; ++i) {
+            int pick = i / courts;
+            int position = i % courts;
+            int court = pick % 2 == 0 ? position : courts - 1 - position;
+            layout[court * PER_COURT + pick] = byRating[i];
+            total += ratings[byRating[i]];
+        }
+        for (int i = courts * PER_COURT; i < n; ++i) {
+            layout[i] = byRating[i];
+        }
+        if (courts == 0) {
+            return layout;
+        }
+        final double target = total / courts;
+
+        // Circle method: with an even number of slots every round pairs each court exactly once
+        int slots = courts + (courts % 2);
+        int quietRounds = 0;
+        for (int round = 0; courts > 1 && quietRounds < slots - 1 && System.nanoTime() < deadline; ++round) {
+            final ArrayList<int[]> pairs = new ArrayList<>(slots / 2);
+            for (int i = 0; i < slots / 2; ++i) {
+                int a = circleSlot(i, round, slots);
+                int b = circleSlot(slots - 1 - i, round, slots);
+                if (a < courts && b < courts) {
+                    pairs.add(new int[]{a, b});
+                }
+            }
+            boolean improved = improvePairs(pairs, layout, ratings, target);
+            quietRounds = improved ? 0 : quietRounds + 1;
+        }
+
+        for (int court = 0; court < courts; ++court) {
+            arrangeTeams(layout, court * PER_COURT, ratings);
+        }
+        return layout;
+    }
+
+    // Slot 0 stays fixed, the others rotate by one every round
+    private static int circleSlot(int position, int round, int slots) {
+        if (position == 0) {
+            return 0;
+        }
+        return 1 + (position - 1 + round) % (slots - 1);
+    }
+
+    private boolean improvePairs(final List<int[]> pairs, final int[] layout, final double[] ratings,
+                                 final double target) {
+        int tasks = Math.min(pool.getParallelism(), pairs.size() / MIN_PARALLEL_PAIRS);
+        if (tasks <= 1) {
+            return improveRange(pairs, 0, pairs.size(), layout, ratings, target);
+        }
+        List<ForkJoinTask<Boolean>> running = new ArrayList<>(tasks);
+        for (int t = 0; t < tasks; ++t) {
+            final int from = pairs.size() * t / tasks;
+            final int to = pairs.size() * (t + 1) / tasks;
+            running.add(pool.submit(new Callable<Boolean>() {
+                @Override
+                public Boolean call() {
+                    return improveRange(pairs, from, to, layout, ratings, target);
+                }
+            }));
+        }
+        boolean improved = false;
+        for (ForkJoinTask<Boolean> task : running) {
+            improved |= task.join();
+        }
+        return improved;
+    }
+
+    // The pairs are disjoint, so ranges never touch the same courts
+    private boolean improveRange(List<int[]> pairs, int from, int to, int[] layout, double[] ratings, double target) {
+        boolean improved = false;
+        for (int p = from; p < to; ++p) {
+            improved |= improvePair(pairs.get(p)[0] * PER_COURT, pairs.get(p)[1] * PER_COURT, layout, ratings, target);
+        }
+        return improved;
+    }
+
+    // Applies the best swap between the two courts until no swap lowers their combined cost
+    private boolean improvePair(int a, int b, int[] layout, double[] ratings, double target) {
+        boolean improved = false;
+        while (true) {
+            double best = cost(layout, a, ratings, target) + cost(layout, b, ratings, target);
+            int bestI = -1;
+            int bestJ = -1;
+            for (int i = 0; i < PER_COURT; ++i) {
+                for (int j = 0; j < PER_COURT; ++j) {
+                    swap(layout, a + i, b + j);
+                    double swapped = cost(layout, a, ratings, target) + cost(layout, b, ratings, target);
+                    swap(layout, a + i, b + j);
+                    // Relative margin so rounding noise cannot make two layouts swap forever
+                    if (swapped < best - 1e-9 * (1 + best)) {
+                        best = swapped;
+                        bestI = i;
+                        bestJ = j;
+                    }
+                }
+            }
+            if (bestI < 0) {
+                return improved;
+            }
+            swap(layout, a + bestI, b + bestJ);
+            improved = true;
+        }
+    }
+
+    private double cost(int[] layout, int base, double[] ratings, double target) {
+        double r0 = ratings[layout[base]];
+        double r1 = ratings[layout[base + 1]];
+        double r2 = ratings[layout[base + 2]];
+        double r3 = ratings[layout[base + 3]];
+        double split = Math.min(Math.abs(r0 + r1 - r2 - r3),
+                Math.min(Math.abs(r0 + r2 - r1 - r3), Math.abs(r0 + r3 - r1 - r2)));
+        double spread = r0 + r1 + r2 + r3 - target;
+        return split * split + spreadWeight * spread * spread;
+    }
+
+    // Orders one court's slots so that 0/1 against 2/3 is its most even split
+    private static void arrangeTeams(int[] layout, int base, double[] ratings) {
+        double r0 = ratings[layout[base]];
+        double r1 = ratings[layout[base + 1]];
+        double r2 = ratings[layout[base + 2]];
+        double r3 = ratings[layout[base + 3]];
+        double keep = Math.abs(r0 + r1 - r2 - r3);
+        double with2 = Math.abs(r0 + r2 - r1 - r3);
+        double with3 = Math.abs(r0 + r3 - r1 - r2);
+        if (with2 < keep && with2 <= with3) {
+            swap(layout, base + 1, base + 2);
+        } else if (with3 < keep && with3 < with2) {
+            swap(layout, base + 1, base + 3);
+        }
+    }
+
+    private static void swap(int[] layout, int i, int j) {
+        int t = layout[i];
+        layout[i] = layout[j];
+        layout[j] = t;
+    }
+}
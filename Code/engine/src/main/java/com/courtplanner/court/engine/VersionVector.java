@@ -0,0 +1,71 @@
+package com.courtplanner.court.engine;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Highest operation sequence number seen per replica. Replicas number their operations 1, 2, 3...
+ * without gaps, so one number per replica describes everything seen from it.
+ */
+public class VersionVector {
+
+    private final HashMap<Long, Integer> seqs = new HashMap<>();
+
+    public int get(long replica) {
+        Integer seq = seqs.get(replica);
+        return seq == null ? 0 : seq;
+    }
+
+    public void set(long replica, int seq) {
+        seqs.put(replica, seq);
+    }
+
+    public int size() {
+        return seqs.size();
+    }
+
+    /** Replica and sequence number pairs, read-only. */
+    public Set<Map.Entry<Long, Integer>> entries() {
+        return Collections.unmodifiableMap(seqs).entrySet();
+    }
+
+    public void putAll(VersionVector other) {
+        seqs.putAll(other.seqs);
+    }
+
+    public VersionVector copy() {
+        VersionVector copy = new VersionVector();
+        copy.seqs.putAll(seqs);
+        return copy;
+    }
+
+    public void writeTo(DataOutput out) throws IOException {
+        out.writeInt(seqs.size());
+        for (Map.Entry<Long, Integer> e : seqs.entrySet()) {
+            out.writeLong(e.getKey());
+            out.writeInt(e.getValue());
+        }
+    }
+
+    public static VersionVector readFrom(DataInput in) throws IOException {
+        int n = in.readInt();
+        if (n < 0) {
+            throw new IOException("negative version vector size " + n);
+        }
+        VersionVector vv = new VersionVector();
+        for (int i = 0; i < n; ++i) {
+            vv.seqs.put(in.readLong(), in.readInt());
+        }
+        return vv;
+    }
+
+    @Override
+    public String toString() {
+        return seqs.toString();
+    }
+}
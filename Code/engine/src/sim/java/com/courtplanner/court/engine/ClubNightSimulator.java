@@ -0,0 +1,270 @@
+package com.courtplanner.court.engine;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Replays synthetic club nights through {@link ClubNight} with no app around it: players arrive,
+ * leave, toggle their attendance and get removed between draws. Nights run on all cores; the
+ * harness prints latency percentiles per operation and fairness per draw mode.
+ *
+ * <p>Fails (exit code 1) when two players who attended a whole rotation or fair night ended more
+ * than one game apart, so it can gate changes to the draw paths.
+ *
+ * <p>Arguments: nights (20000), threads (all cores), seed (1).
+ */
+public class ClubNightSimulator {
+
+    static final int ADD = 0;
+    static final int TOGGLE = 1;
+    static final int REMOVE = 2;
+    static final int DRAW = 3;
+    static final String[] OPERATIONS = {"add", "toggle", "remove", "draw"};
+
+    // Short budgets: a simulated night should take well under a millisecond
+    static final long OPTIMIZER_BUDGET_NANOS = 20_000L;
+    static final long BALANCE_BUDGET_NANOS = 20_000L;
+
+    public static void main(String[] args) throws Exception {
+        final int nights = args.length > 0 ? Integer.parseInt(args[0]) : 20000;
+        int threads = args.length > 1 ? Integer.parseInt(args[1]) : Runtime.getRuntime().availableProcessors();
+        final long seed = args.length > 2 ? Long.parseLong(args[2]) : 1;
+
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        List<Callable<Results>> tasks = new ArrayList<>();
+        for (int t = 0; t < threads; ++t) {
+            final int first = nights * t / threads;
+            final int last = nights * (t + 1) / threads;
+            tasks.add(new Callable<Results>() {
+                @Override
+                public Results call() {
+                    Results results = new Results();
+                    for (int night = first; night < last; ++night) {
+                        runNight(new Random(seed * 1_000_003L + night), night, results);
+                    }
+                    return results;
+                }
+            });
+        }
+
+        long start = System.nanoTime();
+        Results total = new Results();
+        for (Future<Results> f : pool.invokeAll(tasks)) {
+            total.merge(f.get());
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+        pool.shutdown();
+
+        long operations = 0;
+        for (int op = 0; op < OPERATIONS.length; ++op) {
+            operations += total.latencies[op].size;
+        }
+        System.out.printf("%d nights on %d threads: %.0f nights/s, %.0f operations/s%n",
+                nights, threads, nights / seconds, operations / seconds);
+        for (int op = 0; op < OPERATIONS.length; ++op) {
+            long[] sorted = total.latencies[op].sorted();
+            if (sorted.length == 0) {
+                continue;
+            }
+            System.out.printf("%-7s n=%-9d p50 %7.1f us  p99 %7.1f us  p99.9 %7.1f us  max %8.1f us%n",
+                    OPERATIONS[op], sorted.length, percentile(sorted, 0.50), percentile(sorted, 0.99),
+                    percentile(sorted, 0.999), sorted[sorted.length - 1] / 1e3);
+        }
+        boolean failed = false;
+        for (ClubNight.DrawMode mode : ClubNight.DrawMode.values()) {
+            Fairness f = total.fairness[mode.ordinal()];
+            if (f.nights == 0) {
+                continue;
+            }
+            System.out.printf("%-8s nights=%-6d Jain index %.4f  whole-night spread mean %.2f max %d"
+                            + "  longest sit-out %d draws%n",
+                    mode, f.nights, f.jainSum / f.nights, (double) f.spreadSum / f.nights, f.maxSpread,
+                    f.longestSitOut);
+            if (mode != ClubNight.DrawMode.RANDOM && f.maxSpread > 1) {
+                failed = true;
+            }
+        }
+        if (failed) {
+            System.out.println("FAILED: players who attended a whole night ended more than one game apart");
+            System.exit(1);
+        }
+    }
+
+    static void runNight(Random random, int index, Results results) {
+        ClubNight.DrawMode mode = ClubNight.DrawMode.values()[index % ClubNight.DrawMode.values().length];
+        PlayerRegistry players = new PlayerRegistry();
+        ClubNight night = new ClubNight(players, players, new RotationQueue(), random);
+        night.setOptimizerBudgetNanos(OPTIMIZER_BUDGET_NANOS);
+        night.setBalanceBudgetNanos(BALANCE_BUDGET_NANOS);
+        boolean avoidRepeats = random.nextInt(4) == 0;
+        boolean balanceTeams = !avoidRepeats && random.nextInt(4) == 0;
+        int courts = 2 + random.nextInt(5);
+        int rounds = 10 + random.nextInt(11);
+        int nextId = 0;
+
+        // Per player: draws attended, games, current and longest sit-out streak, attended all draws
+        HashMap<String, int[]> stats = new HashMap<>();
+        int regulars = courts * DrawEngine.PLAYERS_PER_COURT + random.nextInt(12);
+        for (int i = 0; i < regulars; ++i) {
+            String name = "P" + nextId++;
+            timed(results, ADD, night, name);
+            timed(results, TOGGLE, night, name);
+            stats.put(name, new int[]{0, 0, 0, 0, 1});
+        }
+        ArrayList<String> present = new ArrayList<>(stats.keySet());
+        for (int round = 0; round < rounds; ++round) {
+            // Someone arrives late, someone leaves or comes back, now and then a name is deleted
+            if (random.nextInt(3) == 0) {
+                String name = "P" + nextId++;
+                timed(results, ADD, night, name);
+                timed(results, TOGGLE, night, name);
+                stats.put(name, new int[]{0, 0, 0, 0, 0});
+                present.add(name);
+            }
+            if (random.nextInt(3) == 0 && !present.isEmpty()) {
+                String name = present.get(random.nextInt(present.size()));
+                timed(results, TOGGLE, night, name);
+                stats.get(name)[4] = 0;
+                stats.get(name)[2] = 0;
+            }
+            if (random.nextInt(10) == 0 && !present.isEmpty()) {
+                String name = present.remove(random.nextInt(present.size()));
+                timed(results, REMOVE, night, name);
+                stats.remove(name);
+            }
+
+            long t0 = System.nanoTime();
+            List<String> drawn = night.draw(courts, mode, avoidRepeats, balanceTeams);
+            results.latencies[DRAW].add(System.nanoTime() - t0);
+
+            for (String name : drawn) {
+                stats.get(name)[1] += 1;
+            }
+            for (Player p : players.getSelectedPlayers()) {
+                int[] s = stats.get(p.name);
+                s[0] += 1;
+                if (p.lastDrawnRound == night.round() - 1) {
+                    s[2] = 0;
+                } else {
+                    s[2] += 1;
+                    s[3] = Math.max(s[3], s[2]);
+                }
+            }
+        }
+        results.fairness[mode.ordinal()].add(stats.values());
+    }
+
+    private static void timed(Results results, int op, ClubNight night, String name) {
+        long t0 = System.nanoTime();
+        if (op == ADD) {
+            night.add(name);
+        } else if (op == TOGGLE) {
+            night.toggleSelected(name);
+        } else {
+            night.remove(name);
+        }
+        results.latencies[op].add(System.nanoTime() - t0);
+    }
+
+    private static double percentile(long[] sorted, double p) {
+        int index = (int) Math.min(sorted.length - 1, Math.round(p * (sorted.length - 1)));
+        return sorted[index] / 1e3;
+    }
+
+    static final class Results {
+        final Samples[] latencies = new Samples[OPERATIONS.length];
+        final Fairness[] fairness = new Fairness[ClubNight.DrawMode.values().length];
+
+        Results() {
+            for (int op = 0; op < latencies.length; ++op) {
+                latencies[op] = new Samples();
+            }
+            for (int m = 0; m < fairness.length; ++m) {
+                fairness[m] = new Fairness();
+            }
+        }
+
+        void merge(Results other) {
+            for (int op = 0; op < latencies.length; ++op) {
+                latencies[op].addAll(other.latencies[op]);
+            }
+            for (int m = 0; m < fairness.length; ++m) {
+                fairness[m].merge(other.fairness[m]);
+            }
+        }
+    }
+
+    static final class Samples {
+        long[] values = new long[1024];
+        int size;
+
+        void add(long value) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size++] = value;
+        }
+
+        void addAll(Samples other) {
+            for (int i = 0; i < other.size; ++i) {
+                add(other.values[i]);
+            }
+        }
+
+        long[] sorted() {
+            long[] copy = Arrays.copyOf(values, size);
+            Arrays.sort(copy);
+            return copy;
+        }
+    }
+
+    static final class Fairness {
+        int nights;
+        double jainSum;
+        long spreadSum;
+        int maxSpread;
+        int longestSitOut;
+
+        // Jain's index over games per attended draw: 1 when everyone played the same share
+        void add(Iterable<int[]> players) {
+            double sum = 0;
+            double squares = 0;
+            int n = 0;
+            int fewest = Integer.MAX_VALUE;
+            int most = 0;
+            for (int[] s : players) {
+                if (s[0] > 0) {
+                    double share = (double) s[1] / s[0];
+                    sum += share;
+                    squares += share * share;
+                    n += 1;
+                }
+                if (s[4] == 1) {
+                    fewest = Math.min(fewest, s[1]);
+                    most = Math.max(most, s[1]);
+                }
+                longestSitOut = Math.max(longestSitOut, s[3]);
+            }
+            int spread = fewest == Integer.MAX_VALUE ? 0 : most - fewest;
+            nights += 1;
+            jainSum += squares == 0 ? 1 : sum * sum / (n * squares);
+            spreadSum += spread;
+            maxSpread = Math.max(maxSpread, spread);
+        }
+
+        void merge(Fairness other) {
+            nights += other.nights;
+            jainSum += other.jainSum;
+            spreadSum += other.spreadSum;
+            maxSpread = Math.max(maxSpread, other.maxSpread);
+            longestSitOut = Math.max(longestSitOut, other.longestSitOut);
+        }
+    }
+}
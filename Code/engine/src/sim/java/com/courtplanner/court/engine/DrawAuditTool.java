@@ -0,0 +1,64 @@
+package com.courtplanner.court.engine;
+
+import java.io.File;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * Checks a draw audit log taken from a device: every round (or the one asked for) is drawn again
+ * from its seed and compared with what was recorded. Prints the courts, who else could have been
+ * drawn with their play counts, and how long the re-derivation took.
+ *
+ * <p>Fails (exit code 1) when any round does not match its seed.
+ *
+ * <p>Arguments: audit file, index of one round (all rounds).
+ */
+public class DrawAuditTool {
+
+    public static void main(String[] args) throws Exception {
+        if (args.length == 0) {
+            System.err.println("usage: DrawAuditTool <draws.audit> [index]");
+            System.exit(2);
+        }
+        DrawAudit audit = DrawAudit.open(new File(args[0]));
+        int first = args.length > 1 ? Integer.parseInt(args[1]) : 0;
+        int last = args.length > 1 ? first + 1 : audit.size();
+        SimpleDateFormat format = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss");
+        int mismatches = 0;
+        for (int i = first; i < last; ++i) {
+            DrawAudit.Entry entry = audit.read(i);
+            // Once to warm up, so the time shown is the derivation and not class loading
+            DrawAudit.verify(entry);
+            long start = System.nanoTime();
+            boolean ok = DrawAudit.verify(entry);
+            long micros = (System.nanoTime() - start) / 1000;
+            if (!ok) {
+                mismatches += 1;
+            }
+            System.out.printf("#%d %s round %d %s seed %016x: %s in %d us%n", i,
+                    format.format(new Date(entry.timeMillis)), entry.round, entry.mode, entry.seed,
+                    ok ? "matches" : "DOES NOT MATCH", micros);
+            if (args.length > 1) {
+                print(entry);
+            }
+        }
+        audit.close();
+        System.out.printf("%d of %d rounds match their seed%n", last - first - mismatches, last - first);
+        if (mismatches > 0) {
+            System.exit(1);
+        }
+    }
+
+    private static void print(DrawAudit.Entry entry) {
+        List<String> drawn = entry.drawn();
+        for (int base = 0; base < drawn.size(); base += DrawEngine.PLAYERS_PER_COURT) {
+            List<String> court = drawn.subList(base, Math.min(drawn.size(), base + DrawEngine.PLAYERS_PER_COURT));
+            System.out.printf("  court %d: %s%n", base / DrawEngine.PLAYERS_PER_COURT + 1, court);
+        }
+        System.out.println("  candidates (games, last round):");
+        for (int i = 0; i < entry.candidateCount(); ++i) {
+            System.out.printf("    %s (%d, %d)%n", entry.candidate(i), entry.playCount(i), entry.lastRound(i));
+        }
+    }
+}
@@ -0,0 +1,93 @@
+package com.courtplanner.court.engine;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class AttendancePresetsTest {
+
+    private static PlayerRegistry roster(String... names) {
+        PlayerRegistry registry = new PlayerRegistry();
+        for (String name : names) {
+            registry.add(name);
+        }
+        return registry;
+    }
+
+    @Test
+    public void apply_combinesPresetWithSelection() {
+        PlayerRegistry registry = roster("ANNA", "BEN", "CARL", "DORA", "EMIL");
+        AttendancePresets presets = new AttendancePresets(registry);
+        registry.select("ANNA", true);
+        registry.select("BEN", true);
+        presets.saveSelection("TUESDAY");
+        registry.select("ANNA", false);
+        registry.select("BEN", false);
+        registry.select("CARL", true);
+        registry.select("DORA", true);
+        presets.saveSelection("JUNIORS");
+
+        BitSet flipped = presets.apply("TUESDAY", PlayerRegistry.SelectionOp.UNION);
+        assertEquals(2, flipped.cardinality());
+        assertEquals(4, registry.getNumberSelected());
+        assertEquals(4, registry.snapshot().getNumberSelected());
+
+        presets.apply("JUNIORS", PlayerRegistry.SelectionOp.INTERSECT);
+        assertEquals(Arrays.asList("CARL", "DORA"), names(registry));
+
+        presets.apply("TUESDAY", PlayerRegistry.SelectionOp.REPLACE);
+        assertEquals(Arrays.asList("ANNA", "BEN"), names(registry));
+
+        presets.apply("TUESDAY", PlayerRegistry.SelectionOp.SUBTRACT);
+        assertEquals(0, registry.getNumberSelected());
+        assertTrue(presets.apply("TUESDAY", PlayerRegistry.SelectionOp.SUBTRACT).isEmpty());
+        assertNull(presets.apply("NOBODY", PlayerRegistry.SelectionOp.UNION));
+        assertFalse(registry.get("ANNA").selected);
+    }
+
+    @Test
+    public void presets_followRemovalsAndSurviveReordering() throws Exception {
+        PlayerRegistry registry = roster("ANNA", "BEN", "CARL", "DORA", "EMIL");
+        AttendancePresets presets = new AttendancePresets(registry);
+        BitSet group = new BitSet();
+        group.set(registry.ordinalOf("BEN"));
+        group.set(registry.ordinalOf("EMIL"));
+        presets.put("GROUP", group);
+
+        // EMIL moves into BEN's slot, then the last player into ANNA's
+        registry.remove("BEN");
+        registry.remove("ANNA");
+        registry.add("FIONA");
+        assertEquals(1, presets.size("GROUP"));
+        presets.apply("GROUP", PlayerRegistry.SelectionOp.REPLACE);
+        assertEquals(Arrays.asList("EMIL"), names(registry));
+
+        registry.select("FIONA", true);
+        presets.saveSelection("GROUP");
+        ByteArrayOutputStream saved = new ByteArrayOutputStream();
+        presets.write(saved);
+
+        // Next start the roster loads in another order and DORA is gone
+        PlayerRegistry reloaded = roster("FIONA", "CARL", "EMIL");
+        AttendancePresets restored = new AttendancePresets(reloaded);
+        restored.read(new ByteArrayInputStream(saved.toByteArray()));
+        assertEquals(Arrays.asList("GROUP"), restored.names());
+        restored.apply("GROUP", PlayerRegistry.SelectionOp.UNION);
+        assertEquals(Arrays.asList("FIONA", "EMIL"), names(reloaded));
+    }
+
+    private static List<String> names(PlayerRegistry registry) {
+        ArrayList<String> names = new ArrayList<>();
+        for (Player player : registry.getSelectedPlayers()) {
+            names.add(player.name);
+        }
+        return names;
+    }
+}
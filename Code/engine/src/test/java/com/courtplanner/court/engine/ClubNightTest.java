@@ -0,0 +1,248 @@
+package com.courtplanner.court.engine;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class ClubNightTest {
+
+    private static ClubNight night(PlayerRegistry players, int attending) {
+        ClubNight night = new ClubNight(players, players, new RotationQueue(), new Random(1));
+        for (int i = 0; i < attending; ++i) {
+            night.add("P" + i);
+            night.toggleSelected("P" + i);
+        }
+        return night;
+    }
+
+    @Test
+    public void draw_rotationRecordsCourtsAndWaitingLine() {
+        PlayerRegistry players = new PlayerRegistry();
+        ClubNight night = night(players, 10);
+        final List<String> courts = new ArrayList<>();
+        night.setListener(new ClubNight.Listener() {
+            @Override
+            public void onCourtPlayed(int round, int court, String[] names) {
+                courts.add(round + "/" + court + Arrays.toString(names));
+            }
+
+            @Override
+            public void onRoundDrawn(DrawAudit.Entry entry) {
+            }
+        });
+
+        List<String> first = night.draw(2, ClubNight.DrawMode.ROTATION, false, false);
+        assertEquals(new HashSet<>(Arrays.asList("P0", "P1", "P2", "P3", "P4", "P5", "P6", "P7")),
+                new HashSet<>(first));
+        assertEquals(Arrays.asList("P8", "P9"), night.waiting());
+        assertEquals(Arrays.asList("0/0" + first.subList(0, 4), "0/1" + first.subList(4, 8)), courts);
+        assertEquals(1, players.get("P0").numberSelected);
+        assertEquals(0, players.get("P8").numberSelected);
+
+        List<String> second = night.draw(2, ClubNight.DrawMode.ROTATION, false, false);
+        assertTrue(second.containsAll(Arrays.asList("P8", "P9")));
+        assertEquals(2, night.round());
+    }
+
+    @Test
+    public void draw_rotationSeatsTheLineAcrossCourts() {
+        PlayerRegistry players = new PlayerRegistry();
+        ClubNight night = night(players, 9);
+        int together = 0;
+        int partners = 0;
+        HashSet<List<String>> layouts = new HashSet<>();
+        for (int round = 0; round < 12; ++round) {
+            List<String> layout = night.draw(2, ClubNight.DrawMode.ROTATION, false, false);
+            layouts.add(layout);
+            int a = layout.indexOf("P0");
+            int b = layout.indexOf("P1");
+            if (a >= 0 && b >= 0) {
+                together += 1;
+                if (a / 2 == b / 2) {
+                    partners += 1;
+                }
+            }
+        }
+        // Runs of the line would pair P0 with P1 whenever both play
+        assertTrue(together > 0);
+        assertTrue(partners < together);
+        assertTrue(layouts.size() > 1);
+    }
+
+    @Test
+    public void removeAndDeselect_leaveTheLine() {
+        PlayerRegistry players = new PlayerRegistry();
+        ClubNight night = night(players, 6);
+        assertTrue(night.remove("P0"));
+        assertFalse(night.toggleSelected("P1"));
+        night.setSelected("P2", true); // already attending
+        List<String> drawn = night.draw(1, ClubNight.DrawMode.ROTATION, false, false);
+        assertEquals(new HashSet<>(Arrays.asList("P2", "P3", "P4", "P5")), new HashSet<>(drawn));
+        assertFalse(players.contains("P0"));
+        assertTrue(night.waiting().isEmpty());
+    }
+
+    @Test
+    public void applyPreset_joinsAndLeavesTheLine() {
+        PlayerRegistry players = new PlayerRegistry();
+        ClubNight night = night(players, 4);
+        night.add("P4");
+        night.add("P5");
+        AttendancePresets presets = new AttendancePresets(players);
+        night.toggleSelected("P4");
+        night.toggleSelected("P5");
+        night.toggleSelected("P0");
+        night.toggleSelected("P1");
+        presets.saveSelection("LATE");
+        night.toggleSelected("P4");
+        night.toggleSelected("P5");
+        night.toggleSelected("P0");
+        night.toggleSelected("P1");
+
+        assertEquals(Arrays.asList("P0", "P1", "P4", "P5"),
+                night.applyPreset(presets, "LATE", PlayerRegistry.SelectionOp.REPLACE));
+        assertEquals(4, players.getNumberSelected());
+        List<String> drawn = night.draw(1, ClubNight.DrawMode.ROTATION, false, false);
+        assertEquals(new HashSet<>(Arrays.asList("P2", "P3", "P4", "P5")), new HashSet<>(drawn));
+        assertNull(night.applyPreset(presets, "NOBODY", PlayerRegistry.SelectionOp.UNION));
+    }
+
+    @Test
+    public void draw_laysOutAroundConstraints() {
+        PlayerRegistry players = new PlayerRegistry();
+        ClubNight night = night(players, 12);
+        night.constraints().setKeyHolder("P11");
+        night.constraints().addPartners("P0", "P7");
+        night.constraints().addApart("P1", "P2");
+        List<String> layout = night.draw(3, ClubNight.DrawMode.RANDOM, true, false);
+        assertTrue(layout.indexOf("P11") < 4);
+        assertEquals(layout.indexOf("P0") / 2, layout.indexOf("P7") / 2);
+        assertNotEquals(layout.indexOf("P1") / 4, layout.indexOf("P2") / 4);
+        assertEquals(1, night.round());
+
+        night.constraints().addPartners("P1", "P2");
+        try {
+            night.draw(3, ClubNight.DrawMode.RANDOM, false, false);
+            fail("expected the draw to be infeasible");
+        } catch (ConstraintSolver.InfeasibleException e) {
+            assertTrue(e.isProven());
+        }
+        assertEquals(1, night.round());
+        assertEquals(1, players.get("P0").numberSelected);
+    }
+
+    @Test
+    public void draw_infeasibleRotationKeepsTheLine() {
+        PlayerRegistry players = new PlayerRegistry();
+        RotationQueue queue = new RotationQueue();
+        ClubNight night = new ClubNight(players, players, queue, new Random(1));
+        for (int i = 0; i < 10; ++i) {
+            night.add("P" + i);
+            night.toggleSelected("P" + i);
+        }
+        List<String> line = queue.waiting();
+        assertEquals(10, line.size());
+        // One court for the head of the line, which holds two players kept apart
+        night.constraints().addApart("P0", "P1");
+        try {
+            night.draw(1, ClubNight.DrawMode.ROTATION, false, false);
+            fail("expected the draw to be infeasible");
+        } catch (ConstraintSolver.InfeasibleException e) {
+            assertTrue(e.isProven());
+        }
+        assertEquals(line, queue.waiting());
+        assertEquals(0, night.round());
+        assertEquals(0, players.get("P0").numberSelected);
+    }
+
+    @Test
+    public void recordLiveCourt_keepsOneRoundUntilLivePlayEnds() {
+        PlayerRegistry players = new PlayerRegistry();
+        RotationQueue queue = new RotationQueue();
+        ClubNight night = new ClubNight(players, players, queue, new Random(1));
+        for (int i = 0; i < 8; ++i) {
+            night.add("P" + i);
+            night.toggleSelected("P" + i);
+        }
+        final List<Integer> rounds = new ArrayList<>();
+        night.setListener(new ClubNight.Listener() {
+            @Override
+            public void onCourtPlayed(int round, int court, String[] names) {
+                rounds.add(round);
+            }
+
+            @Override
+            public void onRoundDrawn(DrawAudit.Entry entry) {
+            }
+        });
+        night.recordLiveCourt(0, new String[]{"P0", "P1", "P2", "P3"});
+        night.recordLiveCourt(1, new String[]{"P4", "P5", "P6", "P7"});
+        night.recordLiveCourt(0, new String[]{"P0", "P1", "P2", null});
+        assertEquals(0, night.round());
+        assertEquals(Arrays.asList(0, 0, 0), rounds);
+        assertEquals(2, players.get("P0").numberSelected);
+        assertEquals(Arrays.asList("P3", "P4", "P5", "P6", "P7", "P0", "P1", "P2"), queue.waiting());
+
+        night.endLivePlay();
+        night.endLivePlay();
+        assertEquals(1, night.round());
+        night.draw(1, ClubNight.DrawMode.RANDOM, false, false);
+        assertEquals(2, night.round());
+    }
+
+    @Test
+    public void drawVenue_fillsSinglesDoublesAndTrainingCourts() {
+        PlayerRegistry players = new PlayerRegistry();
+        ClubNight night = night(players, 9);
+        night.setPreference("P2", CourtAllocator.Preference.SINGLES);
+        CourtAllocator.Court[] venue = {CourtAllocator.Court.doubles(), CourtAllocator.Court.singles(),
+                CourtAllocator.Court.training(2)};
+
+        // Eight places for nine players: the last in line sits out
+        List<String> layout = night.drawVenue(venue, ClubNight.DrawMode.ROTATION, false, false);
+        assertFalse(layout.subList(0, 4).contains(""));
+        assertEquals("", layout.get(5));
+        assertEquals("", layout.get(7));
+        assertTrue(layout.get(4).equals("P2") || layout.get(6).equals("P2"));
+        assertEquals(Arrays.asList("", "", "", ""), layout.subList(8, 12));
+        assertEquals(2, night.training().size());
+        HashSet<String> placed = new HashSet<>(layout);
+        placed.remove("");
+        placed.addAll(night.training());
+        assertEquals(new HashSet<>(Arrays.asList("P0", "P1", "P2", "P3", "P4", "P5", "P6", "P7")), placed);
+        assertEquals(Arrays.asList("P8"), night.waiting());
+        assertEquals(1, players.get("P7").numberSelected);
+        assertEquals(0, players.get("P8").numberSelected);
+
+        List<String> next = night.drawVenue(venue, ClubNight.DrawMode.ROTATION, false, false);
+        assertTrue(next.contains("P8"));
+        assertEquals(2, night.round());
+    }
+
+    @Test
+    public void draw_fairAndAvoidRepeatsKeepsGamesEven() {
+        PlayerRegistry players = new PlayerRegistry();
+        ClubNight night = night(players, 22);
+        night.setOptimizerBudgetNanos(1_000_000L);
+        for (int round = 0; round < 11; ++round) {
+            List<String> drawn = night.draw(4, ClubNight.DrawMode.FAIR, true, false);
+            assertEquals(16, drawn.size());
+            assertEquals(16, new HashSet<>(drawn).size());
+        }
+        int min = Integer.MAX_VALUE;
+        int max = 0;
+        for (Player p : players.getPlayers()) {
+            min = Math.min(min, p.numberSelected);
+            max = Math.max(max, p.numberSelected);
+        }
+        // 11 rounds of 16 out of 22 is exactly 8 games each
+        assertEquals(8, min);
+        assertEquals(8, max);
+    }
+}
@@ -0,0 +1,109 @@
+package com.courtplanner.court.engine;
+
+import org.junit.Test;
+
+import java.util.BitSet;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.Assert.*;
+
+public class ConstraintSolverTest {
+
+    private static int[] identity(int n) {
+        int[] order = new int[n];
+        for (int i = 0; i < n; ++i) {
+            order[i] = i;
+        }
+        return order;
+    }
+
+    private static BitSet courts(int from, int to) {
+        BitSet courts = new BitSet();
+        courts.set(from, to);
+        return courts;
+    }
+
+    @Test
+    public void solve_meetsEveryConstraintOnFiftyCourts() {
+        int n = 199;
+        ConstraintSolver.Problem problem = new ConstraintSolver.Problem(n);
+        // 30 couples, 40 beginners on the last 12 courts who must not share a court in pairs,
+        // and a key holder on the first court
+        for (int i = 0; i < 60; i += 2) {
+            problem.partners(i, i + 1);
+        }
+        for (int i = 100; i < 140; ++i) {
+            problem.allow(i, courts(38, 50));
+        }
+        for (int i = 100; i < 140; i += 2) {
+            problem.apart(i, i + 1);
+        }
+        for (int i = 0; i < 60; i += 3) {
+            problem.apart(i, 60 + i);
+        }
+        problem.allow(150, courts(0, 1));
+        assertEquals(50, problem.courts());
+        assertFalse(problem.isSatisfiedBy(identity(n)));
+
+        ConstraintSolver solver = new ConstraintSolver(ForkJoinPool.commonPool(), new Random(3));
+        int[] order = solver.solve(problem, identity(n), 5_000_000_000L);
+        assertTrue(problem.isSatisfiedBy(order));
+        BitSet seen = new BitSet();
+        for (int player : order) {
+            seen.set(player);
+        }
+        assertEquals(n, seen.cardinality());
+        assertEquals(n, order.length);
+    }
+
+    @Test
+    public void solve_keepsLayoutThatAlreadyFits() {
+        ConstraintSolver.Problem problem = new ConstraintSolver.Problem(8);
+        problem.partners(4, 5);
+        problem.apart(0, 7);
+        int[] order = identity(8);
+        assertArrayEquals(order, new ConstraintSolver().solve(problem, order, 1_000_000_000L));
+
+        // The key holder has to move to the first court
+        problem.allow(6, courts(0, 1));
+        int[] moved = new ConstraintSolver().solve(problem, order, 1_000_000_000L);
+        assertTrue(problem.isSatisfiedBy(moved));
+    }
+
+    @Test
+    public void solve_reportsImpossibleConstraints() {
+        ConstraintSolver solver = new ConstraintSolver(ForkJoinPool.commonPool(), new Random(5));
+
+        // 12 beginners limited to two courts
+        ConstraintSolver.Problem crowded = new ConstraintSolver.Problem(40);
+        for (int i = 0; i < 12; ++i) {
+            crowded.allow(i, courts(8, 10));
+        }
+        assertProven(solver, crowded);
+
+        // Partners who must also be kept apart
+        ConstraintSolver.Problem contradictory = new ConstraintSolver.Problem(8);
+        contradictory.partners(1, 2);
+        contradictory.apart(2, 1);
+        assertProven(solver, contradictory);
+
+        // Five players who must all be apart on four courts: only the search can tell
+        ConstraintSolver.Problem pigeons = new ConstraintSolver.Problem(16);
+        for (int a = 0; a < 5; ++a) {
+            for (int b = a + 1; b < 5; ++b) {
+                pigeons.apart(a, b);
+            }
+        }
+        assertProven(solver, pigeons);
+    }
+
+    private static void assertProven(ConstraintSolver solver, ConstraintSolver.Problem problem) {
+        try {
+            solver.solve(problem, identity(problem.players()), 10_000_000_000L);
+            fail("expected the constraints to be infeasible");
+        } catch (ConstraintSolver.InfeasibleException e) {
+            assertTrue(e.getMessage(), e.isProven());
+        }
+    }
+}
@@ -0,0 +1,91 @@
+package com.courtplanner.court.engine;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+
+import static org.junit.Assert.*;
+
+public class CourtAllocatorTest {
+
+    private static final CourtAllocator.Court D = CourtAllocator.Court.doubles();
+    private static final CourtAllocator.Court S = CourtAllocator.Court.singles();
+
+    private static CourtAllocator.Preference[] any(int n) {
+        CourtAllocator.Preference[] preferences = new CourtAllocator.Preference[n];
+        Arrays.fill(preferences, CourtAllocator.Preference.ANY);
+        return preferences;
+    }
+
+    @Test
+    public void allocate_seatsAsManyAsTheVenueTakes() {
+        CourtAllocator.Court[] venue = {D, D, S};
+        CourtAllocator.Allocation allocation = CourtAllocator.allocate(venue, any(11));
+        // 4 + 4 + 2; the odd one out has nowhere to play
+        assertEquals(10, allocation.playing());
+        assertEquals(-1, allocation.courtOf(10));
+        assertEquals(CourtAllocator.Format.SINGLES, allocation.played(2));
+        assertEquals(2, allocation.players(2));
+
+        CourtAllocator.Court[] withTraining = {D, D, S, CourtAllocator.Court.training(3)};
+        allocation = CourtAllocator.allocate(withTraining, any(11));
+        assertEquals(11, allocation.playing());
+        assertEquals(1, allocation.players(3));
+        assertEquals(CourtAllocator.Format.TRAINING, allocation.played(3));
+        assertEquals(3, allocation.courtOf(10));
+
+        // Six players on two doubles courts: one doubles game and singles on the other court
+        allocation = CourtAllocator.allocate(new CourtAllocator.Court[]{D, D}, any(6));
+        assertEquals(6, allocation.playing());
+        assertEquals(CourtAllocator.Format.DOUBLES, allocation.played(0));
+        assertEquals(CourtAllocator.Format.SINGLES, allocation.played(1));
+        assertEquals(14, CourtAllocator.seats(new CourtAllocator.Court[]{D, D, S, S, S}, 15));
+    }
+
+    @Test
+    public void allocate_honoursSinglesAndDoublesPreferences() {
+        CourtAllocator.Court[] venue = {D, D, S, S};
+        CourtAllocator.Preference[] preferences = any(8);
+        preferences[5] = CourtAllocator.Preference.SINGLES;
+        preferences[6] = CourtAllocator.Preference.SINGLES;
+        preferences[7] = CourtAllocator.Preference.SINGLES;
+        preferences[0] = CourtAllocator.Preference.DOUBLES;
+        CourtAllocator.Allocation allocation = CourtAllocator.allocate(venue, preferences);
+        assertEquals(8, allocation.playing());
+        // One doubles game and two singles games beat two doubles games or four singles games
+        assertEquals(CourtAllocator.Format.DOUBLES, allocation.played(0));
+        assertNull(allocation.played(1));
+        assertEquals(CourtAllocator.Format.SINGLES, allocation.played(2));
+        assertEquals(CourtAllocator.Format.SINGLES, allocation.played(3));
+        for (int player = 5; player < 8; ++player) {
+            assertTrue(allocation.courtOf(player) >= 2);
+        }
+        assertEquals(0, allocation.courtOf(0));
+    }
+
+    @Test
+    public void allocate_packsLargeMixedVenues() {
+        CourtAllocator.Court[] venue = new CourtAllocator.Court[200];
+        int places = 0;
+        for (int c = 0; c < venue.length; ++c) {
+            venue[c] = c % 5 == 0 ? S : c % 17 == 0 ? CourtAllocator.Court.training(9) : D;
+            places += venue[c].places;
+        }
+        CourtAllocator.Preference[] preferences = any(places + 25);
+        for (int i = 0; i < preferences.length; i += 3) {
+            preferences[i] = CourtAllocator.Preference.SINGLES;
+        }
+        CourtAllocator.Allocation allocation = CourtAllocator.allocate(venue, preferences);
+        assertEquals(places, allocation.playing());
+        int seated = 0;
+        for (int c = 0; c < venue.length; ++c) {
+            assertTrue(allocation.players(c) <= venue[c].places);
+            for (int i = 0; i < allocation.players(c); ++i) {
+                assertEquals(c, allocation.courtOf(allocation.player(c, i)));
+            }
+            seated += allocation.players(c);
+        }
+        assertEquals(places, seated);
+        assertEquals(-1, allocation.courtOf(places));
+    }
+}
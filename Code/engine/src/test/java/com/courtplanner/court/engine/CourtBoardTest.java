@@ -0,0 +1,103 @@
+package com.courtplanner.court.engine;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class CourtBoardTest {
+
+    // Records what was painted; text widths are 60 per character at the reference size
+    private static final class Recorder implements CourtBoard.Painter, CourtBoard.TextMeasure {
+        final List<Integer> courts = new ArrayList<>();
+        final List<String> texts = new ArrayList<>();
+        int clears;
+        int measured;
+
+        @Override
+        public float width(String text) {
+            measured += 1;
+            return 60f * text.length();
+        }
+
+        @Override
+        public void clear() {
+            clears += 1;
+        }
+
+        @Override
+        public void court(int court, float left, float top, float right, float bottom, boolean selected) {
+            courts.add(court);
+            assertTrue(right > left && bottom > top);
+        }
+
+        @Override
+        public void text(String text, float x, float y, float size) {
+            texts.add(text);
+            assertTrue(size > 0);
+        }
+
+        void reset() {
+            courts.clear();
+            texts.clear();
+            measured = 0;
+        }
+    }
+
+    private static List<String> round(int courts, String prefix) {
+        List<String> drawn = new ArrayList<>();
+        for (int i = 0; i < courts * 4; ++i) {
+            drawn.add(prefix + " " + i);
+        }
+        return drawn;
+    }
+
+    @Test
+    public void paint_onlyRepaintsCourtsThatChanged() {
+        Recorder recorder = new Recorder();
+        CourtBoard board = new CourtBoard(recorder);
+        board.setSize(1920, 1080);
+        List<String> drawn = round(100, "PLAYER");
+        assertTrue(board.setCourts(drawn, 100));
+        assertEquals(100, board.paint(recorder));
+        assertEquals(1, recorder.clears);
+        assertEquals(800, recorder.texts.size());
+
+        recorder.reset();
+        assertFalse(board.setCourts(new ArrayList<>(drawn), 100));
+        assertEquals(0, board.paint(recorder));
+
+        drawn.set(4 * 37 + 2, "NEW NAME");
+        drawn.set(4 * 80, "");
+        assertTrue(board.setCourts(drawn, 100));
+        board.setSelected(5);
+        assertEquals(3, board.paint(recorder));
+        assertEquals(Arrays.asList(5, 37, 80), recorder.courts);
+        // Only the two changed slots were laid out again
+        assertEquals(2, recorder.measured);
+        assertEquals(1, recorder.clears);
+    }
+
+    @Test
+    public void layout_fillsTheScreenAndFindsTappedCourts() {
+        Recorder recorder = new Recorder();
+        CourtBoard board = new CourtBoard(recorder);
+        board.setSize(1920, 1080);
+        board.setCourts(round(30, "P"), 30);
+        // 8 x 4 courts of 216 x 270, centred with 96 to spare on either side
+        assertEquals(8, board.columns());
+        assertEquals(0, board.courtAt(200, 100));
+        assertEquals(17, board.courtAt(400, 540));
+        assertEquals(-1, board.courtAt(5, 5));
+        assertEquals(30, board.paint(recorder));
+
+        board.setCourts(round(2, "P"), 0);
+        assertEquals(2, board.courts());
+        recorder.reset();
+        assertEquals(2, board.paint(recorder));
+        assertEquals(2, recorder.clears);
+    }
+}
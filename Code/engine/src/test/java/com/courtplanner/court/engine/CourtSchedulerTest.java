@@ -0,0 +1,144 @@
+package com.courtplanner.court.engine;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.Assert.*;
+
+public class CourtSchedulerTest {
+
+    private static final long MINUTE = 60 * 1000L;
+
+    @Test
+    public void courtFinished_longestWaitingPlayersGoNext() throws InterruptedException {
+        final List<String> assigned = new ArrayList<>();
+        CourtScheduler scheduler = new CourtScheduler(new CourtScheduler.Listener() {
+            @Override
+            public void onCourtAssigned(int court, List<String> players) {
+                assigned.add(court + ":" + players);
+            }
+        });
+        for (int i = 0; i < 10; ++i) {
+            scheduler.playerArrived("P" + i, 0);
+        }
+        scheduler.setCourts(2, 0);
+        scheduler.courtFinished(1, 10 * MINUTE);
+        scheduler.courtFinished(5, 11 * MINUTE); // no such court
+        scheduler.courtFinished(0, 12 * MINUTE);
+        CourtScheduler.Snapshot snapshot = scheduler.snapshot();
+        scheduler.close();
+
+        assertEquals(Arrays.asList(
+                "0:[P0, P1, P2, P3]",
+                "1:[P4, P5, P6, P7]",
+                "1:[P8, P9, P4, P5]",
+                "0:[P6, P7, P0, P1]"), assigned);
+        assertEquals(Arrays.asList("P2", "P3"), snapshot.waiting);
+        assertEquals(14, snapshot.events);
+    }
+
+    @Test
+    public void playerArrived_lateComerStartsAtFewestGames() throws InterruptedException {
+        CourtScheduler scheduler = new CourtScheduler(null, 15 * MINUTE);
+        for (int i = 0; i < 5; ++i) {
+            scheduler.playerArrived("P" + i, 0);
+        }
+        scheduler.setCourts(1, 0);
+        scheduler.courtFinished(0, 10 * MINUTE);
+        scheduler.playerArrived("LATE", 11 * MINUTE);
+        scheduler.playerLeft("P1");
+        CourtScheduler.Snapshot snapshot = scheduler.snapshot();
+        scheduler.close();
+
+        // P1 left mid-game; LATE starts level with P4 and so waits ahead of P3
+        assertEquals(Arrays.asList("P4", "P0", "P2"), snapshot.courts.get(0));
+        assertEquals(Arrays.asList("LATE", "P3"), snapshot.waiting);
+    }
+
+    @Test
+    public void eventStorm_staysConsistent() throws InterruptedException {
+        final int courts = 20;
+        final int names = 200;
+        final int threads = 8;
+        final int eventsPerThread = 5000;
+        final AtomicLong assignments = new AtomicLong();
+        final AtomicLong badAssignments = new AtomicLong();
+        final CourtScheduler scheduler = new CourtScheduler(new CourtScheduler.Listener() {
+            @Override
+            public void onCourtAssigned(int court, List<String> players) {
+                // Runs on the scheduler thread, where a failed assert would go unnoticed
+                if (new HashSet<>(players).size() != 4) {
+                    badAssignments.incrementAndGet();
+                }
+                assignments.incrementAndGet();
+            }
+        });
+        scheduler.setCourts(courts, 0);
+        final AtomicLong clock = new AtomicLong();
+        final CountDownLatch start = new CountDownLatch(1);
+        List<Thread> posters = new ArrayList<>();
+        for (int t = 0; t < threads; ++t) {
+            final Random random = new Random(t);
+            Thread poster = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        start.await();
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                    for (int i = 0; i < eventsPerThread; ++i) {
+                        int kind = random.nextInt(10);
+                        String name = "P" + random.nextInt(names);
+                        if (kind < 6) {
+                            scheduler.courtFinished(random.nextInt(courts), clock.incrementAndGet());
+                        } else if (kind < 9) {
+                            scheduler.playerArrived(name, clock.incrementAndGet());
+                        } else {
+                            scheduler.playerLeft(name);
+                        }
+                    }
+                }
+            });
+            poster.start();
+            posters.add(poster);
+        }
+        start.countDown();
+        for (Thread poster : posters) {
+            poster.join();
+        }
+        CourtScheduler.Snapshot snapshot = scheduler.snapshot();
+        scheduler.close();
+
+        assertEquals(1 + threads * eventsPerThread, snapshot.events);
+        assertTrue(assignments.get() > courts);
+        assertEquals(0, badAssignments.get());
+        HashSet<String> seen = new HashSet<>();
+        int onCourts = 0;
+        for (List<String> court : snapshot.courts) {
+            if (court == null) {
+                continue;
+            }
+            assertTrue(court.size() <= 4);
+            onCourts += court.size();
+            for (String name : court) {
+                assertTrue(name + " is on two courts", seen.add(name));
+            }
+        }
+        for (String name : snapshot.waiting) {
+            assertTrue(name + " waits while playing", seen.add(name));
+        }
+        assertEquals(onCourts + snapshot.waiting.size(), seen.size());
+        // Courts only stay empty when fewer than four are waiting
+        if (snapshot.waiting.size() >= 4) {
+            assertFalse(snapshot.courts.contains(null));
+        }
+    }
+}
@@ -0,0 +1,123 @@
+package com.courtplanner.court.engine;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class DrawAuditTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    // Plays rounds in every mode and returns what the night reported
+    private static List<DrawAudit.Entry> playNight(long seed, final List<List<String>> layouts) {
+        PlayerRegistry players = new PlayerRegistry();
+        ClubNight night = new ClubNight(players, players, new RotationQueue(), new Random(seed));
+        for (int i = 0; i < 23; ++i) {
+            night.add("P" + i);
+            night.toggleSelected("P" + i);
+        }
+        final List<DrawAudit.Entry> entries = new ArrayList<>();
+        night.setListener(new ClubNight.Listener() {
+            @Override
+            public void onCourtPlayed(int round, int court, String[] names) {
+            }
+
+            @Override
+            public void onRoundDrawn(DrawAudit.Entry entry) {
+                entries.add(entry);
+            }
+        });
+        ClubNight.DrawMode[] modes = ClubNight.DrawMode.values();
+        for (int round = 0; round < 12; ++round) {
+            layouts.add(night.draw(4, modes[round % modes.length], false, false));
+        }
+        return entries;
+    }
+
+    @Test
+    public void draw_isReproducibleFromTheSeed() {
+        List<List<String>> layouts = new ArrayList<>();
+        List<DrawAudit.Entry> entries = playNight(3, layouts);
+        List<List<String>> again = new ArrayList<>();
+        playNight(3, again);
+
+        assertEquals(layouts, again);
+        assertEquals(12, entries.size());
+        HashSet<Long> seeds = new HashSet<>();
+        for (int round = 0; round < entries.size(); ++round) {
+            DrawAudit.Entry entry = entries.get(round);
+            assertEquals(round, entry.round);
+            assertEquals(layouts.get(round), entry.drawn());
+            assertTrue(DrawAudit.verify(entry));
+            seeds.add(entry.seed);
+        }
+        assertEquals(12, seeds.size());
+    }
+
+    @Test
+    public void verify_rejectsATamperedRound() {
+        DrawAudit.Entry entry = playNight(4, new ArrayList<List<String>>()).get(1);
+        assertEquals(ClubNight.DrawMode.FAIR, entry.mode);
+        int[] playCounts = new int[entry.candidateCount()];
+        int[] lastRounds = new int[entry.candidateCount()];
+        String[] names = new String[entry.candidateCount()];
+        for (int i = 0; i < names.length; ++i) {
+            names[i] = entry.candidate(i);
+            playCounts[i] = entry.playCount(i);
+            lastRounds[i] = entry.lastRound(i);
+        }
+        int[] drawn = DrawAudit.redraw(entry);
+        assertTrue(DrawAudit.verify(new DrawAudit.Entry(entry.timeMillis, entry.round, entry.mode, entry.seed,
+                entry.courts, names, playCounts, lastRounds, drawn)));
+
+        DrawAudit.Entry otherSeed = new DrawAudit.Entry(entry.timeMillis, entry.round, entry.mode, entry.seed + 1,
+                entry.courts, names, playCounts, lastRounds, drawn);
+        assertFalse(DrawAudit.verify(otherSeed));
+        int t = drawn[0];
+        drawn[0] = drawn[1];
+        drawn[1] = t;
+        assertFalse(DrawAudit.verify(new DrawAudit.Entry(entry.timeMillis, entry.round, entry.mode, entry.seed,
+                entry.courts, names, playCounts, lastRounds, drawn)));
+    }
+
+    @Test
+    public void log_roundTripsAndDropsATornRecord() throws IOException {
+        File file = new File(folder.getRoot(), "draws.audit");
+        List<DrawAudit.Entry> entries = playNight(5, new ArrayList<List<String>>());
+        DrawAudit audit = DrawAudit.open(file);
+        for (DrawAudit.Entry entry : entries) {
+            audit.append(entry);
+        }
+        audit.close();
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            raf.setLength(raf.length() - 3);
+        }
+
+        DrawAudit again = DrawAudit.open(file);
+        assertEquals(entries.size() - 1, again.size());
+        for (int i = 0; i < again.size(); ++i) {
+            DrawAudit.Entry read = again.read(i);
+            assertEquals(entries.get(i).seed, read.seed);
+            assertEquals(entries.get(i).mode, read.mode);
+            assertEquals(entries.get(i).timeMillis, read.timeMillis);
+            assertEquals(entries.get(i).drawn(), read.drawn());
+            assertTrue(DrawAudit.verify(read));
+        }
+        again.append(entries.get(entries.size() - 1));
+        again.close();
+        DrawAudit reopened = DrawAudit.open(file);
+        assertEquals(entries.size(), reopened.size());
+        reopened.close();
+    }
+}
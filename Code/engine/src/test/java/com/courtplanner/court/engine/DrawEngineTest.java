@@ -0,0 +1,44 @@
+package com.courtplanner.court.engine;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class DrawEngineTest {
+    @Test
+    public void draw_picksDistinctIndices() {
+        DrawEngine engine = new DrawEngine(new Random(1));
+        for (int round = 0; round < 100; ++round) {
+            int[] drawn = engine.draw(50, 10);
+            assertEquals(40, drawn.length);
+            boolean[] seen = new boolean[50];
+            for (int index : drawn) {
+                assertTrue(index >= 0 && index < 50);
+                assertFalse(seen[index]);
+                seen[index] = true;
+            }
+        }
+    }
+
+    @Test
+    public void draw_isLimitedByCandidates() {
+        DrawEngine engine = new DrawEngine(new Random(1));
+        assertEquals(6, engine.draw(6, 4).length);
+        assertEquals(0, engine.draw(0, 4).length);
+        assertEquals(0, engine.draw(10, 0).length);
+    }
+
+    @Test
+    public void draw_dependsOnlyOnTheRandomStream() {
+        DrawEngine engine = new DrawEngine(new Random(1));
+        int[] first = new int[12];
+        engine.draw(30, 3, first, new DrawRandom(77));
+        engine.draw(50, 10);
+        engine.draw(20, 2);
+        int[] again = new int[12];
+        engine.draw(30, 3, again, new DrawRandom(77));
+        assertArrayEquals(first, again);
+    }
+}
@@ -0,0 +1,108 @@
+package com.courtplanner.court.engine;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.Random;
+import java.util.TimeZone;
+
+import static org.junit.Assert.*;
+
+public class DrawHistoryTest {
+
+    private static final TimeZone UTC = TimeZone.getTimeZone("UTC");
+    private static final long DAY = 24L * 60 * 60 * 1000;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    // Four players per court over about 400 days; returns the games per day and player index
+    private static int[][] fill(DrawHistory history, int players, int courts) throws IOException {
+        Random random = new Random(5);
+        int[][] games = new int[400][players];
+        for (int c = 0; c < courts; ++c) {
+            int dayIndex = c * 400 / courts;
+            String[] court = new String[4];
+            for (int slot = 0; slot < 4; ++slot) {
+                int p = random.nextInt(players);
+                court[slot] = slot == 3 && c % 5 == 0 ? null : "P" + p;
+                if (court[slot] != null) {
+                    games[dayIndex][p] += 1;
+                }
+            }
+            history.appendCourt(dayIndex * DAY + 3600_000, c % 20, c % 4, court);
+        }
+        return games;
+    }
+
+    private static int expected(int[][] games, int player, int from, int to) {
+        int sum = 0;
+        for (int d = Math.max(0, from); d <= Math.min(games.length - 1, to); ++d) {
+            sum += games[d][player];
+        }
+        return sum;
+    }
+
+    @Test
+    public void gamesPerPlayer_matchesBruteForceForAnyRange() throws IOException {
+        DrawHistory history = DrawHistory.open(folder.newFolder("h"), UTC);
+        int[][] games = fill(history, 30, 5000);
+        int[][] ranges = {{0, 399}, {31, 58}, {10, 10}, {45, 200}, {-10, 1000}, {300, 299}};
+        for (int[] range : ranges) {
+            int[] result = history.gamesPerPlayer(range[0], range[1]);
+            for (int p = 0; p < 30; ++p) {
+                int id = history.idOf("P" + p);
+                assertEquals(expected(games, p, range[0], range[1]), id < 0 ? 0 : result[id]);
+            }
+        }
+        assertEquals(31, DrawHistory.firstDayOfMonth(45));
+        assertEquals(DrawHistory.firstDayOfMonth(31), DrawHistory.firstDayOfMonth(58));
+        history.close();
+    }
+
+    @Test
+    public void partnerCounts_countSameTeamOnly() throws IOException {
+        DrawHistory history = DrawHistory.open(folder.newFolder("h"), UTC);
+        history.appendCourt(0, 0, 0, "ANNA", "BEN", "CARL", "DORA");
+        history.appendCourt(DAY, 0, 0, "CARL", "ANNA", "BEN", null);
+        history.appendCourt(2 * DAY, 0, 0, "ANNA", "BEN", "CARL", "DORA");
+        int anna = history.idOf("ANNA");
+        int[] partners = history.partnerCounts(anna, 0, 1);
+        assertEquals(1, partners[history.idOf("BEN")]);
+        assertEquals(1, partners[history.idOf("CARL")]);
+        assertEquals(0, partners[history.idOf("DORA")]);
+        assertEquals(2, history.partnerCounts(anna, 0, 2)[history.idOf("BEN")]);
+        history.close();
+    }
+
+    @Test
+    public void reopen_usesCheckpointAndReplaysTail() throws IOException {
+        File dir = folder.newFolder("h");
+        DrawHistory history = DrawHistory.open(dir, UTC);
+        int[][] games = fill(history, 50, DrawHistory.CHECKPOINT_INTERVAL + 1000);
+        history.flush();
+        long size = history.size();
+        // Simulate a crash: no close, so the checkpoint is behind, and a torn last record
+        try (RandomAccessFile raf = new RandomAccessFile(new File(dir, "draws.log"), "rw")) {
+            raf.setLength(raf.length() + 5);
+        }
+
+        DrawHistory reopened = DrawHistory.open(dir, UTC);
+        assertEquals(size, reopened.size());
+        int[] all = reopened.gamesPerPlayer(0, 399);
+        for (int p = 0; p < 50; ++p) {
+            assertEquals(expected(games, p, 0, 399), all[reopened.idOf("P" + p)]);
+        }
+        reopened.appendCourt(500 * DAY, 0, 0, "P1", "NEW");
+        reopened.close();
+
+        DrawHistory again = DrawHistory.open(dir, UTC);
+        assertEquals(size + 1, again.size());
+        assertEquals(1, again.gamesPerPlayer(500, 500)[again.idOf("NEW")]);
+        again.close();
+    }
+}
@@ -0,0 +1,60 @@
+package com.courtplanner.court.engine;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class FairDrawEngineTest {
+    @Test
+    public void draw_prefersLowestPlayCounts() {
+        FairDrawEngine engine = new FairDrawEngine(new Random(3));
+        int n = 100;
+        int[] counts = new int[n];
+        int[] lastRound = new int[n];
+        for (int i = 0; i < n; ++i) {
+            counts[i] = i % 2 == 0 ? 5 : 2;
+            lastRound[i] = FairDrawEngine.NEVER_PLAYED;
+        }
+        int[] drawn = engine.draw(counts, lastRound, n, 10);
+        assertEquals(40, drawn.length);
+        for (int index : drawn) {
+            assertEquals(1, index % 2);
+        }
+    }
+
+    @Test
+    public void draw_breaksCountTiesByRest() {
+        FairDrawEngine engine = new FairDrawEngine(new Random(3));
+        int n = 12;
+        int[] counts = new int[n];
+        int[] lastRound = new int[n];
+        for (int i = 0; i < n; ++i) {
+            lastRound[i] = i < 4 ? 7 : 3;
+        }
+        int[] drawn = engine.draw(counts, lastRound, n, 2);
+        for (int index : drawn) {
+            assertTrue(index >= 4);
+        }
+    }
+
+    @Test
+    public void draw_rotatesEveryoneOverRounds() {
+        FairDrawEngine engine = new FairDrawEngine(new Random(5));
+        int n = 37;
+        int[] counts = new int[n];
+        int[] lastRound = new int[n];
+        Arrays.fill(lastRound, FairDrawEngine.NEVER_PLAYED);
+        for (int round = 0; round < 37; ++round) {
+            for (int index : engine.draw(counts, lastRound, n, 2)) {
+                counts[index] += 1;
+                lastRound[index] = round;
+            }
+        }
+        for (int count : counts) {
+            assertEquals(8, count);
+        }
+    }
+}
@@ -0,0 +1,65 @@
+package com.courtplanner.court.engine;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class LegacyDatabaseTest {
+
+    private static List<String> parse(String database) {
+        final List<String> out = new ArrayList<>();
+        int visited = LegacyDatabase.parse(database, new PlayerStore.Visitor() {
+            @Override
+            public void visit(String name, int numberSelected, boolean selected, double rating) {
+                out.add(name + "/" + numberSelected + "/" + selected);
+            }
+        });
+        assertEquals(out.size(), visited);
+        return out;
+    }
+
+    // What MainActivity.parseDatabaseFromString did with the string
+    private static List<String> splitParse(String database) {
+        List<String> out = new ArrayList<>();
+        for (String playerData : database.split("\\|")) {
+            String[] playerFields = playerData.split("_");
+            if (playerFields.length == 3) {
+                int numberSelected;
+                try {
+                    numberSelected = Integer.parseInt(playerFields[1]);
+                } catch (NumberFormatException e) {
+                    numberSelected = 0;
+                }
+                out.add(playerFields[0] + "/" + numberSelected + "/" + Boolean.parseBoolean(playerFields[2]));
+            }
+        }
+        return out;
+    }
+
+    @Test
+    public void parse_readsRecordsLikeSplitDid() {
+        String database = "ANNA_3_true|BEN_0_false|CARL_x_TRUE|DORA_-2_yes|_1_true|EVE_1_true__|"
+                + "FRED_1_|GUS__true|HAL_1_true_x|IDA_2147483648_true|JO_+7_True||KIM_1_true|";
+        assertEquals(splitParse(database), parse(database));
+        assertEquals("ANNA/3/true", parse(database).get(0));
+        assertTrue(parse("").isEmpty());
+        assertTrue(parse("|||").isEmpty());
+    }
+
+    @Test
+    public void parse_matchesSplitOnRandomInput() {
+        Random random = new Random(21);
+        char[] alphabet = {'A', 'b', '_', '|', '1', '9', '-', '+', 't', 'r', 'u', 'e', 'T'};
+        for (int run = 0; run < 5000; ++run) {
+            StringBuilder s = new StringBuilder();
+            for (int i = random.nextInt(40); i > 0; --i) {
+                s.append(alphabet[random.nextInt(alphabet.length)]);
+            }
+            assertEquals(s.toString(), splitParse(s.toString()), parse(s.toString()));
+        }
+    }
+}
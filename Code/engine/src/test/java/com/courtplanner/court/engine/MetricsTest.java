@@ -0,0 +1,77 @@
+package com.courtplanner.court.engine;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class MetricsTest {
+
+    @Test
+    public void histogram_bucketsStayWithinThreePercent() {
+        Random random = new Random(1);
+        for (int i = 0; i < 100000; ++i) {
+            long value = (random.nextLong() >>> 1) >>> random.nextInt(63);
+            long high = LatencyHistogram.highestValueIn(LatencyHistogram.bucketOf(value));
+            assertTrue(value + " -> " + high, high >= value);
+            assertTrue(value + " -> " + high, high - value <= value / 32);
+        }
+
+        LatencyHistogram h = new Metrics(true).histogram("test");
+        for (long micros = 1; micros <= 100000; ++micros) {
+            h.record(micros * 1000);
+        }
+        assertEquals(100000, h.count());
+        assertEquals(100_000_000L, h.maxNanos());
+        assertEquals(50_000_500.0, h.meanNanos(), 1.0);
+        assertEquals(50_000_000.0, h.valueAtPercentile(50), 50_000_000.0 / 32);
+        assertEquals(99_000_000.0, h.valueAtPercentile(99), 99_000_000.0 / 32);
+        assertEquals(100_000_000L, h.valueAtPercentile(100));
+    }
+
+    @Test
+    public void disabled_recordsNothingUntilEnabled() {
+        Metrics metrics = new Metrics(false);
+        LatencyHistogram h = metrics.histogram("draw");
+        Metrics.Counter c = metrics.counter("records");
+        long start = h.start();
+        assertEquals(LatencyHistogram.DISABLED, start);
+        h.recordSince(start);
+        c.increment();
+        assertEquals(0, h.count());
+        assertEquals(0, c.get());
+
+        metrics.setEnabled(true);
+        h.recordSince(h.start());
+        c.add(3);
+        assertEquals(1, h.count());
+        assertEquals(3, c.get());
+        assertSame(h, metrics.histogram("draw"));
+    }
+
+    @Test
+    public void toJson_snapshotsInstrumentedPaths() {
+        Metrics metrics = new Metrics(true);
+        PlayerRegistry players = new PlayerRegistry();
+        players.setMetrics(metrics);
+        ClubNight night = new ClubNight(players, players, new RotationQueue(), new Random(1));
+        night.setMetrics(metrics);
+        for (int i = 0; i < 8; ++i) {
+            night.add("P" + i);
+            night.toggleSelected("P" + i);
+        }
+        night.draw(2, ClubNight.DrawMode.ROTATION, false, false);
+        players.search("p");
+        metrics.counter("store.records").add(3);
+
+        assertEquals(1, metrics.histogram(ClubNight.DRAW).count());
+        // 8 toggles, the draw's recordDraw and the search
+        assertEquals(10, metrics.histogram(PlayerRegistry.LOCK_WAIT).count());
+        String json = metrics.toJson();
+        assertTrue(json, json.contains("\"store.records\": 3"));
+        assertTrue(json, json.contains("\"draw\": {\"count\": 1, \"meanMicros\": "));
+        assertTrue(json, json.contains("\"registry.lockWait\": {\"count\": 10,"));
+        assertTrue(json, json.startsWith("{\n  \"enabled\": true,"));
+    }
+}
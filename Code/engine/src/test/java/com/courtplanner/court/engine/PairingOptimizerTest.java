@@ -0,0 +1,48 @@
+package com.courtplanner.court.engine;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.Assert.*;
+
+public class PairingOptimizerTest {
+    @Test
+    public void history_countsPartnersAndOpponents() {
+        PairHistory history = new PairHistory();
+        history.recordCourt(0, 1, 2, 3);
+        history.recordCourt(0, 1, 5, -1);
+        assertEquals(2, history.partnerCount(1, 0));
+        assertEquals(1, history.partnerCount(2, 3));
+        assertEquals(0, history.partnerCount(0, 2));
+        assertEquals(1, history.opponentCount(0, 2));
+        assertEquals(1, history.opponentCount(5, 1));
+        assertEquals(0, history.opponentCount(5, 3));
+    }
+
+    @Test
+    public void optimize_splitsRepeatedPartners() {
+        PairHistory history = new PairHistory();
+        for (int round = 0; round < 5; ++round) {
+            history.recordCourt(0, 1, 2, 3);
+            history.recordCourt(4, 5, 6, 7);
+        }
+        PairingOptimizer optimizer = new PairingOptimizer(history, new ForkJoinPool(2), new Random(9));
+        int[] players = {0, 1, 2, 3, 4, 5, 6, 7};
+        int[] result = optimizer.optimize(players, PairingOptimizer.DEFAULT_BUDGET_NANOS);
+
+        assertEquals(0, optimizer.cost(result));
+        int[] sorted = result.clone();
+        Arrays.sort(sorted);
+        assertArrayEquals(players, sorted);
+    }
+
+    @Test
+    public void optimize_keepsPartialCourts() {
+        PairingOptimizer optimizer = new PairingOptimizer(new PairHistory(), new ForkJoinPool(2), new Random(9));
+        int[] players = {3, 8, 1, 4, 2, 9};
+        assertArrayEquals(players, optimizer.optimize(players, 1_000_000L));
+    }
+}
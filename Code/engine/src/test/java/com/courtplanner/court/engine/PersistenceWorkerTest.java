@@ -0,0 +1,75 @@
+package com.courtplanner.court.engine;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.HashMap;
+
+import static org.junit.Assert.*;
+
+public class PersistenceWorkerTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void burstOfChanges_isWrittenOnce() throws IOException {
+        File file = folder.newFile("players.db");
+        PlayerStore store = PlayerStore.open(file);
+        PlayerRegistry registry = new PlayerRegistry();
+        PersistenceWorker worker = new PersistenceWorker(registry, store, 10_000, null);
+        for (int i = 0; i < 10; ++i) {
+            registry.add("P" + i);
+            worker.markDirty("P" + i);
+        }
+        for (int click = 0; click < 1000; ++click) {
+            String name = "P" + (click % 10);
+            registry.toggleSelected(name);
+            worker.markDirty(name);
+        }
+        registry.remove("P9");
+        worker.markDirty("P9");
+        assertEquals(0, worker.recordsWritten());
+
+        worker.close();
+        assertEquals(1, worker.flushCount());
+        assertEquals(10, worker.recordsWritten());
+        assertEquals(1001, worker.writesAvoided());
+        assertTrue(worker.bytesWritten() > 0);
+        store.close();
+
+        store = PlayerStore.open(file);
+        final HashMap<String, Boolean> loaded = new HashMap<>();
+        store.load(new PlayerStore.Visitor() {
+            @Override
+            public void visit(String name, int numberSelected, boolean selected, double rating) {
+                loaded.put(name, selected);
+            }
+        });
+        store.close();
+        assertEquals(9, loaded.size());
+        for (int i = 0; i < 9; ++i) {
+            assertEquals(registry.isSelected("P" + i), loaded.get("P" + i));
+        }
+    }
+
+    @Test
+    public void debounceWindow_writesWithoutFlush() throws Exception {
+        PlayerStore store = PlayerStore.open(folder.newFile("players.db"));
+        PlayerRegistry registry = new PlayerRegistry();
+        PersistenceWorker worker = new PersistenceWorker(registry, store, 5, null);
+        registry.add("ANNA");
+        worker.markDirty("ANNA");
+        long deadline = System.currentTimeMillis() + 5000;
+        while (worker.recordsWritten() == 0 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(5);
+        }
+        assertEquals(1, worker.recordsWritten());
+        assertEquals(1, store.size());
+        worker.close();
+        store.close();
+    }
+}
@@ -0,0 +1,243 @@
+package com.courtplanner.court.engine;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.*;
+
+public class PlayerRegistryTest {
+    @Test
+    public void addSelectRemove_keepsCountsAndIndex() {
+        PlayerRegistry registry = new PlayerRegistry();
+        assertTrue(registry.add("ANNA"));
+        assertTrue(registry.add("BEN", 3, true));
+        assertTrue(registry.add("CARL"));
+        assertFalse(registry.add("ANNA"));
+
+        assertTrue(registry.select("ANNA", true));
+        assertFalse(registry.select("NOBODY", true));
+        assertEquals(2, registry.getNumberSelected());
+        assertFalse(registry.toggleSelected("BEN"));
+        assertEquals(1, registry.getNumberSelected());
+
+        assertTrue(registry.remove("ANNA"));
+        assertFalse(registry.remove("ANNA"));
+        assertEquals(2, registry.size());
+        assertEquals(0, registry.getNumberSelected());
+        assertEquals(0, registry.ordinalOf("CARL"));
+        assertEquals("CARL", registry.nameOf(0));
+        assertEquals(3, registry.get("BEN").numberSelected);
+        assertNull(registry.get("ANNA"));
+    }
+
+    @Test
+    public void recordDraw_updatesCountsAndRound() {
+        PlayerRegistry registry = new PlayerRegistry();
+        for (int i = 0; i < 40; ++i) {
+            registry.add("P" + i, 0, i % 2 == 0);
+        }
+        registry.recordDraw(Arrays.asList("P0", "P2", "GONE"), 7);
+        assertEquals(1, registry.get("P2").numberSelected);
+        assertEquals(7, registry.get("P2").lastDrawnRound);
+        assertEquals(0, registry.get("P1").numberSelected);
+        assertEquals(20, registry.getSelectedPlayers().size());
+    }
+
+    @Test
+    public void recordResult_movesRatingsByElo() {
+        PlayerRegistry registry = new PlayerRegistry();
+        registry.add("A");
+        registry.add("B");
+        registry.add("C", 0, false, 1700);
+        registry.add("D", 0, false, 1300);
+        registry.add("E");
+        assertTrue(registry.recordResult(Arrays.asList("A", "B"), Arrays.asList("C", "D")));
+        assertEquals(1516, registry.get("A").rating, 1e-9);
+        assertEquals(1684, registry.get("C").rating, 1e-9);
+        assertEquals(1284, registry.get("D").rating, 1e-9);
+
+        // An upset against a stronger team gains more
+        registry.recordResult(Arrays.asList("E", "D"), Arrays.asList("A", "C"));
+        double gained = registry.get("E").rating - Player.DEFAULT_RATING;
+        assertTrue(gained > 16 && gained < EloRating.K);
+        assertFalse(registry.recordResult(Arrays.asList("NOBODY"), Arrays.asList("A")));
+
+        // Ratings follow players whose ordinal moves on removal
+        registry.remove("A");
+        assertEquals(1500 + gained, registry.get("E").rating, 1e-9);
+    }
+
+    @Test
+    public void remove_movesPairHistoryWithOrdinals() {
+        PlayerRegistry registry = new PlayerRegistry();
+        PairHistory history = new PairHistory();
+        registry.addListener(history);
+        for (String name : new String[]{"A", "B", "C", "D", "E"}) {
+            registry.add(name);
+        }
+        history.recordCourt(registry.ordinalOf("A"), registry.ordinalOf("E"),
+                registry.ordinalOf("B"), registry.ordinalOf("C"));
+
+        registry.remove("B");
+        assertEquals(1, registry.ordinalOf("E"));
+        assertEquals(1, history.partnerCount(registry.ordinalOf("A"), registry.ordinalOf("E")));
+        assertEquals(1, history.opponentCount(registry.ordinalOf("E"), registry.ordinalOf("C")));
+        assertEquals(0, history.opponentCount(registry.ordinalOf("A"), 4));
+
+        registry.add("F");
+        assertEquals(0, history.partnerCount(registry.ordinalOf("A"), registry.ordinalOf("F")));
+    }
+
+    @Test
+    public void rankedPlayers_matchFullSortAcrossUpdates() {
+        PlayerRegistry registry = new PlayerRegistry();
+        Random random = new Random(11);
+        for (int i = 0; i < 300; ++i) {
+            registry.add("P" + random.nextInt(1000), random.nextInt(4), false);
+        }
+        for (int step = 0; step < 50; ++step) {
+            List<String> drawn = new ArrayList<>();
+            for (int i = 0; i < 8; ++i) {
+                drawn.add(registry.nameOf(random.nextInt(registry.size())));
+            }
+            registry.recordDraw(drawn, step);
+            registry.remove(registry.nameOf(random.nextInt(registry.size())));
+            registry.add("N" + step, random.nextInt(4), false);
+
+            ArrayList<Player> expected = registry.getPlayers();
+            Collections.sort(expected, PlayerRegistry.RANKING);
+            assertEquals(names(expected), names(registry.getRankedPlayers()));
+        }
+        registry.add("anna", 2, false);
+        registry.add("ANDREAS", 2, false);
+        registry.add("ANTON", 1, false);
+        assertEquals(Arrays.asList("ANDREAS", "anna", "ANTON"), names(registry.search("an")));
+        // An empty query lists the whole roster in ranking order
+        assertEquals(names(registry.getRankedPlayers()), names(registry.search("")));
+
+        // Typed on a Turkish phone, i still finds the names entered as I
+        Locale locale = Locale.getDefault();
+        Locale.setDefault(new Locale("tr", "TR"));
+        try {
+            registry.add("IRIS", 0, false);
+            assertEquals(Collections.singletonList("IRIS"), names(registry.search("iri")));
+        } finally {
+            Locale.setDefault(locale);
+        }
+    }
+
+    @Test
+    public void snapshot_isImmutableAndSharesUnchangedPlayers() {
+        PlayerRegistry registry = new PlayerRegistry();
+        for (int i = 0; i < 10; ++i) {
+            registry.add("P" + i, i, i % 2 == 0);
+        }
+        RosterSnapshot before = registry.snapshot();
+        assertSame(before, registry.snapshot());
+
+        registry.toggleSelected("P1");
+        registry.recordDraw(Collections.singletonList("P2"), 0);
+        RosterSnapshot after = registry.snapshot();
+
+        assertEquals(5, before.getNumberSelected());
+        assertFalse(before.get(1).selected);
+        assertEquals(6, after.getNumberSelected());
+        assertTrue(after.get(1).selected);
+        assertEquals(3, after.get(2).numberSelected);
+        assertSame(before.get(3), after.get(3));
+        assertEquals("P9", before.ranked().get(0).name);
+        assertEquals(names(registry.getSelectedPlayers()), names(after.selected()));
+        try {
+            after.players().set(0, null);
+            fail("snapshot lists are read-only");
+        } catch (UnsupportedOperationException expected) {
+        }
+    }
+
+    @Test
+    public void snapshot_staysConsistentUnderConcurrentWriters() throws InterruptedException {
+        final PlayerRegistry registry = new PlayerRegistry();
+        for (int i = 0; i < 200; ++i) {
+            registry.add("P" + i);
+        }
+        final AtomicReference<Throwable> failure = new AtomicReference<>();
+        List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < 4; ++t) {
+            final int seed = t;
+            threads.add(new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    Random random = new Random(seed);
+                    for (int step = 0; step < 20000; ++step) {
+                        String name = "P" + random.nextInt(220);
+                        int op = random.nextInt(10);
+                        if (op < 6) {
+                            registry.toggleSelected(name);
+                        } else if (op < 8) {
+                            registry.recordDraw(Arrays.asList(name, "P" + random.nextInt(220)), step);
+                        } else if (op < 9) {
+                            registry.remove(name);
+                        } else {
+                            registry.add(name, random.nextInt(5), random.nextBoolean());
+                        }
+                    }
+                }
+            }));
+            threads.add(new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    long lastVersion = -1;
+                    try {
+                        for (int step = 0; step < 5000; ++step) {
+                            RosterSnapshot snapshot = registry.snapshot();
+                            assertTrue(snapshot.version >= lastVersion);
+                            lastVersion = snapshot.version;
+                            int selected = 0;
+                            for (Player p : snapshot.players()) {
+                                selected += p.selected ? 1 : 0;
+                            }
+                            assertEquals(selected, snapshot.getNumberSelected());
+                            for (Player p : snapshot.selected()) {
+                                assertTrue(p.selected);
+                            }
+                            List<Player> ranked = snapshot.ranked();
+                            assertEquals(snapshot.size(), ranked.size());
+                            for (int i = 1; i < ranked.size(); ++i) {
+                                assertTrue(PlayerRegistry.RANKING.compare(ranked.get(i - 1), ranked.get(i)) < 0);
+                            }
+                        }
+                    } catch (Throwable e) {
+                        failure.compareAndSet(null, e);
+                    }
+                }
+            }));
+        }
+        for (Thread t : threads) {
+            t.start();
+        }
+        for (Thread t : threads) {
+            t.join();
+        }
+        if (failure.get() != null) {
+            throw new AssertionError(failure.get());
+        }
+        RosterSnapshot last = registry.snapshot();
+        assertEquals(registry.size(), last.size());
+        assertEquals(registry.getNumberSelected(), last.getNumberSelected());
+    }
+
+    private static List<String> names(List<Player> players) {
+        List<String> names = new ArrayList<>();
+        for (Player p : players) {
+            names.add(p.name);
+        }
+        return names;
+    }
+}
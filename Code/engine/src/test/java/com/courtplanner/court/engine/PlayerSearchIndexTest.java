@@ -0,0 +1,65 @@
+package com.courtplanner.court.engine;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class PlayerSearchIndexTest {
+
+    private static final String LETTERS = "AEIKLMNORST ";
+
+    private static String randomName(Random random) {
+        StringBuilder name = new StringBuilder();
+        int length = 3 + random.nextInt(10);
+        for (int i = 0; i < length; ++i) {
+            name.append(LETTERS.charAt(random.nextInt(LETTERS.length())));
+        }
+        return name.toString();
+    }
+
+    private static void assertMatches(PlayerRegistry registry, String query) {
+        List<String> expected = new ArrayList<>();
+        for (Player p : registry.getRankedPlayers()) {
+            if (p.name.contains(query.toUpperCase())) {
+                expected.add(p.name);
+            }
+        }
+        List<String> actual = new ArrayList<>();
+        for (Player p : registry.search(query)) {
+            actual.add(p.name);
+        }
+        assertEquals("query " + query, expected, actual);
+    }
+
+    @Test
+    public void search_matchesSubstringScanWhileTypingAndEditing() {
+        Random random = new Random(11);
+        PlayerRegistry registry = new PlayerRegistry();
+        List<String> names = new ArrayList<>();
+        for (int i = 0; i < 2000; ++i) {
+            String name = randomName(random);
+            if (registry.add(name)) {
+                names.add(name);
+            }
+        }
+        for (int round = 0; round < 200; ++round) {
+            String target = names.get(random.nextInt(names.size()));
+            int start = random.nextInt(target.length());
+            for (int end = start + 1; end <= target.length(); ++end) {
+                assertMatches(registry, target.substring(start, end).toLowerCase());
+            }
+            String removed = names.remove(random.nextInt(names.size()));
+            registry.remove(removed);
+            String added = randomName(random);
+            if (registry.add(added)) {
+                names.add(added);
+            }
+            assertMatches(registry, target.substring(start));
+            assertMatches(registry, "");
+        }
+    }
+}
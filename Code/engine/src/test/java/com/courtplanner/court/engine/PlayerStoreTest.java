@@ -0,0 +1,185 @@
+package com.courtplanner.court.engine;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class PlayerStoreTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private static LinkedHashMap<String, String> load(PlayerStore store) throws IOException {
+        final LinkedHashMap<String, String> players = new LinkedHashMap<>();
+        store.load(new PlayerStore.Visitor() {
+            @Override
+            public void visit(String name, int numberSelected, boolean selected, double rating) {
+                players.put(name, numberSelected + "/" + selected);
+            }
+        });
+        return players;
+    }
+
+    @Test
+    public void putPatchRemove_survivesReopen() throws IOException {
+        File file = folder.newFile("players.db");
+        PlayerStore store = PlayerStore.open(file);
+        store.put("ANNA_MARIA", 1, true);
+        store.put("BEN|JAMIN", 0, false);
+        store.put("ZO\u00CB", 4, false);
+        store.put("ANNA_MARIA", 2, false);
+        store.remove("BEN|JAMIN");
+        store.close();
+
+        store = PlayerStore.open(file);
+        LinkedHashMap<String, String> players = load(store);
+        assertEquals(2, store.size());
+        assertEquals("2/false", players.get("ANNA_MARIA"));
+        assertEquals("4/false", players.get("ZO\u00CB"));
+        store.close();
+    }
+
+    @Test
+    public void open_dropsTornTailRecord() throws IOException {
+        File file = folder.newFile("players.db");
+        PlayerStore store = PlayerStore.open(file);
+        store.put("ANNA", 1, true);
+        store.put("BEN", 2, true);
+        store.close();
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            raf.setLength(raf.length() - 1);
+        }
+
+        store = PlayerStore.open(file);
+        assertEquals(1, store.size());
+        store.put("BEN", 3, false);
+        store.close();
+        store = PlayerStore.open(file);
+        assertEquals("3/false", load(store).get("BEN"));
+        store.close();
+    }
+
+    @Test
+    public void openWithVisitor_readsPlayersWhileOpening() throws IOException {
+        File file = folder.newFile("players.db");
+        PlayerStore store = PlayerStore.open(file);
+        store.put("ANNA", 1, true);
+        store.put("BEN", 2, false);
+        store.put("CARL", 3, false);
+        store.remove("BEN");
+        store.close();
+
+        final LinkedHashMap<String, String> visited = new LinkedHashMap<>();
+        store = PlayerStore.open(file, new PlayerStore.Visitor() {
+            @Override
+            public void visit(String name, int numberSelected, boolean selected, double rating) {
+                visited.put(name, numberSelected + "/" + selected);
+            }
+        });
+        assertEquals(load(store), visited);
+        assertEquals(2, visited.size());
+        store.put("CARL", 4, true);
+        store.close();
+    }
+
+    @Test
+    public void versionOneFile_isUpgradedWithDefaultRatings() throws IOException {
+        File file = folder.newFile("players.db");
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            raf.writeInt(PlayerStore.MAGIC);
+            raf.writeShort(1);
+            raf.writeByte(1);
+            raf.writeInt(7);
+            raf.writeByte(1);
+            raf.writeUTF("ANNA");
+        }
+        PlayerStore store = PlayerStore.open(file);
+        final double[] rating = new double[1];
+        store.load(new PlayerStore.Visitor() {
+            @Override
+            public void visit(String name, int numberSelected, boolean selected, double r) {
+                rating[0] = r;
+            }
+        });
+        assertEquals(Player.DEFAULT_RATING, rating[0], 0);
+        assertEquals("7/true", load(store).get("ANNA"));
+        store.put("ANNA", 8, true, 1612.5);
+        store.close();
+
+        store = PlayerStore.open(file);
+        store.load(new PlayerStore.Visitor() {
+            @Override
+            public void visit(String name, int numberSelected, boolean selected, double r) {
+                rating[0] = r;
+            }
+        });
+        assertEquals(1612.5, rating[0], 1e-3);
+        store.close();
+        try (RandomAccessFile raf = new RandomAccessFile(file, "r")) {
+            raf.seek(4);
+            assertEquals(PlayerStore.VERSION, raf.readShort());
+        }
+    }
+
+    @Test
+    public void compact_keepsLivePlayersOnly() throws IOException {
+        File file = folder.newFile("players.db");
+        PlayerStore store = PlayerStore.open(file);
+        for (int i = 0; i < 100; ++i) {
+            store.put("PLAYER " + i, i, i % 2 == 0);
+        }
+        long before = file.length();
+        for (int i = 0; i < 100; i += 2) {
+            store.remove("PLAYER " + i);
+        }
+        store.compact();
+        assertTrue(file.length() < before);
+        store.put("PLAYER 1", 42, true);
+        store.close();
+
+        store = PlayerStore.open(file);
+        LinkedHashMap<String, String> players = load(store);
+        assertEquals(50, players.size());
+        assertEquals("42/true", players.get("PLAYER 1"));
+        assertEquals("3/false", players.get("PLAYER 3"));
+        store.close();
+    }
+
+    @Test
+    public void patches_of10kPlayersSurviveReopen() throws IOException {
+        File file = folder.newFile("players.db");
+        List<String> names = new ArrayList<>();
+        for (int i = 0; i < 10_000; ++i) {
+            names.add("PLAYER NUMBER " + i);
+        }
+        PlayerStore store = PlayerStore.open(file);
+        for (String name : names) {
+            store.put(name, 0, false);
+        }
+        store.close();
+
+        store = PlayerStore.open(file);
+        assertEquals(10_000, load(store).size());
+        for (int i = 0; i < names.size(); i += 10) {
+            store.put(names.get(i), 1, true);
+        }
+        store.close();
+
+        store = PlayerStore.open(file);
+        LinkedHashMap<String, String> players = load(store);
+        store.close();
+        assertEquals(10_000, players.size());
+        for (int i = 0; i < names.size(); ++i) {
+            assertEquals(names.get(i), i % 10 == 0 ? "1/true" : "0/false", players.get(names.get(i)));
+        }
+    }
+}
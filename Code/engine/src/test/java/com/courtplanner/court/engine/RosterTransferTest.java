@@ -0,0 +1,170 @@
+package com.courtplanner.court.engine;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.BitSet;
+
+import static org.junit.Assert.*;
+
+public class RosterTransferTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private static InputStream utf8(String s) throws IOException {
+        return new ByteArrayInputStream(s.getBytes("UTF-8"));
+    }
+
+    @Test
+    public void csv_dedupesAgainstRosterAndFile() throws IOException {
+        PlayerRegistry players = new PlayerRegistry();
+        players.add("ANNA", 7, true);
+        RosterSync sync = new RosterSync(players, 1);
+        String csv = "\uFEFFrating,Name,games\r\n"
+                + "1510,\"smith, \"\"jo\"\"\",3\r\n"
+                + "\r\n"
+                + ",anna,1\n"
+                + "1490, ben ,\n"
+                + ",BEN,2\n"
+                + "1500,,1\n"
+                + "x,carl,1\n"
+                + ",dora,-1\n"
+                + ",zo\u00EB,0";
+
+        RosterTransfer.Result result = RosterTransfer.importFrom(utf8(csv), sync, null);
+
+        assertEquals(8, result.rows);
+        assertEquals(3, result.added);
+        assertEquals(2, result.duplicates);
+        assertEquals(3, result.invalid);
+        assertEquals(4, players.size());
+        Player smith = players.get("SMITH, \"JO\"");
+        assertEquals(3, smith.numberSelected);
+        assertEquals(1510, smith.rating, 1e-9);
+        assertFalse(smith.selected);
+        assertEquals(0, players.get("BEN").numberSelected);
+        assertEquals(1490, players.get("BEN").rating, 1e-9);
+        assertEquals(7, players.get("ANNA").numberSelected);
+        assertTrue(players.contains("ZO\u00CB"));
+        // three adds and the imported games of one of them
+        assertEquals(4, sync.pendingCount());
+    }
+
+    @Test
+    public void export_roundTripsBothFormats() throws IOException {
+        PlayerRegistry players = new PlayerRegistry();
+        players.add("SMITH, \"JO\"", 3, true, 1512.5);
+        players.add(" PADDED\\", 0, false, 1480);
+        for (int i = 0; i < RosterTransfer.BATCH_SIZE + 10; ++i) {
+            players.add("P" + i, i % 7, false);
+        }
+
+        for (RosterTransfer.Format format : RosterTransfer.Format.values()) {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            RosterTransfer.exportTo(out, players, format);
+            PlayerRegistry copy = new PlayerRegistry();
+            RosterTransfer.Result result = RosterTransfer.importFrom(
+                    new ByteArrayInputStream(out.toByteArray()), copy, null);
+
+            assertEquals(format.toString(), players.size(), result.added);
+            assertEquals(0, result.invalid);
+            for (Player p : players.getPlayers()) {
+                Player q = copy.get(p.name.trim());
+                assertNotNull(format + " " + p.name, q);
+                assertEquals(p.numberSelected, q.numberSelected);
+                assertEquals(p.rating, q.rating, 1e-9);
+            }
+        }
+
+        ByteArrayOutputStream empty = new ByteArrayOutputStream();
+        RosterTransfer.exportTo(empty, new PlayerRegistry(), RosterTransfer.Format.JSON);
+        assertEquals(0, RosterTransfer.importFrom(new ByteArrayInputStream(empty.toByteArray()),
+                new PlayerRegistry(), null).rows);
+    }
+
+    @Test
+    public void json_skipsUnknownFieldsAndRejectsMalformedInput() throws IOException {
+        PlayerRegistry players = new PlayerRegistry();
+        String json = "[{\"id\": 4, \"name\": \"Anna\\u00e9\", \"tags\": [\"a\", {\"b\": null}], \"games\": 2},\n"
+                + " {\"name\": \"BEN\", \"rating\": 1.6e3, \"active\": true},\n"
+                + " {\"name\": 5}, {\"name\": \"CARL\", \"games\": 1.5}, {}]";
+
+        RosterTransfer.Result result = RosterTransfer.importFrom(utf8(json), players, null);
+
+        assertEquals(5, result.rows);
+        assertEquals(2, result.added);
+        assertEquals(3, result.invalid);
+        assertEquals(2, players.get("ANNA\u00C9").numberSelected);
+        assertEquals(1600, players.get("BEN").rating, 1e-9);
+
+        try {
+            RosterTransfer.importFrom(utf8("[{\"name\": \"X\"}"), new PlayerRegistry(), null);
+            fail("unterminated array");
+        } catch (IOException expected) {
+        }
+    }
+
+    @Test
+    public void import_streamsLargeFileInBoundedBatchesWithOneAppendEach() throws IOException {
+        final int rows = 100_000;
+        PlayerRegistry players = new PlayerRegistry();
+        final PlayerStore store = PlayerStore.open(folder.newFile("players.db"));
+        final ArrayList<long[]> progress = new ArrayList<>();
+
+        RosterTransfer.Result result = RosterTransfer.importFrom(new GeneratedCsv(rows), players,
+                new RosterTransfer.Listener() {
+                    @Override
+                    public void onBatch(RosterBatch batch, BitSet added, long rowsRead, long bytes) throws IOException {
+                        assertTrue(batch.size() <= RosterTransfer.BATCH_SIZE);
+                        store.putAll(batch, added);
+                        progress.add(new long[]{rowsRead, bytes});
+                    }
+                });
+
+        // every tenth row repeats the one before it
+        assertEquals(rows, result.rows);
+        assertEquals(rows - rows / 10, result.added);
+        assertEquals(rows / 10, result.duplicates);
+        assertEquals(players.size(), store.size());
+        assertEquals((rows + RosterTransfer.BATCH_SIZE - 1) / RosterTransfer.BATCH_SIZE, progress.size());
+        for (int i = 1; i < progress.size(); ++i) {
+            assertTrue(progress.get(i)[0] > progress.get(i - 1)[0]);
+            assertTrue(progress.get(i)[1] >= progress.get(i - 1)[1]);
+        }
+        assertEquals(rows, progress.get(progress.size() - 1)[0]);
+        store.close();
+    }
+
+    /** "name,games,rating" followed by {@code rows} rows, produced as it is read. */
+    static final class GeneratedCsv extends InputStream {
+        private final int rows;
+        private int row = -1;
+        private byte[] line = "name,games,rating\n".getBytes();
+        private int position;
+
+        GeneratedCsv(int rows) {
+            this.rows = rows;
+        }
+
+        @Override
+        public int read() {
+            if (position == line.length) {
+                if (row + 1 == rows) {
+                    return -1;
+                }
+                row += 1;
+                int id = row % 10 == 9 ? row - 1 : row;
+                line = ("PLAYER " + id + "," + id % 50 + "," + (1400 + id % 200) + "\n").getBytes();
+                position = 0;
+            }
+            return line[position++];
+        }
+    }
+}
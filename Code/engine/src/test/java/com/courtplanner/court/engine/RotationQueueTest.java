@@ -0,0 +1,99 @@
+package com.courtplanner.court.engine;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class RotationQueueTest {
+
+    private static List<String> names(int from, int to) {
+        List<String> names = new ArrayList<>();
+        for (int i = from; i < to; ++i) {
+            names.add("P" + i);
+        }
+        return names;
+    }
+
+    @Test
+    public void nextRound_playersWhoSatOutGoFirst() {
+        RotationQueue queue = new RotationQueue();
+        for (String name : names(0, 10)) {
+            queue.add(name);
+        }
+        assertEquals(names(0, 8), queue.nextRound(2));
+        List<String> second = queue.nextRound(2);
+        assertEquals(Arrays.asList("P8", "P9", "P0", "P1", "P2", "P3", "P4", "P5"), second);
+        assertEquals(Arrays.asList("P6", "P7", "P8", "P9", "P0", "P1", "P2", "P3", "P4", "P5"), queue.waiting());
+        // More courts than players: everyone plays once
+        assertEquals(10, queue.nextRound(5).size());
+        assertEquals(10, queue.size());
+    }
+
+    @Test
+    public void head_leavesTheLineAlone() {
+        RotationQueue queue = new RotationQueue();
+        for (String name : names(0, 10)) {
+            queue.add(name);
+        }
+        queue.remove("P1");
+        assertEquals(Arrays.asList("P0", "P2", "P3", "P4"), queue.head(4));
+        assertEquals(9, queue.head(20).size());
+        assertEquals(names(0, 10).subList(2, 10), queue.waiting().subList(1, 9));
+        queue.movedToBack(queue.head(4));
+        assertEquals(Arrays.asList("P5", "P6", "P7", "P8", "P9", "P0", "P2", "P3", "P4"), queue.waiting());
+    }
+
+    @Test
+    public void removeAndAdd_skipTombstonesAndKeepOrder() {
+        RotationQueue queue = new RotationQueue();
+        for (String name : names(0, 200)) {
+            queue.add(name);
+        }
+        for (int i = 0; i < 200; i += 2) {
+            assertTrue(queue.remove("P" + i));
+        }
+        assertFalse(queue.remove("P0"));
+        assertTrue(queue.add("P0"));
+        assertFalse(queue.add("P0"));
+        List<String> expected = new ArrayList<>();
+        for (int i = 1; i < 200; i += 2) {
+            expected.add("P" + i);
+        }
+        expected.add("P0");
+        assertEquals(expected, queue.waiting());
+        assertEquals(expected.subList(0, 12), queue.nextRound(3));
+        assertEquals(101, queue.size());
+
+        queue.movedToBack(Arrays.asList("P13", "UNKNOWN"));
+        List<String> line = queue.waiting();
+        assertEquals("P13", line.get(line.size() - 1));
+        assertEquals("P25", line.get(0));
+    }
+
+    @Test
+    public void retainOnlyAndSave_roundTrip() throws IOException {
+        RotationQueue queue = new RotationQueue();
+        for (String name : names(0, 6)) {
+            queue.add(name);
+        }
+        queue.nextRound(1);
+        queue.retainOnly(Arrays.asList("P5", "P0", "NEW", "P4"));
+        assertEquals(Arrays.asList("P4", "P5", "P0", "NEW"), queue.waiting());
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        queue.writeTo(out);
+        RotationQueue restored = RotationQueue.readFrom(new ByteArrayInputStream(out.toByteArray()));
+        assertEquals(queue.waiting(), restored.waiting());
+        restored.retainOnly(Collections.<String>emptyList());
+        assertEquals(0, restored.size());
+        assertTrue(restored.nextRound(4).isEmpty());
+    }
+}
@@ -0,0 +1,98 @@
+package com.courtplanner.court.engine;
+
+import org.junit.Test;
+
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.Assert.*;
+
+public class SessionPlannerTest {
+
+    private static SessionPlanner planner(int rounds, int courts) {
+        SessionPlanner planner = new SessionPlanner(rounds, courts, new ForkJoinPool(2), new Random(4));
+        planner.setRoundBudgetNanos(2_000_000L);
+        return planner;
+    }
+
+    private static Set<Integer> playersOf(int[] round) {
+        Set<Integer> ids = new HashSet<>();
+        for (int id : round) {
+            if (id != SessionPlanner.EMPTY) {
+                assertTrue("player twice in one round", ids.add(id));
+            }
+        }
+        return ids;
+    }
+
+    @Test
+    public void plan_balancesGamesAndRests() {
+        SessionPlanner planner = planner(9, 4);
+        for (int i = 0; i < 18; ++i) {
+            planner.join();
+        }
+        planner.plan();
+        Set<Integer> satOut = new HashSet<>();
+        for (int r = 0; r < 9; ++r) {
+            Set<Integer> playing = playersOf(planner.round(r));
+            assertEquals(16, playing.size());
+            for (int id = 0; id < 18; ++id) {
+                if (!playing.contains(id)) {
+                    assertTrue("sat out twice in 9 rounds", satOut.add(id));
+                }
+            }
+            planner.commitRound();
+        }
+        int min = Integer.MAX_VALUE;
+        int max = 0;
+        for (int id = 0; id < 18; ++id) {
+            min = Math.min(min, planner.gamesPlayed(id));
+            max = Math.max(max, planner.gamesPlayed(id));
+        }
+        assertTrue(max - min <= 1);
+    }
+
+    @Test
+    public void plan_afterArrivalAndDeparture_keepsCommittedRounds() {
+        SessionPlanner planner = planner(8, 3);
+        for (int i = 0; i < 14; ++i) {
+            planner.join();
+        }
+        planner.plan();
+        planner.commitRound();
+        planner.commitRound();
+        int[][] played = {planner.round(0), planner.round(1)};
+
+        planner.leave(5);
+        int late = planner.join();
+        planner.plan();
+
+        assertArrayEquals(played[0], planner.round(0));
+        assertArrayEquals(played[1], planner.round(1));
+        int lateGames = 0;
+        for (int r = 2; r < 8; ++r) {
+            Set<Integer> playing = playersOf(planner.round(r));
+            assertFalse(playing.contains(5));
+            lateGames += playing.contains(late) ? 1 : 0;
+        }
+        assertTrue(lateGames >= 4);
+        assertTrue(planner.gamesPlayed(late) >= 1);
+    }
+
+    @Test
+    public void commitRound_pastLastRound_throws() {
+        SessionPlanner planner = planner(1, 1);
+        planner.join();
+        planner.plan();
+        assertEquals(0, planner.commitRound());
+        assertEquals(0, planner.round(0)[0]);
+        assertEquals(SessionPlanner.EMPTY, planner.round(0)[1]);
+        try {
+            planner.commitRound();
+            fail();
+        } catch (IllegalStateException expected) {
+        }
+    }
+}
@@ -0,0 +1,70 @@
+package com.courtplanner.court.engine;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.Assert.*;
+
+public class TeamBalancerTest {
+
+    private static double teamDifference(double[] ratings, int[] layout, int base) {
+        return Math.abs(ratings[layout[base]] + ratings[layout[base + 1]]
+                - ratings[layout[base + 2]] - ratings[layout[base + 3]]);
+    }
+
+    private static double courtTotal(double[] ratings, int[] layout, int base) {
+        return ratings[layout[base]] + ratings[layout[base + 1]] + ratings[layout[base + 2]] + ratings[layout[base + 3]];
+    }
+
+    @Test
+    public void balance_spreadsStrongPlayersAndPairsThemWithWeakOnes() {
+        double[] ratings = {2000, 1000, 2000, 1000, 2000, 1000, 2000, 1000};
+        int[] layout = new TeamBalancer().balance(ratings, TeamBalancer.DEFAULT_BUDGET_NANOS);
+        for (int base = 0; base < 8; base += 4) {
+            assertEquals(6000, courtTotal(ratings, layout, base), 0);
+            assertEquals(0, teamDifference(ratings, layout, base), 0);
+        }
+    }
+
+    @Test
+    public void balance_40Courts_beatsRandomLayoutsAndKeepsEveryPlayer() {
+        Random random = new Random(3);
+        double[] ratings = new double[162];
+        for (int i = 0; i < ratings.length; ++i) {
+            ratings[i] = 1500 + 250 * random.nextGaussian();
+        }
+        ForkJoinPool pool = new ForkJoinPool(4);
+        int[] layout = new TeamBalancer(pool).balance(ratings, 1_000_000_000L);
+        pool.shutdown();
+
+        int[] sorted = layout.clone();
+        Arrays.sort(sorted);
+        for (int i = 0; i < sorted.length; ++i) {
+            assertEquals(i, sorted[i]);
+        }
+        int[] shuffled = sorted.clone();
+        for (int i = shuffled.length - 1; i > 0; --i) {
+            int j = random.nextInt(i + 1);
+            int t = shuffled[i];
+            shuffled[i] = shuffled[j];
+            shuffled[j] = t;
+        }
+        double balancedTeams = 0;
+        double randomTeams = 0;
+        double balancedSpread = 0;
+        double randomSpread = 0;
+        for (int base = 0; base + 4 <= 160; base += 4) {
+            balancedTeams += teamDifference(ratings, layout, base);
+            randomTeams += teamDifference(ratings, shuffled, base);
+            balancedSpread += Math.abs(courtTotal(ratings, layout, base) - 6000);
+            randomSpread += Math.abs(courtTotal(ratings, shuffled, base) - 6000);
+        }
+        assertTrue(balancedTeams + " vs " + randomTeams, balancedTeams * 5 < randomTeams);
+        assertTrue(balancedSpread + " vs " + randomSpread, balancedSpread * 3 < randomSpread);
+        // The two players left over are the weakest
+        assertTrue(ratings[layout[160]] <= ratings[layout[0]] && ratings[layout[161]] <= ratings[layout[160]]);
+    }
+}
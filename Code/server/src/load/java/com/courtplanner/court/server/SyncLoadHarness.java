@@ -0,0 +1,140 @@
+package com.courtplanner.court.server;
+
+import com.courtplanner.court.engine.HttpSyncTransport;
+import com.courtplanner.court.engine.Player;
+import com.courtplanner.court.engine.PlayerRegistry;
+import com.courtplanner.court.engine.RosterSync;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Load test for {@link SyncServer}: {@code clubs x devices} simulated devices each make a few
+ * roster changes and a draw, then sync, {@code syncs} times, all against one in-process server
+ * over HTTP. Prints round-trip latency percentiles and throughput, then checks that every device
+ * of a club ended up with the same roster.
+ *
+ * <p>Arguments: clubs (2000), devices per club (2), syncs per device (20), client threads (64).
+ */
+public class SyncLoadHarness {
+
+    private static final int CHANGES_PER_SYNC = 4;
+
+    public static void main(String[] args) throws Exception {
+        int clubs = args.length > 0 ? Integer.parseInt(args[0]) : 2000;
+        int devices = args.length > 1 ? Integer.parseInt(args[1]) : 2;
+        final int syncs = args.length > 2 ? Integer.parseInt(args[2]) : 20;
+        int threads = args.length > 3 ? Integer.parseInt(args[3]) : 64;
+
+        SyncServer server = SyncServer.start(new InetSocketAddress("127.0.0.1", 0));
+        final String url = "http://127.0.0.1:" + server.port();
+        ExecutorService clients = Executors.newFixedThreadPool(threads);
+        final PlayerRegistry[][] registries = new PlayerRegistry[clubs][devices];
+        final RosterSync[][] syncers = new RosterSync[clubs][devices];
+        List<Callable<long[]>> tasks = new ArrayList<>();
+        for (int c = 0; c < clubs; ++c) {
+            for (int d = 0; d < devices; ++d) {
+                registries[c][d] = new PlayerRegistry();
+                syncers[c][d] = new RosterSync(registries[c][d], c * 1000L + d + 1);
+                final int club = c;
+                final int device = d;
+                tasks.add(new Callable<long[]>() {
+                    @Override
+                    public long[] call() throws IOException {
+                        return runDevice(url, club, device, syncers[club][device], registries[club][device], syncs);
+                    }
+                });
+            }
+        }
+
+        long start = System.nanoTime();
+        long[] latencies = new long[tasks.size() * syncs];
+        int n = 0;
+        for (Future<long[]> f : clients.invokeAll(tasks)) {
+            long[] device = f.get();
+            System.arraycopy(device, 0, latencies, n, device.length);
+            n += device.length;
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+
+        // Two quiet rounds so every device has seen every other device's last batch
+        for (int round = 0; round < 2; ++round) {
+            for (int c = 0; c < clubs; ++c) {
+                for (int d = 0; d < devices; ++d) {
+                    syncers[c][d].sync(new HttpSyncTransport(url, "club-" + c, "secret-" + c));
+                }
+            }
+        }
+        int diverged = 0;
+        for (int c = 0; c < clubs; ++c) {
+            String reference = describe(registries[c][0]);
+            for (int d = 1; d < devices; ++d) {
+                if (!describe(registries[c][d]).equals(reference)) {
+                    diverged += 1;
+                    break;
+                }
+            }
+        }
+
+        Arrays.sort(latencies);
+        System.out.printf("server: %s, %d clubs x %d devices, %d syncs each, %d client threads%n",
+                server.usesVirtualThreads() ? "virtual threads" : "thread pool", clubs, devices, syncs, threads);
+        System.out.printf("round trip: p50 %.2f ms, p95 %.2f ms, p99 %.2f ms, max %.2f ms%n",
+                percentile(latencies, 0.50), percentile(latencies, 0.95), percentile(latencies, 0.99),
+                latencies[latencies.length - 1] / 1e6);
+        System.out.printf("throughput: %.0f syncs/s, %.0f operations/s (%d stored)%n",
+                latencies.length / seconds, server.operationCount() / seconds, server.operationCount());
+        System.out.printf("clubs with diverged devices: %d%n", diverged);
+
+        clients.shutdown();
+        server.close();
+        if (diverged > 0) {
+            System.exit(1);
+        }
+    }
+
+    private static long[] runDevice(String url, int club, int device, RosterSync sync,
+                                    PlayerRegistry registry, int syncs) throws IOException {
+        Random random = new Random(club * 31L + device);
+        HttpSyncTransport transport = new HttpSyncTransport(url, "club-" + club, "secret-" + club);
+        long[] latencies = new long[syncs];
+        for (int s = 0; s < syncs; ++s) {
+            for (int i = 0; i < CHANGES_PER_SYNC; ++i) {
+                sync.add("D" + device + " P" + random.nextInt(50));
+            }
+            if (random.nextInt(4) == 0 && registry.size() > 0) {
+                sync.remove(registry.nameOf(random.nextInt(registry.size())));
+            }
+            List<String> drawn = new ArrayList<>();
+            for (int i = 0; i < Math.min(8, registry.size()); ++i) {
+                drawn.add(registry.nameOf(random.nextInt(registry.size())));
+            }
+            sync.recordDraw(drawn, s);
+            long t0 = System.nanoTime();
+            sync.sync(transport);
+            latencies[s] = System.nanoTime() - t0;
+        }
+        return latencies;
+    }
+
+    private static String describe(PlayerRegistry registry) {
+        StringBuilder s = new StringBuilder();
+        for (Player p : registry.getRankedPlayers()) {
+            s.append(p.name).append('=').append(p.numberSelected).append(';');
+        }
+        return s.toString();
+    }
+
+    private static double percentile(long[] sorted, double p) {
+        int index = (int) Math.min(sorted.length - 1, Math.round(p * (sorted.length - 1)));
+        return sorted[index] / 1e6;
+    }
+}
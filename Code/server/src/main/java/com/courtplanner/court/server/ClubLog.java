@@ -0,0 +1,230 @@
+package com.courtplanner.court.server;
+
+import com.courtplanner.court.engine.SyncBatch;
+import com.courtplanner.court.engine.VersionVector;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.charset.Charset;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Operation log of one club, kept per replica: the operation with sequence number {@code s} is at
+ * index {@code s - 1}, so both accepting a batch and collecting what a client has not seen are
+ * proportional to the number of operations moved, not to the size of the log.
+ *
+ * <p>A club opened from a file appends every accepted operation to it before answering, and
+ * replays it on the next start, so a restarted server still knows what every device sent. The
+ * file starts with a salted hash of the club secret set by the first device that synced.
+ *
+ * <pre>
+ * file:   int magic, short version, byte[16] salt, byte[32] secretHash, operation*
+ * operation: long replica, int seq, int length, byte[length] payload
+ * </pre>
+ */
+class ClubLog {
+
+    /** Missing operations sent back per exchange; the client asks again for the rest. */
+    static final int MAX_RESPONSE_BYTES = 1 << 20;
+
+    private static final int MAGIC = 0x4350434C; // "CPCL"
+    private static final short VERSION = 1;
+    private static final int SALT_BYTES = 16;
+    private static final int HASH_BYTES = 32;
+    private static final int FRAME_OVERHEAD = 16;
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    private final HashMap<Long, ArrayList<SyncBatch.Frame>> byReplica = new HashMap<>();
+    private long operations;
+    // null: kept in memory only
+    private final File file;
+    // null: any secret is admitted
+    private final byte[] salt;
+    private final byte[] secretHash;
+
+    /** A club in memory that admits any secret. */
+    ClubLog() {
+        this(null, null, null);
+    }
+
+    /** A club in memory that only admits {@code secret}. */
+    ClubLog(String secret) {
+        this(randomSalt(), secret);
+    }
+
+    private ClubLog(byte[] salt, String secret) {
+        this(null, salt, hash(salt, secret));
+    }
+
+    private ClubLog(File file, byte[] salt, byte[] secretHash) {
+        this.file = file;
+        this.salt = salt;
+        this.secretHash = secretHash;
+    }
+
+    /**
+     * Replays the club's file, or creates it with {@code secret} when the club is new. A partly
+     * written operation at the end, left by a crash while appending, is cut off.
+     */
+    static ClubLog open(File file, String secret) throws IOException {
+        if (!file.exists() || file.length() == 0) {
+            byte[] salt = randomSalt();
+            byte[] hash = hash(salt, secret);
+            try (DataOutputStream out = new DataOutputStream(new FileOutputStream(file))) {
+                out.writeInt(MAGIC);
+                out.writeShort(VERSION);
+                out.write(salt);
+                out.write(hash);
+            }
+            return new ClubLog(file, salt, hash);
+        }
+        long good;
+        ClubLog log;
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+            if (in.readInt() != MAGIC) {
+                throw new IOException("not a club log: " + file);
+            }
+            short version = in.readShort();
+            if (version != VERSION) {
+                throw new IOException("unsupported club log version " + version + ": " + file);
+            }
+            byte[] salt = new byte[SALT_BYTES];
+            in.readFully(salt);
+            byte[] hash = new byte[HASH_BYTES];
+            in.readFully(hash);
+            log = new ClubLog(file, salt, hash);
+            good = 4 + 2 + salt.length + hash.length;
+            while (true) {
+                SyncBatch.Frame f;
+                try {
+                    long replica = in.readLong();
+                    int seq = in.readInt();
+                    int length = in.readInt();
+                    if (length < 0 || length > SyncBatch.MAX_PAYLOAD) {
+                        break;
+                    }
+                    byte[] payload = new byte[length];
+                    in.readFully(payload);
+                    f = new SyncBatch.Frame(replica, seq, payload);
+                } catch (EOFException e) {
+                    break;
+                }
+                log.accept(f);
+                good += FRAME_OVERHEAD + f.payload.length;
+            }
+        }
+        if (good < file.length()) {
+            try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+                raf.setLength(good);
+            }
+        }
+        return log;
+    }
+
+    /** Whether a device presenting {@code secret} may read and write this club. */
+    boolean admits(String secret) {
+        return secretHash == null || MessageDigest.isEqual(secretHash, hash(salt, secret));
+    }
+
+    /**
+     * Appends the request's new operations and answers with what the sender is missing, at most
+     * about {@link #MAX_RESPONSE_BYTES} of it. The new operations are in the file, when there is
+     * one, before the answer acknowledges them.
+     */
+    synchronized SyncBatch exchange(SyncBatch request) throws IOException {
+        List<SyncBatch.Frame> accepted = new ArrayList<>();
+        HashMap<Long, Integer> next = new HashMap<>();
+        for (SyncBatch.Frame f : request.frames) {
+            // Resent operations are dropped; a gap means an earlier one got lost, so the rest of
+            // this replica's batch waits for the client to resend from the acknowledged point.
+            Integer expected = next.get(f.replica);
+            if (expected == null) {
+                ArrayList<SyncBatch.Frame> log = byReplica.get(f.replica);
+                expected = log == null ? 1 : log.size() + 1;
+            }
+            if (f.seq == expected) {
+                accepted.add(f);
+                next.put(f.replica, expected + 1);
+            }
+        }
+        // Written before they are taken in, so a failed write leaves them unacknowledged
+        if (file != null && !accepted.isEmpty()) {
+            // Flushed to the OS, which survives a restart of the server; not forced to the disk
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file, true)))) {
+                for (SyncBatch.Frame f : accepted) {
+                    out.writeLong(f.replica);
+                    out.writeInt(f.seq);
+                    out.writeInt(f.payload.length);
+                    out.write(f.payload);
+                }
+            }
+        }
+        for (SyncBatch.Frame f : accepted) {
+            accept(f);
+        }
+        VersionVector versions = new VersionVector();
+        List<SyncBatch.Frame> missing = new ArrayList<>();
+        long bytes = 0;
+        for (Map.Entry<Long, ArrayList<SyncBatch.Frame>> e : byReplica.entrySet()) {
+            ArrayList<SyncBatch.Frame> log = e.getValue();
+            versions.set(e.getKey(), log.size());
+            if (e.getKey() == request.sender) {
+                continue;
+            }
+            for (int i = Math.max(0, request.versions.get(e.getKey()));
+                 i < log.size() && (missing.isEmpty() || bytes < MAX_RESPONSE_BYTES); ++i) {
+                missing.add(log.get(i));
+                bytes += FRAME_OVERHEAD + log.get(i).payload.length;
+            }
+        }
+        return new SyncBatch(0, versions, missing);
+    }
+
+    synchronized long operations() {
+        return operations;
+    }
+
+    private boolean accept(SyncBatch.Frame f) {
+        ArrayList<SyncBatch.Frame> log = byReplica.get(f.replica);
+        if (log == null) {
+            log = new ArrayList<>();
+            byReplica.put(f.replica, log);
+        }
+        if (f.seq != log.size() + 1) {
+            return false;
+        }
+        log.add(f);
+        operations += 1;
+        return true;
+    }
+
+    private static byte[] randomSalt() {
+        byte[] salt = new byte[SALT_BYTES];
+        new SecureRandom().nextBytes(salt);
+        return salt;
+    }
+
+    private static byte[] hash(byte[] salt, String secret) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            digest.update(salt);
+            return digest.digest(secret.getBytes(UTF_8));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,246 @@
+package com.courtplanner.court.server;
+
+import com.courtplanner.court.engine.HttpSyncTransport;
+import com.courtplanner.court.engine.SyncBatch;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Embeddable roster sync server. Every club has its own {@link ClubLog}; devices {@code POST} a
+ * {@link SyncBatch} to {@code /clubs/<club>/sync} and get back the operations they have not
+ * seen. Requests are handled on virtual threads when the JVM has them (21+), otherwise on a
+ * cached thread pool.
+ *
+ * <p>Every request carries the club secret in the {@link HttpSyncTransport#SECRET_HEADER}
+ * header; the first device to sync a club sets it, any other secret is refused with 403. A
+ * device may only send operations of its own replica.
+ *
+ * <p>Run standalone with {@code java -cp ... com.courtplanner.court.server.SyncServer [port]
+ * [data directory]}; every club is kept in a file there and survives a restart.
+ */
+public final class SyncServer implements Closeable {
+
+    static final String PREFIX = "/clubs/";
+    static final String SUFFIX = "/sync";
+    private static final int MAX_BODY = 8 << 20;
+
+    private final HttpServer http;
+    private final ExecutorService executor;
+    private final ConcurrentHashMap<String, ClubLog> clubs = new ConcurrentHashMap<>();
+    private final boolean virtualThreads;
+    // null: clubs are kept in memory only
+    private final File dataDir;
+
+    private SyncServer(HttpServer http, ExecutorService executor, boolean virtualThreads, File dataDir) {
+        this.http = http;
+        this.executor = executor;
+        this.virtualThreads = virtualThreads;
+        this.dataDir = dataDir;
+    }
+
+    /**
+     * Starts a server on {@code address} that keeps its clubs in memory; port 0 picks a free
+     * one, see {@link #port()}.
+     */
+    public static SyncServer start(InetSocketAddress address) throws IOException {
+        return start(address, null);
+    }
+
+    /** Starts a server on {@code address} that keeps every club in a file in {@code dataDir}. */
+    public static SyncServer start(InetSocketAddress address, File dataDir) throws IOException {
+        if (dataDir != null && !dataDir.isDirectory() && !dataDir.mkdirs()) {
+            throw new IOException("could not create " + dataDir);
+        }
+        ExecutorService executor;
+        boolean virtual;
+        try {
+            executor = (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+            virtual = true;
+        } catch (ReflectiveOperationException e) {
+            executor = Executors.newCachedThreadPool();
+            virtual = false;
+        }
+        // Responses are small and written as headers plus body; without TCP_NODELAY the body
+        // waits for the client's delayed ACK (~40 ms per round trip)
+        if (System.getProperty("sun.net.httpserver.nodelay") == null) {
+            System.setProperty("sun.net.httpserver.nodelay", "true");
+        }
+        HttpServer http = HttpServer.create(address, 1024);
+        final SyncServer server = new SyncServer(http, executor, virtual, dataDir);
+        http.createContext(PREFIX, new HttpHandler() {
+            @Override
+            public void handle(HttpExchange exchange) throws IOException {
+                server.handle(exchange);
+            }
+        });
+        http.setExecutor(executor);
+        http.start();
+        return server;
+    }
+
+    public int port() {
+        return http.getAddress().getPort();
+    }
+
+    public boolean usesVirtualThreads() {
+        return virtualThreads;
+    }
+
+    public int clubCount() {
+        return clubs.size();
+    }
+
+    /** Operations stored across all clubs. */
+    public long operationCount() {
+        long total = 0;
+        for (ClubLog log : clubs.values()) {
+            total += log.operations();
+        }
+        return total;
+    }
+
+    @Override
+    public void close() {
+        http.stop(0);
+        executor.shutdownNow();
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try {
+            String path = exchange.getRequestURI().getRawPath();
+            if (!path.endsWith(SUFFIX) || path.length() <= PREFIX.length() + SUFFIX.length()) {
+                exchange.sendResponseHeaders(404, -1);
+                return;
+            }
+            if (!"POST".equals(exchange.getRequestMethod())) {
+                exchange.getResponseHeaders().set("Allow", "POST");
+                exchange.sendResponseHeaders(405, -1);
+                return;
+            }
+            String club = URLDecoder.decode(path.substring(PREFIX.length(), path.length() - SUFFIX.length()), "UTF-8");
+            String secret = exchange.getRequestHeaders().getFirst(HttpSyncTransport.SECRET_HEADER);
+            if (secret == null || secret.isEmpty()) {
+                exchange.sendResponseHeaders(403, -1);
+                return;
+            }
+            SyncBatch request;
+            try {
+                request = SyncBatch.readFrom(new BufferedInputStream(new LimitedInputStream(exchange.getRequestBody(), MAX_BODY)));
+            } catch (IOException e) {
+                exchange.sendResponseHeaders(400, -1);
+                return;
+            }
+            for (SyncBatch.Frame f : request.frames) {
+                if (f.replica != request.sender) {
+                    exchange.sendResponseHeaders(400, -1);
+                    return;
+                }
+            }
+            ClubLog log = club(club, secret);
+            if (!log.admits(secret)) {
+                exchange.sendResponseHeaders(403, -1);
+                return;
+            }
+            ByteArrayOutputStream body = new ByteArrayOutputStream();
+            log.exchange(request).writeTo(body);
+            exchange.getResponseHeaders().set("Content-Type", "application/octet-stream");
+            exchange.sendResponseHeaders(200, body.size());
+            try (OutputStream out = exchange.getResponseBody()) {
+                body.writeTo(out);
+            }
+        } finally {
+            exchange.close();
+        }
+    }
+
+    // The first request to a club creates it with its secret
+    private ClubLog club(String club, String secret) throws IOException {
+        ClubLog log = clubs.get(club);
+        if (log != null) {
+            return log;
+        }
+        synchronized (clubs) {
+            log = clubs.get(club);
+            if (log == null) {
+                log = dataDir == null ? new ClubLog(secret) : ClubLog.open(new File(dataDir, fileName(club)), secret);
+                clubs.put(club, log);
+            }
+            return log;
+        }
+    }
+
+    // Club names are free text; the file is named after a hash of the name
+    static String fileName(String club) {
+        try {
+            byte[] hash = MessageDigest.getInstance("SHA-256").digest(club.getBytes(StandardCharsets.UTF_8));
+            StringBuilder name = new StringBuilder();
+            for (byte b : hash) {
+                name.append(Character.forDigit((b >> 4) & 15, 16)).append(Character.forDigit(b & 15, 16));
+            }
+            return name.append(".club").toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    // Fails the request instead of buffering an unbounded body.
+    private static final class LimitedInputStream extends InputStream {
+        private final InputStream in;
+        private long left;
+
+        LimitedInputStream(InputStream in, long limit) {
+            this.in = in;
+            this.left = limit;
+        }
+
+        @Override
+        public int read() throws IOException {
+            if (left <= 0) {
+                throw new IOException("request body too large");
+            }
+            int b = in.read();
+            if (b >= 0) {
+                left -= 1;
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (left <= 0) {
+                throw new IOException("request body too large");
+            }
+            int n = in.read(b, off, (int) Math.min(len, left));
+            if (n > 0) {
+                left -= n;
+            }
+            return n;
+        }
+    }
+
+    public static void main(String[] args) throws IOException {
+        int port = args.length > 0 ? Integer.parseInt(args[0]) : 8080;
+        File dataDir = new File(args.length > 1 ? args[1] : "clubs");
+        SyncServer server = start(new InetSocketAddress(port), dataDir);
+        System.out.println("court planner sync server on port " + server.port()
+                + (server.usesVirtualThreads() ? " (virtual threads)" : " (thread pool)")
+                + ", clubs in " + dataDir.getAbsolutePath());
+    }
+}
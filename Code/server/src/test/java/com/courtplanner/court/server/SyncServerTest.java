@@ -0,0 +1,232 @@
+package com.courtplanner.court.server;
+
+import com.courtplanner.court.engine.HttpSyncTransport;
+import com.courtplanner.court.engine.PlayerRegistry;
+import com.courtplanner.court.engine.RosterSync;
+import com.courtplanner.court.engine.SyncBatch;
+import com.courtplanner.court.engine.SyncTransport;
+import com.courtplanner.court.engine.VersionVector;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.junit.Assert.*;
+
+public class SyncServerTest {
+
+    @Rule
+    public TemporaryFolder temp = new TemporaryFolder();
+
+    private static SyncTransport inMemory(final ClubLog club) {
+        return new SyncTransport() {
+            @Override
+            public SyncBatch exchange(SyncBatch request) throws IOException {
+                // Round-trip through the wire format like the HTTP transport does
+                ByteArrayOutputStream out = new ByteArrayOutputStream();
+                request.writeTo(out);
+                SyncBatch received = SyncBatch.readFrom(new ByteArrayInputStream(out.toByteArray()));
+                out.reset();
+                club.exchange(received).writeTo(out);
+                return SyncBatch.readFrom(new ByteArrayInputStream(out.toByteArray()));
+            }
+        };
+    }
+
+    @Test
+    public void twoDevices_convergeOnRosterAndGames() throws IOException {
+        SyncTransport transport = inMemory(new ClubLog());
+        PlayerRegistry a = new PlayerRegistry();
+        PlayerRegistry b = new PlayerRegistry();
+        RosterSync syncA = new RosterSync(a, 1);
+        RosterSync syncB = new RosterSync(b, 2);
+
+        a.add("LEGACY", 3, false);
+        syncA.seedFromRegistry();
+        syncA.add("ANNA");
+        syncA.add("BEN");
+        syncA.sync(transport);
+        syncB.sync(transport);
+        assertEquals(3, b.size());
+        assertEquals(3, b.get("LEGACY").numberSelected);
+
+        syncA.recordDraw(Arrays.asList("ANNA", "BEN"), 0);
+        syncB.recordDraw(Arrays.asList("ANNA"), 0);
+        syncB.add("CARL");
+        syncB.remove("BEN");
+        syncA.sync(transport);
+        syncB.sync(transport);
+        syncA.sync(transport);
+
+        for (PlayerRegistry r : new PlayerRegistry[]{a, b}) {
+            assertEquals(3, r.size());
+            assertFalse(r.contains("BEN"));
+            assertEquals(2, r.get("ANNA").numberSelected);
+            assertEquals(0, r.get("CARL").numberSelected);
+        }
+        assertEquals(0, syncA.pendingCount());
+        assertEquals(0, syncB.pendingCount());
+    }
+
+    @Test
+    public void concurrentAddAndRemove_lastWriterWins() throws IOException {
+        SyncTransport transport = inMemory(new ClubLog());
+        PlayerRegistry a = new PlayerRegistry();
+        PlayerRegistry b = new PlayerRegistry();
+        RosterSync syncA = new RosterSync(a, 1);
+        RosterSync syncB = new RosterSync(b, 2);
+        syncA.add("ZOE");
+        syncA.sync(transport);
+        syncB.sync(transport);
+
+        // Both draw ZOE, B then removes her and A (not yet knowing) removes and re-adds her later
+        // in Lamport time; the re-added ZOE keeps both games
+        syncB.recordDraw(Arrays.asList("ZOE"), 0);
+        syncB.remove("ZOE");
+        syncA.recordDraw(Arrays.asList("ZOE"), 0);
+        syncA.remove("ZOE");
+        syncA.add("ZOE");
+        syncB.sync(transport);
+        syncA.sync(transport);
+        syncB.sync(transport);
+        assertTrue(a.contains("ZOE"));
+        assertTrue(b.contains("ZOE"));
+        assertEquals(2, a.get("ZOE").numberSelected);
+        assertEquals(2, b.get("ZOE").numberSelected);
+    }
+
+    @Test
+    public void savedState_resumesWithoutResendingAcknowledgedOps() throws IOException {
+        ClubLog club = new ClubLog();
+        SyncTransport transport = inMemory(club);
+        PlayerRegistry a = new PlayerRegistry();
+        RosterSync syncA = new RosterSync(a, 1);
+        syncA.add("ANNA");
+        syncA.sync(transport);
+        syncA.add("BEN");
+
+        ByteArrayOutputStream state = new ByteArrayOutputStream();
+        syncA.writeState(state);
+        RosterSync restored = RosterSync.readState(a, new ByteArrayInputStream(state.toByteArray()));
+        assertEquals(1, restored.pendingCount());
+        restored.sync(transport);
+        assertEquals(2, club.operations());
+
+        PlayerRegistry b = new PlayerRegistry();
+        new RosterSync(b, 2).sync(transport);
+        assertTrue(b.contains("ANNA") && b.contains("BEN"));
+    }
+
+    @Test
+    public void http_roundTrip() throws IOException {
+        SyncServer server = SyncServer.start(new InetSocketAddress("127.0.0.1", 0));
+        try {
+            String url = "http://127.0.0.1:" + server.port();
+            PlayerRegistry a = new PlayerRegistry();
+            PlayerRegistry b = new PlayerRegistry();
+            RosterSync syncA = new RosterSync(a, 1);
+            syncA.add("ANNA");
+            syncA.sync(new HttpSyncTransport(url, "club one", "s1"));
+            new RosterSync(b, 2).sync(new HttpSyncTransport(url, "club one", "s1"));
+            new RosterSync(new PlayerRegistry(), 3).sync(new HttpSyncTransport(url, "club two", "s2"));
+            assertTrue(b.contains("ANNA"));
+            assertEquals(2, server.clubCount());
+            assertEquals(1, server.operationCount());
+        } finally {
+            server.close();
+        }
+    }
+
+    @Test
+    public void restartedServer_keepsClubsAndSecrets() throws IOException {
+        File data = temp.newFolder("clubs");
+        PlayerRegistry a = new PlayerRegistry();
+        RosterSync syncA = new RosterSync(a, 1);
+        SyncServer server = SyncServer.start(new InetSocketAddress("127.0.0.1", 0), data);
+        try {
+            syncA.add("ANNA");
+            syncA.sync(new HttpSyncTransport("http://127.0.0.1:" + server.port(), "club one", "s1"));
+        } finally {
+            server.close();
+        }
+
+        server = SyncServer.start(new InetSocketAddress("127.0.0.1", 0), data);
+        try {
+            String url = "http://127.0.0.1:" + server.port();
+            // Acknowledged operations are still there, and new ones are taken without a gap
+            syncA.add("BEN");
+            syncA.sync(new HttpSyncTransport(url, "club one", "s1"));
+            assertEquals(0, syncA.pendingCount());
+            assertEquals(2, server.operationCount());
+            PlayerRegistry b = new PlayerRegistry();
+            new RosterSync(b, 2).sync(new HttpSyncTransport(url, "club one", "s1"));
+            assertTrue(b.contains("ANNA") && b.contains("BEN"));
+
+            try {
+                new RosterSync(new PlayerRegistry(), 3).sync(new HttpSyncTransport(url, "club one", "guess"));
+                fail("expected the wrong secret to be refused");
+            } catch (IOException expected) {
+            }
+        } finally {
+            server.close();
+        }
+    }
+
+    @Test
+    public void http_refusesOperationsOfOtherReplicas() throws IOException {
+        SyncServer server = SyncServer.start(new InetSocketAddress("127.0.0.1", 0));
+        try {
+            HttpSyncTransport transport = new HttpSyncTransport("http://127.0.0.1:" + server.port(), "club", "s");
+            SyncBatch forged = new SyncBatch(1, new VersionVector(), Collections.singletonList(
+                    new SyncBatch.Frame(2, 1, new byte[]{1})));
+            try {
+                transport.exchange(forged);
+                fail("expected the forged operation to be refused");
+            } catch (IOException expected) {
+            }
+            assertEquals(0, server.operationCount());
+        } finally {
+            server.close();
+        }
+    }
+
+    @Test
+    public void largeBacklog_syncsInBoundedChunks() throws IOException {
+        final ClubLog club = new ClubLog();
+        final SyncTransport wire = inMemory(club);
+        final int[] roundTrips = {0};
+        SyncTransport transport = new SyncTransport() {
+            @Override
+            public SyncBatch exchange(SyncBatch request) throws IOException {
+                ByteArrayOutputStream out = new ByteArrayOutputStream();
+                request.writeTo(out);
+                assertTrue(out.size() < 2 * ClubLog.MAX_RESPONSE_BYTES);
+                roundTrips[0] += 1;
+                return wire.exchange(request);
+            }
+        };
+        PlayerRegistry a = new PlayerRegistry();
+        RosterSync syncA = new RosterSync(a, 1);
+        for (int i = 0; i < 60000; ++i) {
+            syncA.add("PLAYER " + i);
+        }
+        syncA.sync(transport);
+        assertEquals(0, syncA.pendingCount());
+        assertEquals(60000, club.operations());
+        assertTrue(roundTrips[0] > 1);
+
+        roundTrips[0] = 0;
+        PlayerRegistry b = new PlayerRegistry();
+        new RosterSync(b, 2).sync(transport);
+        assertEquals(60000, b.size());
+        assertTrue(roundTrips[0] > 1);
+    }
+}